@@ -0,0 +1,55 @@
+package nl.topicus.jdbc;
+
+import java.util.Locale;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+
+/**
+ * The way that mutations are committed when a connection is in autocommit mode. This is set with
+ * the AutoCommitWriteMode connection property.
+ *
+ * @author loite
+ *
+ */
+public enum AutoCommitWriteMode {
+  /**
+   * Buffer the mutations in a read/write transaction that is started by
+   * {@link DatabaseClient#readWriteTransaction()}. This is the default.
+   */
+  TRANSACTION,
+  /**
+   * Commit the mutations with {@link DatabaseClient#write(Iterable)}. The mutations are committed
+   * using a session of the pool that has already started a read/write transaction, which saves the
+   * round-trip that is needed to begin a transaction.
+   */
+  WRITE,
+  /**
+   * Commit the mutations with {@link DatabaseClient#writeAtLeastOnce(Iterable)}. The mutations are
+   * committed in a single round-trip without beginning a transaction, but may be applied more than
+   * once if the commit is retried. This mode should only be used for idempotent writes, such as
+   * INSERT_OR_UPDATE statements.
+   */
+  WRITE_AT_LEAST_ONCE;
+
+  /**
+   * Parse a string into an {@link AutoCommitWriteMode}
+   *
+   * @param value The value to parse. The value is case insensitive. <code>null</code> or an empty
+   *        string returns {@link #TRANSACTION}.
+   * @return The {@link AutoCommitWriteMode} that corresponds with the value
+   * @throws CloudSpannerSQLException if the value is not a valid mode
+   */
+  public static AutoCommitWriteMode parse(String value) throws CloudSpannerSQLException {
+    if (value == null || value.trim().isEmpty())
+      return TRANSACTION;
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new CloudSpannerSQLException("Invalid AutoCommitWriteMode: " + value
+          + ". Valid values are TRANSACTION, WRITE and WRITE_AT_LEAST_ONCE", Code.INVALID_ARGUMENT,
+          e);
+    }
+  }
+
+}
@@ -12,6 +12,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -45,6 +46,7 @@ import com.google.cloud.spanner.ResultSets;
 import com.google.cloud.spanner.Spanner;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.TimestampBound;
 import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Type.StructField;
 import com.google.cloud.spanner.Value;
@@ -61,6 +63,10 @@ import nl.topicus.jdbc.resultset.CloudSpannerResultSet;
 import nl.topicus.jdbc.statement.CloudSpannerPreparedStatement;
 import nl.topicus.jdbc.statement.CloudSpannerStatement;
 import nl.topicus.jdbc.transaction.CloudSpannerTransaction;
+import nl.topicus.jdbc.transaction.GroupCommitter;
+import nl.topicus.jdbc.transaction.TransactionWorkerPool;
+import nl.topicus.jdbc.util.PartitionOptionsUtil;
+import nl.topicus.jdbc.util.TimestampBoundUtil;
 
 /**
  * JDBC Driver for Google Cloud Spanner.
@@ -106,6 +112,8 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
 
   private static final String GOOGLE_CLOUD_STORAGE_PREFIX = "gs://";
 
+  public static final int DEFAULT_PARTITION_BUFFER_SIZE = 1000;
+
   private final CloudSpannerDriver driver;
 
   private final CloudSpannerDatabaseSpecification database;
@@ -147,10 +155,57 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
   private boolean autoBatchDdlOperations;
   private final List<String> autoBatchedDdlOperations = new ArrayList<>();
 
+  private boolean originalRetryAbortsInternally;
+  private boolean retryAbortsInternally;
+
+  private TimestampBound originalReadTimestampBound = TimestampBound.strong();
+  private TimestampBound readTimestampBound = TimestampBound.strong();
+
+  private int originalPartitionParallelism = 0;
+  private int partitionParallelism = 0;
+  private int originalPartitionBufferSize = DEFAULT_PARTITION_BUFFER_SIZE;
+  private int partitionBufferSize = DEFAULT_PARTITION_BUFFER_SIZE;
+
+  private int originalExtendedModeParallelism = 0;
+  private int extendedModeParallelism = 0;
+
+  private int originalMaxInFlightCommits = 0;
+  private int maxInFlightCommits = 0;
+
+  private boolean originalAutoSplitTransactions = false;
+  private boolean autoSplitTransactions = false;
+
+  private boolean originalDeleteKeyRanges = false;
+  private boolean deleteKeyRanges = false;
+
+  private AutoCommitWriteMode originalAutoCommitWriteMode = AutoCommitWriteMode.TRANSACTION;
+  private AutoCommitWriteMode autoCommitWriteMode = AutoCommitWriteMode.TRANSACTION;
+
+  private int originalGroupCommitWindow = 0;
+  private int groupCommitWindow = 0;
+
+  private int originalGroupCommitMaxMutations = GroupCommitter.DEFAULT_MAX_CELLS;
+  private int groupCommitMaxMutations = GroupCommitter.DEFAULT_MAX_CELLS;
+
+  private SQLWarning warnings;
+
+  private long originalMaxPartitions = 0L;
+  private long maxPartitions = 0L;
+  private long originalPartitionSizeBytes = 0L;
+  private long partitionSizeBytes = 0L;
+
+  /**
+   * The number of nodes of the instance, used for calculating the maximum number of partitions in
+   * AUTO mode. -1 means not yet known.
+   */
+  private int autoPartitionsNodeCount = -1;
+
   private boolean originalReportDefaultSchemaAsNull = true;
   private boolean reportDefaultSchemaAsNull = true;
   private boolean useCustomHost = false;
 
+  private TransactionWorkerPool transactionWorkerPool = TransactionWorkerPool.getDefault();
+
   private String simulateProductName;
   private Integer simulateMajorVersion;
   private Integer simulateMinorVersion;
@@ -206,6 +261,15 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
   CloudSpannerConnection(CloudSpannerDriver driver, String url,
       CloudSpannerDatabaseSpecification database, String credentialsPath, String oauthToken,
       Properties suppliedProperties, boolean useCustomHost) throws SQLException {
+    this(driver, url, database, credentialsPath, oauthToken, suppliedProperties, useCustomHost,
+        CloudSpannerDriver.SpannerOptionsSpecification.DEFAULT, false);
+  }
+
+  CloudSpannerConnection(CloudSpannerDriver driver, String url,
+      CloudSpannerDatabaseSpecification database, String credentialsPath, String oauthToken,
+      Properties suppliedProperties, boolean useCustomHost,
+      CloudSpannerDriver.SpannerOptionsSpecification spannerOptions, boolean warmUpSessions)
+      throws SQLException {
     this.driver = driver;
     this.database = database;
     this.url = url;
@@ -219,16 +283,13 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
 
     try {
       Credentials credentials = null;
+      CloudSpannerCredentialsCache credentialsCache = driver.getCredentialsCache();
       if (credentialsPath != null) {
-        credentials = getCredentialsFromFile(credentialsPath);
+        credentials = credentialsCache.getCredentialsFromFile(credentialsPath);
       } else if (oauthToken != null) {
-        credentials = getCredentialsFromOAuthToken(oauthToken);
+        credentials = credentialsCache.getCredentialsFromOAuthToken(oauthToken);
       } else {
-        try {
-          credentials = GoogleCredentials.getApplicationDefault();
-        } catch (Exception e) {
-          // ignore
-        }
+        credentials = credentialsCache.getApplicationDefault();
       }
       if (credentials != null) {
         if (credentials instanceof UserCredentials) {
@@ -247,15 +308,20 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
         }
         host = url.substring("jdbc:cloudspanner:".length(), endIndex);
       }
-      spanner = driver.getSpanner(database.project, credentials, host);
-      dbClient = spanner.getDatabaseClient(
-          DatabaseId.of(spanner.getOptions().getProjectId(), database.instance, database.database));
+      spanner = driver.getSpanner(database.project, credentials, host, spannerOptions);
+      DatabaseId databaseId =
+          DatabaseId.of(spanner.getOptions().getProjectId(), database.instance, database.database);
+      dbClient = spanner.getDatabaseClient(databaseId);
+      if (warmUpSessions)
+        driver.warmUpSessions(spanner, databaseId, dbClient);
       BatchClient batchClient = spanner.getBatchClient(
           DatabaseId.of(spanner.getOptions().getProjectId(), database.instance, database.database));
       adminClient = spanner.getDatabaseAdminClient();
       transaction = new CloudSpannerTransaction(dbClient, batchClient, this);
       metaDataStore = new MetaDataStore(this);
     } catch (SpannerException e) {
+      if (spanner != null)
+        driver.releaseSpanner(spanner);
       throw new CloudSpannerSQLException(
           "Error when opening Google Cloud Spanner connection: " + e.getMessage(), e);
     } catch (IOException e) {
@@ -734,6 +800,231 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
     this.originalReportDefaultSchemaAsNull = reportDefaultSchemaAsNull;
   }
 
+  @Override
+  public boolean isRetryAbortsInternally() {
+    return retryAbortsInternally;
+  }
+
+  /**
+   * Sets whether aborted read/write transactions should be retried internally. The setting is
+   * applied to transactions that are started after this method has been called.
+   */
+  @Override
+  public int setRetryAbortsInternally(boolean retryAbortsInternally) {
+    this.retryAbortsInternally = retryAbortsInternally;
+    return 1;
+  }
+
+  boolean isOriginalRetryAbortsInternally() {
+    return originalRetryAbortsInternally;
+  }
+
+  void setOriginalRetryAbortsInternally(boolean retryAbortsInternally) {
+    this.originalRetryAbortsInternally = retryAbortsInternally;
+  }
+
+  @Override
+  public TimestampBound getReadTimestampBound() {
+    return readTimestampBound;
+  }
+
+  /**
+   * Sets the timestamp bound for queries in autocommit mode and for read-only and batch-read-only
+   * transactions. The bound is applied to read-only transactions that are started after this
+   * method has been called.
+   */
+  @Override
+  public int setReadTimestampBound(TimestampBound readTimestampBound) {
+    this.readTimestampBound =
+        readTimestampBound == null ? TimestampBound.strong() : readTimestampBound;
+    return 1;
+  }
+
+  TimestampBound getOriginalReadTimestampBound() {
+    return originalReadTimestampBound;
+  }
+
+  void setOriginalReadTimestampBound(TimestampBound readTimestampBound) {
+    this.originalReadTimestampBound =
+        readTimestampBound == null ? TimestampBound.strong() : readTimestampBound;
+  }
+
+  @Override
+  public int getPartitionParallelism() {
+    return partitionParallelism;
+  }
+
+  @Override
+  public void setPartitionParallelism(int partitionParallelism) {
+    this.partitionParallelism = Math.max(0, partitionParallelism);
+  }
+
+  @Override
+  public int getPartitionBufferSize() {
+    return partitionBufferSize;
+  }
+
+  @Override
+  public void setPartitionBufferSize(int partitionBufferSize) {
+    this.partitionBufferSize =
+        partitionBufferSize > 0 ? partitionBufferSize : DEFAULT_PARTITION_BUFFER_SIZE;
+  }
+
+  @Override
+  public int getExtendedModeParallelism() {
+    return extendedModeParallelism;
+  }
+
+  @Override
+  public void setExtendedModeParallelism(int extendedModeParallelism) {
+    this.extendedModeParallelism = Math.max(0, extendedModeParallelism);
+  }
+
+  @Override
+  public int getMaxInFlightCommits() {
+    return maxInFlightCommits;
+  }
+
+  @Override
+  public void setMaxInFlightCommits(int maxInFlightCommits) {
+    this.maxInFlightCommits = Math.max(0, maxInFlightCommits);
+  }
+
+  @Override
+  public boolean isAutoSplitTransactions() {
+    return autoSplitTransactions;
+  }
+
+  @Override
+  public void setAutoSplitTransactions(boolean autoSplitTransactions) {
+    this.autoSplitTransactions = autoSplitTransactions;
+  }
+
+  @Override
+  public boolean isDeleteKeyRanges() {
+    return deleteKeyRanges;
+  }
+
+  @Override
+  public void setDeleteKeyRanges(boolean deleteKeyRanges) {
+    this.deleteKeyRanges = deleteKeyRanges;
+  }
+
+  @Override
+  public AutoCommitWriteMode getAutoCommitWriteMode() {
+    return autoCommitWriteMode;
+  }
+
+  @Override
+  public void setAutoCommitWriteMode(AutoCommitWriteMode autoCommitWriteMode) {
+    this.autoCommitWriteMode =
+        autoCommitWriteMode == null ? AutoCommitWriteMode.TRANSACTION : autoCommitWriteMode;
+  }
+
+  @Override
+  public int getGroupCommitWindow() {
+    return groupCommitWindow;
+  }
+
+  @Override
+  public void setGroupCommitWindow(int groupCommitWindow) {
+    this.groupCommitWindow = Math.max(0, groupCommitWindow);
+  }
+
+  @Override
+  public int getGroupCommitMaxMutations() {
+    return groupCommitMaxMutations;
+  }
+
+  @Override
+  public void setGroupCommitMaxMutations(int groupCommitMaxMutations) {
+    this.groupCommitMaxMutations = Math.max(1, groupCommitMaxMutations);
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    checkClosed();
+    return warnings;
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    checkClosed();
+    warnings = null;
+  }
+
+  /**
+   * Adds a warning to the chain of warnings of this connection
+   * 
+   * @param warning The warning to add
+   */
+  @InternalApi
+  public void addWarning(SQLWarning warning) {
+    if (warnings == null)
+      warnings = warning;
+    else
+      warnings.setNextWarning(warning);
+  }
+
+  @Override
+  public long getMaxPartitions() {
+    return maxPartitions;
+  }
+
+  @Override
+  public int setMaxPartitions(long maxPartitions) {
+    this.maxPartitions =
+        maxPartitions < 0L ? PartitionOptionsUtil.AUTO_MAX_PARTITIONS : maxPartitions;
+    return 1;
+  }
+
+  long getOriginalMaxPartitions() {
+    return originalMaxPartitions;
+  }
+
+  void setOriginalMaxPartitions(long maxPartitions) {
+    this.originalMaxPartitions =
+        maxPartitions < 0L ? PartitionOptionsUtil.AUTO_MAX_PARTITIONS : maxPartitions;
+  }
+
+  @Override
+  public long getPartitionSizeBytes() {
+    return partitionSizeBytes;
+  }
+
+  @Override
+  public int setPartitionSizeBytes(long partitionSizeBytes) {
+    this.partitionSizeBytes = Math.max(0L, partitionSizeBytes);
+    return 1;
+  }
+
+  long getOriginalPartitionSizeBytes() {
+    return originalPartitionSizeBytes;
+  }
+
+  void setOriginalPartitionSizeBytes(long partitionSizeBytes) {
+    this.originalPartitionSizeBytes = Math.max(0L, partitionSizeBytes);
+  }
+
+  /**
+   * Calculates the maximum number of partitions to request when max partitions is set to AUTO. The
+   * number of nodes of the instance is only fetched once per connection.
+   * 
+   * @return The maximum number of partitions for AUTO mode
+   */
+  public long getAutoMaxPartitions() {
+    if (autoPartitionsNodeCount < 0) {
+      try {
+        autoPartitionsNodeCount = getNodeCount();
+      } catch (SQLException e) {
+        logger.info("Could not get the number of nodes of the instance, assuming 1 node", e);
+        autoPartitionsNodeCount = 0;
+      }
+    }
+    return PartitionOptionsUtil.getAutoMaxPartitions(autoPartitionsNodeCount,
+        getPartitionParallelism());
+  }
+
   /**
    * Set a dynamic connection property, such as AsyncDdlOperations
    * 
@@ -745,6 +1036,18 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
    */
   public int setDynamicConnectionProperty(String propertyName, String propertyValue)
       throws SQLException {
+    if (propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.READ_TIMESTAMP_BOUND))) {
+      return setReadTimestampBound(TimestampBoundUtil.parse(propertyValue));
+    }
+    if (propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.MAX_PARTITIONS))) {
+      return setMaxPartitions(PartitionOptionsUtil.parseMaxPartitions(propertyValue));
+    }
+    if (propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.PARTITION_SIZE_BYTES))) {
+      return setPartitionSizeBytes(PartitionOptionsUtil.parsePartitionSizeBytes(propertyValue));
+    }
     return getPropertySetter(propertyName).apply(Boolean.valueOf(propertyValue));
   }
 
@@ -757,9 +1060,58 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
    * @throws SQLException Throws {@link SQLException} if a database error occurs
    */
   public int resetDynamicConnectionProperty(String propertyName) throws SQLException {
+    if (propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.READ_TIMESTAMP_BOUND))) {
+      return setReadTimestampBound(getOriginalReadTimestampBound());
+    }
+    if (propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.MAX_PARTITIONS))) {
+      return setMaxPartitions(getOriginalMaxPartitions());
+    }
+    if (propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.PARTITION_SIZE_BYTES))) {
+      return setPartitionSizeBytes(getOriginalPartitionSizeBytes());
+    }
     return getPropertySetter(propertyName).apply(getOriginalValueGetter(propertyName).get());
   }
 
+  /**
+   * Resets the state of this connection to the state it had when it was opened. Any running
+   * transaction is rolled back, read-only mode is turned off, any pending auto-batched DDL
+   * statements are discarded and all dynamic connection properties are reset to their original
+   * values. This is used by {@link CloudSpannerPoolingDataSource} when
+   * a connection is returned to the pool.
+   * 
+   * @throws SQLException Throws {@link SQLException} if a database error occurs
+   */
+  void resetConnectionState() throws SQLException {
+    checkClosed();
+    if (getTransaction().isRunning())
+      rollback();
+    // Set the fields directly, as the setters do not allow changing batch read-only mode in
+    // autocommit mode, and the autocommit mode is set by the pool when the connection is borrowed
+    batchReadOnly = originalBatchReadOnly;
+    readOnly = false;
+    clearAutoBatchedDdlOperations();
+    setPartitionParallelism(originalPartitionParallelism);
+    setPartitionBufferSize(originalPartitionBufferSize);
+    setExtendedModeParallelism(originalExtendedModeParallelism);
+    setMaxInFlightCommits(originalMaxInFlightCommits);
+    setAutoSplitTransactions(originalAutoSplitTransactions);
+    setDeleteKeyRanges(originalDeleteKeyRanges);
+    setAutoCommitWriteMode(originalAutoCommitWriteMode);
+    setGroupCommitWindow(originalGroupCommitWindow);
+    setGroupCommitMaxMutations(originalGroupCommitMaxMutations);
+    for (String property : new String[] {ConnectionProperties.ALLOW_EXTENDED_MODE,
+        ConnectionProperties.ASYNC_DDL_OPERATIONS, ConnectionProperties.AUTO_BATCH_DDL_OPERATIONS,
+        ConnectionProperties.REPORT_DEFAULT_SCHEMA_AS_NULL,
+        ConnectionProperties.RETRY_ABORTS_INTERNALLY, ConnectionProperties.READ_TIMESTAMP_BOUND,
+        ConnectionProperties.MAX_PARTITIONS, ConnectionProperties.PARTITION_SIZE_BYTES}) {
+      resetDynamicConnectionProperty(ConnectionProperties.getPropertyName(property));
+    }
+    clearWarnings();
+  }
+
   private Supplier<Boolean> getOriginalValueGetter(String propertyName) {
     if (propertyName.equalsIgnoreCase(
         ConnectionProperties.getPropertyName(ConnectionProperties.ALLOW_EXTENDED_MODE))) {
@@ -781,6 +1133,10 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
         ConnectionProperties.getPropertyName(ConnectionProperties.BATCH_READ_ONLY_MODE))) {
       return this::isOriginalBatchReadOnly;
     }
+    if (propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.RETRY_ABORTS_INTERNALLY))) {
+      return this::isOriginalRetryAbortsInternally;
+    }
     // Return a no-op to avoid null checks
     return () -> false;
   }
@@ -811,6 +1167,10 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
         ConnectionProperties.getPropertyName(ConnectionProperties.BATCH_READ_ONLY_MODE))) {
       return this::setBatchReadOnly;
     }
+    if (propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.RETRY_ABORTS_INTERNALLY))) {
+      return this::setRetryAbortsInternally;
+    }
     // Return a no-op to avoid null checks
     return x -> 0;
   }
@@ -850,6 +1210,27 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
       values.put(ConnectionProperties.getPropertyName(ConnectionProperties.BATCH_READ_ONLY_MODE),
           String.valueOf(isBatchReadOnly()));
     }
+    if (propertyName == null || propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.RETRY_ABORTS_INTERNALLY))) {
+      values.put(
+          ConnectionProperties.getPropertyName(ConnectionProperties.RETRY_ABORTS_INTERNALLY),
+          String.valueOf(isRetryAbortsInternally()));
+    }
+    if (propertyName == null || propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.READ_TIMESTAMP_BOUND))) {
+      values.put(ConnectionProperties.getPropertyName(ConnectionProperties.READ_TIMESTAMP_BOUND),
+          TimestampBoundUtil.toString(getReadTimestampBound()));
+    }
+    if (propertyName == null || propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.MAX_PARTITIONS))) {
+      values.put(ConnectionProperties.getPropertyName(ConnectionProperties.MAX_PARTITIONS),
+          PartitionOptionsUtil.maxPartitionsToString(getMaxPartitions()));
+    }
+    if (propertyName == null || propertyName.equalsIgnoreCase(
+        ConnectionProperties.getPropertyName(ConnectionProperties.PARTITION_SIZE_BYTES))) {
+      values.put(ConnectionProperties.getPropertyName(ConnectionProperties.PARTITION_SIZE_BYTES),
+          String.valueOf(getPartitionSizeBytes()));
+    }
     return createResultSet(statement, values);
   }
 
@@ -897,11 +1278,18 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
    * @return A new connection with the same URL and properties as this connection. You can use this
    *         method if you want to open a new connection to the same database, for example to run a
    *         number of statements in a different transaction than the transaction you are currently
-   *         using on this connection.
+   *         using on this connection. The transactions of the new connection are not limited by
+   *         the TransactionWorkerPoolSize of this connection, as this connection may be waiting
+   *         for the new connection while it is holding one of the workers of the pool.
    * @throws SQLException If an error occurs while opening the new connection
    */
   public CloudSpannerConnection createCopyConnection() throws SQLException {
-    return (CloudSpannerConnection) DriverManager.getConnection(getUrl(), getSuppliedProperties());
+    CloudSpannerConnection copy =
+        (CloudSpannerConnection) DriverManager.getConnection(getUrl(), getSuppliedProperties());
+    if (transactionWorkerPool.getMaxSize() != TransactionWorkerPool.UNBOUNDED)
+      copy.setTransactionWorkerPool(TransactionWorkerPool.getPool(TransactionWorkerPool.UNBOUNDED,
+          transactionWorkerPool.isVirtualThreads()));
+    return copy;
   }
 
   public Logger getLogger() {
@@ -1013,6 +1401,44 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
     this.originalBatchReadOnly = originalBatchReadOnly;
   }
 
+  void setOriginalPartitionParallelism(int originalPartitionParallelism) {
+    this.originalPartitionParallelism = Math.max(0, originalPartitionParallelism);
+  }
+
+  void setOriginalPartitionBufferSize(int originalPartitionBufferSize) {
+    this.originalPartitionBufferSize = originalPartitionBufferSize > 0
+        ? originalPartitionBufferSize : DEFAULT_PARTITION_BUFFER_SIZE;
+  }
+
+  void setOriginalExtendedModeParallelism(int originalExtendedModeParallelism) {
+    this.originalExtendedModeParallelism = Math.max(0, originalExtendedModeParallelism);
+  }
+
+  void setOriginalMaxInFlightCommits(int originalMaxInFlightCommits) {
+    this.originalMaxInFlightCommits = Math.max(0, originalMaxInFlightCommits);
+  }
+
+  void setOriginalAutoSplitTransactions(boolean originalAutoSplitTransactions) {
+    this.originalAutoSplitTransactions = originalAutoSplitTransactions;
+  }
+
+  void setOriginalDeleteKeyRanges(boolean originalDeleteKeyRanges) {
+    this.originalDeleteKeyRanges = originalDeleteKeyRanges;
+  }
+
+  void setOriginalAutoCommitWriteMode(AutoCommitWriteMode originalAutoCommitWriteMode) {
+    this.originalAutoCommitWriteMode = originalAutoCommitWriteMode == null
+        ? AutoCommitWriteMode.TRANSACTION : originalAutoCommitWriteMode;
+  }
+
+  void setOriginalGroupCommitWindow(int originalGroupCommitWindow) {
+    this.originalGroupCommitWindow = Math.max(0, originalGroupCommitWindow);
+  }
+
+  void setOriginalGroupCommitMaxMutations(int originalGroupCommitMaxMutations) {
+    this.originalGroupCommitMaxMutations = Math.max(1, originalGroupCommitMaxMutations);
+  }
+
   private void checkSavepointPossible() throws SQLException {
     checkClosed();
     if (getAutoCommit())
@@ -1063,4 +1489,13 @@ public class CloudSpannerConnection extends AbstractCloudSpannerConnection {
     this.useCustomHost = useCustomHost;
   }
 
+  @Override
+  public TransactionWorkerPool getTransactionWorkerPool() {
+    return transactionWorkerPool;
+  }
+
+  void setTransactionWorkerPool(TransactionWorkerPool transactionWorkerPool) {
+    this.transactionWorkerPool = transactionWorkerPool;
+  }
+
 }
@@ -0,0 +1,164 @@
+package nl.topicus.jdbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import com.google.auth.oauth2.GoogleCredentials;
+
+/**
+ * Driver-level cache of the credentials that are used to open connections. Reading and parsing a
+ * credentials file, downloading it from Google Cloud Storage or looking up the application default
+ * credentials is only done for the first connection that uses the credentials. Connections that are
+ * opened later on reuse the same {@link GoogleCredentials} instance, which also makes sure that
+ * these connections use the same {@link com.google.cloud.spanner.Spanner} instance.
+ * <p>
+ * Credentials that are read from a local file are reloaded when the last modification time or the
+ * size of the file changes. Credentials that are read from Google Cloud Storage and the application
+ * default credentials are reloaded when they have been cached longer than the time to live of the
+ * cache.
+ * </p>
+ *
+ * @author loite
+ *
+ */
+final class CloudSpannerCredentialsCache {
+  /**
+   * The default number of milliseconds that credentials that cannot be validated against a local
+   * file are cached
+   */
+  static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5L);
+
+  /**
+   * The maximum number of OAuth tokens that are cached. Tokens expire and are replaced by new
+   * tokens, so the cache is cleared when it reaches this size.
+   */
+  private static final int MAX_CACHED_TOKENS = 100;
+
+  private static final String GOOGLE_CLOUD_STORAGE_PREFIX = "gs://";
+
+  @FunctionalInterface
+  interface CredentialsLoader {
+    GoogleCredentials load(String credentialsPath) throws IOException;
+  }
+
+  private static final class Entry {
+    private final GoogleCredentials credentials;
+
+    private final long loadedAt;
+
+    private final long lastModified;
+
+    private final long length;
+
+    private Entry(GoogleCredentials credentials, long loadedAt, long lastModified, long length) {
+      this.credentials = credentials;
+      this.loadedAt = loadedAt;
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+  }
+
+  private final CredentialsLoader loader;
+
+  private final long timeToLive;
+
+  private final ConcurrentMap<String, Entry> files = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, GoogleCredentials> tokens = new ConcurrentHashMap<>();
+
+  private volatile Entry applicationDefault;
+
+  /**
+   *
+   * @param loader The loader that reads the credentials from a (local or Google Cloud Storage)
+   *        credentials path if they are not in the cache
+   * @param timeToLive The number of milliseconds that credentials from Google Cloud Storage and the
+   *        application default credentials are cached
+   */
+  CloudSpannerCredentialsCache(CredentialsLoader loader, long timeToLive) {
+    this.loader = loader;
+    this.timeToLive = timeToLive;
+  }
+
+  /**
+   * Returns the credentials in the given credentials file, and loads these if the file has not been
+   * read before or has changed since it was read.
+   *
+   * @param credentialsPath The path of a local file or a URL of a file on Google Cloud Storage
+   * @return The credentials in the file
+   * @throws IOException if the file could not be read
+   */
+  GoogleCredentials getCredentialsFromFile(String credentialsPath) throws IOException {
+    if (credentialsPath == null || credentialsPath.length() == 0)
+      throw new IllegalArgumentException("credentialsPath may not be null or empty");
+    long now = System.currentTimeMillis();
+    boolean local = !credentialsPath.startsWith(GOOGLE_CLOUD_STORAGE_PREFIX);
+    long lastModified = 0L;
+    long length = 0L;
+    if (local) {
+      File file = new File(credentialsPath);
+      lastModified = file.lastModified();
+      length = file.length();
+    }
+    Entry entry = files.get(credentialsPath);
+    if (entry != null) {
+      if (local ? entry.lastModified == lastModified && entry.length == length
+          : now - entry.loadedAt < timeToLive)
+        return entry.credentials;
+    }
+    GoogleCredentials credentials = loader.load(credentialsPath);
+    files.put(credentialsPath, new Entry(credentials, now, lastModified, length));
+    return credentials;
+  }
+
+  /**
+   * Returns credentials for the given OAuth token. The same instance is returned for the same token
+   * as long as the token is in the cache.
+   *
+   * @param oauthToken The OAuth token to create credentials for
+   * @return The credentials for the token, or <code>null</code> if the token is null or empty
+   */
+  GoogleCredentials getCredentialsFromOAuthToken(String oauthToken) {
+    if (oauthToken == null || oauthToken.length() == 0)
+      return null;
+    if (tokens.size() >= MAX_CACHED_TOKENS && !tokens.containsKey(oauthToken))
+      tokens.clear();
+    return tokens.computeIfAbsent(oauthToken,
+        CloudSpannerConnection::getCredentialsFromOAuthToken);
+  }
+
+  /**
+   * Returns the application default credentials of the environment. A lookup that did not find any
+   * credentials is also cached.
+   *
+   * @return The application default credentials, or <code>null</code> if no application default
+   *         credentials are available
+   */
+  GoogleCredentials getApplicationDefault() {
+    long now = System.currentTimeMillis();
+    Entry entry = applicationDefault;
+    if (entry == null || now - entry.loadedAt >= timeToLive) {
+      GoogleCredentials credentials = null;
+      try {
+        credentials = GoogleCredentials.getApplicationDefault();
+      } catch (Exception e) {
+        // ignore
+      }
+      entry = new Entry(credentials, now, 0L, 0L);
+      applicationDefault = entry;
+    }
+    return entry.credentials;
+  }
+
+  /**
+   * Removes all credentials from the cache
+   */
+  void clear() {
+    files.clear();
+    tokens.clear();
+    applicationDefault = null;
+  }
+
+}
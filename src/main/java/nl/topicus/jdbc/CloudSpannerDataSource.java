@@ -39,6 +39,52 @@ public class CloudSpannerDataSource extends AbstractCloudSpannerWrapper implemen
 
   private boolean useCustomHost;
 
+  private Integer transactionWorkerPoolSize;
+
+  private boolean useVirtualThreads;
+
+  private boolean retryAbortsInternally;
+
+  private String readTimestampBound;
+
+  private Integer partitionParallelism;
+
+  private Integer partitionBufferSize;
+
+  private String maxPartitions;
+
+  private String partitionSizeBytes;
+
+  private Integer extendedModeParallelism;
+
+  private Integer maxInFlightCommits;
+
+  private boolean autoSplitTransactions;
+
+  private String autoCommitWriteMode;
+
+  private Integer groupCommitWindow;
+
+  private Integer groupCommitMaxMutations;
+
+  private Integer minSessions;
+
+  private Integer maxSessions;
+
+  private String writeSessionsFraction;
+
+  private Integer keepAliveIntervalMinutes;
+
+  private boolean warmUpSessions;
+
+  private Integer numChannels;
+
+  private Integer maxInboundMessageSize;
+
+  private Integer channelKeepAliveTime;
+
+  private boolean deleteKeyRanges;
+
   private PrintWriter logger;
 
   private int loginTimeout = 0;
@@ -117,6 +163,48 @@ public class CloudSpannerDataSource extends AbstractCloudSpannerWrapper implemen
     setProperty(info, stripEqualsSign(ConnectionProperties.ALLOW_EXTENDED_MODE),
         isAllowExtendedMode());
     setProperty(info, stripEqualsSign(ConnectionProperties.USE_CUSTOM_HOST), isUseCustomHost());
+    setProperty(info, stripEqualsSign(ConnectionProperties.TRANSACTION_WORKER_POOL_SIZE),
+        getTransactionWorkerPoolSize());
+    setProperty(info, stripEqualsSign(ConnectionProperties.USE_VIRTUAL_THREADS),
+        isUseVirtualThreads());
+    setProperty(info, stripEqualsSign(ConnectionProperties.RETRY_ABORTS_INTERNALLY),
+        isRetryAbortsInternally());
+    setProperty(info, stripEqualsSign(ConnectionProperties.READ_TIMESTAMP_BOUND),
+        getReadTimestampBound());
+    setProperty(info, stripEqualsSign(ConnectionProperties.PARTITION_PARALLELISM),
+        getPartitionParallelism());
+    setProperty(info, stripEqualsSign(ConnectionProperties.PARTITION_BUFFER_SIZE),
+        getPartitionBufferSize());
+    setProperty(info, stripEqualsSign(ConnectionProperties.MAX_PARTITIONS), getMaxPartitions());
+    setProperty(info, stripEqualsSign(ConnectionProperties.PARTITION_SIZE_BYTES),
+        getPartitionSizeBytes());
+    setProperty(info, stripEqualsSign(ConnectionProperties.EXTENDED_MODE_PARALLELISM),
+        getExtendedModeParallelism());
+    setProperty(info, stripEqualsSign(ConnectionProperties.MAX_IN_FLIGHT_COMMITS),
+        getMaxInFlightCommits());
+    setProperty(info, stripEqualsSign(ConnectionProperties.AUTO_SPLIT_TRANSACTIONS),
+        isAutoSplitTransactions());
+    setProperty(info, stripEqualsSign(ConnectionProperties.AUTO_COMMIT_WRITE_MODE),
+        getAutoCommitWriteMode());
+    setProperty(info, stripEqualsSign(ConnectionProperties.GROUP_COMMIT_WINDOW),
+        getGroupCommitWindow());
+    setProperty(info, stripEqualsSign(ConnectionProperties.GROUP_COMMIT_MAX_MUTATIONS),
+        getGroupCommitMaxMutations());
+    setProperty(info, stripEqualsSign(ConnectionProperties.MIN_SESSIONS), getMinSessions());
+    setProperty(info, stripEqualsSign(ConnectionProperties.MAX_SESSIONS), getMaxSessions());
+    setProperty(info, stripEqualsSign(ConnectionProperties.WRITE_SESSIONS_FRACTION),
+        getWriteSessionsFraction());
+    setProperty(info, stripEqualsSign(ConnectionProperties.KEEP_ALIVE_INTERVAL_MINUTES),
+        getKeepAliveIntervalMinutes());
+    setProperty(info, stripEqualsSign(ConnectionProperties.WARM_UP_SESSIONS),
+        isWarmUpSessions());
+    setProperty(info, stripEqualsSign(ConnectionProperties.NUM_CHANNELS), getNumChannels());
+    setProperty(info, stripEqualsSign(ConnectionProperties.MAX_INBOUND_MESSAGE_SIZE),
+        getMaxInboundMessageSize());
+    setProperty(info, stripEqualsSign(ConnectionProperties.CHANNEL_KEEP_ALIVE_TIME),
+        getChannelKeepAliveTime());
+    setProperty(info, stripEqualsSign(ConnectionProperties.DELETE_KEY_RANGES),
+        isDeleteKeyRanges());
 
     return info;
   }
@@ -203,4 +291,188 @@ public class CloudSpannerDataSource extends AbstractCloudSpannerWrapper implemen
     this.useCustomHost = useCustomHost;
   }
 
+  public Integer getTransactionWorkerPoolSize() {
+    return transactionWorkerPoolSize;
+  }
+
+  public void setTransactionWorkerPoolSize(Integer transactionWorkerPoolSize) {
+    this.transactionWorkerPoolSize = transactionWorkerPoolSize;
+  }
+
+  public boolean isUseVirtualThreads() {
+    return useVirtualThreads;
+  }
+
+  public void setUseVirtualThreads(boolean useVirtualThreads) {
+    this.useVirtualThreads = useVirtualThreads;
+  }
+
+  public boolean isRetryAbortsInternally() {
+    return retryAbortsInternally;
+  }
+
+  public void setRetryAbortsInternally(boolean retryAbortsInternally) {
+    this.retryAbortsInternally = retryAbortsInternally;
+  }
+
+  public String getReadTimestampBound() {
+    return readTimestampBound;
+  }
+
+  public void setReadTimestampBound(String readTimestampBound) {
+    this.readTimestampBound = readTimestampBound;
+  }
+
+  public Integer getPartitionParallelism() {
+    return partitionParallelism;
+  }
+
+  public void setPartitionParallelism(Integer partitionParallelism) {
+    this.partitionParallelism = partitionParallelism;
+  }
+
+  public Integer getPartitionBufferSize() {
+    return partitionBufferSize;
+  }
+
+  public void setPartitionBufferSize(Integer partitionBufferSize) {
+    this.partitionBufferSize = partitionBufferSize;
+  }
+
+  public String getMaxPartitions() {
+    return maxPartitions;
+  }
+
+  public void setMaxPartitions(String maxPartitions) {
+    this.maxPartitions = maxPartitions;
+  }
+
+  public String getPartitionSizeBytes() {
+    return partitionSizeBytes;
+  }
+
+  public void setPartitionSizeBytes(String partitionSizeBytes) {
+    this.partitionSizeBytes = partitionSizeBytes;
+  }
+
+  public Integer getExtendedModeParallelism() {
+    return extendedModeParallelism;
+  }
+
+  public void setExtendedModeParallelism(Integer extendedModeParallelism) {
+    this.extendedModeParallelism = extendedModeParallelism;
+  }
+
+  public Integer getMaxInFlightCommits() {
+    return maxInFlightCommits;
+  }
+
+  public void setMaxInFlightCommits(Integer maxInFlightCommits) {
+    this.maxInFlightCommits = maxInFlightCommits;
+  }
+
+  public boolean isAutoSplitTransactions() {
+    return autoSplitTransactions;
+  }
+
+  public void setAutoSplitTransactions(boolean autoSplitTransactions) {
+    this.autoSplitTransactions = autoSplitTransactions;
+  }
+
+  public String getAutoCommitWriteMode() {
+    return autoCommitWriteMode;
+  }
+
+  public void setAutoCommitWriteMode(String autoCommitWriteMode) {
+    this.autoCommitWriteMode = autoCommitWriteMode;
+  }
+
+  public Integer getGroupCommitWindow() {
+    return groupCommitWindow;
+  }
+
+  public void setGroupCommitWindow(Integer groupCommitWindow) {
+    this.groupCommitWindow = groupCommitWindow;
+  }
+
+  public Integer getGroupCommitMaxMutations() {
+    return groupCommitMaxMutations;
+  }
+
+  public void setGroupCommitMaxMutations(Integer groupCommitMaxMutations) {
+    this.groupCommitMaxMutations = groupCommitMaxMutations;
+  }
+
+  public Integer getMinSessions() {
+    return minSessions;
+  }
+
+  public void setMinSessions(Integer minSessions) {
+    this.minSessions = minSessions;
+  }
+
+  public Integer getMaxSessions() {
+    return maxSessions;
+  }
+
+  public void setMaxSessions(Integer maxSessions) {
+    this.maxSessions = maxSessions;
+  }
+
+  public String getWriteSessionsFraction() {
+    return writeSessionsFraction;
+  }
+
+  public void setWriteSessionsFraction(String writeSessionsFraction) {
+    this.writeSessionsFraction = writeSessionsFraction;
+  }
+
+  public Integer getKeepAliveIntervalMinutes() {
+    return keepAliveIntervalMinutes;
+  }
+
+  public void setKeepAliveIntervalMinutes(Integer keepAliveIntervalMinutes) {
+    this.keepAliveIntervalMinutes = keepAliveIntervalMinutes;
+  }
+
+  public boolean isWarmUpSessions() {
+    return warmUpSessions;
+  }
+
+  public void setWarmUpSessions(boolean warmUpSessions) {
+    this.warmUpSessions = warmUpSessions;
+  }
+
+  public Integer getNumChannels() {
+    return numChannels;
+  }
+
+  public void setNumChannels(Integer numChannels) {
+    this.numChannels = numChannels;
+  }
+
+  public Integer getMaxInboundMessageSize() {
+    return maxInboundMessageSize;
+  }
+
+  public void setMaxInboundMessageSize(Integer maxInboundMessageSize) {
+    this.maxInboundMessageSize = maxInboundMessageSize;
+  }
+
+  public Integer getChannelKeepAliveTime() {
+    return channelKeepAliveTime;
+  }
+
+  public void setChannelKeepAliveTime(Integer channelKeepAliveTime) {
+    this.channelKeepAliveTime = channelKeepAliveTime;
+  }
+
+  public boolean isDeleteKeyRanges() {
+    return deleteKeyRanges;
+  }
+
+  public void setDeleteKeyRanges(boolean deleteKeyRanges) {
+    this.deleteKeyRanges = deleteKeyRanges;
+  }
+
 }
@@ -1,27 +1,41 @@
 package nl.topicus.jdbc;
 
-import java.io.IOException;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import com.google.auth.Credentials;
-import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.NoCredentials;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SessionPoolOptions;
 import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.SpannerOptions;
 import com.google.cloud.spanner.SpannerOptions.Builder;
+import com.google.cloud.spanner.SpannerOptions.RpcChannelFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.TimestampBound;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.rpc.Code;
 import nl.topicus.jdbc.CloudSpannerConnection.CloudSpannerDatabaseSpecification;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.transaction.TransactionWorkerPool;
+import nl.topicus.jdbc.util.PartitionOptionsUtil;
+import nl.topicus.jdbc.util.TimestampBoundUtil;
 
 public class CloudSpannerDriver implements Driver {
   static {
@@ -46,6 +60,103 @@ public class CloudSpannerDriver implements Driver {
 
   static final int MINOR_VERSION = 0;
 
+  /**
+   * The settings of a {@link Spanner} instance that can be set with connection properties.
+   * Connections with different settings use different {@link Spanner} instances.
+   */
+  static class SpannerOptionsSpecification {
+    static final SpannerOptionsSpecification DEFAULT =
+        new SpannerOptionsSpecification(null, null, null, null, null, null, null);
+
+    private final Integer minSessions;
+
+    private final Integer maxSessions;
+
+    private final Float writeSessionsFraction;
+
+    private final Integer keepAliveIntervalMinutes;
+
+    private final Integer numChannels;
+
+    private final Integer maxInboundMessageSize;
+
+    private final Integer channelKeepAliveTime;
+
+    SpannerOptionsSpecification(Integer minSessions, Integer maxSessions,
+        Float writeSessionsFraction, Integer keepAliveIntervalMinutes, Integer numChannels,
+        Integer maxInboundMessageSize, Integer channelKeepAliveTime) {
+      this.minSessions = minSessions;
+      this.maxSessions = maxSessions;
+      this.writeSessionsFraction = writeSessionsFraction;
+      this.keepAliveIntervalMinutes = keepAliveIntervalMinutes;
+      this.numChannels = numChannels;
+      this.maxInboundMessageSize = maxInboundMessageSize;
+      this.channelKeepAliveTime = channelKeepAliveTime;
+    }
+
+    /**
+     * 
+     * @return The number of gRPC channels, or <code>null</code> if the default of the client
+     *         library should be used
+     */
+    Integer getNumChannels() {
+      return numChannels;
+    }
+
+    /**
+     * 
+     * @return The factory for the gRPC channels, or <code>null</code> if the default factory of
+     *         the client library should be used
+     */
+    RpcChannelFactory createRpcChannelFactory() {
+      if (maxInboundMessageSize == null && channelKeepAliveTime == null)
+        return null;
+      return new CloudSpannerRpcChannelFactory(maxInboundMessageSize, channelKeepAliveTime);
+    }
+
+    /**
+     * 
+     * @return The {@link SessionPoolOptions} for these settings, or <code>null</code> if the
+     *         default session pool options of the client library should be used
+     * @throws IllegalArgumentException if the settings are not valid
+     */
+    SessionPoolOptions createSessionPoolOptions() {
+      if (minSessions == null && maxSessions == null && writeSessionsFraction == null
+          && keepAliveIntervalMinutes == null)
+        return null;
+      SessionPoolOptions.Builder builder = SessionPoolOptions.newBuilder();
+      if (minSessions != null)
+        builder.setMinSessions(minSessions);
+      if (maxSessions != null)
+        builder.setMaxSessions(maxSessions);
+      if (writeSessionsFraction != null)
+        builder.setWriteSessionsFraction(writeSessionsFraction);
+      if (keepAliveIntervalMinutes != null)
+        builder.setKeepAliveIntervalMinutes(keepAliveIntervalMinutes);
+      return builder.build();
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(minSessions, maxSessions, writeSessionsFraction,
+          keepAliveIntervalMinutes, numChannels, maxInboundMessageSize, channelKeepAliveTime);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SpannerOptionsSpecification))
+        return false;
+      SpannerOptionsSpecification other = (SpannerOptionsSpecification) o;
+      return Objects.equals(minSessions, other.minSessions)
+          && Objects.equals(maxSessions, other.maxSessions)
+          && Objects.equals(writeSessionsFraction, other.writeSessionsFraction)
+          && Objects.equals(keepAliveIntervalMinutes, other.keepAliveIntervalMinutes)
+          && Objects.equals(numChannels, other.numChannels)
+          && Objects.equals(maxInboundMessageSize, other.maxInboundMessageSize)
+          && Objects.equals(channelKeepAliveTime, other.channelKeepAliveTime);
+    }
+  }
+
   static class SpannerKey {
     private final String host;
 
@@ -53,19 +164,24 @@ public class CloudSpannerDriver implements Driver {
 
     private final Credentials credentials;
 
-    private SpannerKey(String host, String projectId, Credentials credentials) {
+    private final SpannerOptionsSpecification options;
+
+    private SpannerKey(String host, String projectId, Credentials credentials,
+        SpannerOptionsSpecification options) {
       this.host = host;
       this.projectId = projectId;
       this.credentials = credentials;
+      this.options = options;
     }
 
-    private static SpannerKey of(String host, String projectId, Credentials credentials) {
-      return new SpannerKey(host, projectId, credentials);
+    private static SpannerKey of(String host, String projectId, Credentials credentials,
+        SpannerOptionsSpecification options) {
+      return new SpannerKey(host, projectId, credentials, options);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(host, projectId, credentials);
+      return Objects.hash(host, projectId, credentials, options);
     }
 
     @Override
@@ -76,21 +192,109 @@ public class CloudSpannerDriver implements Driver {
         return false;
       SpannerKey other = (SpannerKey) o;
       return Objects.equals(host, other.host) && Objects.equals(projectId, other.projectId)
-          && Objects.equals(credentials, other.credentials);
+          && Objects.equals(credentials, other.credentials)
+          && Objects.equals(options, other.options);
     }
   }
 
   /**
-   * Keep track of all connections that are opened, so that we know which Spanner instances to
-   * close.
+   * A {@link Spanner} instance that has been opened by the driver, together with the connections
+   * that use it. The number of references is the number of connections that have obtained the
+   * instance and have not yet been closed. An instance without references is closed by the driver
+   * when it has been idle for longer than the Spanner idle timeout.
    */
-  private Map<Spanner, List<CloudSpannerConnection>> connections = new HashMap<>();
+  private static final class SpannerReference {
+    private final Spanner spanner;
+
+    private final Set<CloudSpannerConnection> connections = ConcurrentHashMap.newKeySet();
+
+    private int references;
+
+    private long idleSince = System.currentTimeMillis();
+
+    private boolean closed;
+
+    private SpannerReference(Spanner spanner) {
+      this.spanner = spanner;
+    }
+
+    /**
+     * 
+     * @return <code>false</code> if the instance has already been closed by the driver
+     */
+    private synchronized boolean acquire() {
+      if (closed)
+        return false;
+      references++;
+      return true;
+    }
+
+    private synchronized void release() {
+      if (references > 0 && --references == 0)
+        idleSince = System.currentTimeMillis();
+    }
+
+    /**
+     * Marks the instance as closed if it has not been referenced for at least the given timeout.
+     * 
+     * @return <code>true</code> if the instance should be closed
+     */
+    private synchronized boolean markClosedIfIdle(long now, long timeout) {
+      if (!closed && references == 0 && now - idleSince >= timeout) {
+        closed = true;
+        return true;
+      }
+      return false;
+    }
+
+    private synchronized void markClosed() {
+      closed = true;
+    }
+  }
+
+  /**
+   * The default number of milliseconds after which a {@link Spanner} instance without any open
+   * connections is closed
+   */
+  public static final long DEFAULT_SPANNER_IDLE_TIMEOUT = 600000L;
+
+  private static final long MAX_EVICTION_INTERVAL = 60000L;
+
+  private static final ThreadFactory EVICTION_THREAD_FACTORY = new ThreadFactoryBuilder()
+      .setDaemon(true).setNameFormat("Google Cloud Spanner JDBC Spanner Eviction-%d").build();
+
+  private static volatile long spannerIdleTimeout = DEFAULT_SPANNER_IDLE_TIMEOUT;
 
   /**
    * Keep track of all spanner instances that are opened by the driver so that these can be reused
    * for new connections to the same project and with the same credentials.
    */
-  private Map<SpannerKey, Spanner> spanners = new HashMap<>();
+  private final ConcurrentMap<SpannerKey, SpannerReference> spanners = new ConcurrentHashMap<>();
+
+  /**
+   * Keep track of all connections that are opened, so that we know which Spanner instances to
+   * close.
+   */
+  private final ConcurrentMap<Spanner, SpannerReference> references = new ConcurrentHashMap<>();
+
+  /**
+   * Keep track of the databases whose sessions have been warmed up for each spanner instance
+   */
+  private final ConcurrentMap<Spanner, Set<DatabaseId>> warmedUpDatabases =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Cache of the credentials that are used by the connections of this driver, so that credential
+   * files are only read once
+   */
+  private final CloudSpannerCredentialsCache credentialsCache =
+      new CloudSpannerCredentialsCache(CloudSpannerConnection::getCredentialsFromFile,
+          CloudSpannerCredentialsCache.DEFAULT_TIME_TO_LIVE);
+
+  /**
+   * Closes {@link Spanner} instances that have been idle for longer than the idle timeout
+   */
+  private ScheduledExecutorService evictionExecutor;
 
   private class CloseSpannerRunnable implements Runnable {
     @Override
@@ -107,7 +311,7 @@ public class CloudSpannerDriver implements Driver {
    * Thread that will be run as a shutdown hook on closing the application. This thread will close
    * any Spanner instances opened by the driver that are still open.
    */
-  private Thread shutdownThread = null;
+  private volatile Thread shutdownThread = null;
 
   /**
    * 
@@ -135,11 +339,19 @@ public class CloudSpannerDriver implements Driver {
     ConnectionProperties properties = ConnectionProperties.parse(url);
     // Get connection properties from properties
     properties.setAdditionalConnectionProperties(info);
+    TimestampBound readTimestampBound = TimestampBoundUtil.parse(properties.readTimestampBound);
+    AutoCommitWriteMode autoCommitWriteMode =
+        AutoCommitWriteMode.parse(properties.autoCommitWriteMode);
+    long maxPartitions = PartitionOptionsUtil.parseMaxPartitions(properties.maxPartitions);
+    long partitionSizeBytes =
+        PartitionOptionsUtil.parsePartitionSizeBytes(properties.partitionSizeBytes);
+    SpannerOptionsSpecification spannerOptions = createSpannerOptionsSpecification(properties);
 
     CloudSpannerDatabaseSpecification database = new CloudSpannerDatabaseSpecification(
         properties.project, properties.instance, properties.database);
-    CloudSpannerConnection connection = new CloudSpannerConnection(this, url, database,
-        properties.keyFile, properties.oauthToken, info, properties.useCustomHost);
+    CloudSpannerConnection connection =
+        new CloudSpannerConnection(this, url, database, properties.keyFile, properties.oauthToken,
+            info, properties.useCustomHost, spannerOptions, properties.warmUpSessions);
     connection.setSimulateProductName(properties.productName);
     connection.setSimulateMajorVersion(properties.majorVersion);
     connection.setSimulateMinorVersion(properties.minorVersion);
@@ -154,11 +366,88 @@ public class CloudSpannerDriver implements Driver {
     connection.setBatchReadOnly(properties.batchReadOnlyMode);
     connection.setOriginalBatchReadOnly(properties.batchReadOnlyMode);
     connection.setUseCustomHost(properties.useCustomHost);
+    connection.setRetryAbortsInternally(properties.retryAbortsInternally);
+    connection.setOriginalRetryAbortsInternally(properties.retryAbortsInternally);
+    connection.setReadTimestampBound(readTimestampBound);
+    connection.setOriginalReadTimestampBound(readTimestampBound);
+    if (properties.partitionParallelism != null) {
+      connection.setPartitionParallelism(properties.partitionParallelism);
+      connection.setOriginalPartitionParallelism(properties.partitionParallelism);
+    }
+    if (properties.partitionBufferSize != null) {
+      connection.setPartitionBufferSize(properties.partitionBufferSize);
+      connection.setOriginalPartitionBufferSize(properties.partitionBufferSize);
+    }
+    if (properties.extendedModeParallelism != null) {
+      connection.setExtendedModeParallelism(properties.extendedModeParallelism);
+      connection.setOriginalExtendedModeParallelism(properties.extendedModeParallelism);
+    }
+    if (properties.maxInFlightCommits != null) {
+      connection.setMaxInFlightCommits(properties.maxInFlightCommits);
+      connection.setOriginalMaxInFlightCommits(properties.maxInFlightCommits);
+    }
+    connection.setAutoSplitTransactions(properties.autoSplitTransactions);
+    connection.setOriginalAutoSplitTransactions(properties.autoSplitTransactions);
+    connection.setDeleteKeyRanges(properties.deleteKeyRanges);
+    connection.setOriginalDeleteKeyRanges(properties.deleteKeyRanges);
+    connection.setAutoCommitWriteMode(autoCommitWriteMode);
+    connection.setOriginalAutoCommitWriteMode(autoCommitWriteMode);
+    if (properties.groupCommitWindow != null) {
+      connection.setGroupCommitWindow(properties.groupCommitWindow);
+      connection.setOriginalGroupCommitWindow(properties.groupCommitWindow);
+    }
+    if (properties.groupCommitMaxMutations != null) {
+      connection.setGroupCommitMaxMutations(properties.groupCommitMaxMutations);
+      connection.setOriginalGroupCommitMaxMutations(properties.groupCommitMaxMutations);
+    }
+    connection.setMaxPartitions(maxPartitions);
+    connection.setOriginalMaxPartitions(maxPartitions);
+    connection.setPartitionSizeBytes(partitionSizeBytes);
+    connection.setOriginalPartitionSizeBytes(partitionSizeBytes);
+    connection.setTransactionWorkerPool(TransactionWorkerPool.getPool(
+        properties.transactionWorkerPoolSize == null ? TransactionWorkerPool.UNBOUNDED
+            : properties.transactionWorkerPoolSize,
+        properties.useVirtualThreads));
     registerConnection(connection);
 
     return connection;
   }
 
+  private static SpannerOptionsSpecification createSpannerOptionsSpecification(
+      ConnectionProperties properties) throws SQLException {
+    Float writeSessionsFraction = null;
+    if (properties.writeSessionsFraction != null
+        && !properties.writeSessionsFraction.trim().isEmpty()) {
+      try {
+        writeSessionsFraction = Float.valueOf(properties.writeSessionsFraction.trim());
+      } catch (NumberFormatException e) {
+        throw new CloudSpannerSQLException(
+            "Invalid WriteSessionsFraction: " + properties.writeSessionsFraction,
+            Code.INVALID_ARGUMENT, e);
+      }
+    }
+    checkPositive(ConnectionProperties.NUM_CHANNELS, properties.numChannels);
+    checkPositive(ConnectionProperties.MAX_INBOUND_MESSAGE_SIZE,
+        properties.maxInboundMessageSize);
+    checkPositive(ConnectionProperties.CHANNEL_KEEP_ALIVE_TIME, properties.channelKeepAliveTime);
+    SpannerOptionsSpecification res = new SpannerOptionsSpecification(properties.minSessions,
+        properties.maxSessions, writeSessionsFraction, properties.keepAliveIntervalMinutes,
+        properties.numChannels, properties.maxInboundMessageSize, properties.channelKeepAliveTime);
+    try {
+      res.createSessionPoolOptions();
+    } catch (IllegalArgumentException e) {
+      throw new CloudSpannerSQLException("Invalid session pool settings: " + e.getMessage(),
+          Code.INVALID_ARGUMENT, e);
+    }
+    return res;
+  }
+
+  private static void checkPositive(String property, Integer value) throws SQLException {
+    if (value != null && value <= 0)
+      throw new CloudSpannerSQLException("Invalid " + property.substring(0, property.length() - 1)
+          + ": " + value + ". The value must be greater than 0", Code.INVALID_ARGUMENT);
+  }
+
   /**
    * Closes all connections to Google Cloud Spanner that have been opened by this driver during the
    * lifetime of this application. You should call this method when you want to shutdown your
@@ -169,62 +458,127 @@ public class CloudSpannerDriver implements Driver {
    */
   public synchronized void closeSpanner() {
     try {
-      for (Entry<Spanner, List<CloudSpannerConnection>> entry : connections.entrySet()) {
-        List<CloudSpannerConnection> list = entry.getValue();
-        for (CloudSpannerConnection con : list) {
+      for (SpannerReference reference : references.values()) {
+        reference.markClosed();
+        for (CloudSpannerConnection con : reference.connections) {
           if (!con.isClosed()) {
             con.rollback();
             con.markClosed();
           }
         }
-        entry.getKey().close();
+        reference.spanner.close();
       }
-      connections.clear();
+      references.clear();
       spanners.clear();
+      warmedUpDatabases.clear();
     } catch (SQLException e) {
       throw SpannerExceptionFactory.newSpannerException(e);
     }
   }
 
-  private synchronized void registerConnection(CloudSpannerConnection connection) {
+  private void registerConnection(CloudSpannerConnection connection) throws SQLException {
+    if (shutdownThread == null)
+      startBackgroundTasks();
+    SpannerReference reference = references.get(connection.getSpanner());
+    if (reference == null) {
+      connection.markClosed();
+      throw new CloudSpannerSQLException(
+          "The Spanner instance of the connection has been closed by the driver",
+          Code.FAILED_PRECONDITION);
+    }
+    reference.connections.add(connection);
+  }
+
+  private synchronized void startBackgroundTasks() {
     if (shutdownThread == null) {
+      evictionExecutor = Executors.newSingleThreadScheduledExecutor(EVICTION_THREAD_FACTORY);
+      scheduleEviction();
       shutdownThread = new Thread(new CloseSpannerRunnable(), "CloudSpannerDriver shutdown hook");
       Runtime.getRuntime().addShutdownHook(shutdownThread);
     }
-    List<CloudSpannerConnection> list = connections.get(connection.getSpanner());
-    if (list == null) {
-      list = new ArrayList<>();
-      connections.put(connection.getSpanner(), list);
+  }
+
+  private void scheduleEviction() {
+    long timeout = spannerIdleTimeout;
+    long interval = timeout == 0L ? MAX_EVICTION_INTERVAL
+        : Math.max(1000L, Math.min(timeout / 2L, MAX_EVICTION_INTERVAL));
+    evictionExecutor.schedule(() -> {
+      try {
+        closeIdleSpanners();
+      } finally {
+        scheduleEviction();
+      }
+    }, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Closes all {@link Spanner} instances that have not been used by any connection for longer than
+   * the Spanner idle timeout
+   */
+  void closeIdleSpanners() {
+    long timeout = spannerIdleTimeout;
+    if (timeout == 0L)
+      return;
+    long now = System.currentTimeMillis();
+    for (SpannerReference reference : references.values()) {
+      if (reference.markClosedIfIdle(now, timeout)) {
+        spanners.values().remove(reference);
+        references.remove(reference.spanner, reference);
+        warmedUpDatabases.remove(reference.spanner);
+        try {
+          reference.spanner.close();
+        } catch (RuntimeException e) {
+          // ignore, the sessions will eventually be removed by Cloud Spanner
+        }
+      }
     }
-    list.add(connection);
   }
 
-  synchronized void closeConnection(CloudSpannerConnection connection) {
-    List<CloudSpannerConnection> list = connections.get(connection.getSpanner());
-    if (list == null)
-      throw new IllegalStateException("Connection is not registered");
-    if (!list.remove(connection))
+  void closeConnection(CloudSpannerConnection connection) {
+    SpannerReference reference = references.get(connection.getSpanner());
+    if (reference == null || !reference.connections.remove(connection))
       throw new IllegalStateException("Connection is not registered");
+    reference.release();
   }
 
   /**
-   * Get a {@link Spanner} instance from the pool or create a new one if needed.
+   * Releases a {@link Spanner} instance that was obtained by a connection that could not be
+   * opened
+   * 
+   * @param spanner The instance to release
+   */
+  void releaseSpanner(Spanner spanner) {
+    SpannerReference reference = references.get(spanner);
+    if (reference != null)
+      reference.release();
+  }
+
+  /**
+   * Get a {@link Spanner} instance from the pool or create a new one if needed. The instance is
+   * referenced by the connection until the connection is closed, and is not closed by the driver
+   * while it is referenced.
    * 
    * @param projectId The projectId to connect to
    * @param credentials The credentials to use for the connection
    * @param host The host to connect to. Normally this is https://spanner.googleapis.com, but you
    *        could also use a (local) emulator. If null, no host will be set and the default host of
    *        Google Cloud Spanner will be used.
+   * @param options The settings of the {@link Spanner} instance
    * @return The {@link Spanner} instance to use
    */
-  synchronized Spanner getSpanner(String projectId, Credentials credentials, String host) {
-    SpannerKey key = SpannerKey.of(host, projectId, credentials);
-    Spanner spanner = spanners.get(key);
-    if (spanner == null) {
-      spanner = createSpanner(key);
-      spanners.put(key, spanner);
+  Spanner getSpanner(String projectId, Credentials credentials, String host,
+      SpannerOptionsSpecification options) {
+    SpannerKey key = SpannerKey.of(host, projectId, credentials, options);
+    while (true) {
+      SpannerReference reference =
+          spanners.computeIfAbsent(key, k -> new SpannerReference(createSpanner(k)));
+      if (reference.acquire()) {
+        references.putIfAbsent(reference.spanner, reference);
+        return reference.spanner;
+      }
+      // The instance was closed because it was idle, remove it and create a new one
+      spanners.remove(key, reference);
     }
-    return spanner;
   }
 
   private Spanner createSpanner(SpannerKey key) {
@@ -237,17 +591,63 @@ public class CloudSpannerDriver implements Driver {
       builder.setCredentials(NoCredentials.getInstance());
     if (key.host != null)
       builder.setHost(key.host);
+    SessionPoolOptions sessionPoolOptions = key.options.createSessionPoolOptions();
+    if (sessionPoolOptions != null)
+      builder.setSessionPoolOption(sessionPoolOptions);
+    if (key.options.getNumChannels() != null)
+      builder.setNumChannels(key.options.getNumChannels());
+    RpcChannelFactory channelFactory = key.options.createRpcChannelFactory();
+    if (channelFactory != null)
+      builder.setRpcChannelFactory(channelFactory);
     SpannerOptions options = builder.build();
     return options.getService();
   }
 
-  private boolean hasDefaultCredentials() {
-    try {
-      return GoogleCredentials.getApplicationDefault() != null;
-    } catch (IOException e) {
-      // ignore
+  /**
+   * Warms up the session pool of the given database the first time that a connection to the
+   * database is opened on the given {@link Spanner} instance. The session pool starts creating the
+   * minimum number of sessions in the background, and prepares a part of these sessions for
+   * read/write transactions, as soon as the database client is created. This method waits until
+   * the first of these sessions can be used by executing a simple query, so that the connection
+   * setup, authentication and session creation have finished before the connection is returned to
+   * the application.
+   * 
+   * @param spanner The {@link Spanner} instance of the connection
+   * @param databaseId The database of the connection
+   * @param dbClient The client of the database
+   * @throws SpannerException if the query failed
+   */
+  void warmUpSessions(Spanner spanner, DatabaseId databaseId, DatabaseClient dbClient) {
+    Set<DatabaseId> databases =
+        warmedUpDatabases.computeIfAbsent(spanner, s -> ConcurrentHashMap.newKeySet());
+    if (!databases.add(databaseId))
+      return;
+    try (ResultSet rs = dbClient.singleUse().executeQuery(Statement.of("SELECT 1"))) {
+      while (rs.next()) {
+        // ignore
+      }
+    } catch (SpannerException e) {
+      databases.remove(databaseId);
+      throw e;
     }
-    return false;
+  }
+
+  private boolean hasDefaultCredentials() {
+    return credentialsCache.getApplicationDefault() != null;
+  }
+
+  CloudSpannerCredentialsCache getCredentialsCache() {
+    return credentialsCache;
+  }
+
+  /**
+   * Removes all credentials from the credentials cache of the driver. Credentials that are read
+   * from a local file are automatically reloaded when the file changes, and other credentials are
+   * reloaded after five minutes. This method can be used to force the driver to reload all
+   * credentials for new connections.
+   */
+  public void clearCredentialsCache() {
+    credentialsCache.clear();
   }
 
   @Override
@@ -339,6 +739,28 @@ public class CloudSpannerDriver implements Driver {
     }
   }
 
+  /**
+   * 
+   * @return The number of milliseconds after which a {@link Spanner} instance without any open
+   *         connections is closed. 0 means that instances are only closed by {@link #closeSpanner()}
+   */
+  public static long getSpannerIdleTimeout() {
+    return spannerIdleTimeout;
+  }
+
+  /**
+   * Sets the number of milliseconds after which a {@link Spanner} instance that is not used by any
+   * open connection is closed. Closing the instance also closes the sessions of its session pools.
+   * A new instance is created when a new connection needs it.
+   * 
+   * @param timeout The idle timeout in milliseconds. 0 means that instances are never closed
+   *        because they are idle. Negative values are not allowed.
+   */
+  public static void setSpannerIdleTimeout(long timeout) {
+    Preconditions.checkArgument(timeout >= 0L);
+    spannerIdleTimeout = timeout;
+  }
+
   public static void setLogLevel(int logLevel) {
     synchronized (CloudSpannerDriver.class) {
       logger.setLogLevel(logLevel);
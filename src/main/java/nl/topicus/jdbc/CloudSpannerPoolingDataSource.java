@@ -0,0 +1,458 @@
+package nl.topicus.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+
+/**
+ * A {@link javax.sql.DataSource} that keeps a pool of connections. A {@link CloudSpannerConnection}
+ * is a light-weight handle on a {@link com.google.cloud.spanner.Spanner} instance and its session
+ * pool, which are shared by all connections with the same settings. The pool therefore only needs
+ * to keep track of which connections are in use, and does not need to validate connections by
+ * executing queries: a pooled connection is usable as long as it has not been closed.
+ * <p>
+ * Connections are borrowed from and returned to the pool without locking. Threads that request a
+ * connection while the maximum number of connections is in use wait in the order of arrival until
+ * a connection is returned or the connection timeout passes. The state of a connection is reset
+ * when it is returned to the pool: running transactions are rolled back, read-only mode is turned
+ * off and all dynamic connection properties are reset to their original values. The autocommit
+ * mode is set to the default autocommit mode of the data source when the connection is borrowed.
+ * </p>
+ * <p>
+ * Idle connections are closed after the idle timeout as long as the pool contains more than the
+ * minimum number of idle connections, and all connections are closed after the maximum lifetime.
+ * The pool settings must be set before the first connection is requested from the data source.
+ * </p>
+ *
+ * @author loite
+ *
+ */
+public class CloudSpannerPoolingDataSource extends CloudSpannerConnectionPoolDataSource
+    implements AutoCloseable {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The default maximum number of connections in the pool
+   */
+  public static final int DEFAULT_MAX_POOL_SIZE = 10;
+
+  /**
+   * The default number of milliseconds to wait for a connection when all connections are in use
+   */
+  public static final long DEFAULT_CONNECTION_TIMEOUT = 30000L;
+
+  /**
+   * The default number of milliseconds after which an idle connection is closed
+   */
+  public static final long DEFAULT_IDLE_TIMEOUT = 600000L;
+
+  /**
+   * The default maximum number of milliseconds that a connection is kept in the pool
+   */
+  public static final long DEFAULT_MAX_LIFETIME = 1800000L;
+
+  private static final long MAX_HOUSEKEEPING_INTERVAL = 30000L;
+
+  private static final ThreadFactory HOUSEKEEPING_THREAD_FACTORY = new ThreadFactoryBuilder()
+      .setDaemon(true).setNameFormat("Google Cloud Spanner JDBC Pool Housekeeping-%d").build();
+
+  private int minIdle = 0;
+
+  private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+
+  private long connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+
+  private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+  private long maxLifetime = DEFAULT_MAX_LIFETIME;
+
+  private transient volatile Pool pool;
+
+  private transient volatile boolean closed;
+
+  /**
+   * A physical connection in the pool
+   */
+  private final class PoolEntry implements ConnectionEventListener {
+    private final Pool owner;
+
+    private final CloudSpannerConnection connection;
+
+    private final CloudSpannerPooledConnection pooledConnection;
+
+    private final long createdAt;
+
+    private volatile long lastUsed;
+
+    private volatile boolean broken;
+
+    private PoolEntry(Pool owner, CloudSpannerConnection connection) {
+      this.owner = owner;
+      this.connection = connection;
+      this.pooledConnection = new CloudSpannerPooledConnection(connection, isDefaultAutoCommit());
+      this.createdAt = System.currentTimeMillis();
+      this.lastUsed = createdAt;
+      pooledConnection.addConnectionEventListener(this);
+    }
+
+    private boolean isExpired(long now) {
+      return owner.maxLifetime > 0L && now - createdAt >= owner.maxLifetime;
+    }
+
+    private boolean isUsable(long now) throws SQLException {
+      return !broken && !isExpired(now) && !connection.isClosed();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+      owner.giveBack(this);
+    }
+
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+      // The connection is closed when the handle that is in use is returned to the pool
+      broken = true;
+    }
+  }
+
+  /**
+   * The runtime state of the pool. The pool is created with the settings of the data source when
+   * the first connection is requested.
+   */
+  private final class Pool {
+    private final int minIdle;
+
+    private final int maxPoolSize;
+
+    private final long connectionTimeout;
+
+    private final long idleTimeout;
+
+    private final long maxLifetime;
+
+    /**
+     * Limits the number of connections that are in use, and lets threads that are waiting for a
+     * connection get one in the order of arrival
+     */
+    private final Semaphore permits;
+
+    /**
+     * The idle connections with the most recently used connection first
+     */
+    private final ConcurrentLinkedDeque<PoolEntry> idleConnections = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    private final ScheduledExecutorService housekeeper;
+
+    private Pool() throws SQLException {
+      this.minIdle = CloudSpannerPoolingDataSource.this.minIdle;
+      this.maxPoolSize = CloudSpannerPoolingDataSource.this.maxPoolSize;
+      this.connectionTimeout = CloudSpannerPoolingDataSource.this.connectionTimeout;
+      this.idleTimeout = CloudSpannerPoolingDataSource.this.idleTimeout;
+      this.maxLifetime = CloudSpannerPoolingDataSource.this.maxLifetime;
+      if (maxPoolSize <= 0)
+        throw new CloudSpannerSQLException("MaxPoolSize must be positive", Code.INVALID_ARGUMENT);
+      if (minIdle < 0 || minIdle > maxPoolSize)
+        throw new CloudSpannerSQLException(
+            "MinIdle must be between 0 and the maximum pool size " + maxPoolSize,
+            Code.INVALID_ARGUMENT);
+      this.permits = new Semaphore(maxPoolSize, true);
+      long interval = MAX_HOUSEKEEPING_INTERVAL;
+      if (idleTimeout > 0L)
+        interval = Math.min(interval, idleTimeout);
+      if (maxLifetime > 0L)
+        interval = Math.min(interval, maxLifetime);
+      this.housekeeper = Executors.newSingleThreadScheduledExecutor(HOUSEKEEPING_THREAD_FACTORY);
+      housekeeper.scheduleWithFixedDelay(this::houseKeeping, 0L, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private Connection borrow() throws SQLException {
+      try {
+        if (!permits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS))
+          throw new CloudSpannerSQLException(
+              "Timeout while waiting for a connection. All " + maxPoolSize
+                  + " connections of the pool are in use.",
+              Code.RESOURCE_EXHAUSTED);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CloudSpannerSQLException("Interrupted while waiting for a connection",
+            Code.CANCELLED, e);
+      }
+      PoolEntry entry = null;
+      try {
+        checkClosed();
+        long now = System.currentTimeMillis();
+        while ((entry = idleConnections.pollFirst()) != null && !entry.isUsable(now))
+          discard(entry);
+        if (entry == null) {
+          totalConnections.incrementAndGet();
+          entry = createEntry();
+        }
+        return entry.pooledConnection.getConnection();
+      } catch (SQLException | RuntimeException e) {
+        if (entry != null)
+          discard(entry);
+        permits.release();
+        throw e;
+      }
+    }
+
+    private void giveBack(PoolEntry entry) {
+      try {
+        long now = System.currentTimeMillis();
+        if (!closed && entry.isUsable(now) && totalConnections.get() <= maxPoolSize) {
+          entry.connection.resetConnectionState();
+          entry.lastUsed = now;
+          idleConnections.offerFirst(entry);
+          // The pool could have been closed while the connection was being returned
+          if (closed && idleConnections.remove(entry))
+            discard(entry);
+        } else {
+          discard(entry);
+        }
+      } catch (SQLException | RuntimeException e) {
+        discard(entry);
+      } finally {
+        permits.release();
+      }
+    }
+
+    /**
+     * Creates a new physical connection. The caller must already have increased the total number
+     * of connections.
+     */
+    private PoolEntry createEntry() throws SQLException {
+      try {
+        Connection connection = CloudSpannerPoolingDataSource.super.getConnection();
+        if (!(connection instanceof CloudSpannerConnection)) {
+          connection.close();
+          throw new CloudSpannerSQLException(
+              "The data source did not return a Google Cloud Spanner connection",
+              Code.FAILED_PRECONDITION);
+        }
+        return new PoolEntry(this, (CloudSpannerConnection) connection);
+      } catch (SQLException | RuntimeException e) {
+        totalConnections.decrementAndGet();
+        throw e;
+      }
+    }
+
+    private void discard(PoolEntry entry) {
+      totalConnections.decrementAndGet();
+      try {
+        entry.pooledConnection.close();
+      } catch (SQLException | RuntimeException e) {
+        // ignore, the connection is not used anymore
+      }
+    }
+
+    /**
+     * Closes expired and idle connections, and creates new connections until the pool contains the
+     * minimum number of idle connections
+     */
+    private void houseKeeping() {
+      long now = System.currentTimeMillis();
+      int idle = idleConnections.size();
+      for (PoolEntry entry : idleConnections) {
+        boolean idleTooLong =
+            idleTimeout > 0L && now - entry.lastUsed >= idleTimeout && idle > minIdle;
+        if ((idleTooLong || entry.isExpired(now)) && idleConnections.remove(entry)) {
+          idle--;
+          discard(entry);
+        }
+      }
+      try {
+        while (!closed && idle < minIdle && reserve()) {
+          idleConnections.offerLast(createEntry());
+          idle++;
+        }
+      } catch (SQLException | RuntimeException e) {
+        // ignore, the pool is filled again during the next run
+      }
+    }
+
+    /**
+     * Increases the total number of connections if the pool has not reached its maximum size
+     */
+    private boolean reserve() {
+      int current;
+      do {
+        current = totalConnections.get();
+        if (current >= maxPoolSize)
+          return false;
+      } while (!totalConnections.compareAndSet(current, current + 1));
+      return true;
+    }
+
+    private void close() {
+      housekeeper.shutdownNow();
+      PoolEntry entry;
+      while ((entry = idleConnections.pollFirst()) != null)
+        discard(entry);
+    }
+  }
+
+  /**
+   *
+   * @return A description of this data source
+   */
+  @Override
+  public String getDescription() {
+    return "PoolingDataSource from " + nl.topicus.jdbc.CloudSpannerDriver.getVersion();
+  }
+
+  /**
+   * Gets a connection from the pool. The connection is returned to the pool when it is closed.
+   *
+   * @throws java.sql.SQLException Occurs when no connection is available within the connection
+   *         timeout, or when a new physical database connection cannot be established.
+   */
+  @Override
+  public Connection getConnection() throws SQLException {
+    return getPool().borrow();
+  }
+
+  private Pool getPool() throws SQLException {
+    Pool res = pool;
+    if (res == null) {
+      synchronized (this) {
+        checkClosed();
+        res = pool;
+        if (res == null) {
+          res = new Pool();
+          pool = res;
+        }
+      }
+    }
+    return res;
+  }
+
+  private void checkClosed() throws SQLException {
+    if (closed)
+      throw new CloudSpannerSQLException("This data source has been closed",
+          Code.FAILED_PRECONDITION);
+  }
+
+  /**
+   * Closes all idle connections in the pool. Connections that are in use are closed when they are
+   * returned to the pool. No new connections can be requested from the data source after it has
+   * been closed.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (pool != null)
+      pool.close();
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   *
+   * @return The number of physical connections in the pool, both idle and in use
+   */
+  public int getTotalConnections() {
+    Pool res = pool;
+    return res == null ? 0 : res.totalConnections.get();
+  }
+
+  /**
+   *
+   * @return The number of connections in the pool that are not in use
+   */
+  public int getIdleConnections() {
+    Pool res = pool;
+    return res == null ? 0 : res.idleConnections.size();
+  }
+
+  /**
+   *
+   * @return The number of connections of the pool that are in use
+   */
+  public int getActiveConnections() {
+    Pool res = pool;
+    return res == null ? 0 : res.maxPoolSize - res.permits.availablePermits();
+  }
+
+  public int getMinIdle() {
+    return minIdle;
+  }
+
+  /**
+   *
+   * @param minIdle The minimum number of idle connections that the pool tries to keep open. The
+   *        default is 0.
+   */
+  public void setMinIdle(int minIdle) {
+    this.minIdle = minIdle;
+  }
+
+  public int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  /**
+   *
+   * @param maxPoolSize The maximum number of connections in the pool, both idle and in use. The
+   *        default is {@link #DEFAULT_MAX_POOL_SIZE}.
+   */
+  public void setMaxPoolSize(int maxPoolSize) {
+    this.maxPoolSize = maxPoolSize;
+  }
+
+  public long getConnectionTimeout() {
+    return connectionTimeout;
+  }
+
+  /**
+   *
+   * @param connectionTimeout The maximum number of milliseconds to wait for a connection when all
+   *        connections of the pool are in use. The default is {@link #DEFAULT_CONNECTION_TIMEOUT}.
+   */
+  public void setConnectionTimeout(long connectionTimeout) {
+    this.connectionTimeout = connectionTimeout;
+  }
+
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   *
+   * @param idleTimeout The number of milliseconds after which an idle connection is closed if the
+   *        pool contains more than the minimum number of idle connections, or 0 if idle connections
+   *        should not be closed. The default is {@link #DEFAULT_IDLE_TIMEOUT}.
+   */
+  public void setIdleTimeout(long idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  public long getMaxLifetime() {
+    return maxLifetime;
+  }
+
+  /**
+   *
+   * @param maxLifetime The maximum number of milliseconds that a connection is kept in the pool, or
+   *        0 for no maximum. Connections that are in use are closed when they are returned to the
+   *        pool after their maximum lifetime. The default is {@link #DEFAULT_MAX_LIFETIME}.
+   */
+  public void setMaxLifetime(long maxLifetime) {
+    this.maxLifetime = maxLifetime;
+  }
+
+}
@@ -0,0 +1,66 @@
+package nl.topicus.jdbc;
+
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLException;
+import com.google.cloud.spanner.SpannerOptions.RpcChannelFactory;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+
+/**
+ * Creates the gRPC channels of a {@link com.google.cloud.spanner.Spanner} instance with transport
+ * settings that have been set with connection properties. The channels are created in the same way
+ * as by the default channel factory of the client library, except for the maximum inbound message
+ * size and the keep-alive settings.
+ *
+ * @author loite
+ *
+ */
+class CloudSpannerRpcChannelFactory implements RpcChannelFactory {
+  /**
+   * The maximum inbound message size that is used by the client library
+   */
+  static final int DEFAULT_MAX_INBOUND_MESSAGE_SIZE = 100 * 1024 * 1024;
+
+  private static final int MAX_HEADER_LIST_SIZE = 32 * 1024;
+
+  private final int maxInboundMessageSize;
+
+  private final Integer keepAliveTimeSeconds;
+
+  /**
+   *
+   * @param maxInboundMessageSize The maximum size in bytes of a message that may be received, or
+   *        <code>null</code> for the default of the client library
+   * @param keepAliveTimeSeconds The number of seconds without activity after which a keep-alive
+   *        ping is sent on a channel, or <code>null</code> if no keep-alive pings should be sent
+   */
+  CloudSpannerRpcChannelFactory(Integer maxInboundMessageSize, Integer keepAliveTimeSeconds) {
+    this.maxInboundMessageSize = maxInboundMessageSize == null ? DEFAULT_MAX_INBOUND_MESSAGE_SIZE
+        : maxInboundMessageSize;
+    this.keepAliveTimeSeconds = keepAliveTimeSeconds;
+  }
+
+  @Override
+  public ManagedChannel newChannel(String host, int port) {
+    NettyChannelBuilder builder = NettyChannelBuilder.forAddress(host, port)
+        .sslContext(newSslContext()).maxHeaderListSize(MAX_HEADER_LIST_SIZE)
+        .maxInboundMessageSize(maxInboundMessageSize);
+    if (keepAliveTimeSeconds != null) {
+      // Keep-alive pings are also sent when there are no active calls, as the session pool keeps
+      // sessions open on channels that may otherwise be idle for a long time
+      builder.keepAliveTime(keepAliveTimeSeconds, TimeUnit.SECONDS).keepAliveWithoutCalls(true);
+    }
+    return builder.build();
+  }
+
+  private static SslContext newSslContext() {
+    try {
+      return GrpcSslContexts.forClient().ciphers(null).build();
+    } catch (SSLException e) {
+      throw new IllegalStateException("SSL configuration failed: " + e.getMessage(), e);
+    }
+  }
+
+}
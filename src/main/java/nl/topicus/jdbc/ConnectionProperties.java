@@ -7,7 +7,7 @@ import com.google.rpc.Code;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
 
 final class ConnectionProperties {
-  public static final int NUMBER_OF_PROPERTIES = 14;
+  public static final int NUMBER_OF_PROPERTIES = 37;
 
   static String getPropertyName(String propertyPart) {
     return propertyPart.substring(0, propertyPart.length() - 1);
@@ -33,6 +33,29 @@ final class ConnectionProperties {
   static final String REPORT_DEFAULT_SCHEMA_AS_NULL = "ReportDefaultSchemaAsNull=";
   static final String BATCH_READ_ONLY_MODE = "BatchReadOnlyMode=";
   static final String USE_CUSTOM_HOST = "UseCustomHost=";
+  static final String TRANSACTION_WORKER_POOL_SIZE = "TransactionWorkerPoolSize=";
+  static final String USE_VIRTUAL_THREADS = "UseVirtualThreads=";
+  static final String RETRY_ABORTS_INTERNALLY = "RetryAbortsInternally=";
+  static final String READ_TIMESTAMP_BOUND = "ReadTimestampBound=";
+  static final String PARTITION_PARALLELISM = "PartitionParallelism=";
+  static final String PARTITION_BUFFER_SIZE = "PartitionBufferSize=";
+  static final String MAX_PARTITIONS = "MaxPartitions=";
+  static final String PARTITION_SIZE_BYTES = "PartitionSizeBytes=";
+  static final String EXTENDED_MODE_PARALLELISM = "ExtendedModeParallelism=";
+  static final String MAX_IN_FLIGHT_COMMITS = "MaxInFlightCommits=";
+  static final String AUTO_SPLIT_TRANSACTIONS = "AutoSplitTransactions=";
+  static final String AUTO_COMMIT_WRITE_MODE = "AutoCommitWriteMode=";
+  static final String GROUP_COMMIT_WINDOW = "GroupCommitWindow=";
+  static final String GROUP_COMMIT_MAX_MUTATIONS = "GroupCommitMaxMutations=";
+  static final String MIN_SESSIONS = "MinSessions=";
+  static final String MAX_SESSIONS = "MaxSessions=";
+  static final String WRITE_SESSIONS_FRACTION = "WriteSessionsFraction=";
+  static final String KEEP_ALIVE_INTERVAL_MINUTES = "KeepAliveIntervalMinutes=";
+  static final String WARM_UP_SESSIONS = "WarmUpSessions=";
+  static final String NUM_CHANNELS = "NumChannels=";
+  static final String MAX_INBOUND_MESSAGE_SIZE = "MaxInboundMessageSize=";
+  static final String CHANNEL_KEEP_ALIVE_TIME = "ChannelKeepAliveTime=";
+  static final String DELETE_KEY_RANGES = "DeleteKeyRanges=";
 
   String project = null;
   String instance = null;
@@ -48,6 +71,29 @@ final class ConnectionProperties {
   boolean reportDefaultSchemaAsNull = true;
   boolean batchReadOnlyMode = false;
   boolean useCustomHost = false;
+  Integer transactionWorkerPoolSize = null;
+  boolean useVirtualThreads = false;
+  boolean retryAbortsInternally = false;
+  String readTimestampBound = null;
+  Integer partitionParallelism = null;
+  Integer partitionBufferSize = null;
+  String maxPartitions = null;
+  String partitionSizeBytes = null;
+  Integer extendedModeParallelism = null;
+  Integer maxInFlightCommits = null;
+  boolean autoSplitTransactions = false;
+  String autoCommitWriteMode = null;
+  Integer groupCommitWindow = null;
+  Integer groupCommitMaxMutations = null;
+  Integer minSessions = null;
+  Integer maxSessions = null;
+  String writeSessionsFraction = null;
+  Integer keepAliveIntervalMinutes = null;
+  boolean warmUpSessions = false;
+  Integer numChannels = null;
+  Integer maxInboundMessageSize = null;
+  Integer channelKeepAliveTime = null;
+  boolean deleteKeyRanges = false;
 
   static ConnectionProperties parse(String url) throws SQLException {
     ConnectionProperties res = new ConnectionProperties();
@@ -91,6 +137,63 @@ final class ConnectionProperties {
           res.batchReadOnlyMode = Boolean.valueOf(conPart.substring(BATCH_READ_ONLY_MODE.length()));
         else if (conPartLower.startsWith(USE_CUSTOM_HOST.toLowerCase()))
           res.useCustomHost = Boolean.valueOf(conPart.substring(USE_CUSTOM_HOST.length()));
+        else if (conPartLower.startsWith(TRANSACTION_WORKER_POOL_SIZE.toLowerCase()))
+          res.transactionWorkerPoolSize =
+              parseInteger(conPart.substring(TRANSACTION_WORKER_POOL_SIZE.length()));
+        else if (conPartLower.startsWith(USE_VIRTUAL_THREADS.toLowerCase()))
+          res.useVirtualThreads = Boolean.valueOf(conPart.substring(USE_VIRTUAL_THREADS.length()));
+        else if (conPartLower.startsWith(RETRY_ABORTS_INTERNALLY.toLowerCase()))
+          res.retryAbortsInternally =
+              Boolean.valueOf(conPart.substring(RETRY_ABORTS_INTERNALLY.length()));
+        else if (conPartLower.startsWith(READ_TIMESTAMP_BOUND.toLowerCase()))
+          res.readTimestampBound = conPart.substring(READ_TIMESTAMP_BOUND.length());
+        else if (conPartLower.startsWith(PARTITION_PARALLELISM.toLowerCase()))
+          res.partitionParallelism =
+              parseInteger(conPart.substring(PARTITION_PARALLELISM.length()));
+        else if (conPartLower.startsWith(PARTITION_BUFFER_SIZE.toLowerCase()))
+          res.partitionBufferSize =
+              parseInteger(conPart.substring(PARTITION_BUFFER_SIZE.length()));
+        else if (conPartLower.startsWith(MAX_PARTITIONS.toLowerCase()))
+          res.maxPartitions = conPart.substring(MAX_PARTITIONS.length());
+        else if (conPartLower.startsWith(PARTITION_SIZE_BYTES.toLowerCase()))
+          res.partitionSizeBytes = conPart.substring(PARTITION_SIZE_BYTES.length());
+        else if (conPartLower.startsWith(EXTENDED_MODE_PARALLELISM.toLowerCase()))
+          res.extendedModeParallelism =
+              parseInteger(conPart.substring(EXTENDED_MODE_PARALLELISM.length()));
+        else if (conPartLower.startsWith(MAX_IN_FLIGHT_COMMITS.toLowerCase()))
+          res.maxInFlightCommits =
+              parseInteger(conPart.substring(MAX_IN_FLIGHT_COMMITS.length()));
+        else if (conPartLower.startsWith(AUTO_SPLIT_TRANSACTIONS.toLowerCase()))
+          res.autoSplitTransactions =
+              Boolean.valueOf(conPart.substring(AUTO_SPLIT_TRANSACTIONS.length()));
+        else if (conPartLower.startsWith(AUTO_COMMIT_WRITE_MODE.toLowerCase()))
+          res.autoCommitWriteMode = conPart.substring(AUTO_COMMIT_WRITE_MODE.length());
+        else if (conPartLower.startsWith(GROUP_COMMIT_WINDOW.toLowerCase()))
+          res.groupCommitWindow = parseInteger(conPart.substring(GROUP_COMMIT_WINDOW.length()));
+        else if (conPartLower.startsWith(GROUP_COMMIT_MAX_MUTATIONS.toLowerCase()))
+          res.groupCommitMaxMutations =
+              parseInteger(conPart.substring(GROUP_COMMIT_MAX_MUTATIONS.length()));
+        else if (conPartLower.startsWith(MIN_SESSIONS.toLowerCase()))
+          res.minSessions = parseInteger(conPart.substring(MIN_SESSIONS.length()));
+        else if (conPartLower.startsWith(MAX_SESSIONS.toLowerCase()))
+          res.maxSessions = parseInteger(conPart.substring(MAX_SESSIONS.length()));
+        else if (conPartLower.startsWith(WRITE_SESSIONS_FRACTION.toLowerCase()))
+          res.writeSessionsFraction = conPart.substring(WRITE_SESSIONS_FRACTION.length());
+        else if (conPartLower.startsWith(KEEP_ALIVE_INTERVAL_MINUTES.toLowerCase()))
+          res.keepAliveIntervalMinutes =
+              parseInteger(conPart.substring(KEEP_ALIVE_INTERVAL_MINUTES.length()));
+        else if (conPartLower.startsWith(WARM_UP_SESSIONS.toLowerCase()))
+          res.warmUpSessions = Boolean.valueOf(conPart.substring(WARM_UP_SESSIONS.length()));
+        else if (conPartLower.startsWith(NUM_CHANNELS.toLowerCase()))
+          res.numChannels = parseInteger(conPart.substring(NUM_CHANNELS.length()));
+        else if (conPartLower.startsWith(MAX_INBOUND_MESSAGE_SIZE.toLowerCase()))
+          res.maxInboundMessageSize =
+              parseInteger(conPart.substring(MAX_INBOUND_MESSAGE_SIZE.length()));
+        else if (conPartLower.startsWith(CHANNEL_KEEP_ALIVE_TIME.toLowerCase()))
+          res.channelKeepAliveTime =
+              parseInteger(conPart.substring(CHANNEL_KEEP_ALIVE_TIME.length()));
+        else if (conPartLower.startsWith(DELETE_KEY_RANGES.toLowerCase()))
+          res.deleteKeyRanges = Boolean.valueOf(conPart.substring(DELETE_KEY_RANGES.length()));
         else
           throw new CloudSpannerSQLException("Unknown URL parameter " + conPart,
               Code.INVALID_ARGUMENT);
@@ -163,6 +266,75 @@ final class ConnectionProperties {
       useCustomHost = Boolean.valueOf(lowerCaseInfo.getProperty(
           USE_CUSTOM_HOST.substring(0, USE_CUSTOM_HOST.length() - 1).toLowerCase(),
           String.valueOf(useCustomHost)));
+      transactionWorkerPoolSize = parseInteger(lowerCaseInfo.getProperty(
+          TRANSACTION_WORKER_POOL_SIZE.substring(0, TRANSACTION_WORKER_POOL_SIZE.length() - 1)
+              .toLowerCase(),
+          defaultString(transactionWorkerPoolSize)));
+      useVirtualThreads = Boolean.valueOf(lowerCaseInfo.getProperty(
+          USE_VIRTUAL_THREADS.substring(0, USE_VIRTUAL_THREADS.length() - 1).toLowerCase(),
+          String.valueOf(useVirtualThreads)));
+      retryAbortsInternally = Boolean.valueOf(lowerCaseInfo.getProperty(
+          RETRY_ABORTS_INTERNALLY.substring(0, RETRY_ABORTS_INTERNALLY.length() - 1).toLowerCase(),
+          String.valueOf(retryAbortsInternally)));
+      readTimestampBound = lowerCaseInfo.getProperty(
+          READ_TIMESTAMP_BOUND.substring(0, READ_TIMESTAMP_BOUND.length() - 1).toLowerCase(),
+          readTimestampBound);
+      partitionParallelism = parseInteger(lowerCaseInfo.getProperty(
+          PARTITION_PARALLELISM.substring(0, PARTITION_PARALLELISM.length() - 1).toLowerCase(),
+          defaultString(partitionParallelism)));
+      partitionBufferSize = parseInteger(lowerCaseInfo.getProperty(
+          PARTITION_BUFFER_SIZE.substring(0, PARTITION_BUFFER_SIZE.length() - 1).toLowerCase(),
+          defaultString(partitionBufferSize)));
+      maxPartitions = lowerCaseInfo.getProperty(
+          MAX_PARTITIONS.substring(0, MAX_PARTITIONS.length() - 1).toLowerCase(), maxPartitions);
+      partitionSizeBytes = lowerCaseInfo.getProperty(
+          PARTITION_SIZE_BYTES.substring(0, PARTITION_SIZE_BYTES.length() - 1).toLowerCase(),
+          partitionSizeBytes);
+      extendedModeParallelism = parseInteger(lowerCaseInfo.getProperty(EXTENDED_MODE_PARALLELISM
+          .substring(0, EXTENDED_MODE_PARALLELISM.length() - 1).toLowerCase(),
+          defaultString(extendedModeParallelism)));
+      maxInFlightCommits = parseInteger(lowerCaseInfo.getProperty(
+          MAX_IN_FLIGHT_COMMITS.substring(0, MAX_IN_FLIGHT_COMMITS.length() - 1).toLowerCase(),
+          defaultString(maxInFlightCommits)));
+      autoSplitTransactions = Boolean.valueOf(lowerCaseInfo.getProperty(
+          AUTO_SPLIT_TRANSACTIONS.substring(0, AUTO_SPLIT_TRANSACTIONS.length() - 1).toLowerCase(),
+          String.valueOf(autoSplitTransactions)));
+      autoCommitWriteMode = lowerCaseInfo.getProperty(
+          AUTO_COMMIT_WRITE_MODE.substring(0, AUTO_COMMIT_WRITE_MODE.length() - 1).toLowerCase(),
+          autoCommitWriteMode);
+      groupCommitWindow = parseInteger(lowerCaseInfo.getProperty(
+          GROUP_COMMIT_WINDOW.substring(0, GROUP_COMMIT_WINDOW.length() - 1).toLowerCase(),
+          defaultString(groupCommitWindow)));
+      groupCommitMaxMutations = parseInteger(lowerCaseInfo.getProperty(GROUP_COMMIT_MAX_MUTATIONS
+          .substring(0, GROUP_COMMIT_MAX_MUTATIONS.length() - 1).toLowerCase(),
+          defaultString(groupCommitMaxMutations)));
+      minSessions = parseInteger(lowerCaseInfo.getProperty(
+          MIN_SESSIONS.substring(0, MIN_SESSIONS.length() - 1).toLowerCase(),
+          defaultString(minSessions)));
+      maxSessions = parseInteger(lowerCaseInfo.getProperty(
+          MAX_SESSIONS.substring(0, MAX_SESSIONS.length() - 1).toLowerCase(),
+          defaultString(maxSessions)));
+      writeSessionsFraction = lowerCaseInfo.getProperty(
+          WRITE_SESSIONS_FRACTION.substring(0, WRITE_SESSIONS_FRACTION.length() - 1).toLowerCase(),
+          writeSessionsFraction);
+      keepAliveIntervalMinutes = parseInteger(lowerCaseInfo.getProperty(KEEP_ALIVE_INTERVAL_MINUTES
+          .substring(0, KEEP_ALIVE_INTERVAL_MINUTES.length() - 1).toLowerCase(),
+          defaultString(keepAliveIntervalMinutes)));
+      warmUpSessions = Boolean.valueOf(lowerCaseInfo.getProperty(
+          WARM_UP_SESSIONS.substring(0, WARM_UP_SESSIONS.length() - 1).toLowerCase(),
+          String.valueOf(warmUpSessions)));
+      numChannels = parseInteger(lowerCaseInfo.getProperty(
+          NUM_CHANNELS.substring(0, NUM_CHANNELS.length() - 1).toLowerCase(),
+          defaultString(numChannels)));
+      maxInboundMessageSize = parseInteger(lowerCaseInfo.getProperty(MAX_INBOUND_MESSAGE_SIZE
+          .substring(0, MAX_INBOUND_MESSAGE_SIZE.length() - 1).toLowerCase(),
+          defaultString(maxInboundMessageSize)));
+      channelKeepAliveTime = parseInteger(lowerCaseInfo.getProperty(
+          CHANNEL_KEEP_ALIVE_TIME.substring(0, CHANNEL_KEEP_ALIVE_TIME.length() - 1).toLowerCase(),
+          defaultString(channelKeepAliveTime)));
+      deleteKeyRanges = Boolean.valueOf(lowerCaseInfo.getProperty(
+          DELETE_KEY_RANGES.substring(0, DELETE_KEY_RANGES.length() - 1).toLowerCase(),
+          String.valueOf(deleteKeyRanges)));
       if (!CloudSpannerDriver.logLevelSet)
         CloudSpannerDriver.setLogLevel(CloudSpannerDriver.OFF);
     }
@@ -230,6 +402,114 @@ final class ConnectionProperties {
         String.valueOf(useCustomHost));
     res[13].description =
         "Connect to a custom host instead of https://spanner.googleapis.com. This enables the use of a local emulator instead of Google Cloud Spanner";
+    res[14] = new DriverPropertyInfo(
+        TRANSACTION_WORKER_POOL_SIZE.substring(0, TRANSACTION_WORKER_POOL_SIZE.length() - 1),
+        defaultString(transactionWorkerPoolSize));
+    res[14].description =
+        "The maximum number of worker threads that may run read/write transactions at the same time. The worker threads are shared by all connections with the same pool size. Transactions that are started while all workers are busy, will wait until a worker becomes available. The default (0) means that the number of workers is not limited, and that a new worker will be created when a transaction is started and all workers are busy. The limit does not apply to the internal connections that extended mode statements use to write in separate transactions, as these are started while the transaction of the connection that executes the statement is holding a worker.";
+    res[15] = new DriverPropertyInfo(
+        USE_VIRTUAL_THREADS.substring(0, USE_VIRTUAL_THREADS.length() - 1),
+        String.valueOf(useVirtualThreads));
+    res[15].description =
+        "Use virtual threads instead of platform threads for running read/write transactions. This property is ignored if the Java runtime does not support virtual threads.";
+    res[16] = new DriverPropertyInfo(
+        RETRY_ABORTS_INTERNALLY.substring(0, RETRY_ABORTS_INTERNALLY.length() - 1),
+        String.valueOf(retryAbortsInternally));
+    res[16].description =
+        "Retry read/write transactions that are aborted by Cloud Spanner internally. When set to true, the driver keeps track of the queries that are executed in a transaction and a checksum of the rows that have been read. If the transaction is aborted, the driver starts a new transaction and executes the queries again. The retry succeeds if the queries return the same data as during the original attempt, and fails with an ABORTED error if the data has been changed by another transaction.";
+    res[17] = new DriverPropertyInfo(
+        READ_TIMESTAMP_BOUND.substring(0, READ_TIMESTAMP_BOUND.length() - 1), readTimestampBound);
+    res[17].description =
+        "The timestamp bound to use for queries in autocommit mode, read-only mode and batch-read-only mode. Valid values are STRONG (default), READ_TIMESTAMP:<timestamp>, MIN_READ_TIMESTAMP:<timestamp>, EXACT_STALENESS:<duration> and MAX_STALENESS:<duration>, for example MAX_STALENESS:10s. Durations may use the units ns, us, ms, s, m and h. Stale reads can be served by the nearest replica and do not need to contact the leader. MAX_STALENESS and MIN_READ_TIMESTAMP are only supported by single use reads, read-only transactions will use an exact staleness of the given duration or a strong read instead. The property can also be set with SET_CONNECTION_PROPERTY.";
+    res[18] = new DriverPropertyInfo(
+        PARTITION_PARALLELISM.substring(0, PARTITION_PARALLELISM.length() - 1),
+        defaultString(partitionParallelism));
+    res[18].description =
+        "The number of partitions that are executed in parallel in batch-read-only mode. When set to a value greater than 0, Statement#execute(String) and PreparedStatement#execute() return one result set that contains the rows of all partitions in an undefined order. The default (0) returns one result set per partition, and each partition is only executed when the application moves to its result set.";
+    res[19] = new DriverPropertyInfo(
+        PARTITION_BUFFER_SIZE.substring(0, PARTITION_BUFFER_SIZE.length() - 1),
+        defaultString(partitionBufferSize));
+    res[19].description =
+        "The maximum number of rows that are fetched and buffered per running partition when partitions are executed in parallel (see PartitionParallelism). All partitions share one buffer of PartitionParallelism * PartitionBufferSize rows, and a partition waits with fetching more rows when this buffer is full. The default is 1000.";
+    res[20] = new DriverPropertyInfo(MAX_PARTITIONS.substring(0, MAX_PARTITIONS.length() - 1),
+        maxPartitions);
+    res[20].description =
+        "The maximum number of partitions that is requested for a query in batch-read-only mode. This is a hint, Cloud Spanner may return fewer or more partitions. 0 (default) uses the default of Cloud Spanner. AUTO derives the maximum number of partitions from the number of nodes of the instance multiplied by PartitionParallelism, or by the number of available processors if PartitionParallelism is not set. The property can also be set with SET_CONNECTION_PROPERTY, and can be overridden per statement with CloudSpannerStatement#setMaxPartitions(Long).";
+    res[21] = new DriverPropertyInfo(
+        PARTITION_SIZE_BYTES.substring(0, PARTITION_SIZE_BYTES.length() - 1), partitionSizeBytes);
+    res[21].description =
+        "The desired size of each partition of a query in batch-read-only mode in bytes. The value may be followed by one of the units KB, MB or GB, for example 512MB. This is a hint, the actual size of a partition may differ. 0 (default) uses the default of Cloud Spanner (1GB). The property can also be set with SET_CONNECTION_PROPERTY, and can be overridden per statement with CloudSpannerStatement#setPartitionSizeBytes(Long).";
+    res[22] = new DriverPropertyInfo(
+        EXTENDED_MODE_PARALLELISM.substring(0, EXTENDED_MODE_PARALLELISM.length() - 1),
+        defaultString(extendedModeParallelism));
+    res[22].description =
+        "The number of writer connections that are used for a bulk INSERT/UPDATE/DELETE statement in extended mode (see AllowExtendedMode). When set to a value greater than 0, the SELECT part of the statement is executed as a partitioned query in a batch read-only transaction, and the partitions are divided over this number of writer connections that write and commit their rows in parallel. The default (0) reads and writes all rows on one thread. Statements that cannot be partitioned are always executed on one thread.";
+    res[23] = new DriverPropertyInfo(
+        MAX_IN_FLIGHT_COMMITS.substring(0, MAX_IN_FLIGHT_COMMITS.length() - 1),
+        defaultString(maxInFlightCommits));
+    res[23].description =
+        "The maximum number of commits that may be in flight at the same time for a bulk INSERT/UPDATE/DELETE statement that is executed on one thread in extended mode. When set to a value greater than 0, each batch of rows is committed asynchronously on one of this number of writer connections, while the next batch is read from the source. Batches may be committed in a different order than they were read. The default (0) commits each batch before reading the next one.";
+    res[24] = new DriverPropertyInfo(
+        AUTO_SPLIT_TRANSACTIONS.substring(0, AUTO_SPLIT_TRANSACTIONS.length() - 1),
+        String.valueOf(autoSplitTransactions));
+    res[24].description =
+        "Split writes that exceed the limits of Cloud Spanner for one commit (20,000 mutation cells, where each column value and each index entry counts as one cell) into multiple commits. This applies to writes in autocommit mode and to the commit of a transaction that has not executed any queries. A transaction that has executed queries and that exceeds the limits is rolled back and an error is thrown. The mutations that exceed the limits are committed one after the other in separate transactions after the transaction itself has been committed, and a warning is added to the statement or connection. The separate commits are NOT applied atomically. The default is false.";
+    res[25] = new DriverPropertyInfo(
+        AUTO_COMMIT_WRITE_MODE.substring(0, AUTO_COMMIT_WRITE_MODE.length() - 1),
+        autoCommitWriteMode);
+    res[25].description =
+        "The way that mutations are committed in autocommit mode. TRANSACTION (the default) buffers the mutations in a read/write transaction. WRITE commits the mutations using a session that has already started a read/write transaction, which saves the round-trip to begin a transaction. WRITE_AT_LEAST_ONCE commits the mutations in one round-trip without a transaction, but the mutations may be applied more than once if the commit is retried. Use WRITE_AT_LEAST_ONCE only for idempotent writes, such as INSERT_OR_UPDATE statements.";
+    res[26] = new DriverPropertyInfo(
+        GROUP_COMMIT_WINDOW.substring(0, GROUP_COMMIT_WINDOW.length() - 1),
+        defaultString(groupCommitWindow));
+    res[26].description =
+        "The number of milliseconds that a write in autocommit mode waits for writes of other connections that use the same database, so that the writes can be committed together in one transaction. Each write receives the outcome of the shared commit. If the shared commit fails because of a conflict or a constraint violation, the writes are retried in a separate transaction for each connection. The default (0) commits each write on its own.";
+    res[27] = new DriverPropertyInfo(
+        GROUP_COMMIT_MAX_MUTATIONS.substring(0, GROUP_COMMIT_MAX_MUTATIONS.length() - 1),
+        defaultString(groupCommitMaxMutations));
+    res[27].description =
+        "The maximum number of mutation cells in one group commit (see GroupCommitWindow). A mutation cell is one column value of one row, including the values that are written to indices. A write is not added to a group if the group would then exceed this number of cells, and a group is committed immediately when it reaches this number of cells. The value is limited to 20000 cells, which is the maximum of one commit. The default is 1000.";
+    res[28] = new DriverPropertyInfo(MIN_SESSIONS.substring(0, MIN_SESSIONS.length() - 1),
+        defaultString(minSessions));
+    res[28].description =
+        "The minimum number of sessions in the session pool of each database. These sessions are created when the first connection to the database is opened. If not set, the default of the Cloud Spanner client library is used. Connections with different session pool settings use separate session pools.";
+    res[29] = new DriverPropertyInfo(MAX_SESSIONS.substring(0, MAX_SESSIONS.length() - 1),
+        defaultString(maxSessions));
+    res[29].description =
+        "The maximum number of sessions in the session pool of each database. If not set, the default of the Cloud Spanner client library is used.";
+    res[30] = new DriverPropertyInfo(
+        WRITE_SESSIONS_FRACTION.substring(0, WRITE_SESSIONS_FRACTION.length() - 1),
+        writeSessionsFraction);
+    res[30].description =
+        "The fraction (between 0 and 1) of the sessions in the session pool that is prepared for read/write transactions. A prepared session saves the round-trip to begin a transaction. If not set, the default of the Cloud Spanner client library is used.";
+    res[31] = new DriverPropertyInfo(
+        KEEP_ALIVE_INTERVAL_MINUTES.substring(0, KEEP_ALIVE_INTERVAL_MINUTES.length() - 1),
+        defaultString(keepAliveIntervalMinutes));
+    res[31].description =
+        "The number of minutes after which an idle session in the session pool is kept alive by executing a simple query. If not set, the default of the Cloud Spanner client library is used.";
+    res[32] = new DriverPropertyInfo(WARM_UP_SESSIONS.substring(0, WARM_UP_SESSIONS.length() - 1),
+        String.valueOf(warmUpSessions));
+    res[32].description =
+        "Wait until the session pool of the database can be used when the first connection to the database is opened, so that the first statements on the connection do not have to wait for the connection setup and session creation. The default is false.";
+    res[33] = new DriverPropertyInfo(NUM_CHANNELS.substring(0, NUM_CHANNELS.length() - 1),
+        defaultString(numChannels));
+    res[33].description =
+        "The number of gRPC channels that are used by all connections that share the same Spanner instance. Increase this value if a large number of statements is executed in parallel on one JVM. If not set, the default of the Cloud Spanner client library is used. Connections with different transport settings use separate Spanner instances.";
+    res[34] = new DriverPropertyInfo(
+        MAX_INBOUND_MESSAGE_SIZE.substring(0, MAX_INBOUND_MESSAGE_SIZE.length() - 1),
+        defaultString(maxInboundMessageSize));
+    res[34].description =
+        "The maximum size in bytes of a message that may be received from Cloud Spanner. The default is 100MB.";
+    res[35] = new DriverPropertyInfo(
+        CHANNEL_KEEP_ALIVE_TIME.substring(0, CHANNEL_KEEP_ALIVE_TIME.length() - 1),
+        defaultString(channelKeepAliveTime));
+    res[35].description =
+        "The number of seconds without activity on a gRPC channel after which a keep-alive ping is sent. This prevents idle channels from being closed by load balancers and firewalls. If not set, no keep-alive pings are sent.";
+    res[36] = new DriverPropertyInfo(
+        DELETE_KEY_RANGES.substring(0, DELETE_KEY_RANGES.length() - 1),
+        String.valueOf(deleteKeyRanges));
+    res[36].description =
+        "Execute DELETE statements whose WHERE clause only compares a prefix of the primary key for equality, optionally followed by a range on the next key column, as one key range delete without reading the rows first. The number of deleted rows is then not known, and the update count of such a statement is Statement.SUCCESS_NO_INFO (-2). The default is false, which reads the keys of the rows to delete and returns the number of deleted rows.";
 
     return res;
   }
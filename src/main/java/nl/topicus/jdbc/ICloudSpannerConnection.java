@@ -4,6 +4,8 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Properties;
 import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.TimestampBound;
+import nl.topicus.jdbc.transaction.TransactionWorkerPool;
 
 /**
  * Interface containing all extra methods that are provided by CloudSpannerConnection
@@ -40,6 +42,122 @@ public interface ICloudSpannerConnection extends Connection {
 
   public int setReportDefaultSchemaAsNull(boolean reportDefaultSchemaAsNull);
 
+  public boolean isRetryAbortsInternally();
+
+  public int setRetryAbortsInternally(boolean retryAbortsInternally);
+
+  /**
+   * 
+   * @return The timestamp bound that is used for queries in autocommit mode and for read-only and
+   *         batch-read-only transactions
+   */
+  public TimestampBound getReadTimestampBound();
+
+  public int setReadTimestampBound(TimestampBound readTimestampBound);
+
+  /**
+   * 
+   * @return The number of partitions that are executed in parallel in batch-read-only mode. 0
+   *         means that each partition is returned as a separate result set.
+   */
+  public int getPartitionParallelism();
+
+  public void setPartitionParallelism(int partitionParallelism);
+
+  /**
+   * 
+   * @return The maximum number of rows that are buffered per running partition when partitions
+   *         are executed in parallel. The partitions share one buffer of
+   *         <code>partitionParallelism * partitionBufferSize</code> rows.
+   */
+  public int getPartitionBufferSize();
+
+  public void setPartitionBufferSize(int partitionBufferSize);
+
+  /**
+   * 
+   * @return The number of writer connections that are used in parallel for bulk DML statements in
+   *         extended mode. 0 means that all rows are read and written on one thread.
+   */
+  public int getExtendedModeParallelism();
+
+  public void setExtendedModeParallelism(int extendedModeParallelism);
+
+  /**
+   * 
+   * @return The maximum number of asynchronous commits that may be in flight for a bulk DML
+   *         statement that runs on one thread in extended mode. 0 means that each batch is
+   *         committed before the next batch is read.
+   */
+  public int getMaxInFlightCommits();
+
+  public void setMaxInFlightCommits(int maxInFlightCommits);
+
+  /**
+   * 
+   * @return <code>true</code> if writes that exceed the mutation limits of Cloud Spanner are split
+   *         into multiple commits. The split commits are not applied atomically.
+   */
+  public boolean isAutoSplitTransactions();
+
+  public void setAutoSplitTransactions(boolean autoSplitTransactions);
+
+  /**
+   * 
+   * @return <code>true</code> if DELETE statements on a range of primary key values are executed
+   *         as one key range delete. The update count of such a statement is
+   *         {@link java.sql.Statement#SUCCESS_NO_INFO}.
+   */
+  public boolean isDeleteKeyRanges();
+
+  public void setDeleteKeyRanges(boolean deleteKeyRanges);
+
+  /**
+   * 
+   * @return The way that mutations are committed when the connection is in autocommit mode
+   */
+  public AutoCommitWriteMode getAutoCommitWriteMode();
+
+  public void setAutoCommitWriteMode(AutoCommitWriteMode autoCommitWriteMode);
+
+  /**
+   * 
+   * @return The number of milliseconds that a write in autocommit mode waits for the writes of
+   *         other connections to commit them together. 0 means that each write is committed on its
+   *         own.
+   */
+  public int getGroupCommitWindow();
+
+  public void setGroupCommitWindow(int groupCommitWindow);
+
+  /**
+   * 
+   * @return The maximum number of mutation cells in one group commit. A mutation cell is one
+   *         column value of one row, including the values that are written to indices.
+   */
+  public int getGroupCommitMaxMutations();
+
+  public void setGroupCommitMaxMutations(int groupCommitMaxMutations);
+
+  /**
+   * 
+   * @return The maximum number of partitions that is requested for partitioned queries. 0 means
+   *         that the default of Cloud Spanner is used, -1 means that the number is derived from the
+   *         number of nodes and the partition parallelism.
+   */
+  public long getMaxPartitions();
+
+  public int setMaxPartitions(long maxPartitions);
+
+  /**
+   * 
+   * @return The desired size in bytes of each partition of a partitioned query. 0 means that the
+   *         default of Cloud Spanner is used.
+   */
+  public long getPartitionSizeBytes();
+
+  public int setPartitionSizeBytes(long partitionSizeBytes);
+
   public String getClientId();
 
   public Timestamp getLastCommitTimestamp();
@@ -52,4 +170,10 @@ public interface ICloudSpannerConnection extends Connection {
 
   public boolean isUseCustomHost();
 
+  /**
+   * @return The pool of worker threads that runs the read/write transactions of this connection.
+   *         The pool also provides statistics on the time transactions wait for a worker.
+   */
+  public TransactionWorkerPool getTransactionWorkerPool();
+
 }
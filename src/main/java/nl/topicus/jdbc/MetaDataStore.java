@@ -5,9 +5,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Class for storing meta data needed for translating SQL statements into Cloud Spanner mutations,
@@ -28,6 +30,10 @@ public class MetaDataStore {
 
     private final List<String> keyColumns = new ArrayList<>(2);
 
+    private Set<String> descendingKeyColumns;
+
+    private int numberOfIndices;
+
     TableKeyMetaData(String name) {
       this.name = name;
     }
@@ -36,6 +42,51 @@ public class MetaDataStore {
       return keyColumns;
     }
 
+    /**
+     * The sort order of the key columns is only needed for key range deletes, and is therefore
+     * loaded the first time it is requested.
+     * 
+     * @param column The upper case name of a key column
+     * @return <code>true</code> if the given key column is sorted in descending order
+     * @throws SQLException if the sort order could not be retrieved from the database
+     */
+    public synchronized boolean isDescending(String column) throws SQLException {
+      loadIndexInfo();
+      return descendingKeyColumns.contains(column.toUpperCase());
+    }
+
+    /**
+     * The number of secondary indices is only needed for counting the mutations of a transaction,
+     * and is therefore loaded the first time it is requested.
+     * 
+     * @return The number of secondary indices on this table
+     * @throws SQLException if the indices could not be retrieved from the database
+     */
+    public synchronized int getNumberOfIndices() throws SQLException {
+      loadIndexInfo();
+      return numberOfIndices;
+    }
+
+    private void loadIndexInfo() throws SQLException {
+      if (descendingKeyColumns != null)
+        return;
+      Set<String> descending = new HashSet<>();
+      Set<String> indices = new HashSet<>();
+      try (ResultSet rs = connection.getMetaData().getIndexInfo(null, null, name, false, false)) {
+        while (rs.next()) {
+          String index = rs.getString("INDEX_NAME");
+          if ("PRIMARY_KEY".equalsIgnoreCase(index)) {
+            if ("D".equalsIgnoreCase(rs.getString("ASC_OR_DESC")))
+              descending.add(rs.getString("COLUMN_NAME").toUpperCase());
+          } else if (index != null) {
+            indices.add(index.toUpperCase());
+          }
+        }
+      }
+      numberOfIndices = indices.size();
+      descendingKeyColumns = descending;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (!(o instanceof TableKeyMetaData))
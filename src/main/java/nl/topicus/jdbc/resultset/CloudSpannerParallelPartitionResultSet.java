@@ -0,0 +1,286 @@
+package nl.topicus.jdbc.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
+import com.google.cloud.spanner.ForwardingResultSet;
+import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.statement.CloudSpannerStatement;
+
+/**
+ * A {@link ResultSet} that executes all partitions of a partitioned query in parallel and returns
+ * the rows of all partitions as one forward-only result. The order of the rows is undefined. At
+ * most <code>parallelism</code> partitions are executed at the same time. All partitions share one
+ * bounded buffer of <code>parallelism * bufferSize</code> rows that have been fetched, but not yet
+ * consumed. A partition that finds the buffer full waits until the application has consumed some
+ * rows, which limits the memory usage to approximately <code>parallelism * bufferSize</code> rows,
+ * also when partitions finish before their rows have been consumed.
+ *
+ * @author loite
+ *
+ */
+public class CloudSpannerParallelPartitionResultSet extends CloudSpannerResultSet {
+  /**
+   * Rows are handed from the partition workers to the application in chunks of at most this number
+   * of rows
+   */
+  private static final int MAX_CHUNK_SIZE = 100;
+
+  private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder().setDaemon(true)
+      .setNameFormat("Google Cloud Spanner JDBC Partition Worker-%d").build();
+
+  private static final class Chunk {
+    private final Type type;
+
+    private final List<Struct> rows;
+
+    private final boolean last;
+
+    private final Throwable exception;
+
+    private Chunk(Type type, List<Struct> rows, boolean last, Throwable exception) {
+      this.type = type;
+      this.rows = rows;
+      this.last = last;
+      this.exception = exception;
+    }
+  }
+
+  /**
+   * Result set for the rows of one chunk. The column metadata of the chunk is known in advance, and
+   * can therefore also be returned before the first call to {@link #next()}.
+   */
+  private static final class ChunkResultSet extends ForwardingResultSet {
+    private final Type type;
+
+    private ChunkResultSet(Type type, List<Struct> rows) {
+      super(ResultSets.forRows(type, rows));
+      this.type = type;
+    }
+
+    @Override
+    public Type getType() {
+      return type;
+    }
+
+    @Override
+    public int getColumnCount() {
+      return type.getStructFields().size();
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+      return type.getFieldIndex(columnName);
+    }
+
+    @Override
+    public Type getColumnType(int columnIndex) {
+      return type.getStructFields().get(columnIndex).getType();
+    }
+
+    @Override
+    public Type getColumnType(String columnName) {
+      return getColumnType(getColumnIndex(columnName));
+    }
+  }
+
+  private final BatchReadOnlyTransaction transaction;
+
+  private final List<Partition> partitions;
+
+  private final int chunkSize;
+
+  private final List<Queue<Chunk>> buffers;
+
+  /**
+   * The number of chunks that may still be added to the buffers of all partitions together. A
+   * partition worker waits on this semaphore when the shared limit has been reached.
+   */
+  private final Semaphore freeChunks;
+
+  /**
+   * The number of chunks in all buffers together. The application waits on this semaphore when all
+   * buffers are empty.
+   */
+  private final Semaphore availableChunks = new Semaphore(0);
+
+  private final ExecutorService executor;
+
+  private volatile boolean closed;
+
+  private int remainingPartitions;
+
+  private int nextBuffer;
+
+  private int remainingRowsInChunk;
+
+  private boolean chunkLoaded;
+
+  private Type type;
+
+  public CloudSpannerParallelPartitionResultSet(CloudSpannerStatement statement,
+      BatchReadOnlyTransaction transaction, List<Partition> partitions, String sql,
+      int parallelism, int bufferSize) {
+    super(statement, sql);
+    this.transaction = transaction;
+    this.partitions = partitions;
+    this.remainingPartitions = partitions.size();
+    this.chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, bufferSize));
+    int chunksPerBuffer = Math.max(1, bufferSize / chunkSize);
+    int threads = Math.max(1, Math.min(parallelism, partitions.size()));
+    this.freeChunks = new Semaphore(threads * chunksPerBuffer);
+    this.buffers = new ArrayList<>(partitions.size());
+    for (int i = 0; i < partitions.size(); i++)
+      buffers.add(new ConcurrentLinkedQueue<>());
+    this.executor = Executors.newFixedThreadPool(threads, THREAD_FACTORY);
+    for (int i = 0; i < partitions.size(); i++) {
+      final int index = i;
+      executor.execute(() -> fetch(index));
+    }
+    // Let the worker threads end when all partitions have been fetched
+    executor.shutdown();
+  }
+
+  private void fetch(int index) {
+    Queue<Chunk> buffer = buffers.get(index);
+    try {
+      try (com.google.cloud.spanner.ResultSet rs = transaction.execute(partitions.get(index))) {
+        Type rowType = null;
+        List<Struct> rows = new ArrayList<>(chunkSize);
+        while (!closed && rs.next()) {
+          if (rowType == null)
+            rowType = rs.getType();
+          rows.add(rs.getCurrentRowAsStruct());
+          if (rows.size() == chunkSize) {
+            put(buffer, new Chunk(rowType, rows, false, null));
+            rows = new ArrayList<>(chunkSize);
+          }
+        }
+        if (rowType == null && !closed)
+          rowType = rs.getType();
+        put(buffer, new Chunk(rowType, rows, true, null));
+      } catch (Throwable t) {
+        // Always report the end of the partition, otherwise the application would wait forever
+        put(buffer, new Chunk(null, Collections.emptyList(), true, t));
+      }
+    } catch (InterruptedException e) {
+      // The result set has been closed
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void put(Queue<Chunk> buffer, Chunk chunk) throws InterruptedException {
+    freeChunks.acquire();
+    buffer.add(chunk);
+    availableChunks.release();
+  }
+
+  private Chunk takeChunk() throws SQLException {
+    try {
+      availableChunks.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CloudSpannerSQLException("Interrupted while waiting for the next partition",
+          Code.CANCELLED, e);
+    }
+    // Take the chunks from the partitions in turn to keep all partitions running
+    for (int i = 0; i < buffers.size(); i++) {
+      int index = (nextBuffer + i) % buffers.size();
+      Chunk chunk = buffers.get(index).poll();
+      if (chunk != null) {
+        freeChunks.release();
+        nextBuffer = index + 1;
+        return chunk;
+      }
+    }
+    throw new CloudSpannerSQLException("No partition result available", Code.INTERNAL);
+  }
+
+  /**
+   * Loads the next chunk that contains at least one row.
+   *
+   * @return <code>true</code> if a chunk was loaded, <code>false</code> if all partitions have been
+   *         consumed
+   */
+  private boolean loadNextChunk() throws SQLException {
+    chunkLoaded = true;
+    while (remainingPartitions > 0) {
+      Chunk chunk = takeChunk();
+      if (chunk.last)
+        remainingPartitions--;
+      if (chunk.exception != null) {
+        remainingPartitions = 0;
+        close();
+        if (chunk.exception instanceof SpannerException)
+          throw new CloudSpannerSQLException((SpannerException) chunk.exception);
+        throw new CloudSpannerSQLException("Executing partition failed", Code.UNKNOWN,
+            chunk.exception);
+      }
+      if (type == null)
+        type = chunk.type;
+      if (!chunk.rows.isEmpty()) {
+        setResultSet(new ChunkResultSet(chunk.type, chunk.rows));
+        remainingRowsInChunk = chunk.rows.size();
+        return true;
+      }
+    }
+    setResultSet(new ChunkResultSet(type == null ? Type.struct() : type,
+        Collections.<Struct>emptyList()));
+    return false;
+  }
+
+  @Override
+  public boolean next() throws SQLException {
+    ensureOpen();
+    if (remainingRowsInChunk == 0 && !loadNextChunk()) {
+      // All partitions have been consumed, the current result set is empty
+      return super.next();
+    }
+    remainingRowsInChunk--;
+    return super.next();
+  }
+
+  @Override
+  public CloudSpannerResultSetMetaData getMetaData() throws SQLException {
+    ensureOpenAndLoaded();
+    return super.getMetaData();
+  }
+
+  @Override
+  public int findColumn(String columnLabel) throws SQLException {
+    ensureOpenAndLoaded();
+    return super.findColumn(columnLabel);
+  }
+
+  private void ensureOpenAndLoaded() throws SQLException {
+    ensureOpen();
+    if (!chunkLoaded)
+      loadNextChunk();
+  }
+
+  @Override
+  public void close() throws SQLException {
+    closed = true;
+    executor.shutdownNow();
+    for (Queue<Chunk> buffer : buffers)
+      buffer.clear();
+    super.close();
+  }
+
+}
@@ -5,14 +5,18 @@ import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import com.google.cloud.spanner.BatchReadOnlyTransaction;
 import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.Partition;
 import com.google.cloud.spanner.PartitionOptions;
 import com.google.cloud.spanner.ReadContext;
 import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.TimestampBound;
 import com.google.cloud.spanner.TransactionContext;
 import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
 import com.google.rpc.Code;
@@ -24,10 +28,15 @@ import net.sf.jsqlparser.statement.select.Select;
 import net.sf.jsqlparser.statement.select.SelectVisitorAdapter;
 import net.sf.jsqlparser.statement.update.Update;
 import nl.topicus.jdbc.AbstractCloudSpannerFetcher;
+import nl.topicus.jdbc.AutoCommitWriteMode;
 import nl.topicus.jdbc.CloudSpannerConnection;
 import nl.topicus.jdbc.CloudSpannerDriver;
 import nl.topicus.jdbc.MetaDataStore.TableKeyMetaData;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.transaction.CloudSpannerTransaction;
+import nl.topicus.jdbc.transaction.GroupCommitter;
+import nl.topicus.jdbc.transaction.MutationCounter;
+import nl.topicus.jdbc.util.PartitionOptionsUtil;
 
 /**
  * 
@@ -62,36 +71,27 @@ abstract class AbstractCloudSpannerStatement extends AbstractCloudSpannerFetcher
 
   private int maxFieldSize = 0;
 
+  /**
+   * Overrides the max partitions setting of the connection for partitioned queries of this
+   * statement. <code>null</code> means use the setting of the connection.
+   */
+  private Long maxPartitions;
+
+  /**
+   * Overrides the partition size setting of the connection for partitioned queries of this
+   * statement. <code>null</code> means use the setting of the connection.
+   */
+  private Long partitionSizeBytes;
+
+  private SQLWarning warnings;
+
   AbstractCloudSpannerStatement(CloudSpannerConnection connection, DatabaseClient dbClient) {
     this.connection = connection;
     this.dbClient = dbClient;
   }
 
   protected String sanitizeSQL(String sql) {
-    // Add a pseudo update to the end if no columns have been specified in
-    // an 'on duplicate key update'-statement
-    if (sql.matches("(?is)\\s*INSERT\\s+.*\\s+ON\\s+DUPLICATE\\s+KEY\\s+UPDATE\\s*")) {
-      sql = sql + " FOO=BAR";
-    }
-    // Remove @{FORCE_INDEX...} statements
-    sql = sql.replaceAll("(?is)\\@\\{\\s*FORCE_INDEX.*\\}", "");
-    // Remove 'INTERVAL INT64_expr date_part' calls
-    sql = sql.replaceAll("(?is),\\s*INTERVAL\\s+", ",");
-    sql = sql.replaceAll("(?is)\\s+DAY\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+WEEK\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+MONTH\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+QUARTER\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+YEAR\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+NANOSECOND\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+MICROSECOND\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+MILLISECOND\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+SECOND\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+MINUTE\\s*\\)", ")");
-    sql = sql.replaceAll("(?is)\\s+HOUR\\s*\\)", ")");
-    // Remove 'EXTRACT(DATE FROM ...)' calls
-    sql = sql.replaceAll("(?is)EXTRACT\\(\\s*DATE\\s+FROM\\s+", "EXTRACT(DATE_OF_MONTH FROM ");
-
-    return sql;
+    return SqlLexer.sanitize(sql);
   }
 
   /**
@@ -190,14 +190,52 @@ abstract class AbstractCloudSpannerStatement extends AbstractCloudSpannerFetcher
 
   protected ReadContext getReadContext() throws SQLException {
     if (connection.getAutoCommit() || forceSingleUseReadContext) {
-      return dbClient.singleUse();
+      TimestampBound bound = connection.getReadTimestampBound();
+      return bound == null ? dbClient.singleUse() : dbClient.singleUse(bound);
     }
     return connection.getTransaction();
   }
 
+  public Long getMaxPartitions() {
+    return maxPartitions;
+  }
+
+  /**
+   * Set the maximum number of partitions to request for partitioned queries of this statement.
+   * 
+   * @param maxPartitions The maximum number of partitions, 0 for the default of Cloud Spanner,
+   *        {@link PartitionOptionsUtil#AUTO_MAX_PARTITIONS} for AUTO or <code>null</code> to use the
+   *        setting of the connection
+   */
+  public void setMaxPartitions(Long maxPartitions) {
+    this.maxPartitions = maxPartitions;
+  }
+
+  public Long getPartitionSizeBytes() {
+    return partitionSizeBytes;
+  }
+
+  /**
+   * Set the desired partition size in bytes for partitioned queries of this statement.
+   * 
+   * @param partitionSizeBytes The desired partition size, 0 for the default of Cloud Spanner or
+   *        <code>null</code> to use the setting of the connection
+   */
+  public void setPartitionSizeBytes(Long partitionSizeBytes) {
+    this.partitionSizeBytes = partitionSizeBytes;
+  }
+
+  protected PartitionOptions getPartitionOptions() {
+    long max = maxPartitions == null ? connection.getMaxPartitions() : maxPartitions;
+    if (max == PartitionOptionsUtil.AUTO_MAX_PARTITIONS)
+      max = connection.getAutoMaxPartitions();
+    long size =
+        partitionSizeBytes == null ? connection.getPartitionSizeBytes() : partitionSizeBytes;
+    return PartitionOptionsUtil.createPartitionOptions(max, size);
+  }
+
   protected List<Partition> partitionQuery(com.google.cloud.spanner.Statement statement) {
-    PartitionOptions po = PartitionOptions.getDefaultInstance();
-    return connection.getTransaction().partitionQuery(po, statement);
+    return connection.getTransaction().partitionQuery(getPartitionOptions(), statement);
   }
 
   protected BatchReadOnlyTransaction getBatchReadOnlyTransaction() {
@@ -222,14 +260,7 @@ abstract class AbstractCloudSpannerStatement extends AbstractCloudSpannerFetcher
     } else {
 
       if (connection.getAutoCommit()) {
-        dbClient.readWriteTransaction().run(new TransactionCallable<Void>() {
-
-          @Override
-          public Void run(TransactionContext transaction) throws Exception {
-            transaction.buffer(mutations.getMutations());
-            return null;
-          }
-        });
+        writeInAutoCommit(mutations.getMutations());
       } else {
         connection.getTransaction().buffer(mutations.getMutations());
       }
@@ -237,6 +268,95 @@ abstract class AbstractCloudSpannerStatement extends AbstractCloudSpannerFetcher
     return mutations.getNumberOfResults();
   }
 
+  /**
+   * Writes a batch of statements. The mutations of the batch are buffered on the current
+   * transaction in one call, or in autocommit mode written in one transaction, or in as few
+   * transactions as the limits of Cloud Spanner allow if AutoSplitTransactions is enabled.
+   * Statements that are executed by a worker in extended mode are committed by the worker, and the
+   * mutations of the statements before it are written first.
+   * 
+   * @param batch The statements to write
+   * @return The update counts of the statements
+   * @throws SQLException if the connection is in read-only mode or if the write failed
+   */
+  protected int[] writeMutations(List<Mutations> batch) throws SQLException {
+    int[] res = new int[batch.size()];
+    List<Mutation> pending = new ArrayList<>();
+    for (int index = 0; index < batch.size(); index++) {
+      Mutations mutations = batch.get(index);
+      if (mutations.isWorker()) {
+        writePending(pending);
+        pending.clear();
+        res[index] = (int) writeMutations(mutations);
+      } else {
+        pending.addAll(mutations.getMutations());
+        res[index] = (int) mutations.getNumberOfResults();
+      }
+    }
+    writePending(pending);
+    return res;
+  }
+
+  private void writePending(List<Mutation> mutations) throws SQLException {
+    if (mutations.isEmpty())
+      return;
+    if (connection.isReadOnly()) {
+      throw new CloudSpannerSQLException(NO_MUTATIONS_IN_READ_ONLY_MODE_EXCEPTION,
+          Code.FAILED_PRECONDITION);
+    }
+    if (connection.getAutoCommit())
+      writeInAutoCommit(mutations);
+    else
+      connection.getTransaction().buffer(mutations);
+  }
+
+  /**
+   * Writes the given mutations in autocommit mode. A write that does not need to be split is
+   * committed together with the writes of other connections if a GroupCommitWindow has been set,
+   * and otherwise according to the AutoCommitWriteMode of the connection.
+   */
+  private void writeInAutoCommit(List<Mutation> mutations) throws SQLException {
+    List<List<Mutation>> parts = splitIfNecessary(mutations);
+    if (parts.size() > 1) {
+      CloudSpannerTransaction.writeInParts(dbClient, parts);
+      addWarning(CloudSpannerTransaction.createSplitWarning(parts.size()));
+    } else if (connection.getGroupCommitWindow() > 0) {
+      // The cells of a group are always counted including the cells of the indices
+      MutationCounter counter =
+          new MutationCounter(table -> connection.getTable(table).getNumberOfIndices());
+      GroupCommitter.getInstance(dbClient).write(mutations, counter,
+          connection.getGroupCommitWindow(), connection.getGroupCommitMaxMutations());
+    } else if (connection.getAutoCommitWriteMode() == AutoCommitWriteMode.WRITE) {
+      dbClient.write(mutations);
+    } else if (connection.getAutoCommitWriteMode() == AutoCommitWriteMode.WRITE_AT_LEAST_ONCE) {
+      dbClient.writeAtLeastOnce(mutations);
+    } else {
+      dbClient.readWriteTransaction().run(new TransactionCallable<Void>() {
+
+        @Override
+        public Void run(TransactionContext transaction) throws Exception {
+          transaction.buffer(mutations);
+          return null;
+        }
+      });
+    }
+  }
+
+  /**
+   * Splits the given mutations into groups that each stay within the limits of one commit if
+   * AutoSplitTransactions is enabled and the mutations exceed these limits.
+   */
+  private List<List<Mutation>> splitIfNecessary(List<Mutation> mutations) throws SQLException {
+    if (!connection.isAutoSplitTransactions())
+      return Collections.singletonList(mutations);
+    MutationCounter counter = connection.getTransaction().createMutationCounter();
+    for (Mutation mutation : mutations)
+      counter.add(mutation);
+    if (!counter.exceedsLimits())
+      return Collections.singletonList(mutations);
+    return counter.split(mutations);
+  }
+
   @Override
   public boolean isClosed() throws SQLException {
     return closed;
@@ -294,12 +414,19 @@ abstract class AbstractCloudSpannerStatement extends AbstractCloudSpannerFetcher
 
   @Override
   public SQLWarning getWarnings() throws SQLException {
-    return null;
+    return warnings;
   }
 
   @Override
   public void clearWarnings() throws SQLException {
-    // silently ignore
+    warnings = null;
+  }
+
+  protected void addWarning(SQLWarning warning) {
+    if (warnings == null)
+      warnings = warning;
+    else
+      warnings.setNextWarning(warning);
   }
 
   @Override
@@ -54,16 +54,15 @@ abstract class AbstractSpannerExpressionVisitorAdapter extends ExpressionVisitor
 
   @Override
   public void visit(SignedExpression value) {
+    // Do not change the value of the underlying expression, as parsed statements are cached and
+    // may be visited multiple times
     Expression underlyingValue = value.getExpression();
     if (underlyingValue instanceof DoubleValue) {
-      DoubleValue doubleValue = (DoubleValue) underlyingValue;
-      doubleValue
-          .setValue(value.getSign() == '-' ? -doubleValue.getValue() : doubleValue.getValue());
-      visit(doubleValue);
+      double doubleValue = ((DoubleValue) underlyingValue).getValue();
+      setValue(value.getSign() == '-' ? -doubleValue : doubleValue, Types.DOUBLE);
     } else if (underlyingValue instanceof LongValue) {
-      LongValue longValue = (LongValue) underlyingValue;
-      longValue.setValue(value.getSign() == '-' ? -longValue.getValue() : longValue.getValue());
-      visit(longValue);
+      long longValue = ((LongValue) underlyingValue).getValue();
+      setValue(value.getSign() == '-' ? -longValue : longValue, Types.BIGINT);
     } else {
       super.visit(value);
     }
@@ -1,14 +1,28 @@
 package nl.topicus.jdbc.statement;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.WriteBuilder;
 import com.google.cloud.spanner.SpannerException;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.rpc.Code;
 import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.schema.Table;
@@ -19,6 +33,14 @@ import nl.topicus.jdbc.CloudSpannerDriver;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
 
 public abstract class AbstractTablePartWorker implements Callable<ConversionResult> {
+  /**
+   * Mutations are handed to the transaction in chunks of at most this size
+   */
+  private static final int MAX_CHUNK_SIZE = 1000;
+
+  private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder().setDaemon(true)
+      .setNameFormat("Google Cloud Spanner JDBC Extended Mode Writer-%d").build();
+
   private enum Mode {
     UNKNOWN, NORMAL, EXTENDED;
   }
@@ -48,7 +70,9 @@ public abstract class AbstractTablePartWorker implements Callable<ConversionResu
 
   private long estimatedRecordCount = -1;
 
-  private long recordCount = 0;
+  private volatile long startTime;
+
+  private final AtomicLong recordCount = new AtomicLong();
 
   AbstractTablePartWorker(CloudSpannerConnection connection, Select select,
       ParameterStore parameters, boolean allowExtendedMode, DMLOperation operation) {
@@ -62,14 +86,24 @@ public abstract class AbstractTablePartWorker implements Callable<ConversionResu
   @Override
   public ConversionResult call() {
     Exception exception = null;
-    long startTime = System.currentTimeMillis();
+    startTime = System.currentTimeMillis();
     try {
       genericRun();
     } catch (Exception e) {
       exception = e;
     }
     long endTime = System.currentTimeMillis();
-    return new ConversionResult(recordCount, 0, startTime, endTime, exception);
+    return new ConversionResult(recordCount.get(), 0, startTime, endTime, exception);
+  }
+
+  /**
+   * 
+   * @return The number of records that have been processed so far and the time that has elapsed
+   *         since the worker was started. Can be called from any thread while the worker is
+   *         running.
+   */
+  public ConversionResult getProgress() {
+    return new ConversionResult(recordCount.get(), 0, startTime, System.currentTimeMillis(), null);
   }
 
   protected void genericRun() throws SQLException {
@@ -77,49 +111,59 @@ public abstract class AbstractTablePartWorker implements Callable<ConversionResu
     List<String> columnNamesList = getColumnNames();
     long batchSize = ConverterUtils.calculateActualBatchSize(columnNamesList.size(), connection,
         null, null, unquotedTableName);
-    boolean isExtendedMode = isExtendedMode(batchSize);
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(batchSize, columnNamesList.size()
+        + ConverterUtils.getNumberOfIndices(connection, null, null, unquotedTableName));
+    // A partitioned read must start in extended mode, the mode must therefore be determined in
+    // advance
+    if (allowExtendedMode && connection.getExtendedModeParallelism() > 0
+        && isExtendedMode(batchSize) && parallelRun(sizer)) {
+      return;
+    }
+    if (mode == Mode.EXTENDED || !normalRun(batchSize)) {
+      extendedRun(sizer);
+    }
+  }
 
+  /**
+   * Executes the statement in one transaction on the connection of the statement. If extended mode
+   * is allowed, the mutations are kept in memory until it is known whether they fit in one
+   * transaction. The statement is aborted without writing anything as soon as the select statement
+   * returns more than batchSize rows, and must then be executed in extended mode.
+   * 
+   * @return <code>false</code> if the statement must be executed in extended mode
+   */
+  private boolean normalRun(long batchSize) throws SQLException {
     boolean wasAutocommit = connection.getAutoCommit();
-    if (!isExtendedMode && wasAutocommit) {
+    if (wasAutocommit) {
       connection.setAutoCommit(false);
     }
-    try (Connection destination = isExtendedMode ? connection.createCopyConnection() : null) {
-      if (destination != null) {
-        destination.setAutoCommit(false);
-      }
-      String sql = createSQL();
-      try (PreparedStatement statement = destination == null ? connection.prepareStatement(sql)
-          : destination.prepareStatement(sql)) {
-        if (operation == DMLOperation.UPDATE) {
-          // Set force update
-          ((CloudSpannerPreparedStatement) statement).setForceUpdate(true);
-        }
-        CloudSpannerPreparedStatement selectStatement =
-            connection.prepareStatement(select.toString());
-        for (int i = 1; i <= parameters.getHighestIndex(); i++) {
-          selectStatement.setObject(i, parameters.getParameter(i));
-        }
-        try (ResultSet rs = selectStatement.executeQuery()) {
-          ResultSetMetaData metadata = rs.getMetaData();
-          while (rs.next()) {
-            for (int index = 1; index <= metadata.getColumnCount(); index++) {
-              Object object = rs.getObject(index);
-              statement.setObject(index, object);
-            }
-            statement.executeUpdate();
-            recordCount++;
-            if (destination != null && recordCount % batchSize == 0)
-              destination.commit();
+    try {
+      String table = CloudSpannerDriver.unquoteIdentifier(getTable().getFullyQualifiedName());
+      String[] columns = getMutationColumnNames().toArray(new String[0]);
+      List<Mutation> chunk = new ArrayList<>((int) Math.min(batchSize, MAX_CHUNK_SIZE));
+      try (ResultSet rs = executeSelect()) {
+        while (rs.next()) {
+          if (recordCount.get() == 0L)
+            checkColumnCount(rs, columns.length);
+          if (allowExtendedMode && recordCount.get() >= batchSize) {
+            mode = Mode.EXTENDED;
+            recordCount.set(0L);
+            return false;
+          }
+          chunk.add(createMutation(table, columns, rs));
+          recordCount.incrementAndGet();
+          if (!allowExtendedMode && chunk.size() >= MAX_CHUNK_SIZE) {
+            chunk = flush(connection, chunk);
           }
         }
       }
-      if (destination != null) {
-        destination.commit();
-      }
-      if (wasAutocommit && !isExtendedMode) {
+      mode = Mode.NORMAL;
+      flush(connection, chunk);
+      if (wasAutocommit) {
         connection.commit();
         connection.setAutoCommit(true);
       }
+      return true;
     } catch (SpannerException e) {
       throw new CloudSpannerSQLException(e);
     } catch (CloudSpannerSQLException e) {
@@ -127,19 +171,312 @@ public abstract class AbstractTablePartWorker implements Callable<ConversionResu
     } catch (Exception e) {
       throw new CloudSpannerSQLException(e.getMessage(), Code.UNKNOWN, e);
     } finally {
-      if (wasAutocommit && !isExtendedMode) {
+      if (wasAutocommit) {
         connection.rollback();
         connection.setAutoCommit(true);
       }
     }
+  }
 
+  /**
+   * Executes the statement in extended mode on one thread. The mutations are written on a separate
+   * connection and committed in batches. The size of each batch is determined by the
+   * {@link AdaptiveBatchSizer}.
+   */
+  private void extendedRun(AdaptiveBatchSizer sizer) throws SQLException {
+    int maxInFlightCommits = connection.getMaxInFlightCommits();
+    try (
+        CloudSpannerConnection destination =
+            maxInFlightCommits == 0 ? connection.createCopyConnection() : null;
+        CommitPipeline pipeline = maxInFlightCommits > 0
+            ? new CommitPipeline(connection, maxInFlightCommits, sizer) : null) {
+      if (destination != null) {
+        destination.setAutoCommit(false);
+      }
+      String table = CloudSpannerDriver.unquoteIdentifier(getTable().getFullyQualifiedName());
+      String[] columns = getMutationColumnNames().toArray(new String[0]);
+      List<Mutation> chunk = new ArrayList<>(MAX_CHUNK_SIZE);
+      long rows = 0L;
+      long bytes = 0L;
+      try (ResultSet rs = executeSelect()) {
+        while (rs.next()) {
+          if (recordCount.get() == 0L)
+            checkColumnCount(rs, columns.length);
+          Mutation mutation = createMutation(table, columns, rs);
+          chunk.add(mutation);
+          recordCount.incrementAndGet();
+          rows++;
+          bytes += AdaptiveBatchSizer.estimateSize(mutation);
+          if (rows >= sizer.getBatchSize() || bytes >= AdaptiveBatchSizer.MAX_BATCH_BYTES) {
+            if (pipeline != null) {
+              // The next batch is read while this batch is being committed
+              pipeline.commit(combine(chunk), rows, bytes);
+              chunk = new ArrayList<>(MAX_CHUNK_SIZE);
+            } else {
+              chunk = flush(destination, chunk);
+              commit(destination, sizer, rows, bytes);
+            }
+            rows = 0L;
+            bytes = 0L;
+          } else if (pipeline == null && chunk.size() >= MAX_CHUNK_SIZE) {
+            chunk = flush(destination, chunk);
+          }
+        }
+      }
+      if (pipeline != null) {
+        if (!chunk.isEmpty())
+          pipeline.commit(combine(chunk), rows, bytes);
+        pipeline.finish();
+      } else {
+        flush(destination, chunk);
+        commit(destination, sizer, rows, bytes);
+      }
+    } catch (SpannerException e) {
+      throw new CloudSpannerSQLException(e);
+    } catch (CloudSpannerSQLException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CloudSpannerSQLException(e.getMessage(), Code.UNKNOWN, e);
+    }
+  }
+
+  private ResultSet executeSelect() throws SQLException {
+    CloudSpannerPreparedStatement selectStatement = connection.prepareStatement(select.toString());
+    for (int i = 1; i <= parameters.getHighestIndex(); i++) {
+      selectStatement.setObject(i, parameters.getParameter(i));
+    }
+    return selectStatement.executeQuery();
+  }
+
+  /**
+   * Commits the mutations that have been buffered on the writer and registers the latency of the
+   * commit with the sizer
+   */
+  private static void commit(CloudSpannerConnection writer, AdaptiveBatchSizer sizer, long rows,
+      long bytes) throws SQLException {
+    long start = System.nanoTime();
+    writer.commit();
+    sizer.record(rows, bytes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /**
+   * Executes the statement in extended mode on multiple threads. The select statement is executed
+   * as a partitioned query in a batch read-only transaction, and the partitions are divided over a
+   * bounded pool of writer connections. Each writer commits its mutations in batches, and all
+   * writers share the same {@link AdaptiveBatchSizer}.
+   * When one partition fails, the other partitions stop at their next row. Mutations that have
+   * already been committed are not rolled back, as in single-threaded extended mode.
+   * 
+   * @return <code>false</code> if the select statement could not be partitioned. Nothing has been
+   *         written in that case.
+   */
+  private boolean parallelRun(AdaptiveBatchSizer sizer) throws SQLException {
+    try (CloudSpannerConnection reader = connection.createCopyConnection()) {
+      List<ResultSet> partitions = executePartitioned(reader);
+      if (partitions == null)
+        return false;
+      int parallelism =
+          Math.max(1, Math.min(connection.getExtendedModeParallelism(), partitions.size()));
+      List<CloudSpannerConnection> writers = new ArrayList<>(parallelism);
+      BlockingQueue<CloudSpannerConnection> pool = new ArrayBlockingQueue<>(parallelism);
+      ExecutorService executor = Executors.newFixedThreadPool(parallelism, THREAD_FACTORY);
+      try {
+        for (int i = 0; i < parallelism; i++) {
+          CloudSpannerConnection writer = connection.createCopyConnection();
+          writers.add(writer);
+          writer.setAutoCommit(false);
+          pool.add(writer);
+        }
+        String table = CloudSpannerDriver.unquoteIdentifier(getTable().getFullyQualifiedName());
+        String[] columns = getMutationColumnNames().toArray(new String[0]);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<Void>> futures = new ArrayList<>(partitions.size());
+        for (ResultSet partition : partitions) {
+          futures.add(executor
+              .submit(() -> writePartition(pool, partition, table, columns, sizer, failed)));
+        }
+        Throwable failure = null;
+        for (Future<Void> future : futures) {
+          try {
+            future.get();
+          } catch (ExecutionException e) {
+            if (failure == null)
+              failure = e.getCause();
+          }
+        }
+        if (failure instanceof CloudSpannerSQLException)
+          throw (CloudSpannerSQLException) failure;
+        if (failure instanceof SpannerException)
+          throw new CloudSpannerSQLException((SpannerException) failure);
+        if (failure != null)
+          throw new CloudSpannerSQLException(failure.getMessage(), Code.UNKNOWN, failure);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CloudSpannerSQLException("Interrupted while waiting for the writers",
+            Code.CANCELLED, e);
+      } finally {
+        executor.shutdownNow();
+        for (CloudSpannerConnection writer : writers)
+          writer.close();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Executes the select statement as a partitioned query in a batch read-only transaction on the
+   * given connection
+   * 
+   * @return One result set per partition, or <code>null</code> if the select statement cannot be
+   *         partitioned
+   */
+  private List<ResultSet> executePartitioned(CloudSpannerConnection reader) throws SQLException {
+    reader.setAutoCommit(false);
+    reader.setBatchReadOnly(true);
+    // Each partition must be returned as a separate result set to divide them over the writers
+    reader.setPartitionParallelism(0);
+    CloudSpannerPreparedStatement statement = reader.prepareStatement(select.toString());
+    for (int i = 1; i <= parameters.getHighestIndex(); i++) {
+      setParameter(i, statement);
+    }
+    try {
+      statement.execute();
+    } catch (SpannerException e) {
+      if (e.getErrorCode() != ErrorCode.INVALID_ARGUMENT)
+        throw new CloudSpannerSQLException(e);
+      connection.getLogger().info(
+          "Select statement cannot be partitioned, using one writer instead: " + e.getMessage());
+      return null;
+    }
+    List<ResultSet> res = new ArrayList<>();
+    do {
+      res.add(statement.getResultSet());
+    } while (statement.getMoreResults(java.sql.Statement.KEEP_CURRENT_RESULT));
+    return res;
+  }
+
+  /**
+   * Writes all rows of one partition using a writer connection from the given pool. The writer is
+   * returned to the pool when the partition has been written.
+   */
+  private Void writePartition(BlockingQueue<CloudSpannerConnection> pool, ResultSet partition,
+      String table, String[] columns, AdaptiveBatchSizer sizer, AtomicBoolean failed)
+      throws SQLException, InterruptedException {
+    CloudSpannerConnection writer = pool.take();
+    try (ResultSet rs = partition) {
+      List<Mutation> chunk = new ArrayList<>(MAX_CHUNK_SIZE);
+      boolean first = true;
+      long rows = 0L;
+      long bytes = 0L;
+      while (!failed.get() && rs.next()) {
+        if (first)
+          checkColumnCount(rs, columns.length);
+        first = false;
+        Mutation mutation = createMutation(table, columns, rs);
+        chunk.add(mutation);
+        recordCount.incrementAndGet();
+        rows++;
+        bytes += AdaptiveBatchSizer.estimateSize(mutation);
+        if (rows >= sizer.getBatchSize() || bytes >= AdaptiveBatchSizer.MAX_BATCH_BYTES) {
+          chunk = flush(writer, chunk);
+          commit(writer, sizer, rows, bytes);
+          rows = 0L;
+          bytes = 0L;
+        } else if (chunk.size() >= MAX_CHUNK_SIZE) {
+          chunk = flush(writer, chunk);
+        }
+      }
+      if (failed.get()) {
+        writer.rollback();
+      } else {
+        flush(writer, chunk);
+        commit(writer, sizer, rows, bytes);
+      }
+    } catch (SQLException | RuntimeException e) {
+      failed.set(true);
+      try {
+        writer.rollback();
+      } catch (SQLException rollbackException) {
+        e.addSuppressed(rollbackException);
+      }
+      throw e;
+    } finally {
+      pool.put(writer);
+    }
+    return null;
+  }
+
+  /**
+   * The column count of a result set is only known after the first call to next()
+   */
+  private void checkColumnCount(ResultSet rs, int expected) throws SQLException {
+    int actual = rs.getMetaData().getColumnCount();
+    if (actual != expected)
+      throw new CloudSpannerSQLException(
+          "The select statement returns " + actual + " columns, expected " + expected,
+          Code.INVALID_ARGUMENT);
+  }
+
+  /**
+   * Creates a mutation for the current row of the given result set. The columns of the result set
+   * are mapped by position to the given column names.
+   */
+  private Mutation createMutation(String table, String[] columns, ResultSet rs)
+      throws SQLException {
+    if (operation == DMLOperation.DELETE) {
+      Key.Builder key = Key.newBuilder();
+      for (int index = 0; index < columns.length; index++)
+        key.appendObject(DeleteKeyBuilder.convert(rs.getObject(index + 1)));
+      return Mutation.delete(table, key.build());
+    }
+    WriteBuilder builder;
+    if (operation == DMLOperation.UPDATE)
+      builder = Mutation.newUpdateBuilder(table);
+    else if (operation == DMLOperation.ONDUPLICATEKEYUPDATE)
+      builder = Mutation.newInsertOrUpdateBuilder(table);
+    else
+      builder = Mutation.newInsertBuilder(table);
+    for (int index = 0; index < columns.length; index++)
+      ValueBinderExpressionVisitorAdapter.setValue(builder.set(columns[index]),
+          rs.getObject(index + 1), null);
+    return builder.build();
+  }
+
+  /**
+   * Buffers the given chunk of mutations in the current transaction of the destination
+   * 
+   * @return A new empty chunk
+   */
+  private List<Mutation> flush(CloudSpannerConnection destination, List<Mutation> chunk) {
+    if (chunk.isEmpty())
+      return chunk;
+    destination.getTransaction().buffer(combine(chunk));
+    return new ArrayList<>(chunk.size());
+  }
+
+  /**
+   * Combines the mutations of a chunk before they are written. The default implementation returns
+   * the chunk unchanged. May be called from multiple threads at the same time.
+   * 
+   * @param chunk The mutations that have been created for a number of consecutive rows of the
+   *        select statement
+   * @return The mutations to write
+   */
+  protected List<Mutation> combine(List<Mutation> chunk) {
+    return chunk;
   }
 
   protected abstract List<String> getColumnNames() throws SQLException;
 
-  protected abstract Table getTable();
+  /**
+   * 
+   * @return The unquoted names of the columns that the columns of the select statement are written
+   *         to, in the same order as the columns of the select statement
+   * @throws SQLException if the column names could not be determined
+   */
+  protected abstract List<String> getMutationColumnNames() throws SQLException;
 
-  protected abstract String createSQL() throws SQLException;
+  protected abstract Table getTable();
 
   private long isRecordCountGreaterThan(Select select, long batchSize) throws SQLException {
     if (estimatedRecordCount == -1) {
@@ -194,7 +531,7 @@ public abstract class AbstractTablePartWorker implements Callable<ConversionResu
   }
 
   public long getRecordCount() {
-    return recordCount;
+    return recordCount.get();
   }
 
 }
@@ -0,0 +1,126 @@
+package nl.topicus.jdbc.statement;
+
+import com.google.cloud.spanner.Mutation;
+import nl.topicus.jdbc.transaction.MutationCounter;
+
+/**
+ * Determines the number of rows that are committed per transaction by a worker in extended mode.
+ * The initial batch size is the static estimate of
+ * {@link ConverterUtils#calculateActualBatchSize(int, java.sql.Connection, String, String, String)}.
+ * After each commit the batch size is adjusted towards the target commit latency: it grows when
+ * commits are faster than the target, and shrinks when they are slower. The batch size never
+ * exceeds the maximum number of mutations per commit of Cloud Spanner, and the estimated size of a
+ * batch stays well below the maximum commit size. This class is thread safe, one instance may be
+ * shared by multiple writers of the same statement.
+ *
+ * @author loite
+ *
+ */
+class AdaptiveBatchSizer {
+  /**
+   * The maximum number of mutations in one commit. Cloud Spanner counts each column value and each
+   * index entry that is written as one mutation.
+   */
+  static final int MAX_MUTATIONS_PER_COMMIT = MutationCounter.MAX_CELLS_PER_COMMIT;
+
+  /**
+   * The maximum estimated size of a batch, see {@link MutationCounter#MAX_BYTES_PER_COMMIT}
+   */
+  static final long MAX_BATCH_BYTES = MutationCounter.MAX_BYTES_PER_COMMIT;
+
+  static final long DEFAULT_TARGET_LATENCY_MILLIS = 1000L;
+
+  /**
+   * The batch size changes by at most this factor per commit
+   */
+  private static final double MAX_CHANGE = 2.0D;
+
+  /**
+   * Weight of the last commit in the average row size
+   */
+  private static final double ROW_SIZE_WEIGHT = 0.3D;
+
+  private final int mutationsPerRow;
+
+  private final long targetLatencyMillis;
+
+  private long batchSize;
+
+  private double bytesPerRow;
+
+  /**
+   *
+   * @param initialBatchSize The number of rows in the first batch
+   * @param mutationsPerRow The number of mutations that one row counts for, i.e. the number of
+   *        columns plus the number of indices
+   */
+  AdaptiveBatchSizer(long initialBatchSize, int mutationsPerRow) {
+    this(initialBatchSize, mutationsPerRow, DEFAULT_TARGET_LATENCY_MILLIS);
+  }
+
+  AdaptiveBatchSizer(long initialBatchSize, int mutationsPerRow, long targetLatencyMillis) {
+    this.mutationsPerRow = Math.max(1, mutationsPerRow);
+    this.targetLatencyMillis = Math.max(1L, targetLatencyMillis);
+    this.batchSize = Math.max(1L, Math.min(initialBatchSize, getMaxBatchSize()));
+  }
+
+  /**
+   *
+   * @return The number of rows to commit in the next transaction
+   */
+  synchronized long getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   *
+   * @return The maximum number of rows that may be committed in one transaction based on the
+   *         mutation limit and the average row size that has been observed so far
+   */
+  synchronized long getMaxBatchSize() {
+    long max = MAX_MUTATIONS_PER_COMMIT / mutationsPerRow;
+    if (bytesPerRow > 0D)
+      max = Math.min(max, (long) (MAX_BATCH_BYTES / bytesPerRow));
+    return Math.max(1L, max);
+  }
+
+  /**
+   * Register a commit and adjust the batch size
+   *
+   * @param rows The number of rows that were committed
+   * @param bytes The estimated size of the mutations that were committed
+   * @param latencyMillis The time the commit took
+   */
+  synchronized void record(long rows, long bytes, long latencyMillis) {
+    if (rows <= 0L)
+      return;
+    double rowSize = (double) bytes / rows;
+    if (bytesPerRow == 0D)
+      bytesPerRow = rowSize;
+    else
+      bytesPerRow = (1D - ROW_SIZE_WEIGHT) * bytesPerRow + ROW_SIZE_WEIGHT * rowSize;
+    double factor = latencyMillis <= 0L ? MAX_CHANGE : (double) targetLatencyMillis / latencyMillis;
+    factor = Math.max(1D / MAX_CHANGE, Math.min(MAX_CHANGE, factor));
+    long next = batchSize;
+    if (factor > 1D && rows >= batchSize) {
+      next = Math.round(batchSize * factor);
+    } else if (factor < 1D) {
+      // A batch that was smaller than the batch size (the last batch of a partition or statement)
+      // may only be used to shrink the batch size
+      next = Math.round(Math.min(rows, batchSize) * factor);
+    }
+    batchSize = Math.max(1L, Math.min(next, getMaxBatchSize()));
+  }
+
+  /**
+   * Estimates the number of bytes that the given mutation writes.
+   *
+   * @param mutation The mutation to estimate
+   * @return The estimated size in bytes
+   * @see MutationCounter#estimateSize(Mutation)
+   */
+  static long estimateSize(Mutation mutation) {
+    return MutationCounter.estimateSize(mutation);
+  }
+
+}
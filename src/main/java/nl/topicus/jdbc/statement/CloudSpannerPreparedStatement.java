@@ -22,7 +22,6 @@ import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
 import net.sf.jsqlparser.expression.JdbcParameter;
 import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.expression.operators.relational.ItemsList;
-import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.parser.TokenMgrException;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
@@ -43,9 +42,10 @@ import net.sf.jsqlparser.statement.update.Update;
 import nl.topicus.jdbc.CloudSpannerConnection;
 import nl.topicus.jdbc.MetaDataStore.TableKeyMetaData;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
-import nl.topicus.jdbc.resultset.CloudSpannerPartitionResultSet;
 import nl.topicus.jdbc.resultset.CloudSpannerResultSet;
 import nl.topicus.jdbc.statement.AbstractTablePartWorker.DMLOperation;
+import nl.topicus.jdbc.statement.ParsedStatementCache.ParsedStatement;
+import nl.topicus.jdbc.statement.ParsedStatementCache.StatementKind;
 
 /**
  * 
@@ -71,6 +71,20 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
 
   private final String[] sqlTokens;
 
+  /**
+   * The parsed version of {@link #sql}. Lazily initialized from the driver wide
+   * {@link ParsedStatementCache}.
+   */
+  private ParsedStatement parsedStatement;
+
+  /**
+   * The precompiled mutation of {@link #sql}, or <code>null</code> if the statement could not be
+   * compiled into a template
+   */
+  private MutationTemplate mutationTemplate;
+
+  private boolean mutationTemplateCompiled;
+
   /**
    * Flag indicating that an INSERT INTO ... ON DUPLICATE KEY UPDATE statement should be forced to
    * do only an update
@@ -132,11 +146,11 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
   public ResultSet executeQuery() throws SQLException {
     CustomDriverStatement custom = getCustomDriverStatement(sqlTokens);
     if (custom != null && custom.isQuery()) {
-      return custom.executeQuery(sqlTokens);
+      return custom.executeQuery(sql, sqlTokens);
     }
     Statement statement;
     try {
-      statement = CCJSqlParserUtil.parse(sanitizeSQL(sql));
+      statement = getParsedStatement(sql).getStatement();
     } catch (JSQLParserException | TokenMgrException e) {
       throw new CloudSpannerSQLException(PARSE_ERROR + sql + ": " + e.getLocalizedMessage(),
           Code.INVALID_ARGUMENT, e);
@@ -154,6 +168,16 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
         Code.INVALID_ARGUMENT);
   }
 
+  private ParsedStatement getParsedStatement(String sql) throws JSQLParserException {
+    if (this.sql.equals(sql)) {
+      if (parsedStatement == null) {
+        parsedStatement = ParsedStatementCache.getInstance().parse(sql, this::sanitizeSQL);
+      }
+      return parsedStatement;
+    }
+    return ParsedStatementCache.getInstance().parse(sql, this::sanitizeSQL);
+  }
+
   private com.google.cloud.spanner.Statement.Builder createSelectBuilder(Statement statement,
       String sql) {
     String namedSql = convertPositionalParametersToNamedParameters(sql);
@@ -320,19 +344,25 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
 
   @Override
   public void addBatch() throws SQLException {
-    if (getConnection().getAutoCommit()) {
-      throw new SQLFeatureNotSupportedException(
-          "Batching of statements is only allowed when not running in autocommit mode");
-    }
     if (isDDLStatement()) {
       throw new SQLFeatureNotSupportedException("DDL statements may not be batched");
     }
     if (isSelectStatement(sqlTokens)) {
       throw new SQLFeatureNotSupportedException("SELECT statements may not be batched");
     }
+    batchMutations.add(createBatchMutations());
+  }
+
+  /**
+   * Creates the mutations for the current parameter values and clears the parameters
+   * 
+   * @return The mutations of this statement for the current parameter values
+   * @throws SQLException if the statement is invalid or a parameter value is missing
+   */
+  Mutations createBatchMutations() throws SQLException {
     Mutations mutations = createMutations();
-    batchMutations.add(mutations);
     getParameterStore().clearParameters();
+    return mutations;
   }
 
   @Override
@@ -343,12 +373,7 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
 
   @Override
   public int[] executeBatch() throws SQLException {
-    int[] res = new int[batchMutations.size()];
-    int index = 0;
-    for (Mutations mutation : batchMutations) {
-      res[index] = (int) writeMutations(mutation);
-      index++;
-    }
+    int[] res = writeMutations(batchMutations);
     batchMutations.clear();
     getParameterStore().clearParameters();
     return res;
@@ -384,13 +409,19 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
             "Cannot create mutation for DDL statement. Expected INSERT, UPDATE or DELETE",
             Code.INVALID_ARGUMENT);
       }
-      Statement statement = CCJSqlParserUtil.parse(sanitizeSQL(sql));
-      if (statement instanceof Insert) {
+      if (!generateParameterMetaData && this.sql.equals(sql)) {
+        MutationTemplate template = getMutationTemplate();
+        if (template != null)
+          return new Mutations(template.createMutation(getParameterStore(), this.forceUpdate));
+      }
+      ParsedStatement parsed = getParsedStatement(sql);
+      Statement statement = parsed.getStatement();
+      if (parsed.getKind() == StatementKind.INSERT) {
         Insert insertStatement = (Insert) statement;
         if (generateParameterMetaData || insertStatement.getSelect() == null)
           return new Mutations(createInsertMutation(insertStatement, generateParameterMetaData));
         return new Mutations(createInsertWithSelectStatement(insertStatement, forceUpdate));
-      } else if (statement instanceof Update) {
+      } else if (parsed.getKind() == StatementKind.UPDATE) {
         Update updateStatement = (Update) statement;
         if (updateStatement.getSelect() != null)
           throw new CloudSpannerSQLException(
@@ -402,21 +433,23 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
               Code.INVALID_ARGUMENT);
 
         if (generateParameterMetaData || isSingleRowWhereClause(
-            getConnection()
-                .getTable(unquoteIdentifier(updateStatement.getTables().get(0).getName())),
-            updateStatement.getWhere()))
+            getConnection().getTable(parsed.getTable()), updateStatement.getWhere()))
           return new Mutations(createUpdateMutation(updateStatement, generateParameterMetaData));
         // Translate into an 'INSERT ... SELECT ... ON DUPLICATE KEY
         // UPDATE'-statement
         String insertSQL = createInsertSelectOnDuplicateKeyUpdateStatement(updateStatement);
         return createMutations(insertSQL, true, false);
-      } else if (statement instanceof Delete) {
+      } else if (parsed.getKind() == StatementKind.DELETE) {
         Delete deleteStatement = (Delete) statement;
         if (generateParameterMetaData || deleteStatement.getWhere() == null
             || isSingleRowWhereClause(
-                getConnection().getTable(unquoteIdentifier(deleteStatement.getTable().getName())),
-                deleteStatement.getWhere()))
+                getConnection().getTable(parsed.getTable()), deleteStatement.getWhere()))
           return new Mutations(createDeleteMutation(deleteStatement, generateParameterMetaData));
+        if (getConnection().isDeleteKeyRanges()) {
+          Mutation rangeMutation = createDeleteRangeMutation(deleteStatement);
+          if (rangeMutation != null)
+            return new Mutations(rangeMutation, (long) SUCCESS_NO_INFO);
+        }
         return new Mutations(createDeleteWorker(deleteStatement));
       } else {
         throw new CloudSpannerSQLException(
@@ -429,6 +462,30 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
     }
   }
 
+  /**
+   * Returns the precompiled mutation template for this statement. The template is compiled the
+   * first time this method is called.
+   * 
+   * @return the template, or <code>null</code> if this statement cannot be executed using a
+   *         template
+   */
+  private MutationTemplate getMutationTemplate() throws JSQLParserException, SQLException {
+    if (!mutationTemplateCompiled) {
+      ParsedStatement parsed = getParsedStatement(sql);
+      if (parsed.getKind() == StatementKind.INSERT) {
+        mutationTemplate = MutationTemplate.compile((Insert) parsed.getStatement());
+      } else if (parsed.getKind() == StatementKind.UPDATE && parsed.getTable() != null) {
+        mutationTemplate = MutationTemplate.compile((Update) parsed.getStatement(),
+            getConnection().getTable(parsed.getTable()));
+      } else if (parsed.getKind() == StatementKind.DELETE && parsed.getTable() != null) {
+        mutationTemplate = MutationTemplate.compile((Delete) parsed.getStatement(),
+            getConnection().getTable(parsed.getTable()));
+      }
+      mutationTemplateCompiled = true;
+    }
+    return mutationTemplate;
+  }
+
   private Mutation createInsertMutation(Insert insert, boolean generateParameterMetaData)
       throws SQLException {
     ItemsList items = insert.getItemsList();
@@ -517,6 +574,25 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
     }
   }
 
+  /**
+   * Creates one delete mutation for a DELETE statement that deletes a range of keys, see
+   * {@link DeleteKeyRanges}. This is only used when DeleteKeyRanges is enabled on the connection.
+   * The update count of such a statement is {@link java.sql.Statement#SUCCESS_NO_INFO}, as the
+   * number of deleted rows is not known.
+   * 
+   * @return the mutation, or <code>null</code> if the WHERE clause is not a key range
+   */
+  private Mutation createDeleteRangeMutation(Delete delete) throws SQLException {
+    if (delete.getTable() == null
+        || (delete.getTables() != null && !delete.getTables().isEmpty()))
+      return null;
+    String table = unquoteIdentifier(delete.getTable().getFullyQualifiedName());
+    getParameterStore().setTable(table);
+    KeySet keys = DeleteKeyRanges.fromWhereClause(getConnection().getTable(table),
+        delete.getWhere(), getParameterStore());
+    return keys == null ? null : Mutation.delete(table, keys);
+  }
+
   private void visitDeleteWhereClause(Expression where, DeleteKeyBuilder keyBuilder,
       boolean generateParameterMetaData) throws SQLException {
     if (where != null) {
@@ -586,12 +662,12 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
   public boolean execute() throws SQLException {
     CustomDriverStatement custom = getCustomDriverStatement(sqlTokens);
     if (custom != null)
-      return custom.execute(sqlTokens);
+      return custom.execute(sql, sqlTokens);
     Statement statement = null;
     boolean ddl = isDDLStatement();
     if (!ddl) {
       try {
-        statement = CCJSqlParserUtil.parse(sanitizeSQL(sql));
+        statement = getParsedStatement(sql).getStatement();
       } catch (JSQLParserException | TokenMgrException e) {
         throw new CloudSpannerSQLException(PARSE_ERROR + sql + ": " + e.getLocalizedMessage(),
             Code.INVALID_ARGUMENT, e);
@@ -602,11 +678,9 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
       com.google.cloud.spanner.Statement.Builder builder = createSelectBuilder(statement, sql);
       if (!isForceSingleUseReadContext() && getConnection().isBatchReadOnly()) {
         List<Partition> partitions = partitionQuery(builder.build());
-        currentResultSets = new ArrayList<>(partitions.size());
-        for (Partition p : partitions) {
-          currentResultSets
-              .add(new CloudSpannerPartitionResultSet(this, getBatchReadOnlyTransaction(), p, sql));
-        }
+        currentResultSets = createPartitionResultSets(partitions, sql);
+        currentResultSetIndex = 0;
+        lastUpdateCount = -1;
       } else {
         try (ReadContext context = getReadContext()) {
           com.google.cloud.spanner.ResultSet rs = context.executeQuery(builder.build());
@@ -632,13 +706,14 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
         throw new CloudSpannerSQLException("Cannot get parameter meta data for DDL statement",
             Code.INVALID_ARGUMENT);
       }
-      Statement statement = CCJSqlParserUtil.parse(sanitizeSQL(sql));
-      if (statement instanceof Insert || statement instanceof Update
-          || statement instanceof Delete) {
+      ParsedStatement parsed = getParsedStatement(sql);
+      Statement statement = parsed.getStatement();
+      if (parsed.getKind() == StatementKind.INSERT || parsed.getKind() == StatementKind.UPDATE
+          || parsed.getKind() == StatementKind.DELETE) {
         // Create mutation, but don't do anything with it. This
         // initializes column names of the parameter store.
         createMutations(sql, false, true);
-      } else if (statement instanceof Select) {
+      } else if (parsed.getKind() == StatementKind.SELECT) {
         // Create select builder, but don't do anything with it. This
         // initializes column names of the parameter store.
         createSelectBuilder(statement, sql);
@@ -665,7 +740,9 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
       mode = DMLOperation.ONDUPLICATEKEYUPDATE;
     else
       mode = DMLOperation.INSERT;
-    return new InsertWorker(getConnection(), select, insert, getParameterStore(),
+    // The worker only runs when the mutations are written, which for a batch is after the
+    // parameters of this statement have been cleared or changed for the next batch entry
+    return new InsertWorker(getConnection(), select, insert, getParameterStore().copy(),
         getConnection().isAllowExtendedMode(), mode);
   }
 
@@ -675,7 +752,7 @@ public class CloudSpannerPreparedStatement extends AbstractCloudSpannerPreparedS
       throw new CloudSpannerSQLException("DELETE statement must contain only one table",
           Code.INVALID_ARGUMENT);
     }
-    return new DeleteWorker(getConnection(), delete, getParameterStore(),
+    return new DeleteWorker(getConnection(), delete, getParameterStore().copy(),
         getConnection().isAllowExtendedMode());
   }
 
@@ -7,12 +7,16 @@ import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import com.google.cloud.spanner.BatchTransactionId;
 import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.Partition;
 import com.google.cloud.spanner.ReadContext;
 import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Type.StructField;
 import com.google.rpc.Code;
@@ -23,8 +27,11 @@ import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.Select;
 import nl.topicus.jdbc.CloudSpannerConnection;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.statement.SqlLexer.ParameterizedStatement;
+import nl.topicus.jdbc.resultset.CloudSpannerParallelPartitionResultSet;
 import nl.topicus.jdbc.resultset.CloudSpannerPartitionResultSet;
 import nl.topicus.jdbc.resultset.CloudSpannerResultSet;
+import nl.topicus.jdbc.transaction.PartitionToken;
 
 /**
  * 
@@ -38,9 +45,6 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
 
   protected int lastUpdateCount = -1;
 
-  private Pattern commentPattern =
-      Pattern.compile("//.*|/\\*((.|\\n)(?!=*/))+\\*/|--.*(?=\\n)", Pattern.DOTALL);
-
   private BatchMode batchMode = BatchMode.NONE;
 
   private List<String> batchStatements = new ArrayList<>();
@@ -146,18 +150,49 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
     if (batchMode == BatchMode.DDL) {
       executeDDL(batchStatements);
     } else {
-      int index = 0;
-      for (String sql : batchStatements) {
-        PreparedStatement ps = getConnection().prepareStatement(sql);
-        res[index] = ps.executeUpdate();
-        index++;
-      }
+      res = executeDMLBatch(batchStatements);
     }
     batchStatements.clear();
     batchMode = BatchMode.NONE;
     return res;
   }
 
+  /**
+   * Executes a batch of DML statements. The literals of each statement are replaced by parameters,
+   * and statements that share the same parameterized sql string are executed by the same prepared
+   * statement. Each distinct parameterized statement is therefore only parsed once. The mutations
+   * of all statements are written together.
+   * 
+   * @param statements The DML statements to execute
+   * @return The update counts of the statements
+   * @throws SQLException if any of the statements is invalid or if the write failed
+   */
+  private int[] executeDMLBatch(List<String> statements) throws SQLException {
+    Map<String, CloudSpannerPreparedStatement> templates = new HashMap<>();
+    try {
+      List<Mutations> batch = new ArrayList<>(statements.size());
+      for (String sql : statements) {
+        ParameterizedStatement parameterized = SqlLexer.parameterize(sql);
+        String template = parameterized == null ? sql : parameterized.getSql();
+        CloudSpannerPreparedStatement ps = templates.get(template);
+        if (ps == null) {
+          ps = getConnection().prepareStatement(template);
+          templates.put(template, ps);
+        }
+        if (parameterized != null) {
+          for (int index = 0; index < parameterized.getValues().size(); index++)
+            ps.setObject(index + 1, parameterized.getValues().get(index),
+                parameterized.getTypes().get(index));
+        }
+        batch.add(ps.createBatchMutations());
+      }
+      return writeMutations(batch);
+    } finally {
+      for (CloudSpannerPreparedStatement ps : templates.values())
+        ps.close();
+    }
+  }
+
   protected int executeDDL(String ddl) throws SQLException {
     getConnection().executeDDL(Arrays.asList(ddl));
     return 0;
@@ -172,7 +207,7 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
     String[] sqlTokens = getTokens(sql);
     CustomDriverStatement custom = getCustomDriverStatement(sqlTokens);
     if (custom != null && custom.isQuery()) {
-      return custom.executeQuery(sqlTokens);
+      return custom.executeQuery(sql, sqlTokens);
     }
     try (ReadContext context = getReadContext()) {
       com.google.cloud.spanner.ResultSet rs =
@@ -201,7 +236,7 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
     String[] sqlTokens = getTokens(sql);
     CustomDriverStatement custom = getCustomDriverStatement(sqlTokens);
     if (custom != null)
-      return custom.execute(sqlTokens);
+      return custom.execute(sql, sqlTokens);
     Statement statement = null;
     boolean ddl = isDDLStatement(sqlTokens);
     if (!ddl) {
@@ -217,11 +252,9 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
       determineForceSingleUseReadContext((Select) statement);
       if (!isForceSingleUseReadContext() && getConnection().isBatchReadOnly()) {
         List<Partition> partitions = partitionQuery(com.google.cloud.spanner.Statement.of(sql));
-        currentResultSets = new ArrayList<>(partitions.size());
-        for (Partition p : partitions) {
-          currentResultSets
-              .add(new CloudSpannerPartitionResultSet(this, getBatchReadOnlyTransaction(), p, sql));
-        }
+        currentResultSets = createPartitionResultSets(partitions, sql);
+        currentResultSetIndex = 0;
+        lastUpdateCount = -1;
       } else {
         try (ReadContext context = getReadContext()) {
           com.google.cloud.spanner.ResultSet rs =
@@ -240,6 +273,78 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
     }
   }
 
+  /**
+   * Creates the result sets for the partitions of a query in batch-read-only mode. If partitions
+   * should be executed in parallel, one result set that contains the rows of all partitions is
+   * returned. Otherwise one result set per partition is returned.
+   * 
+   * @param partitions The partitions of the query
+   * @param sql The sql string of the query
+   * @return The result sets for the query
+   */
+  protected List<ResultSet> createPartitionResultSets(List<Partition> partitions, String sql)
+      throws SQLException {
+    int parallelism = getConnection().getPartitionParallelism();
+    if (parallelism > 0) {
+      return Arrays.asList(new CloudSpannerParallelPartitionResultSet(this,
+          getBatchReadOnlyTransaction(), partitions, sql, parallelism,
+          getConnection().getPartitionBufferSize()));
+    }
+    List<ResultSet> res = new ArrayList<>(partitions.size());
+    for (Partition p : partitions) {
+      res.add(new CloudSpannerPartitionResultSet(this, getBatchReadOnlyTransaction(), p, sql));
+    }
+    return res;
+  }
+
+  /**
+   * Partitions a query and returns a token for each partition. The tokens can be sent to other
+   * processes and executed there on any connection to the same database using
+   * {@link #executePartitionToken(String)}. All partitions read from the same snapshot. The tokens
+   * remain valid until the batch read-only transaction of this connection is committed or rolled
+   * back.
+   * 
+   * @param sql The query to partition
+   * @return A token for each partition of the query
+   * @throws SQLException if the connection is not in batch read-only mode, or if the query could
+   *         not be partitioned
+   */
+  public List<String> createPartitionTokens(String sql) throws SQLException {
+    if (!getConnection().isBatchReadOnly())
+      throw new CloudSpannerSQLException(
+          "Partition tokens can only be created when the connection is in batch read-only mode",
+          Code.FAILED_PRECONDITION);
+    try {
+      List<Partition> partitions = partitionQuery(com.google.cloud.spanner.Statement.of(sql));
+      BatchTransactionId id = getConnection().getTransaction().getBatchTransactionId();
+      List<String> res = new ArrayList<>(partitions.size());
+      for (Partition partition : partitions)
+        res.add(new PartitionToken(id, partition).encode());
+      return res;
+    } catch (SpannerException e) {
+      throw new CloudSpannerSQLException(e);
+    }
+  }
+
+  /**
+   * Executes a partition token that was created by {@link #createPartitionTokens(String)} on this
+   * or any other connection to the same database.
+   * 
+   * @param token The partition token to execute
+   * @return The rows of the partition
+   * @throws SQLException if the token is invalid, or if the transaction that created the token is
+   *         no longer active
+   */
+  public ResultSet executePartitionToken(String token) throws SQLException {
+    PartitionToken partitionToken = PartitionToken.decode(token);
+    try {
+      return new CloudSpannerResultSet(this,
+          getConnection().getTransaction().executePartition(partitionToken), null);
+    } catch (SpannerException e) {
+      throw new CloudSpannerSQLException(e);
+    }
+  }
+
   private static final String[] DDL_STATEMENTS = {"CREATE", "ALTER", "DROP"};
 
   /**
@@ -277,13 +382,11 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
    * @return String array with all the parts of the sql statement
    */
   protected String[] getTokens(String sql, int limit) {
-    String result = removeComments(sql);
-    String generated = result.replaceFirst("=", " = ");
-    return generated.split("\\s+", limit);
+    return SqlLexer.getTokens(sql, limit);
   }
 
   protected String removeComments(String sql) {
-    return commentPattern.matcher(sql).replaceAll("").trim();
+    return SqlLexer.removeComments(sql);
   }
 
   protected boolean isSelectStatement(String[] sqlTokens) {
@@ -304,9 +407,9 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
       return query;
     }
 
-    protected final boolean execute(String[] sqlTokens) throws SQLException {
+    protected final boolean execute(String sql, String[] sqlTokens) throws SQLException {
       if (query) {
-        currentResultSets = Arrays.asList(executeQuery(sqlTokens));
+        currentResultSets = Arrays.asList(executeQuery(sql, sqlTokens));
         currentResultSetIndex = 0;
         lastUpdateCount = -1;
         return true;
@@ -318,6 +421,19 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
       }
     }
 
+    /**
+     * Execute the custom statement as a query. Statements that need the original sql string, for
+     * example because they contain a query as an argument, should override this method.
+     * 
+     * @param sql The original sql string
+     * @param sqlTokens The tokens of the sql string
+     * @return The result of the query
+     * @throws SQLException if the statement could not be executed
+     */
+    protected ResultSet executeQuery(String sql, String[] sqlTokens) throws SQLException {
+      return executeQuery(sqlTokens);
+    }
+
     protected ResultSet executeQuery(String[] sqlTokens) throws SQLException {
       throw new IllegalArgumentException("This statement is not valid for execution as a query");
     }
@@ -459,10 +575,52 @@ public class CloudSpannerStatement extends AbstractCloudSpannerStatement {
     }
   }
 
+  private class PartitionQuery extends CustomDriverStatement {
+    private PartitionQuery() {
+      super("PARTITION_QUERY", true);
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql, String[] sqlTokens) throws SQLException {
+      if (sqlTokens.length < 2)
+        throw new CloudSpannerSQLException(
+            "Invalid argument(s) for PARTITION_QUERY. Expected \"PARTITION_QUERY sql\"",
+            Code.INVALID_ARGUMENT);
+      String query = removeComments(sql).substring(sqlTokens[0].length()).trim();
+      List<String> tokens = createPartitionTokens(query);
+      List<Struct> rows = new ArrayList<>(tokens.size());
+      long index = 0L;
+      for (String token : tokens) {
+        rows.add(Struct.newBuilder().set("PARTITION").to(index++).set("TOKEN").to(token).build());
+      }
+      com.google.cloud.spanner.ResultSet rs = ResultSets.forRows(
+          Type.struct(StructField.of("PARTITION", Type.int64()),
+              StructField.of("TOKEN", Type.string())),
+          rows);
+      return new CloudSpannerResultSet(CloudSpannerStatement.this, rs, null);
+    }
+  }
+
+  private class ExecutePartition extends CustomDriverStatement {
+    private ExecutePartition() {
+      super("EXECUTE_PARTITION", true);
+    }
+
+    @Override
+    public ResultSet executeQuery(String[] sqlTokens) throws SQLException {
+      if (sqlTokens.length != 2)
+        throw new CloudSpannerSQLException(
+            "Invalid argument(s) for EXECUTE_PARTITION. Expected \"EXECUTE_PARTITION token\"",
+            Code.INVALID_ARGUMENT);
+      return executePartitionToken(sqlTokens[1]);
+    }
+  }
+
   private final List<CustomDriverStatement> customDriverStatements =
       Arrays.asList(new ShowDdlOperations(), new CleanDdlOperations(), new WaitForDdlOperations(),
           new ExecuteDdlBatch(), new SetConnectionProperty(), new GetConnectionProperty(),
-          new ResetConnectionProperty(), new GetLastCommitTimestamp());
+          new ResetConnectionProperty(), new GetLastCommitTimestamp(), new PartitionQuery(),
+          new ExecutePartition());
 
   /**
    * Checks if a sql statement is a custom statement only recognized by this driver
@@ -0,0 +1,169 @@
+package nl.topicus.jdbc.statement;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.SpannerException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.CloudSpannerConnection;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+
+/**
+ * Commits batches of mutations asynchronously for a worker in extended mode. Each batch is
+ * committed in its own transaction on one of a fixed number of writer connections, so at most that
+ * number of commits is in flight at any time. {@link #commit(List, long, long)} returns as soon as
+ * a writer has been assigned to the batch, and only blocks when all writers are busy. This allows
+ * the worker to read the next batch from the source while the previous batches are being
+ * committed. Batches may be committed in a different order than they were handed to the pipeline.
+ * The latency of each commit is registered with the {@link AdaptiveBatchSizer} of the worker.
+ *
+ * @author loite
+ *
+ */
+class CommitPipeline implements AutoCloseable {
+  private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder().setDaemon(true)
+      .setNameFormat("Google Cloud Spanner JDBC Commit Pipeline-%d").build();
+
+  private final List<CloudSpannerConnection> writers;
+
+  private final BlockingQueue<CloudSpannerConnection> idleWriters;
+
+  private final ExecutorService executor;
+
+  private final AdaptiveBatchSizer sizer;
+
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  /**
+   *
+   * @param connection The connection to create the writer connections from
+   * @param maxInFlightCommits The maximum number of commits that may be in flight at the same time
+   * @param sizer The sizer that should be informed of the latency of each commit
+   * @throws SQLException if the writer connections could not be created
+   */
+  CommitPipeline(CloudSpannerConnection connection, int maxInFlightCommits,
+      AdaptiveBatchSizer sizer) throws SQLException {
+    int size = Math.max(1, maxInFlightCommits);
+    this.sizer = sizer;
+    this.writers = new ArrayList<>(size);
+    this.idleWriters = new ArrayBlockingQueue<>(size);
+    this.executor = Executors.newFixedThreadPool(size, THREAD_FACTORY);
+    try {
+      for (int i = 0; i < size; i++) {
+        CloudSpannerConnection writer = connection.createCopyConnection();
+        writers.add(writer);
+        writer.setAutoCommit(false);
+        idleWriters.add(writer);
+      }
+    } catch (SQLException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Commits the given mutations asynchronously in a new transaction. Blocks until a writer is
+   * available if the maximum number of commits is already in flight.
+   *
+   * @param mutations The mutations to commit. The list may not be modified after it has been handed
+   *        to the pipeline.
+   * @param rows The number of rows that the mutations were created from
+   * @param bytes The estimated size of the mutations
+   * @throws SQLException if a previous commit failed, or if the thread was interrupted while
+   *         waiting for a writer
+   */
+  void commit(List<Mutation> mutations, long rows, long bytes) throws SQLException {
+    checkFailure();
+    CloudSpannerConnection writer = takeIdleWriter();
+    if (failure.get() != null) {
+      idleWriters.add(writer);
+      checkFailure();
+    }
+    executor.execute(() -> {
+      try {
+        long start = System.nanoTime();
+        writer.getTransaction().buffer(mutations);
+        writer.commit();
+        sizer.record(rows, bytes,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+        try {
+          writer.rollback();
+        } catch (SQLException e) {
+          t.addSuppressed(e);
+        }
+      } finally {
+        idleWriters.add(writer);
+      }
+    });
+  }
+
+  /**
+   * Waits until all commits that have been handed to the pipeline have finished
+   *
+   * @throws SQLException if any of the commits failed
+   */
+  void finish() throws SQLException {
+    awaitIdle();
+    checkFailure();
+  }
+
+  private CloudSpannerConnection takeIdleWriter() throws SQLException {
+    try {
+      return idleWriters.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CloudSpannerSQLException("Interrupted while waiting for a commit to finish",
+          Code.CANCELLED, e);
+    }
+  }
+
+  /**
+   * All writers are idle when no commits are in flight
+   */
+  private void awaitIdle() throws SQLException {
+    List<CloudSpannerConnection> taken = new ArrayList<>(writers.size());
+    try {
+      while (taken.size() < writers.size())
+        taken.add(takeIdleWriter());
+    } finally {
+      idleWriters.addAll(taken);
+    }
+  }
+
+  private void checkFailure() throws SQLException {
+    Throwable t = failure.get();
+    if (t instanceof SQLException)
+      throw (SQLException) t;
+    if (t instanceof SpannerException)
+      throw new CloudSpannerSQLException((SpannerException) t);
+    if (t != null)
+      throw new CloudSpannerSQLException(t.getMessage(), Code.UNKNOWN, t);
+  }
+
+  /**
+   * Waits for all commits that are in flight and closes the writer connections. Any uncommitted
+   * changes on the writers are rolled back.
+   */
+  @Override
+  public void close() throws SQLException {
+    try {
+      awaitIdle();
+    } finally {
+      executor.shutdownNow();
+      for (CloudSpannerConnection writer : writers)
+        writer.close();
+    }
+  }
+
+}
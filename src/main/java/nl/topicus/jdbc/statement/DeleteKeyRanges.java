@@ -0,0 +1,340 @@
+package nl.topicus.jdbc.statement;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
+import com.google.cloud.spanner.KeyRange.Endpoint;
+import com.google.cloud.spanner.KeySet;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.DateValue;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.SignedExpression;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.TimeValue;
+import net.sf.jsqlparser.expression.TimestampValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.schema.Column;
+import nl.topicus.jdbc.CloudSpannerDriver;
+import nl.topicus.jdbc.MetaDataStore.TableKeyMetaData;
+
+/**
+ * Translates DELETE statements into key ranges instead of one delete mutation per row.
+ * <ul>
+ * <li>A WHERE clause that consists of equality comparisons on a prefix of the primary key,
+ * optionally followed by a lower and/or upper bound on the next key column, is translated into one
+ * {@link KeyRange}, for example <code>WHERE TENANT_ID=? AND CREATED&lt;?</code> on a table with
+ * primary key <code>(TENANT_ID, CREATED, ID)</code>. The values must be parameters or literals.
+ * This translation is only used when DeleteKeyRanges is enabled on the connection, as the number
+ * of deleted rows is then not known.</li>
+ * <li>Keys that have been selected by a {@link DeleteWorker} are coalesced into ranges when the
+ * last key column is an INT64 and the keys are consecutive. No other row can exist between two
+ * consecutive integer keys.</li>
+ * </ul>
+ *
+ * @author loite
+ *
+ */
+class DeleteKeyRanges {
+  /**
+   * A lower or upper bound of a key column
+   */
+  private static final class Bound {
+    private final Object value;
+
+    private final boolean inclusive;
+
+    private Bound(Object value, boolean inclusive) {
+      this.value = value;
+      this.inclusive = inclusive;
+    }
+  }
+
+  /**
+   * Records the value of a literal or parameter
+   */
+  private static final class ValueRecorder extends AbstractSpannerExpressionVisitorAdapter {
+    private int count;
+
+    private Object value;
+
+    private ValueRecorder(ParameterStore parameterStore, String column) {
+      super(parameterStore, column);
+    }
+
+    @Override
+    protected void setValue(Object value, Integer sqlType) {
+      count++;
+      this.value = value;
+    }
+  }
+
+  private final TableKeyMetaData table;
+
+  private final ParameterStore parameters;
+
+  private final Map<String, Object> equalTo = new HashMap<>();
+
+  private final Map<String, Bound> lowerBounds = new HashMap<>();
+
+  private final Map<String, Bound> upperBounds = new HashMap<>();
+
+  private DeleteKeyRanges(TableKeyMetaData table, ParameterStore parameters) {
+    this.table = table;
+    this.parameters = parameters;
+  }
+
+  /**
+   * Tries to translate the WHERE clause of a DELETE statement into a key range
+   *
+   * @param table The table to delete from
+   * @param where The WHERE clause of the DELETE statement
+   * @param parameters The current parameter values of the statement
+   * @return The keys to delete, or <code>null</code> if the WHERE clause cannot be expressed as a
+   *         key range
+   * @throws SQLException if the sort order of the key columns could not be determined
+   */
+  static KeySet fromWhereClause(TableKeyMetaData table, Expression where,
+      ParameterStore parameters) throws SQLException {
+    DeleteKeyRanges ranges = new DeleteKeyRanges(table, parameters);
+    try {
+      if (where == null || !ranges.visit(where))
+        return null;
+      return ranges.createKeySet();
+    } catch (IllegalArgumentException e) {
+      // Values that cannot be used in a key are handled by the normal execution path
+      return null;
+    }
+  }
+
+  /**
+   * Only conjunctions of simple comparisons of key columns with a value are supported
+   */
+  private boolean visit(Expression expression) {
+    if (expression instanceof Parenthesis) {
+      // A negated parenthesis is printed as NOT (...)
+      Parenthesis parenthesis = (Parenthesis) expression;
+      return parenthesis.toString().startsWith("(") && visit(parenthesis.getExpression());
+    }
+    if (expression instanceof AndExpression) {
+      AndExpression and = (AndExpression) expression;
+      return !and.isNot() && visit(and.getLeftExpression()) && visit(and.getRightExpression());
+    }
+    if (expression instanceof Between) {
+      Between between = (Between) expression;
+      String column = getKeyColumn(between.getLeftExpression());
+      return !between.isNot() && column != null
+          && addBound(lowerBounds, column, between.getBetweenExpressionStart(), true)
+          && addBound(upperBounds, column, between.getBetweenExpressionEnd(), true);
+    }
+    if (!(expression instanceof BinaryExpression) || ((BinaryExpression) expression).isNot())
+      return false;
+    BinaryExpression comparison = (BinaryExpression) expression;
+    boolean reversed = false;
+    String column = getKeyColumn(comparison.getLeftExpression());
+    Expression value = comparison.getRightExpression();
+    if (column == null) {
+      // Comparisons in the form 'value < column'
+      reversed = true;
+      column = getKeyColumn(comparison.getRightExpression());
+      value = comparison.getLeftExpression();
+    }
+    if (column == null || equalTo.containsKey(column))
+      return false;
+    if (comparison instanceof EqualsTo) {
+      Object recorded = record(column, value);
+      if (recorded == null || lowerBounds.containsKey(column) || upperBounds.containsKey(column))
+        return false;
+      equalTo.put(column, recorded);
+      return true;
+    }
+    boolean inclusive =
+        comparison instanceof GreaterThanEquals || comparison instanceof MinorThanEquals;
+    boolean greater = comparison instanceof GreaterThan || comparison instanceof GreaterThanEquals;
+    boolean minor = comparison instanceof MinorThan || comparison instanceof MinorThanEquals;
+    if (!greater && !minor)
+      return false;
+    return addBound(greater != reversed ? lowerBounds : upperBounds, column, value, inclusive);
+  }
+
+  private boolean addBound(Map<String, Bound> bounds, String column, Expression expression,
+      boolean inclusive) {
+    Object value = record(column, expression);
+    if (value == null || bounds.containsKey(column) || equalTo.containsKey(column))
+      return false;
+    bounds.put(column, new Bound(value, inclusive));
+    return true;
+  }
+
+  /**
+   *
+   * @return The value of the given expression, or <code>null</code> if the expression is not a
+   *         literal or parameter, or if the value is null. A comparison with null is never true.
+   */
+  private Object record(String column, Expression expression) {
+    // Expressions that compute a value from a literal, such as functions and casts, must not be
+    // translated into a key range on the literal itself
+    if (!isValue(expression))
+      return null;
+    ValueRecorder recorder = new ValueRecorder(parameters, column);
+    expression.accept(recorder);
+    return recorder.count == 1 ? DeleteKeyBuilder.convert(recorder.value) : null;
+  }
+
+  /**
+   *
+   * @return <code>true</code> if the expression is a parameter, a literal or a signed numeric
+   *         literal
+   */
+  private static boolean isValue(Expression expression) {
+    if (expression instanceof SignedExpression) {
+      Expression signed = ((SignedExpression) expression).getExpression();
+      return signed instanceof LongValue || signed instanceof DoubleValue;
+    }
+    return expression instanceof JdbcParameter || expression instanceof StringValue
+        || expression instanceof LongValue || expression instanceof DoubleValue
+        || expression instanceof DateValue || expression instanceof TimeValue
+        || expression instanceof TimestampValue;
+  }
+
+  /**
+   *
+   * @return The upper case name of the key column, or <code>null</code> if the expression is not a
+   *         key column of the table
+   */
+  private String getKeyColumn(Expression expression) {
+    if (!(expression instanceof Column))
+      return null;
+    String name =
+        CloudSpannerDriver.unquoteIdentifier(((Column) expression).getColumnName()).toUpperCase();
+    return table.getKeyColumns().contains(name) ? name : null;
+  }
+
+  private KeySet createKeySet() throws SQLException {
+    List<String> keyColumns = table.getKeyColumns();
+    Key.Builder prefix = Key.newBuilder();
+    int index = 0;
+    while (index < keyColumns.size() && equalTo.containsKey(keyColumns.get(index))) {
+      prefix.appendObject(equalTo.get(keyColumns.get(index)));
+      index++;
+    }
+    String rangeColumn = null;
+    if (index < keyColumns.size() && (lowerBounds.containsKey(keyColumns.get(index))
+        || upperBounds.containsKey(keyColumns.get(index)))) {
+      rangeColumn = keyColumns.get(index);
+      index++;
+    }
+    // All comparisons must be on the prefix and the range column
+    if (index == 0 || equalTo.size() + (rangeColumn == null ? 0 : 1) != index
+        || !isOnlyBound(lowerBounds, rangeColumn) || !isOnlyBound(upperBounds, rangeColumn))
+      return null;
+    if (rangeColumn == null) {
+      return index == keyColumns.size() ? KeySet.singleKey(prefix.build())
+          : KeySet.prefixRange(prefix.build());
+    }
+    return KeySet.range(createRange(prefix.build(), lowerBounds.get(rangeColumn),
+        upperBounds.get(rangeColumn), table.isDescending(rangeColumn)));
+  }
+
+  private static boolean isOnlyBound(Map<String, Bound> bounds, String column) {
+    return bounds.isEmpty() || bounds.size() == 1 && bounds.containsKey(column);
+  }
+
+  /**
+   * Creates a key range for the given bounds of the key column that follows the given prefix. Null
+   * values are never included, as a comparison with null is never true. Null values sort before
+   * all other values in ascending order, and after all other values in descending order.
+   */
+  private static KeyRange createRange(Key prefix, Bound lower, Bound upper, boolean descending) {
+    Bound first = descending ? upper : lower;
+    Bound last = descending ? lower : upper;
+    KeyRange.Builder builder = KeyRange.newBuilder();
+    if (first != null) {
+      builder.setStart(append(prefix, first.value))
+          .setStartType(first.inclusive ? Endpoint.CLOSED : Endpoint.OPEN);
+    } else if (descending) {
+      builder.setStart(prefix).setStartType(Endpoint.CLOSED);
+    } else {
+      builder.setStart(append(prefix, null)).setStartType(Endpoint.OPEN);
+    }
+    if (last != null) {
+      builder.setEnd(append(prefix, last.value))
+          .setEndType(last.inclusive ? Endpoint.CLOSED : Endpoint.OPEN);
+    } else if (descending) {
+      builder.setEnd(append(prefix, null)).setEndType(Endpoint.OPEN);
+    } else {
+      builder.setEnd(prefix).setEndType(Endpoint.CLOSED);
+    }
+    return builder.build();
+  }
+
+  private static Key append(Key prefix, Object value) {
+    return prefix.toBuilder().appendObject(value).build();
+  }
+
+  /**
+   * Coalesces the given keys into ranges where possible. Keys that only differ in their last part
+   * are combined into one range if the last part is an INT64 and the values are consecutive.
+   *
+   * @param keys The keys to coalesce. All keys must contain a value for all key columns.
+   * @param descending Whether the last key column is sorted in descending order
+   * @return A {@link KeySet} that contains exactly the given keys
+   */
+  static KeySet coalesce(Iterable<Key> keys, boolean descending) {
+    KeySet.Builder builder = KeySet.newBuilder();
+    Map<List<Object>, TreeSet<Long>> runs = new LinkedHashMap<>();
+    for (Key key : keys) {
+      List<Object> parts = new ArrayList<>(key.size());
+      key.getParts().forEach(parts::add);
+      Object last = parts.isEmpty() ? null : parts.remove(parts.size() - 1);
+      if (last instanceof Long)
+        runs.computeIfAbsent(parts, p -> new TreeSet<>()).add((Long) last);
+      else
+        builder.addKey(key);
+    }
+    for (Map.Entry<List<Object>, TreeSet<Long>> entry : runs.entrySet()) {
+      Key prefix = Key.of(entry.getKey().toArray());
+      Long start = null;
+      long end = 0L;
+      for (Long value : entry.getValue()) {
+        if (start != null && end != Long.MAX_VALUE && value == end + 1L) {
+          end = value;
+          continue;
+        }
+        if (start != null)
+          addRun(builder, prefix, start, end, descending);
+        start = value;
+        end = value;
+      }
+      if (start != null)
+        addRun(builder, prefix, start, end, descending);
+    }
+    return builder.build();
+  }
+
+  private static void addRun(KeySet.Builder builder, Key prefix, long start, long end,
+      boolean descending) {
+    if (start == end)
+      builder.addKey(append(prefix, start));
+    else if (descending)
+      builder.addRange(KeyRange.closedClosed(append(prefix, end), append(prefix, start)));
+    else
+      builder.addRange(KeyRange.closedClosed(append(prefix, start), append(prefix, end)));
+  }
+
+}
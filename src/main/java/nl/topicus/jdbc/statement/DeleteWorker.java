@@ -1,8 +1,12 @@
 package nl.topicus.jdbc.statement;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
 import com.google.rpc.Code;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
@@ -17,11 +21,20 @@ import nl.topicus.jdbc.exception.CloudSpannerSQLException;
 public class DeleteWorker extends AbstractTablePartWorker {
   final Delete delete;
 
+  /**
+   * Whether the last key column of the table is sorted in descending order
+   */
+  private final boolean lastKeyDescending;
+
   public DeleteWorker(CloudSpannerConnection connection, Delete delete, ParameterStore parameters,
       boolean allowExtendedMode) throws SQLException {
     super(connection, createSelect(connection, delete), parameters, allowExtendedMode,
         DMLOperation.DELETE);
     this.delete = delete;
+    List<String> keyColumns = getMutationColumnNames();
+    this.lastKeyDescending = !keyColumns.isEmpty() && connection
+        .getTable(CloudSpannerDriver.unquoteIdentifier(delete.getTable().getName()))
+        .isDescending(keyColumns.get(keyColumns.size() - 1));
   }
 
   private static Select createSelect(CloudSpannerConnection connection, Delete delete)
@@ -52,21 +65,25 @@ public class DeleteWorker extends AbstractTablePartWorker {
   }
 
   @Override
-  protected String createSQL() throws SQLException {
+  protected List<String> getMutationColumnNames() throws SQLException {
     TableKeyMetaData table =
         connection.getTable(CloudSpannerDriver.unquoteIdentifier(getTable().getName()));
-    List<String> keyCols = table.getKeyColumns().stream().map(CloudSpannerDriver::quoteIdentifier)
-        .collect(Collectors.toList());
-    StringBuilder sql = new StringBuilder("DELETE FROM ")
-        .append(CloudSpannerDriver.quoteIdentifier(delete.getTable().getName())).append(" WHERE ");
-    boolean first = true;
-    for (String key : keyCols) {
-      if (!first)
-        sql.append(" AND ");
-      sql.append(key).append("=?");
-      first = false;
-    }
-    return sql.toString();
+    return table.getKeyColumns();
+  }
+
+  /**
+   * Combines the single row deletes of a chunk into one delete mutation, and coalesces consecutive
+   * keys into key ranges
+   */
+  @Override
+  protected List<Mutation> combine(List<Mutation> chunk) {
+    if (chunk.size() < 2)
+      return chunk;
+    List<Key> keys = new ArrayList<>(chunk.size());
+    for (Mutation mutation : chunk)
+      mutation.getKeySet().getKeys().forEach(keys::add);
+    return Collections.singletonList(Mutation.delete(chunk.get(0).getTable(),
+        DeleteKeyRanges.coalesce(keys, lastKeyDescending)));
   }
 
   @Override
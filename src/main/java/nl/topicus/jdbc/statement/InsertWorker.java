@@ -1,7 +1,6 @@
 package nl.topicus.jdbc.statement;
 
 import java.sql.SQLException;
-import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import net.sf.jsqlparser.schema.Table;
@@ -35,20 +34,9 @@ public class InsertWorker extends AbstractTablePartWorker {
   }
 
   @Override
-  protected String createSQL() throws SQLException {
-    List<String> columnNamesList = getColumnNames();
-    String columnNames = String.join(", ", columnNamesList);
-    String[] params = new String[columnNamesList.size()];
-    Arrays.fill(params, "?");
-    String parameterNames = String.join(", ", params);
-
-    String sql = "INSERT INTO " + CloudSpannerDriver.quoteIdentifier(insert.getTable().getName())
-        + " (" + columnNames + ") VALUES \n";
-    sql = sql + "(" + parameterNames + ")";
-    if (operation == DMLOperation.ONDUPLICATEKEYUPDATE || operation == DMLOperation.UPDATE) {
-      sql = sql + " ON DUPLICATE KEY UPDATE";
-    }
-    return sql;
+  protected List<String> getMutationColumnNames() throws SQLException {
+    return getColumnNames().stream().map(CloudSpannerDriver::unquoteIdentifier)
+        .collect(Collectors.toList());
   }
 
   @Override
@@ -0,0 +1,287 @@
+package nl.topicus.jdbc.statement;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.Op;
+import com.google.cloud.spanner.Mutation.WriteBuilder;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.update.Update;
+import nl.topicus.jdbc.CloudSpannerDriver;
+import nl.topicus.jdbc.MetaDataStore.TableKeyMetaData;
+
+/**
+ * Precompiled version of a single row INSERT, UPDATE or DELETE statement. A template records the
+ * table, the kind of mutation and for each column either the index of the parameter that is bound
+ * to the column or the literal value of the column. Creating a {@link Mutation} from a template
+ * only copies the current parameter values into a new mutation, without visiting the parsed SQL
+ * statement again.
+ *
+ * Statements that cannot be expressed as a template (for example statements containing function
+ * calls or expressions) are not compiled, and are handled by the normal parsing and visiting logic.
+ *
+ * @author loite
+ *
+ */
+class MutationTemplate {
+  /**
+   * Records the value that an expression would bind to a column.
+   */
+  private static final class ValueRecorder extends AbstractSpannerExpressionVisitorAdapter {
+    private int count;
+
+    private Integer parameterIndex;
+
+    private Object value;
+
+    private Integer sqlType;
+
+    private ValueRecorder() {
+      super(null);
+    }
+
+    @Override
+    public void visit(JdbcParameter parameter) {
+      count++;
+      parameterIndex = parameter.getIndex();
+      if (parameterIndex == null)
+        count++;
+    }
+
+    @Override
+    protected void setValue(Object value, Integer sqlType) {
+      count++;
+      this.value = value;
+      this.sqlType = sqlType;
+    }
+
+    private boolean isValid() {
+      return count == 1;
+    }
+  }
+
+  private final String table;
+
+  private final Op operation;
+
+  private final String[] columns;
+
+  /**
+   * The index of the parameter that is bound to a column, or 0 if the column has a literal value
+   */
+  private final int[] parameterIndexes;
+
+  private final Object[] values;
+
+  private final Integer[] sqlTypes;
+
+  private MutationTemplate(String table, Op operation, List<String> columns,
+      List<ValueRecorder> recorders) {
+    this.table = table;
+    this.operation = operation;
+    int size = columns.size();
+    this.columns = columns.toArray(new String[size]);
+    this.parameterIndexes = new int[size];
+    this.values = new Object[size];
+    this.sqlTypes = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      ValueRecorder recorder = recorders.get(i);
+      if (recorder.parameterIndex != null) {
+        parameterIndexes[i] = recorder.parameterIndex;
+      } else {
+        values[i] = recorder.value;
+        sqlTypes[i] = recorder.sqlType;
+      }
+    }
+  }
+
+  private static ValueRecorder record(Expression expression) {
+    ValueRecorder recorder = new ValueRecorder();
+    try {
+      expression.accept(recorder);
+    } catch (IllegalArgumentException e) {
+      // Invalid expressions are reported by the normal execution path
+      return null;
+    }
+    return recorder.isValid() ? recorder : null;
+  }
+
+  /**
+   * Tries to compile the given INSERT statement.
+   *
+   * @return a template for the statement, or <code>null</code> if the statement cannot be compiled
+   */
+  static MutationTemplate compile(Insert insert) {
+    if (insert.getSelect() != null || !(insert.getItemsList() instanceof ExpressionList)
+        || insert.getColumns() == null || insert.getColumns().isEmpty())
+      return null;
+    List<Expression> expressions = ((ExpressionList) insert.getItemsList()).getExpressions();
+    if (expressions.size() != insert.getColumns().size())
+      return null;
+    List<String> columns = new ArrayList<>(expressions.size());
+    List<ValueRecorder> recorders = new ArrayList<>(expressions.size());
+    int index = 0;
+    for (Column col : insert.getColumns()) {
+      ValueRecorder recorder = record(expressions.get(index));
+      if (recorder == null)
+        return null;
+      columns.add(CloudSpannerDriver.unquoteIdentifier(col.getFullyQualifiedName()));
+      recorders.add(recorder);
+      index++;
+    }
+    return new MutationTemplate(
+        CloudSpannerDriver.unquoteIdentifier(insert.getTable().getFullyQualifiedName()),
+        insert.isUseDuplicate() ? Op.INSERT_OR_UPDATE : Op.INSERT, columns, recorders);
+  }
+
+  /**
+   * Tries to compile the given UPDATE statement. Only UPDATE statements that update exactly one row
+   * can be compiled.
+   *
+   * @return a template for the statement, or <code>null</code> if the statement cannot be compiled
+   */
+  static MutationTemplate compile(Update update, TableKeyMetaData tableMetaData) {
+    if (update.getSelect() != null || update.getTables() == null || update.getTables().size() != 1
+        || update.getWhere() == null || update.getColumns() == null
+        || update.getExpressions() == null
+        || update.getColumns().size() != update.getExpressions().size())
+      return null;
+    List<String> columns = new ArrayList<>();
+    List<ValueRecorder> recorders = new ArrayList<>();
+    int index = 0;
+    for (Column col : update.getColumns()) {
+      ValueRecorder recorder = record(update.getExpressions().get(index));
+      if (recorder == null)
+        return null;
+      columns.add(CloudSpannerDriver.unquoteIdentifier(col.getFullyQualifiedName()));
+      recorders.add(recorder);
+      index++;
+    }
+    Map<String, ValueRecorder> keyValues = recordWhereClause(update.getWhere(), columns, recorders);
+    if (keyValues == null || !keyValues.keySet().containsAll(tableMetaData.getKeyColumns()))
+      return null;
+    return new MutationTemplate(
+        CloudSpannerDriver.unquoteIdentifier(update.getTables().get(0).getFullyQualifiedName()),
+        Op.UPDATE, columns, recorders);
+  }
+
+  /**
+   * Tries to compile the given DELETE statement. Only DELETE statements that delete exactly one row
+   * can be compiled.
+   *
+   * @return a template for the statement, or <code>null</code> if the statement cannot be compiled
+   */
+  static MutationTemplate compile(Delete delete, TableKeyMetaData tableMetaData) {
+    if (delete.getWhere() == null || delete.getTable() == null
+        || (delete.getTables() != null && !delete.getTables().isEmpty()))
+      return null;
+    Map<String, ValueRecorder> keyValues =
+        recordWhereClause(delete.getWhere(), new ArrayList<>(), new ArrayList<>());
+    if (keyValues == null || !keyValues.keySet().containsAll(tableMetaData.getKeyColumns()))
+      return null;
+    List<String> columns = new ArrayList<>();
+    List<ValueRecorder> recorders = new ArrayList<>();
+    for (String key : tableMetaData.getKeyColumns()) {
+      columns.add(key);
+      recorders.add(keyValues.get(key));
+    }
+    return new MutationTemplate(
+        CloudSpannerDriver.unquoteIdentifier(delete.getTable().getFullyQualifiedName()), Op.DELETE,
+        columns, recorders);
+  }
+
+  /**
+   * Records the column values of a WHERE clause in the form 'ID1=value1 AND ID2=value2'. The
+   * columns and values are added to the given lists in the order they are specified in the WHERE
+   * clause.
+   *
+   * @return the recorded values by upper case column name, or <code>null</code> if the WHERE clause
+   *         is not valid for a single row statement
+   */
+  private static Map<String, ValueRecorder> recordWhereClause(Expression where,
+      List<String> columns, List<ValueRecorder> recorders) {
+    Map<String, ValueRecorder> res = new LinkedHashMap<>();
+    boolean[] valid = new boolean[] {true};
+    DMLWhereClauseVisitor whereClauseVisitor = new DMLWhereClauseVisitor(null) {
+      @Override
+      protected void visitExpression(Column col, Expression expression) {
+        ValueRecorder recorder = col == null ? null : record(expression);
+        if (recorder == null) {
+          valid[0] = false;
+        } else {
+          String columnName = CloudSpannerDriver.unquoteIdentifier(col.getFullyQualifiedName());
+          columns.add(columnName);
+          recorders.add(recorder);
+          res.put(columnName.toUpperCase(), recorder);
+        }
+      }
+    };
+    where.accept(whereClauseVisitor);
+    if (!valid[0] || !whereClauseVisitor.isValid())
+      return null;
+    return res;
+  }
+
+  String getTable() {
+    return table;
+  }
+
+  Op getOperation() {
+    return operation;
+  }
+
+  /**
+   * Creates a mutation from this template using the current values of the given parameters.
+   *
+   * @param parameters The parameter values to use
+   * @param forceUpdate Whether an INSERT ... ON DUPLICATE KEY UPDATE should only do an update
+   * @return the mutation
+   * @throws SQLException if a parameter value is invalid for this statement
+   */
+  Mutation createMutation(ParameterStore parameters, boolean forceUpdate) throws SQLException {
+    parameters.setTable(table);
+    for (int i = 0; i < columns.length; i++) {
+      if (parameterIndexes[i] > 0)
+        parameters.setColumn(parameterIndexes[i], columns[i]);
+    }
+    if (operation == Op.DELETE) {
+      Key.Builder key = Key.newBuilder();
+      for (int i = 0; i < columns.length; i++) {
+        Object value = parameterIndexes[i] > 0 ? parameters.getParameter(parameterIndexes[i])
+            : values[i];
+        key.appendObject(DeleteKeyBuilder.convert(value));
+      }
+      return Mutation.delete(table, key.build());
+    }
+    WriteBuilder builder;
+    if (operation == Op.INSERT_OR_UPDATE && forceUpdate)
+      builder = Mutation.newUpdateBuilder(table);
+    else if (operation == Op.INSERT_OR_UPDATE)
+      builder = Mutation.newInsertOrUpdateBuilder(table);
+    else if (operation == Op.UPDATE)
+      builder = Mutation.newUpdateBuilder(table);
+    else
+      builder = Mutation.newInsertBuilder(table);
+    for (int i = 0; i < columns.length; i++) {
+      if (parameterIndexes[i] > 0) {
+        ValueBinderExpressionVisitorAdapter.setValue(builder.set(columns[i]),
+            parameters.getParameter(parameterIndexes[i]),
+            parameters.getType(parameterIndexes[i]));
+      } else {
+        ValueBinderExpressionVisitorAdapter.setValue(builder.set(columns[i]), values[i],
+            sqlTypes[i]);
+      }
+    }
+    return builder.build();
+  }
+
+}
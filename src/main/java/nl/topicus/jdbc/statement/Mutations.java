@@ -9,24 +9,40 @@ class Mutations {
 
   private final AbstractTablePartWorker worker;
 
+  private final Long numberOfResults;
+
   /**
    * Single mutation
    * 
    * @param mutation
    */
   Mutations(Mutation mutation) {
+    this(mutation, null);
+  }
+
+  /**
+   * Single mutation with a fixed update count
+   * 
+   * @param mutation
+   * @param numberOfResults The update count to report for the mutation, or <code>null</code> to
+   *        report one result
+   */
+  Mutations(Mutation mutation, Long numberOfResults) {
     this.buffer = Arrays.asList(mutation);
     this.worker = null;
+    this.numberOfResults = numberOfResults;
   }
 
   Mutations(List<Mutation> mutations) {
     this.buffer = mutations;
     this.worker = null;
+    this.numberOfResults = null;
   }
 
   Mutations(AbstractTablePartWorker worker) {
     this.buffer = null;
     this.worker = worker;
+    this.numberOfResults = null;
   }
 
   List<Mutation> getMutations() {
@@ -47,6 +63,8 @@ class Mutations {
   long getNumberOfResults() {
     if (isWorker())
       return worker.getRecordCount();
+    if (numberOfResults != null)
+      return numberOfResults;
     return buffer.size();
   }
 
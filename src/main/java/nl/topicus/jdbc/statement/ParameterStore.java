@@ -35,6 +35,22 @@ public class ParameterStore {
     table = null;
   }
 
+  /**
+   * @return A copy of this store with the current parameter values. Changes to this store are not
+   *         visible in the copy.
+   */
+  ParameterStore copy() {
+    ParameterStore res = new ParameterStore();
+    res.parameters = Arrays.copyOf(parameters, parameters.length);
+    res.types = Arrays.copyOf(types, types.length);
+    res.nullable = Arrays.copyOf(nullable, nullable.length);
+    res.scalesOrLengths = Arrays.copyOf(scalesOrLengths, scalesOrLengths.length);
+    res.columns = Arrays.copyOf(columns, columns.length);
+    res.table = table;
+    res.highestIndex = highestIndex;
+    return res;
+  }
+
   Object getParameter(int parameterIndex) {
     int arrayIndex = parameterIndex - 1;
     if (arrayIndex >= parameters.length)
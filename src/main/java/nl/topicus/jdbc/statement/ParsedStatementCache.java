@@ -0,0 +1,206 @@
+package nl.topicus.jdbc.statement;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.update.Update;
+import nl.topicus.jdbc.CloudSpannerDriver;
+
+/**
+ * Driver wide LRU cache of parsed SQL statements. The cache is keyed by the SQL text as it was
+ * passed to the driver, which means that preparing the same statement multiple times, also on
+ * different connections, will only parse the statement once. The parsed statements in the cache are
+ * shared between threads and must therefore be treated as read-only.
+ *
+ * @author loite
+ *
+ */
+public final class ParsedStatementCache {
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  private static final ParsedStatementCache INSTANCE = new ParsedStatementCache(DEFAULT_MAX_SIZE);
+
+  public enum StatementKind {
+    SELECT, INSERT, UPDATE, DELETE, OTHER;
+  }
+
+  /**
+   * A parsed SQL statement together with the information that is derived from it.
+   */
+  public static final class ParsedStatement {
+    private final Statement statement;
+
+    private final StatementKind kind;
+
+    private final String table;
+
+    private final List<String> columns;
+
+    ParsedStatement(Statement statement) {
+      this.statement = statement;
+      Table tableItem = null;
+      List<Column> columnItems = null;
+      if (statement instanceof Select) {
+        this.kind = StatementKind.SELECT;
+      } else if (statement instanceof Insert) {
+        this.kind = StatementKind.INSERT;
+        tableItem = ((Insert) statement).getTable();
+        columnItems = ((Insert) statement).getColumns();
+      } else if (statement instanceof Update) {
+        this.kind = StatementKind.UPDATE;
+        Update update = (Update) statement;
+        if (update.getTables() != null && update.getTables().size() == 1)
+          tableItem = update.getTables().get(0);
+        columnItems = update.getColumns();
+      } else if (statement instanceof Delete) {
+        this.kind = StatementKind.DELETE;
+        tableItem = ((Delete) statement).getTable();
+      } else {
+        this.kind = StatementKind.OTHER;
+      }
+      this.table = tableItem == null ? null
+          : CloudSpannerDriver.unquoteIdentifier(tableItem.getFullyQualifiedName());
+      this.columns = columnItems == null ? Collections.emptyList()
+          : Collections.unmodifiableList(columnItems.stream()
+              .map(x -> CloudSpannerDriver.unquoteIdentifier(x.getFullyQualifiedName()))
+              .collect(Collectors.toList()));
+    }
+
+    public Statement getStatement() {
+      return statement;
+    }
+
+    public StatementKind getKind() {
+      return kind;
+    }
+
+    /**
+     *
+     * @return The unquoted name of the table that is the target of an INSERT, UPDATE or DELETE
+     *         statement, or <code>null</code> for other statements
+     */
+    public String getTable() {
+      return table;
+    }
+
+    /**
+     *
+     * @return The unquoted column names of an INSERT or UPDATE statement, or an empty list for
+     *         other statements
+     */
+    public List<String> getColumns() {
+      return columns;
+    }
+  }
+
+  private final Map<String, ParsedStatement> cache;
+
+  private int maxSize;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  ParsedStatementCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.cache = new LinkedHashMap<String, ParsedStatement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ParsedStatement> eldest) {
+        return size() > ParsedStatementCache.this.maxSize;
+      }
+    };
+  }
+
+  public static ParsedStatementCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the parsed version of the given SQL statement. The statement is only parsed if it is
+   * not already in the cache.
+   *
+   * @param sql The SQL statement to parse
+   * @param sanitizer Function that is applied to the SQL statement before it is parsed
+   * @return The parsed statement
+   * @throws JSQLParserException if the statement could not be parsed. Statements that cannot be
+   *         parsed are not cached.
+   */
+  ParsedStatement parse(String sql, UnaryOperator<String> sanitizer) throws JSQLParserException {
+    ParsedStatement res;
+    synchronized (cache) {
+      res = cache.get(sql);
+    }
+    if (res != null) {
+      hits.incrementAndGet();
+      return res;
+    }
+    misses.incrementAndGet();
+    res = new ParsedStatement(CCJSqlParserUtil.parse(sanitizer.apply(sql)));
+    synchronized (cache) {
+      ParsedStatement existing = cache.putIfAbsent(sql, res);
+      return existing == null ? res : existing;
+    }
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Sets the maximum number of parsed statements to keep in the cache. Setting the maximum size to
+   * 0 effectively disables the cache.
+   *
+   * @param maxSize The maximum number of statements in the cache
+   */
+  public void setMaxSize(int maxSize) {
+    if (maxSize < 0)
+      throw new IllegalArgumentException("maxSize must be >= 0");
+    synchronized (cache) {
+      this.maxSize = maxSize;
+      if (cache.size() > maxSize) {
+        cache.keySet().stream().limit((long) cache.size() - maxSize).collect(Collectors.toList())
+            .forEach(cache::remove);
+      }
+    }
+  }
+
+  /**
+   * Removes all statements from the cache and resets the hit and miss counters.
+   */
+  public void clear() {
+    synchronized (cache) {
+      cache.clear();
+    }
+    hits.set(0L);
+    misses.set(0L);
+  }
+
+}
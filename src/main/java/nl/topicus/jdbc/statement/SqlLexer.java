@@ -0,0 +1,561 @@
+package nl.topicus.jdbc.statement;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hand written single pass lexer for the light-weight SQL processing that the driver does before a
+ * statement is handed to the parser or to Cloud Spanner: removing comments, splitting a statement
+ * into its first tokens and rewriting constructs that are not supported by the parser. String
+ * literals and quoted identifiers are never modified.
+ *
+ * @author loite
+ *
+ */
+final class SqlLexer {
+  /**
+   * A statement of which the literals have been replaced by parameters
+   */
+  static final class ParameterizedStatement {
+    private final String sql;
+
+    private final List<Object> values;
+
+    private final List<Integer> types;
+
+    private ParameterizedStatement(String sql, List<Object> values, List<Integer> types) {
+      this.sql = sql;
+      this.values = Collections.unmodifiableList(values);
+      this.types = Collections.unmodifiableList(types);
+    }
+
+    /**
+     * @return The statement with a parameter in place of each literal
+     */
+    String getSql() {
+      return sql;
+    }
+
+    /**
+     * @return The values of the literals in the order of the parameters
+     */
+    List<Object> getValues() {
+      return values;
+    }
+
+    /**
+     * @return The {@link Types} of the literals in the order of the parameters
+     */
+    List<Integer> getTypes() {
+      return types;
+    }
+  }
+
+  /**
+   * A literal in a VALUES list is only replaced by a parameter if it directly follows one of these
+   * characters in a row of the list. This excludes the arguments of function calls in the list.
+   */
+  private static final String VALUES_PREFIXES = "(,";
+
+  /**
+   * A literal in a WHERE clause is only replaced by a parameter if it directly follows one of these
+   * characters, i.e. if it is the right-hand side of a comparison. This excludes literals that are
+   * part of the syntax, such as INTERVAL 1 DAY or DATE '2018-01-01', and function arguments.
+   */
+  private static final String COMPARISON_PREFIXES = "=<>";
+
+  private static final String VALUES = "VALUES";
+
+  private static final String WHERE = "WHERE";
+
+  /**
+   * Keywords that end a WHERE clause
+   */
+  private static final String[] WHERE_END =
+      {"GROUP", "HAVING", "ORDER", "LIMIT", "UNION", "INTERSECT", "EXCEPT"};
+
+  private static final String[] DATE_PARTS = {"DAY", "WEEK", "MONTH", "QUARTER", "YEAR",
+      "NANOSECOND", "MICROSECOND", "MILLISECOND", "SECOND", "MINUTE", "HOUR"};
+
+  private static final String FORCE_INDEX = "FORCE_INDEX";
+
+  private static final String INTERVAL = "INTERVAL";
+
+  private static final String EXTRACT = "EXTRACT(";
+
+  private static final String EXTRACT_DATE_REPLACEMENT = "EXTRACT(DATE_OF_MONTH FROM ";
+
+  private static final String[] ON_DUPLICATE_KEY_UPDATE_REVERSED =
+      {"UPDATE", "KEY", "DUPLICATE", "ON"};
+
+  private SqlLexer() {}
+
+  /**
+   * Same set of characters as the regular expression class \s
+   */
+  static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static int skipWhitespace(String sql, int index) {
+    int i = index;
+    while (i < sql.length() && isWhitespace(sql.charAt(i)))
+      i++;
+    return i;
+  }
+
+  private static boolean isQuote(char c) {
+    return c == '\'' || c == '"' || c == '`';
+  }
+
+  /**
+   * @return the index directly after the string literal or quoted identifier that starts at the
+   *         given index
+   */
+  private static int skipQuoted(String sql, int index) {
+    char quote = sql.charAt(index);
+    int i = index + 1;
+    while (i < sql.length()) {
+      char c = sql.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote) {
+        return i + 1;
+      } else {
+        i++;
+      }
+    }
+    return sql.length();
+  }
+
+  /**
+   * @return the index directly after the comment that starts at the given index, or the given
+   *         index if no comment starts at that position. Single line comments end at (and do not
+   *         include) the next line feed.
+   */
+  private static int skipComment(String sql, int index) {
+    if (index + 1 < sql.length()) {
+      char c = sql.charAt(index);
+      char next = sql.charAt(index + 1);
+      if ((c == '-' && next == '-') || (c == '/' && next == '/')) {
+        int end = sql.indexOf('\n', index + 2);
+        return end == -1 ? sql.length() : end;
+      }
+      if (c == '/' && next == '*') {
+        int end = sql.indexOf("*/", index + 2);
+        return end == -1 ? index : end + 2;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Removes all comments from the given sql string and trims the result
+   *
+   * @param sql The sql string to remove the comments from
+   * @return The sql string without any comments
+   */
+  static String removeComments(String sql) {
+    int length = sql.length();
+    StringBuilder res = null;
+    int copied = 0;
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (isQuote(c)) {
+        i = skipQuoted(sql, i);
+        continue;
+      }
+      int end = skipComment(sql, i);
+      if (end > i) {
+        if (res == null)
+          res = new StringBuilder(length);
+        res.append(sql, copied, i);
+        copied = end;
+        i = end;
+      } else {
+        i++;
+      }
+    }
+    if (res == null)
+      return sql.trim();
+    return res.append(sql, copied, length).toString().trim();
+  }
+
+  /**
+   * Removes all comments from the given sql string and splits it into tokens separated by
+   * whitespace. The first equals sign in the statement is always returned as a separate token.
+   *
+   * @param sql The sql statement to break into tokens
+   * @param limit The maximum number of tokens to return. The last token will contain the remainder
+   *        of the statement. A value of zero or less means no limit.
+   * @return The tokens of the statement
+   */
+  static String[] getTokens(String sql, int limit) {
+    String stripped = removeComments(sql);
+    int length = stripped.length();
+    List<String> tokens = new ArrayList<>(limit > 0 ? limit : 10);
+    boolean foundEquals = false;
+    int i = 0;
+    while (i < length) {
+      i = skipWhitespace(stripped, i);
+      if (i == length)
+        break;
+      if (limit > 0 && tokens.size() == limit - 1) {
+        String remainder = stripped.substring(i);
+        int equalsIndex = foundEquals ? -1 : remainder.indexOf('=');
+        if (equalsIndex == 0)
+          remainder = "= " + remainder.substring(1);
+        else if (equalsIndex > 0)
+          remainder = remainder.substring(0, equalsIndex) + " = "
+              + remainder.substring(equalsIndex + 1);
+        tokens.add(remainder);
+        break;
+      }
+      if (!foundEquals && stripped.charAt(i) == '=') {
+        tokens.add("=");
+        foundEquals = true;
+        i++;
+        continue;
+      }
+      int start = i;
+      while (i < length && !isWhitespace(stripped.charAt(i))
+          && (foundEquals || stripped.charAt(i) != '='))
+        i++;
+      tokens.add(stripped.substring(start, i));
+    }
+    if (tokens.isEmpty())
+      return new String[] {""};
+    return tokens.toArray(new String[tokens.size()]);
+  }
+
+  /**
+   * Rewrites the given sql statement into a form that can be handled by the parser:
+   * <ul>
+   * <li>A dummy column update is added to an 'INSERT ... ON DUPLICATE KEY UPDATE'-statement without
+   * any update columns</li>
+   * <li>'@{FORCE_INDEX=...}' hints are removed</li>
+   * <li>'INTERVAL INT64_expr date_part' arguments are replaced by 'INT64_expr'</li>
+   * <li>'EXTRACT(DATE FROM ...)' calls are replaced by 'EXTRACT(DATE_OF_MONTH FROM ...)'</li>
+   * </ul>
+   *
+   * @param sql The sql statement to sanitize
+   * @return The sanitized sql statement
+   */
+  static String sanitize(String sql) {
+    int length = sql.length();
+    StringBuilder res = null;
+    int copied = 0;
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (isQuote(c)) {
+        i = skipQuoted(sql, i);
+        continue;
+      }
+      int end = skipComment(sql, i);
+      if (end > i) {
+        i = end;
+        continue;
+      }
+      String replacement = null;
+      if (c == '@') {
+        end = matchForceIndex(sql, i);
+        replacement = "";
+      } else if (c == ',') {
+        end = matchInterval(sql, i);
+        replacement = ",";
+      } else if (isWhitespace(c)) {
+        end = matchDatePart(sql, i);
+        replacement = ")";
+      } else if (c == 'E' || c == 'e') {
+        end = matchExtractDate(sql, i);
+        replacement = EXTRACT_DATE_REPLACEMENT;
+      }
+      if (end > i) {
+        if (res == null)
+          res = new StringBuilder(length + 16);
+        res.append(sql, copied, i).append(replacement);
+        copied = end;
+        i = end;
+      } else if (isWhitespace(c)) {
+        i = skipWhitespace(sql, i);
+      } else {
+        i++;
+      }
+    }
+    String result = res == null ? sql : res.append(sql, copied, length).toString();
+    if (isInsertOnDuplicateKeyUpdateWithoutColumns(sql))
+      result = result + " FOO=BAR";
+    return result;
+  }
+
+  /**
+   * Matches '@{\s*FORCE_INDEX...}'
+   */
+  private static int matchForceIndex(String sql, int index) {
+    if (index + 1 < sql.length() && sql.charAt(index + 1) == '{') {
+      int i = skipWhitespace(sql, index + 2);
+      if (sql.regionMatches(true, i, FORCE_INDEX, 0, FORCE_INDEX.length())) {
+        int end = sql.indexOf('}', i + FORCE_INDEX.length());
+        if (end > -1)
+          return end + 1;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Matches ',\s*INTERVAL\s+'
+   */
+  private static int matchInterval(String sql, int index) {
+    int i = skipWhitespace(sql, index + 1);
+    if (sql.regionMatches(true, i, INTERVAL, 0, INTERVAL.length())) {
+      int start = i + INTERVAL.length();
+      int end = skipWhitespace(sql, start);
+      if (end > start)
+        return end;
+    }
+    return index;
+  }
+
+  /**
+   * Matches '\s+date_part\s*\)'
+   */
+  private static int matchDatePart(String sql, int index) {
+    int i = skipWhitespace(sql, index);
+    for (String part : DATE_PARTS) {
+      if (sql.regionMatches(true, i, part, 0, part.length())) {
+        int end = skipWhitespace(sql, i + part.length());
+        if (end < sql.length() && sql.charAt(end) == ')')
+          return end + 1;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Matches 'EXTRACT(\s*DATE\s+FROM\s+'
+   */
+  private static int matchExtractDate(String sql, int index) {
+    if (sql.regionMatches(true, index, EXTRACT, 0, EXTRACT.length())) {
+      int i = skipWhitespace(sql, index + EXTRACT.length());
+      if (sql.regionMatches(true, i, "DATE", 0, 4)) {
+        int fromIndex = skipWhitespace(sql, i + 4);
+        if (fromIndex > i + 4 && sql.regionMatches(true, fromIndex, "FROM", 0, 4)) {
+          int end = skipWhitespace(sql, fromIndex + 4);
+          if (end > fromIndex + 4)
+            return end;
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Checks whether the statement is an INSERT statement ending with 'ON DUPLICATE KEY UPDATE'
+   * without any columns to update.
+   */
+  private static boolean isInsertOnDuplicateKeyUpdateWithoutColumns(String sql) {
+    int start = skipWhitespace(sql, 0);
+    int insertEnd = start + "INSERT".length();
+    if (!sql.regionMatches(true, start, "INSERT", 0, "INSERT".length())
+        || insertEnd >= sql.length() || !isWhitespace(sql.charAt(insertEnd)))
+      return false;
+    int end = sql.length();
+    for (String word : ON_DUPLICATE_KEY_UPDATE_REVERSED) {
+      while (end > 0 && isWhitespace(sql.charAt(end - 1)))
+        end--;
+      int wordStart = end - word.length();
+      if (wordStart <= insertEnd || !sql.regionMatches(true, wordStart, word, 0, word.length())
+          || !isWhitespace(sql.charAt(wordStart - 1)))
+        return false;
+      end = wordStart;
+    }
+    return true;
+  }
+
+  private static boolean isIdentifierChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * @return the index of the last character before the given index that is not whitespace, or -1
+   *         if there is no such character
+   */
+  private static int previousNonWhitespace(CharSequence sql, int index) {
+    int i = index - 1;
+    while (i >= 0 && isWhitespace(sql.charAt(i)))
+      i--;
+    return i;
+  }
+
+  /**
+   * @param valuesRow whether the given index is directly inside a row of a VALUES list
+   * @param where whether the given index is inside a WHERE clause
+   * @return whether a literal at the given index should be replaced by a parameter
+   */
+  private static boolean acceptsParameter(CharSequence sql, int index, boolean valuesRow,
+      boolean where) {
+    int previous = previousNonWhitespace(sql, index);
+    if (previous < 0)
+      return false;
+    char c = sql.charAt(previous);
+    return (valuesRow && VALUES_PREFIXES.indexOf(c) >= 0)
+        || (where && COMPARISON_PREFIXES.indexOf(c) >= 0);
+  }
+
+  private static boolean endsWhereClause(String word) {
+    for (String keyword : WHERE_END) {
+      if (keyword.equalsIgnoreCase(word))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the index directly after the number that starts at the given index
+   */
+  private static int skipNumber(String sql, int index) {
+    int i = index;
+    while (i < sql.length() && isDigit(sql.charAt(i)))
+      i++;
+    if (i < sql.length() && sql.charAt(i) == '.') {
+      i++;
+      while (i < sql.length() && isDigit(sql.charAt(i)))
+        i++;
+    }
+    if (i + 1 < sql.length() && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+      int exponent = i + 1;
+      if (exponent + 1 < sql.length()
+          && (sql.charAt(exponent) == '-' || sql.charAt(exponent) == '+'))
+        exponent++;
+      if (isDigit(sql.charAt(exponent))) {
+        i = exponent;
+        while (i < sql.length() && isDigit(sql.charAt(i)))
+          i++;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * Replaces the string and numeric literals of a DML statement by parameters, so that statements
+   * that only differ in their literal values share the same sql string. Only the literals in the
+   * rows of a VALUES list and the literals on the right-hand side of a comparison in a WHERE clause
+   * are replaced. Other literals, such as function arguments, ordinals in GROUP BY and ORDER BY,
+   * LIMIT values and assigned values in an UPDATE statement, are kept as they are. A sign directly
+   * in front of a number is included in the value of the number. Comments are removed from the
+   * statement.
+   *
+   * @param sql The statement to parameterize
+   * @return The parameterized statement, or <code>null</code> if the statement already contains
+   *         parameters, or contains a literal that cannot be converted into a parameter value
+   *         without changing its meaning, such as a string literal with escaped characters
+   */
+  static ParameterizedStatement parameterize(String sql) {
+    String stripped = removeComments(sql);
+    int length = stripped.length();
+    StringBuilder res = new StringBuilder(length);
+    List<Object> values = new ArrayList<>();
+    List<Integer> types = new ArrayList<>();
+    // The parenthesis depth, and the depth of the VALUES keyword or -1 if not in a VALUES list
+    int depth = 0;
+    int valuesDepth = -1;
+    boolean where = false;
+    int i = 0;
+    while (i < length) {
+      char c = stripped.charAt(i);
+      boolean valuesRow = valuesDepth >= 0 && depth == valuesDepth + 1;
+      if (c == '?') {
+        return null;
+      } else if (c == '\'' && acceptsParameter(res, res.length(), valuesRow, where)) {
+        int end = skipQuoted(stripped, i);
+        // Unterminated literals and literals that contain a doubled quote are not replaced
+        if (end - i < 2 || stripped.charAt(end - 1) != '\''
+            || (end < length && stripped.charAt(end) == '\''))
+          return null;
+        String value = stripped.substring(i + 1, end - 1);
+        if (value.indexOf('\\') >= 0 || value.indexOf('\'') >= 0)
+          return null;
+        res.append('?');
+        values.add(value);
+        types.add(Types.NVARCHAR);
+        i = end;
+      } else if (isQuote(c)) {
+        int end = skipQuoted(stripped, i);
+        res.append(stripped, i, end);
+        i = end;
+      } else if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(stripped.charAt(i + 1)))) {
+        int end = skipNumber(stripped, i);
+        if (end < length && isIdentifierChar(stripped.charAt(end))) {
+          // Hexadecimal and other literals that are not plain numbers are not replaced
+          while (end < length && isIdentifierChar(stripped.charAt(end)))
+            end++;
+          res.append(stripped, i, end);
+          i = end;
+          continue;
+        }
+        String number = stripped.substring(i, end);
+        int sign = previousNonWhitespace(res, res.length());
+        boolean signed = sign >= 0 && (res.charAt(sign) == '-' || res.charAt(sign) == '+')
+            && acceptsParameter(res, sign, valuesRow, where);
+        if (signed) {
+          if (res.charAt(sign) == '-')
+            number = "-" + number;
+          res.setLength(sign);
+        } else if (!acceptsParameter(res, res.length(), valuesRow, where)) {
+          res.append(number);
+          i = end;
+          continue;
+        }
+        try {
+          if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+            values.add(Double.valueOf(number));
+            types.add(Types.DOUBLE);
+          } else {
+            values.add(Long.valueOf(number));
+            types.add(Types.BIGINT);
+          }
+        } catch (NumberFormatException e) {
+          return null;
+        }
+        res.append('?');
+        i = end;
+      } else if (isIdentifierChar(c)) {
+        int end = i;
+        while (end < length && isIdentifierChar(stripped.charAt(end)))
+          end++;
+        String word = stripped.substring(i, end);
+        if (VALUES.equalsIgnoreCase(word))
+          valuesDepth = depth;
+        else if (valuesDepth >= 0 && depth == valuesDepth)
+          valuesDepth = -1;
+        if (WHERE.equalsIgnoreCase(word))
+          where = true;
+        else if (endsWhereClause(word))
+          where = false;
+        res.append(word);
+        i = end;
+      } else {
+        if (c == '(') {
+          depth++;
+        } else if (c == ')') {
+          depth--;
+          if (depth < valuesDepth)
+            valuesDepth = -1;
+        }
+        res.append(c);
+        i++;
+      }
+    }
+    return new ParameterizedStatement(res.toString(), values, types);
+  }
+
+}
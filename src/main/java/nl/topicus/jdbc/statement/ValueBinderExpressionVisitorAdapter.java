@@ -36,9 +36,20 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
 
   @Override
   protected void setValue(Object value, Integer sqlType) {
-    R res = setSingleValue(value, sqlType);
+    setValue(binder, value, sqlType);
+  }
+
+  /**
+   * Binds the given value to the given {@link ValueBinder}
+   * 
+   * @param binder The binder to bind the value to
+   * @param value The value to bind
+   * @param sqlType The sql type of the value, only used for <code>null</code> values
+   */
+  static <R> void setValue(ValueBinder<R> binder, Object value, Integer sqlType) {
+    R res = setSingleValue(binder, value, sqlType);
     if (res == null && value != null)
-      res = setArrayValue(value);
+      res = setArrayValue(binder, value);
 
     if (res == null && value != null) {
       throw new IllegalArgumentException(
@@ -46,9 +57,9 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     }
   }
 
-  private R setSingleValue(Object value, Integer sqlType) {
+  private static <R> R setSingleValue(ValueBinder<R> binder, Object value, Integer sqlType) {
     if (value == null) {
-      return setNullValue(sqlType);
+      return setNullValue(binder, sqlType);
     } else if (Boolean.class.isAssignableFrom(value.getClass())) {
       return binder.to((Boolean) value);
     } else if (Byte.class.isAssignableFrom(value.getClass())) {
@@ -78,7 +89,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     } else if (String.class.isAssignableFrom(value.getClass())) {
       String stringVal = (String) value;
       if (stringVal.startsWith("{") && stringVal.endsWith("}")) {
-        R res = splitAndSetArrayValue(stringVal);
+        R res = splitAndSetArrayValue(binder, stringVal);
         if (res != null) {
           return res;
         }
@@ -112,7 +123,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
       }
     } else if (Array.class.isAssignableFrom(value.getClass())) {
       try {
-        return setArrayValue(((Array) value).getArray());
+        return setArrayValue(binder, ((Array) value).getArray());
       } catch (SQLException e) {
         throw new IllegalArgumentException(
             "Unsupported parameter type: " + value.getClass().getName() + " - " + value.toString());
@@ -121,7 +132,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return null;
   }
 
-  private R splitAndSetArrayValue(String arrayString) {
+  private static <R> R splitAndSetArrayValue(ValueBinder<R> binder, String arrayString) {
     // Split on comma's, do not include '{' and '}'
     String[] array =
         SPLIT_ON_COMMA_PATTERN.split(arrayString.substring(1, arrayString.length() - 1));
@@ -130,22 +141,22 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
       array[i] = array[i] == null ? null : array[i].trim();
     // Try to determine the data type of the array
     if (isStringArray(array)) {
-      return setArrayValue(convertStringArray(array));
+      return setArrayValue(binder, convertStringArray(array));
     } else if (isBooleanArray(array)) {
-      return setArrayValue(convertBooleanArray(array));
+      return setArrayValue(binder, convertBooleanArray(array));
     } else if (isLongArray(array)) {
-      return setArrayValue(convertLongArray(array));
+      return setArrayValue(binder, convertLongArray(array));
     } else if (isDoubleArray(array)) {
-      return setArrayValue(convertDoubleArray(array));
+      return setArrayValue(binder, convertDoubleArray(array));
     } else if (isDateArray(array)) {
-      return setArrayValue(convertDateArray(array));
+      return setArrayValue(binder, convertDateArray(array));
     } else if (isTimestampArray(array)) {
-      return setArrayValue(convertTimestampArray(array));
+      return setArrayValue(binder, convertTimestampArray(array));
     }
     return null;
   }
 
-  private boolean isStringArray(String[] array) {
+  private static boolean isStringArray(String[] array) {
     for (String val : array) {
       if (val != null && !(val.startsWith("\"") && val.endsWith("\""))) {
         return false;
@@ -154,7 +165,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return true;
   }
 
-  private String[] convertStringArray(String[] array) {
+  private static String[] convertStringArray(String[] array) {
     int index = 0;
     String[] res = new String[array.length];
     for (String val : array) {
@@ -166,7 +177,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return res;
   }
 
-  private boolean isBooleanArray(String[] array) {
+  private static boolean isBooleanArray(String[] array) {
     for (String val : array) {
       if (val != null && !(val.equalsIgnoreCase("true") || val.equalsIgnoreCase("false"))) {
         return false;
@@ -175,7 +186,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return true;
   }
 
-  private Boolean[] convertBooleanArray(String[] array) {
+  private static Boolean[] convertBooleanArray(String[] array) {
     int index = 0;
     Boolean[] res = new Boolean[array.length];
     for (String val : array) {
@@ -187,7 +198,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return res;
   }
 
-  private boolean isLongArray(String[] array) {
+  private static boolean isLongArray(String[] array) {
     for (String val : array) {
       if (!NumberUtils.isDigits(val)) {
         return false;
@@ -196,7 +207,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return true;
   }
 
-  private Long[] convertLongArray(String[] array) {
+  private static Long[] convertLongArray(String[] array) {
     int index = 0;
     Long[] res = new Long[array.length];
     for (String val : array) {
@@ -208,7 +219,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return res;
   }
 
-  private boolean isDoubleArray(String[] array) {
+  private static boolean isDoubleArray(String[] array) {
     for (String val : array) {
       if (!NumberUtils.isCreatable(val)) {
         return false;
@@ -217,7 +228,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return true;
   }
 
-  private Double[] convertDoubleArray(String[] array) {
+  private static Double[] convertDoubleArray(String[] array) {
     int index = 0;
     Double[] res = new Double[array.length];
     for (String val : array) {
@@ -229,7 +240,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return res;
   }
 
-  private boolean isDateArray(String[] array) {
+  private static boolean isDateArray(String[] array) {
     for (String val : array) {
       if (val != null && !(val.startsWith("{d \"") && val.endsWith("\"}"))) {
         return false;
@@ -238,7 +249,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return true;
   }
 
-  private Date[] convertDateArray(String[] array) {
+  private static Date[] convertDateArray(String[] array) {
     int index = 0;
     Date[] res = new Date[array.length];
     for (String val : array) {
@@ -257,7 +268,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return res;
   }
 
-  private boolean isTimestampArray(String[] array) {
+  private static boolean isTimestampArray(String[] array) {
     for (String val : array) {
       if (val != null && !(val.startsWith("{ts \"") && val.endsWith("\"}"))) {
         return false;
@@ -266,7 +277,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return true;
   }
 
-  private Timestamp[] convertTimestampArray(String[] array) {
+  private static Timestamp[] convertTimestampArray(String[] array) {
     int index = 0;
     Timestamp[] res = new Timestamp[array.length];
     for (String val : array) {
@@ -288,7 +299,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return res;
   }
 
-  private R setArrayValue(Object value) {
+  private static <R> R setArrayValue(ValueBinder<R> binder, Object value) {
     if (boolean[].class.isAssignableFrom(value.getClass())) {
       return binder.toBoolArray((boolean[]) value);
     } else if (Boolean[].class.isAssignableFrom(value.getClass())) {
@@ -334,7 +345,7 @@ class ValueBinderExpressionVisitorAdapter<R> extends AbstractSpannerExpressionVi
     return null;
   }
 
-  private R setNullValue(Integer sqlType) {
+  private static <R> R setNullValue(ValueBinder<R> binder, Integer sqlType) {
     if (sqlType == null) {
       return binder.to((String) null);
     }
@@ -1,7 +1,9 @@
 package nl.topicus.jdbc.transaction;
 
 import java.sql.SQLException;
+import java.sql.SQLWarning;
 import java.sql.Savepoint;
+import java.util.Collections;
 import java.util.List;
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.BatchClient;
@@ -24,10 +26,12 @@ import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.TimestampBound;
 import com.google.cloud.spanner.TransactionContext;
+import com.google.cloud.spanner.TransactionRunner;
 import com.google.common.base.Preconditions;
 import com.google.rpc.Code;
 import nl.topicus.jdbc.CloudSpannerConnection;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.util.TimestampBoundUtil;
 
 /**
  * An abstraction of transactions on Google Cloud Spanner JDBC connections.
@@ -44,10 +48,13 @@ public class CloudSpannerTransaction implements TransactionContext, BatchReadOnl
   private static final String METHOD_ONLY_IN_BATCH_READONLY =
       "This method may only be called when in batch read-only mode";
 
+  private static final String SPLIT_NOT_ALLOWED_AFTER_QUERY =
+      "The mutations of this transaction exceed the limits of one commit. A transaction that has executed queries cannot be split into multiple commits, as the separate commits would not be validated against the data that was read. The transaction has been rolled back.";
+
   public static class TransactionException extends RuntimeException {
     private static final long serialVersionUID = 1L;
 
-    private TransactionException(String message, SQLException cause) {
+    TransactionException(String message, SQLException cause) {
       super(message, cause);
     }
   }
@@ -84,23 +91,65 @@ public class CloudSpannerTransaction implements TransactionContext, BatchReadOnl
     return transactionThread == null ? 0 : transactionThread.numberOfBufferedMutations();
   }
 
+  /**
+   * 
+   * @return The estimated number of mutation cells that are buffered on this transaction. Indices
+   *         are only included in the count if AutoSplitTransactions is enabled on the connection.
+   */
+  public long getNumberOfBufferedCells() {
+    return transactionThread == null ? 0L : transactionThread.getBufferedCells();
+  }
+
+  /**
+   * 
+   * @return The estimated size in bytes of the mutations that are buffered on this transaction
+   */
+  public long getBufferedBytes() {
+    return transactionThread == null ? 0L : transactionThread.getBufferedBytes();
+  }
+
+  /**
+   * Creates a counter for mutations of this connection. The number of indices of the tables that
+   * are written to is only looked up if AutoSplitTransactions is enabled, otherwise indices are
+   * not counted.
+   * 
+   * @return A new counter for mutations
+   */
+  public MutationCounter createMutationCounter() {
+    if (connection.isAutoSplitTransactions())
+      return new MutationCounter(table -> connection.getTable(table).getNumberOfIndices());
+    return new MutationCounter(table -> 0);
+  }
+
   public void begin() throws SQLException {
     if (connection.isBatchReadOnly()) {
       if (batchReadOnlyTransaction == null) {
-        batchReadOnlyTransaction = batchClient.batchReadOnlyTransaction(TimestampBound.strong());
+        batchReadOnlyTransaction =
+            batchClient.batchReadOnlyTransaction(getMultiUseTimestampBound());
       }
     } else if (connection.isReadOnly()) {
       if (readOnlyTransaction == null) {
-        readOnlyTransaction = dbClient.readOnlyTransaction();
+        readOnlyTransaction = dbClient.readOnlyTransaction(getMultiUseTimestampBound());
       }
     } else {
       if (transactionThread == null) {
-        transactionThread = new TransactionThread(dbClient, connection.getLogger());
+        TransactionWorkerPool pool = connection.getTransactionWorkerPool();
+        transactionThread = new TransactionThread(dbClient, connection.getLogger(),
+            pool == null ? TransactionWorkerPool.getDefault() : pool,
+            connection.isRetryAbortsInternally(), createMutationCounter());
         transactionThread.start();
       }
     }
   }
 
+  /**
+   * Read-only transactions do not support all timestamp bounds, the bound of the connection is
+   * therefore converted to the nearest bound that is supported.
+   */
+  private TimestampBound getMultiUseTimestampBound() {
+    return TimestampBoundUtil.toMultiUseBound(connection.getReadTimestampBound());
+  }
+
   public Timestamp commit() throws SQLException {
     Timestamp res = null;
     try {
@@ -114,7 +163,20 @@ public class CloudSpannerTransaction implements TransactionContext, BatchReadOnl
         }
       } else {
         if (transactionThread != null) {
+          List<List<Mutation>> parts = Collections.emptyList();
+          if (connection.isAutoSplitTransactions() && transactionThread.exceedsLimits()) {
+            if (transactionThread.hasExecutedQueries()) {
+              transactionThread.rollback();
+              throw new CloudSpannerSQLException(SPLIT_NOT_ALLOWED_AFTER_QUERY,
+                  Code.FAILED_PRECONDITION);
+            }
+            parts = transactionThread.split();
+          }
           res = transactionThread.commit();
+          if (!parts.isEmpty()) {
+            res = max(res, writeInParts(dbClient, parts));
+            connection.addWarning(createSplitWarning(parts.size() + 1));
+          }
         }
       }
     } finally {
@@ -125,6 +187,59 @@ public class CloudSpannerTransaction implements TransactionContext, BatchReadOnl
     return res;
   }
 
+  /**
+   * Creates the warning that is reported when a write has been split into multiple commits
+   * 
+   * @param commits The number of commits that were used
+   * @return A warning that informs the user that the write was not atomic
+   */
+  public static SQLWarning createSplitWarning(int commits) {
+    return new SQLWarning("The mutations exceeded the limits of one commit and were committed in "
+        + commits + " separate transactions. The changes were not applied atomically.");
+  }
+
+  /**
+   * Writes each of the given groups of mutations in a separate read/write transaction. The groups
+   * are committed one after the other in the order of the list, so that multiple mutations on the
+   * same key are applied in the order they were buffered.
+   * 
+   * @param dbClient The client to write the mutations with
+   * @param parts The groups of mutations to write. Each group must stay within the limits of one
+   *        commit.
+   * @return The commit timestamp of the last transaction
+   * @throws SQLException if any of the commits failed. Groups that have already been committed are
+   *         not rolled back, and the groups after the failed group are not written.
+   */
+  public static Timestamp writeInParts(DatabaseClient dbClient, List<List<Mutation>> parts)
+      throws SQLException {
+    Timestamp res = null;
+    for (List<Mutation> part : parts)
+      res = max(res, writePart(dbClient, part));
+    return res;
+  }
+
+  static Timestamp writePart(DatabaseClient dbClient, List<Mutation> part)
+      throws SQLException {
+    try {
+      TransactionRunner runner = dbClient.readWriteTransaction();
+      runner.run(transaction -> {
+        transaction.buffer(part);
+        return null;
+      });
+      return runner.getCommitTimestamp();
+    } catch (SpannerException e) {
+      throw new CloudSpannerSQLException(e);
+    }
+  }
+
+  private static Timestamp max(Timestamp t1, Timestamp t2) {
+    if (t1 == null)
+      return t2;
+    if (t2 == null)
+      return t1;
+    return t1.compareTo(t2) >= 0 ? t1 : t2;
+  }
+
   public void rollback() throws SQLException {
     try {
       if (connection.isBatchReadOnly()) {
@@ -346,4 +461,22 @@ public class CloudSpannerTransaction implements TransactionContext, BatchReadOnl
     return batchReadOnlyTransaction;
   }
 
+  /**
+   * Execute a partition that may have been created by a batch read-only transaction on a different
+   * connection or in a different process. This method does not start a transaction on this
+   * connection, and may be called regardless whether the connection is in batch read-only mode.
+   * 
+   * @param token The partition to execute
+   * @return The result of the partition
+   * @throws SpannerException if the partition could not be executed, for example because the
+   *         transaction that created the partition is no longer active
+   */
+  public ResultSet executePartition(PartitionToken token) throws SpannerException {
+    // The transaction is not closed, as closing would end the session of the transaction that
+    // created the partition, and with that all other partitions of the query
+    BatchReadOnlyTransaction transaction =
+        batchClient.batchReadOnlyTransaction(token.getTransactionId());
+    return transaction.execute(token.getPartition());
+  }
+
 }
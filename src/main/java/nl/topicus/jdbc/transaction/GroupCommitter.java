@@ -0,0 +1,225 @@
+package nl.topicus.jdbc.transaction;
+
+import java.lang.ref.WeakReference;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+
+/**
+ * Combines the autocommit writes of concurrent connections that use the same
+ * {@link DatabaseClient} into one commit. The first writer that arrives opens a group and waits
+ * for the group commit window to pass, or until the group contains the maximum number of
+ * mutation cells. All mutations that are added to the group in the meantime are then committed in
+ * one read/write transaction by that first writer, and each writer of the group receives the
+ * outcome of that commit. A write that would take the group over the maximum number of cells or
+ * over the size limit of one commit is not added to the group, but opens a new group.
+ * <p>
+ * If the group commit fails with an error that guarantees that nothing was written, for example
+ * because of a conflict or because the mutations of one of the writers violate a constraint, the
+ * writes of the group are retried in a separate transaction for each writer. Each writer then
+ * receives the outcome of its own commit.
+ * </p>
+ *
+ * @author loite
+ *
+ */
+public class GroupCommitter {
+  /**
+   * The default maximum number of mutation cells in one group commit
+   */
+  public static final int DEFAULT_MAX_CELLS = 1000;
+
+  /**
+   * Errors after which the group commit is known not to have been applied, and the writes are
+   * retried individually.
+   */
+  private static final Set<Code> INDIVIDUAL_RETRY_CODES =
+      Collections.unmodifiableSet(EnumSet.of(Code.ABORTED, Code.ALREADY_EXISTS, Code.NOT_FOUND,
+          Code.FAILED_PRECONDITION, Code.INVALID_ARGUMENT, Code.OUT_OF_RANGE));
+
+  private static final Map<DatabaseClient, GroupCommitter> COMMITTERS = new WeakHashMap<>();
+
+  private static final class Group {
+    private final List<List<Mutation>> writes = new ArrayList<>();
+
+    private final List<CompletableFuture<Timestamp>> results = new ArrayList<>();
+
+    private int numberOfMutations;
+
+    private long cells;
+
+    private long bytes;
+
+    private boolean full;
+  }
+
+  /**
+   * The registry holds the committers with weak keys, so the committer must not hold a strong
+   * reference to its client. The client is always reachable while a write is in progress, as the
+   * writer holds a reference to it.
+   */
+  private final WeakReference<DatabaseClient> dbClient;
+
+  private Group current;
+
+  private GroupCommitter(DatabaseClient dbClient) {
+    this.dbClient = new WeakReference<>(dbClient);
+  }
+
+  /**
+   *
+   * @param dbClient The client to commit the groups with
+   * @return The {@link GroupCommitter} of the given client
+   */
+  public static GroupCommitter getInstance(DatabaseClient dbClient) {
+    synchronized (COMMITTERS) {
+      return COMMITTERS.computeIfAbsent(dbClient, GroupCommitter::new);
+    }
+  }
+
+  /**
+   * Writes the given mutations as part of a group commit. This method blocks until the group that
+   * the mutations were added to has been committed.
+   *
+   * @param mutations The mutations of one writer. The mutations should stay within the limits of
+   *        one commit.
+   * @param counter The counter that is used to count the mutation cells of the mutations
+   * @param windowMillis The number of milliseconds to wait for other writers if this write opens a
+   *        new group
+   * @param maxCells The maximum number of mutation cells in a group. A write is not added to a
+   *        group if the group would then contain more than this number of cells, and a group is
+   *        committed immediately once it contains at least this number of cells. The value is
+   *        limited to {@link MutationCounter#MAX_CELLS_PER_COMMIT}.
+   * @return The commit timestamp of the transaction that contained the mutations
+   * @throws SQLException if the mutations could not be committed
+   */
+  public Timestamp write(List<Mutation> mutations, MutationCounter counter, int windowMillis,
+      int maxCells) throws SQLException {
+    DatabaseClient client = dbClient.get();
+    if (client == null)
+      throw new CloudSpannerSQLException("The database client has been closed",
+          Code.FAILED_PRECONDITION);
+    long limit = Math.min(maxCells, MutationCounter.MAX_CELLS_PER_COMMIT);
+    long cells = 0L;
+    long bytes = 0L;
+    for (Mutation mutation : mutations) {
+      cells += counter.countCells(mutation);
+      bytes += MutationCounter.estimateSize(mutation);
+    }
+    Group group;
+    CompletableFuture<Timestamp> result = new CompletableFuture<>();
+    boolean leader;
+    synchronized (this) {
+      if (current != null && (current.cells + cells > limit
+          || current.bytes + bytes > MutationCounter.MAX_BYTES_PER_COMMIT)) {
+        // The write does not fit in the open group, which is committed without waiting any longer
+        current.full = true;
+        current = null;
+        notifyAll();
+      }
+      leader = current == null;
+      if (leader)
+        current = new Group();
+      group = current;
+      group.writes.add(mutations);
+      group.results.add(result);
+      group.numberOfMutations += mutations.size();
+      group.cells += cells;
+      group.bytes += bytes;
+      if (group.cells >= limit) {
+        group.full = true;
+        current = null;
+        notifyAll();
+      }
+    }
+    if (leader) {
+      awaitGroup(group, windowMillis);
+      commit(client, group);
+    }
+    return getResult(result);
+  }
+
+  private synchronized void awaitGroup(Group group, int windowMillis) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    long remaining;
+    try {
+      while (!group.full && (remaining = deadline - System.nanoTime()) > 0L)
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    } catch (InterruptedException e) {
+      // The group is committed anyway, as the other writers of the group are waiting for it
+      Thread.currentThread().interrupt();
+    }
+    if (current == group)
+      current = null;
+  }
+
+  private static void commit(DatabaseClient dbClient, Group group) {
+    try {
+      List<Mutation> mutations = new ArrayList<>(group.numberOfMutations);
+      for (List<Mutation> write : group.writes)
+        mutations.addAll(write);
+      Timestamp timestamp = CloudSpannerTransaction.writePart(dbClient, mutations);
+      for (CompletableFuture<Timestamp> result : group.results)
+        result.complete(timestamp);
+    } catch (CloudSpannerSQLException e) {
+      if (group.writes.size() > 1 && INDIVIDUAL_RETRY_CODES.contains(e.getCode()))
+        commitIndividually(dbClient, group);
+      else
+        completeExceptionally(group, e);
+    } catch (Throwable t) {
+      completeExceptionally(group, t);
+    }
+  }
+
+  private static void commitIndividually(DatabaseClient dbClient, Group group) {
+    for (int index = 0; index < group.writes.size(); index++) {
+      CompletableFuture<Timestamp> result = group.results.get(index);
+      try {
+        result.complete(CloudSpannerTransaction.writePart(dbClient, group.writes.get(index)));
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    }
+  }
+
+  private static void completeExceptionally(Group group, Throwable t) {
+    for (CompletableFuture<Timestamp> result : group.results)
+      result.completeExceptionally(t);
+  }
+
+  private static Timestamp getResult(CompletableFuture<Timestamp> result) throws SQLException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return result.get();
+        } catch (InterruptedException e) {
+          // The outcome of the commit must be reported, as the mutations may have been written
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof SQLException)
+            throw (SQLException) cause;
+          throw new CloudSpannerSQLException(cause.getMessage(), Code.UNKNOWN, cause);
+        }
+      }
+    } finally {
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+  }
+
+}
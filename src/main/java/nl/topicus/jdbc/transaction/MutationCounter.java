@@ -0,0 +1,233 @@
+package nl.topicus.jdbc.transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.google.cloud.ByteArray;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.Op;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Value;
+import com.google.common.base.Utf8;
+import com.google.common.collect.Iterables;
+
+/**
+ * Counts the number of mutation cells and the estimated size of the mutations of a transaction.
+ * Cloud Spanner rejects a commit that contains more than {@link #MAX_CELLS_PER_COMMIT} cells. Each
+ * column value that is written counts as one cell, and each row that is written or deleted also
+ * counts as one cell for every secondary index on the table. The counts are estimates: an update
+ * of a column that is not indexed is also counted for each index, and a deleted key range is
+ * counted as one row.
+ *
+ * @author loite
+ *
+ */
+public class MutationCounter {
+  /**
+   * The maximum number of mutation cells in one commit
+   */
+  public static final int MAX_CELLS_PER_COMMIT = 20000;
+
+  /**
+   * Cloud Spanner allows commits of at most 100MB. The estimate of {@link #estimateSize(Mutation)}
+   * does not include any protocol overhead, and commits are therefore limited to half that size.
+   */
+  public static final long MAX_BYTES_PER_COMMIT = 50L * 1024L * 1024L;
+
+  /**
+   * Returns the number of secondary indices of a table
+   */
+  @FunctionalInterface
+  public static interface IndexCounter {
+    public int getNumberOfIndices(String table) throws SQLException;
+  }
+
+  private final IndexCounter indexCounter;
+
+  private final Map<String, Integer> indices = new HashMap<>();
+
+  private long cells;
+
+  private long bytes;
+
+  /**
+   *
+   * @param indexCounter Used to determine the number of secondary indices of the tables that are
+   *        written to. The number of indices of each table is only requested once.
+   */
+  public MutationCounter(IndexCounter indexCounter) {
+    this.indexCounter = indexCounter;
+  }
+
+  /**
+   * Adds the given mutation to the counts
+   *
+   * @param mutation The mutation to count
+   * @throws SQLException if the number of indices of the table could not be determined
+   */
+  public void add(Mutation mutation) throws SQLException {
+    cells += countCells(mutation);
+    bytes += estimateSize(mutation);
+  }
+
+  public void clear() {
+    cells = 0L;
+    bytes = 0L;
+  }
+
+  public long getCells() {
+    return cells;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   *
+   * @return <code>true</code> if the mutations that have been counted cannot be committed in one
+   *         transaction
+   */
+  public boolean exceedsLimits() {
+    return cells > MAX_CELLS_PER_COMMIT || bytes > MAX_BYTES_PER_COMMIT;
+  }
+
+  /**
+   * Splits the given mutations into consecutive groups that each stay within the limits of one
+   * commit. A single mutation that exceeds the limits on its own is returned as a separate group.
+   * The counts of this counter are not changed by this method.
+   *
+   * @param mutations The mutations to split
+   * @return The groups of mutations in the order of the given list
+   * @throws SQLException if the number of indices of a table could not be determined
+   */
+  public List<List<Mutation>> split(List<Mutation> mutations) throws SQLException {
+    List<List<Mutation>> res = new ArrayList<>();
+    List<Mutation> group = new ArrayList<>();
+    long groupCells = 0L;
+    long groupBytes = 0L;
+    for (Mutation mutation : mutations) {
+      long mutationCells = countCells(mutation);
+      long mutationBytes = estimateSize(mutation);
+      if (!group.isEmpty() && (groupCells + mutationCells > MAX_CELLS_PER_COMMIT
+          || groupBytes + mutationBytes > MAX_BYTES_PER_COMMIT)) {
+        res.add(group);
+        group = new ArrayList<>();
+        groupCells = 0L;
+        groupBytes = 0L;
+      }
+      group.add(mutation);
+      groupCells += mutationCells;
+      groupBytes += mutationBytes;
+    }
+    if (!group.isEmpty())
+      res.add(group);
+    return res;
+  }
+
+  /**
+   *
+   * @param mutation The mutation to count
+   * @return The number of mutation cells that the given mutation counts for
+   * @throws SQLException if the number of indices of the table could not be determined
+   */
+  public long countCells(Mutation mutation) throws SQLException {
+    int numberOfIndices = getNumberOfIndices(mutation.getTable());
+    if (mutation.getOperation() == Op.DELETE) {
+      KeySet keys = mutation.getKeySet();
+      long rows = (keys.isAll() ? 1L : 0L) + Iterables.size(keys.getKeys())
+          + Iterables.size(keys.getRanges());
+      return rows * (1L + numberOfIndices);
+    }
+    long columns = Iterables.size(mutation.getColumns());
+    return columns + numberOfIndices;
+  }
+
+  private int getNumberOfIndices(String table) throws SQLException {
+    String key = table.toUpperCase();
+    Integer res = indices.get(key);
+    if (res == null) {
+      res = indexCounter.getNumberOfIndices(table);
+      indices.put(key, res);
+    }
+    return res;
+  }
+
+  /**
+   * Estimates the number of bytes that the given mutation writes. The estimate is based on the
+   * size of the values that are written and the names of the columns, and does not include
+   * protocol overhead.
+   *
+   * @param mutation The mutation to estimate
+   * @return The estimated size in bytes
+   */
+  public static long estimateSize(Mutation mutation) {
+    long size = mutation.getTable().length();
+    if (mutation.getOperation() == Op.DELETE)
+      return size + mutation.getKeySet().toString().length();
+    for (String column : mutation.getColumns())
+      size += column.length();
+    for (Value value : mutation.getValues())
+      size += estimateSize(value);
+    return size;
+  }
+
+  private static long estimateSize(Value value) {
+    if (value.isNull())
+      return 1L;
+    Type type = value.getType();
+    switch (type.getCode()) {
+      case BOOL:
+        return 1L;
+      case STRING:
+        return Utf8.encodedLength(value.getString());
+      case BYTES:
+        return value.getBytes().length();
+      case TIMESTAMP:
+        return 12L;
+      case DATE:
+        return 4L;
+      case ARRAY:
+        switch (type.getArrayElementType().getCode()) {
+          case BOOL:
+            return value.getBoolArray().size();
+          case STRING:
+            return estimateStrings(value.getStringArray());
+          case BYTES:
+            return estimateBytes(value.getBytesArray());
+          case TIMESTAMP:
+            return 12L * value.getTimestampArray().size();
+          case DATE:
+            return 4L * value.getDateArray().size();
+          case INT64:
+            return 8L * value.getInt64Array().size();
+          case FLOAT64:
+            return 8L * value.getFloat64Array().size();
+          default:
+            return 8L;
+        }
+      case INT64:
+      case FLOAT64:
+      default:
+        return 8L;
+    }
+  }
+
+  private static long estimateStrings(List<String> values) {
+    long size = 0L;
+    for (String value : values)
+      size += value == null ? 1L : Utf8.encodedLength(value);
+    return size;
+  }
+
+  private static long estimateBytes(List<ByteArray> values) {
+    long size = 0L;
+    for (ByteArray value : values)
+      size += value == null ? 1L : value.length();
+    return size;
+  }
+
+}
@@ -0,0 +1,149 @@
+package nl.topicus.jdbc.transaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import com.google.cloud.spanner.BatchTransactionId;
+import com.google.cloud.spanner.Partition;
+import com.google.common.base.Preconditions;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+
+/**
+ * A partition of a query in batch read-only mode together with the id of the batch read-only
+ * transaction that created it. A partition token can be encoded into a string, sent to another
+ * process and executed there on any connection to the same database. All partitions of one query
+ * read from the same consistent snapshot. A token remains valid until the transaction that created
+ * it is committed or rolled back.
+ *
+ * @author loite
+ *
+ */
+public class PartitionToken {
+  /**
+   * The classes that can be part of a serialized {@link BatchTransactionId} or {@link Partition}.
+   * Arrays of primitives have a name like [B, arrays of objects a name like [Ljava.lang.String;
+   */
+  private static final Set<String> ALLOWED_CLASSES =
+      Collections.unmodifiableSet(new HashSet<>(Arrays.asList("[B", "[D", "[J", "[Z",
+          "[Ljava.lang.Object;", "[Ljava.lang.String;", "java.lang.Boolean", "java.lang.Double",
+          "java.lang.Enum", "java.lang.Integer", "java.lang.Long", "java.lang.Number",
+          "java.lang.String", "java.util.ArrayList", "java.util.Arrays$ArrayList",
+          "java.util.BitSet", "java.util.Collections$SingletonList",
+          "java.util.Collections$UnmodifiableCollection", "java.util.Collections$UnmodifiableList",
+          "com.google.common.collect.ImmutableList$SerializedForm",
+          "com.google.common.collect.ImmutableMap$SerializedForm",
+          "com.google.protobuf.ByteString", "com.google.protobuf.ByteString$LeafByteString",
+          "com.google.protobuf.ByteString$LiteralByteString",
+          "com.google.protobuf.ByteString$BoundedByteString", "com.google.cloud.ByteArray",
+          "com.google.cloud.Date", "com.google.cloud.Timestamp",
+          "com.google.cloud.spanner.BatchTransactionId", "com.google.cloud.spanner.Partition",
+          "com.google.cloud.spanner.PartitionOptions", "com.google.cloud.spanner.Options",
+          "com.google.cloud.spanner.Statement", "com.google.cloud.spanner.KeySet",
+          "com.google.cloud.spanner.Key", "com.google.cloud.spanner.KeyRange",
+          "com.google.cloud.spanner.KeyRange$Endpoint", "com.google.cloud.spanner.Type",
+          "com.google.cloud.spanner.Type$Code", "com.google.cloud.spanner.Value",
+          "com.google.cloud.spanner.Value$AbstractValue",
+          "com.google.cloud.spanner.Value$AbstractObjectValue",
+          "com.google.cloud.spanner.Value$AbstractArrayValue",
+          "com.google.cloud.spanner.Value$PrimitiveArrayImpl",
+          "com.google.cloud.spanner.Value$BoolImpl", "com.google.cloud.spanner.Value$Int64Impl",
+          "com.google.cloud.spanner.Value$Float64Impl", "com.google.cloud.spanner.Value$StringImpl",
+          "com.google.cloud.spanner.Value$BytesImpl",
+          "com.google.cloud.spanner.Value$TimestampImpl", "com.google.cloud.spanner.Value$DateImpl",
+          "com.google.cloud.spanner.Value$BoolArrayImpl",
+          "com.google.cloud.spanner.Value$Int64ArrayImpl",
+          "com.google.cloud.spanner.Value$Float64ArrayImpl",
+          "com.google.cloud.spanner.Value$StringArrayImpl",
+          "com.google.cloud.spanner.Value$BytesArrayImpl",
+          "com.google.cloud.spanner.Value$TimestampArrayImpl",
+          "com.google.cloud.spanner.Value$DateArrayImpl")));
+
+  private final BatchTransactionId transactionId;
+
+  private final Partition partition;
+
+  public PartitionToken(BatchTransactionId transactionId, Partition partition) {
+    this.transactionId = Preconditions.checkNotNull(transactionId);
+    this.partition = Preconditions.checkNotNull(partition);
+  }
+
+  public BatchTransactionId getTransactionId() {
+    return transactionId;
+  }
+
+  public Partition getPartition() {
+    return partition;
+  }
+
+  /**
+   *
+   * @return A string representation of this token that only contains URL-safe characters and that
+   *         can be decoded using {@link #decode(String)}
+   * @throws SQLException if the token could not be serialized
+   */
+  public String encode() throws SQLException {
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream stream = new ObjectOutputStream(bos)) {
+      stream.writeObject(transactionId);
+      stream.writeObject(partition);
+      stream.flush();
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(bos.toByteArray());
+    } catch (IOException e) {
+      throw new CloudSpannerSQLException("Could not serialize partition token", Code.INTERNAL, e);
+    }
+  }
+
+  /**
+   * Decode a string that was created by {@link #encode()}
+   *
+   * @param token The encoded token
+   * @return The decoded {@link PartitionToken}
+   * @throws SQLException if the string is not a valid partition token
+   */
+  public static PartitionToken decode(String token) throws SQLException {
+    if (token == null)
+      throw new CloudSpannerSQLException("Partition token may not be null", Code.INVALID_ARGUMENT);
+    try (ByteArrayInputStream bis =
+        new ByteArrayInputStream(Base64.getUrlDecoder().decode(token.trim()));
+        ObjectInputStream input = new TokenInputStream(bis)) {
+      return new PartitionToken((BatchTransactionId) input.readObject(),
+          (Partition) input.readObject());
+    } catch (IOException | ClassNotFoundException | ClassCastException
+        | IllegalArgumentException e) {
+      throw new CloudSpannerSQLException("Invalid partition token: " + token, Code.INVALID_ARGUMENT,
+          e);
+    }
+  }
+
+  /**
+   * Partition tokens may come from other processes, only the classes that can be part of a
+   * partition are therefore allowed during deserialization. All other classes are rejected.
+   */
+  private static final class TokenInputStream extends ObjectInputStream {
+    private TokenInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      String name = desc.getName();
+      if (!ALLOWED_CLASSES.contains(name))
+        throw new InvalidClassException(name, "Class is not allowed in a partition token");
+      return super.resolveClass(desc);
+    }
+  }
+
+}
@@ -0,0 +1,502 @@
+package nl.topicus.jdbc.transaction;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.StructReader;
+import com.google.cloud.spanner.TransactionContext;
+import com.google.cloud.spanner.Type;
+import com.google.spanner.v1.ResultSetStats;
+
+/**
+ * {@link ResultSet} of a query in a read/write transaction that retries aborted transactions
+ * internally. The result set keeps a checksum of all rows that have been consumed. When the
+ * transaction is aborted, the query is executed again in the new transaction, the same number of
+ * rows is consumed and the checksum of these rows is compared with the original checksum. The
+ * retry fails if the query returns different data in the new transaction.
+ *
+ * @author loite
+ *
+ */
+class ReplayableResultSet implements ResultSet {
+  private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+  private static final byte NULL_VALUE = 0;
+
+  private static final byte NON_NULL_VALUE = 1;
+
+  private final TransactionThread transaction;
+
+  private final Statement statement;
+
+  private final MessageDigest checksum;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+  private ResultSet delegate;
+
+  private long rowCount;
+
+  private boolean endReached;
+
+  private boolean closed;
+
+  ReplayableResultSet(TransactionThread transaction, Statement statement, ResultSet delegate) {
+    this.transaction = transaction;
+    this.statement = statement;
+    this.delegate = delegate;
+    this.checksum = createChecksum();
+  }
+
+  private static MessageDigest createChecksum() {
+    try {
+      return MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(CHECKSUM_ALGORITHM + " is not available", e);
+    }
+  }
+
+  @Override
+  public boolean next() {
+    while (true) {
+      try {
+        boolean res = delegate.next();
+        if (res) {
+          rowCount++;
+          updateChecksum(checksum, buffer, delegate);
+        } else {
+          endReached = true;
+        }
+        return res;
+      } catch (SpannerException e) {
+        if (e.getErrorCode() != ErrorCode.ABORTED)
+          throw e;
+        // Retry the transaction, this will replace the delegate of this result set
+        transaction.retry(e);
+      }
+    }
+  }
+
+  /**
+   * Executes the query of this result set again on the given transaction and verifies that the
+   * query returns the same rows as the rows that have been consumed from this result set.
+   *
+   * @param context The new transaction to replay the query on
+   * @throws SpannerException with {@link ErrorCode#ABORTED} if the query returns different data
+   */
+  void replay(TransactionContext context) {
+    ResultSet replayed = context.executeQuery(statement);
+    MessageDigest replayedChecksum = createChecksum();
+    ByteBuffer replayedBuffer = ByteBuffer.allocate(Long.BYTES);
+    boolean same = true;
+    for (long row = 0L; same && row < rowCount; row++) {
+      same = replayed.next();
+      if (same)
+        updateChecksum(replayedChecksum, replayedBuffer, replayed);
+    }
+    if (same && endReached)
+      same = !replayed.next();
+    same = same && Arrays.equals(snapshot(checksum), replayedChecksum.digest());
+    if (!same) {
+      replayed.close();
+      throw SpannerExceptionFactory.newSpannerException(ErrorCode.ABORTED,
+          "The transaction was aborted and could not be retried because the query '"
+              + statement.getSql() + "' returned different data during the retry");
+    }
+    ResultSet old = delegate;
+    if (closed) {
+      replayed.close();
+    } else {
+      delegate = replayed;
+    }
+    try {
+      old.close();
+    } catch (SpannerException e) {
+      // ignore, the result set belongs to an aborted transaction
+    }
+  }
+
+  private static byte[] snapshot(MessageDigest digest) {
+    try {
+      return ((MessageDigest) digest.clone()).digest();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Adds the values of the current row of the given reader to the checksum
+   */
+  static void updateChecksum(MessageDigest digest, ByteBuffer buffer, StructReader row) {
+    for (int col = 0; col < row.getColumnCount(); col++) {
+      if (row.isNull(col)) {
+        digest.update(NULL_VALUE);
+        continue;
+      }
+      digest.update(NON_NULL_VALUE);
+      Type type = row.getColumnType(col);
+      switch (type.getCode()) {
+        case BOOL:
+          digest.update(row.getBoolean(col) ? (byte) 1 : (byte) 0);
+          break;
+        case INT64:
+          updateLong(digest, buffer, row.getLong(col));
+          break;
+        case FLOAT64:
+          updateLong(digest, buffer, Double.doubleToLongBits(row.getDouble(col)));
+          break;
+        case STRING:
+          updateString(digest, buffer, row.getString(col));
+          break;
+        case BYTES:
+          updateBytes(digest, buffer, row.getBytes(col));
+          break;
+        case TIMESTAMP:
+          updateTimestamp(digest, buffer, row.getTimestamp(col));
+          break;
+        case DATE:
+          updateDate(digest, buffer, row.getDate(col));
+          break;
+        case ARRAY:
+          updateArray(digest, buffer, row, col, type.getArrayElementType());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported column type: " + type);
+      }
+    }
+  }
+
+  private static void updateArray(MessageDigest digest, ByteBuffer buffer, StructReader row,
+      int col, Type elementType) {
+    List<?> values;
+    switch (elementType.getCode()) {
+      case BOOL:
+        values = row.getBooleanList(col);
+        break;
+      case INT64:
+        values = row.getLongList(col);
+        break;
+      case FLOAT64:
+        values = row.getDoubleList(col);
+        break;
+      case STRING:
+        values = row.getStringList(col);
+        break;
+      case BYTES:
+        values = row.getBytesList(col);
+        break;
+      case TIMESTAMP:
+        values = row.getTimestampList(col);
+        break;
+      case DATE:
+        values = row.getDateList(col);
+        break;
+      case STRUCT:
+        values = row.getStructList(col);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported array element type: " + elementType);
+    }
+    updateLong(digest, buffer, values.size());
+    for (Object value : values) {
+      if (value == null) {
+        digest.update(NULL_VALUE);
+        continue;
+      }
+      digest.update(NON_NULL_VALUE);
+      if (value instanceof Boolean)
+        digest.update(((Boolean) value) ? (byte) 1 : (byte) 0);
+      else if (value instanceof Long)
+        updateLong(digest, buffer, (Long) value);
+      else if (value instanceof Double)
+        updateLong(digest, buffer, Double.doubleToLongBits((Double) value));
+      else if (value instanceof String)
+        updateString(digest, buffer, (String) value);
+      else if (value instanceof ByteArray)
+        updateBytes(digest, buffer, (ByteArray) value);
+      else if (value instanceof Timestamp)
+        updateTimestamp(digest, buffer, (Timestamp) value);
+      else if (value instanceof Date)
+        updateDate(digest, buffer, (Date) value);
+      else
+        updateChecksum(digest, buffer, (Struct) value);
+    }
+  }
+
+  private static void updateLong(MessageDigest digest, ByteBuffer buffer, long value) {
+    buffer.clear();
+    buffer.putLong(value);
+    digest.update(buffer.array(), 0, Long.BYTES);
+  }
+
+  private static void updateString(MessageDigest digest, ByteBuffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    updateLong(digest, buffer, bytes.length);
+    digest.update(bytes);
+  }
+
+  private static void updateBytes(MessageDigest digest, ByteBuffer buffer, ByteArray value) {
+    byte[] bytes = value.toByteArray();
+    updateLong(digest, buffer, bytes.length);
+    digest.update(bytes);
+  }
+
+  private static void updateTimestamp(MessageDigest digest, ByteBuffer buffer, Timestamp value) {
+    updateLong(digest, buffer, value.getSeconds());
+    updateLong(digest, buffer, value.getNanos());
+  }
+
+  private static void updateDate(MessageDigest digest, ByteBuffer buffer, Date value) {
+    updateLong(digest, buffer, value.getYear());
+    updateLong(digest, buffer, value.getMonth());
+    updateLong(digest, buffer, value.getDayOfMonth());
+  }
+
+  long getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public Struct getCurrentRowAsStruct() {
+    return delegate.getCurrentRowAsStruct();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    delegate.close();
+  }
+
+  @Override
+  public ResultSetStats getStats() {
+    return delegate.getStats();
+  }
+
+  @Override
+  public Type getType() {
+    return delegate.getType();
+  }
+
+  @Override
+  public int getColumnCount() {
+    return delegate.getColumnCount();
+  }
+
+  @Override
+  public int getColumnIndex(String columnName) {
+    return delegate.getColumnIndex(columnName);
+  }
+
+  @Override
+  public Type getColumnType(int columnIndex) {
+    return delegate.getColumnType(columnIndex);
+  }
+
+  @Override
+  public Type getColumnType(String columnName) {
+    return delegate.getColumnType(columnName);
+  }
+
+  @Override
+  public boolean isNull(int columnIndex) {
+    return delegate.isNull(columnIndex);
+  }
+
+  @Override
+  public boolean isNull(String columnName) {
+    return delegate.isNull(columnName);
+  }
+
+  @Override
+  public boolean getBoolean(int columnIndex) {
+    return delegate.getBoolean(columnIndex);
+  }
+
+  @Override
+  public boolean getBoolean(String columnName) {
+    return delegate.getBoolean(columnName);
+  }
+
+  @Override
+  public long getLong(int columnIndex) {
+    return delegate.getLong(columnIndex);
+  }
+
+  @Override
+  public long getLong(String columnName) {
+    return delegate.getLong(columnName);
+  }
+
+  @Override
+  public double getDouble(int columnIndex) {
+    return delegate.getDouble(columnIndex);
+  }
+
+  @Override
+  public double getDouble(String columnName) {
+    return delegate.getDouble(columnName);
+  }
+
+  @Override
+  public String getString(int columnIndex) {
+    return delegate.getString(columnIndex);
+  }
+
+  @Override
+  public String getString(String columnName) {
+    return delegate.getString(columnName);
+  }
+
+  @Override
+  public ByteArray getBytes(int columnIndex) {
+    return delegate.getBytes(columnIndex);
+  }
+
+  @Override
+  public ByteArray getBytes(String columnName) {
+    return delegate.getBytes(columnName);
+  }
+
+  @Override
+  public Timestamp getTimestamp(int columnIndex) {
+    return delegate.getTimestamp(columnIndex);
+  }
+
+  @Override
+  public Timestamp getTimestamp(String columnName) {
+    return delegate.getTimestamp(columnName);
+  }
+
+  @Override
+  public Date getDate(int columnIndex) {
+    return delegate.getDate(columnIndex);
+  }
+
+  @Override
+  public Date getDate(String columnName) {
+    return delegate.getDate(columnName);
+  }
+
+  @Override
+  public boolean[] getBooleanArray(int columnIndex) {
+    return delegate.getBooleanArray(columnIndex);
+  }
+
+  @Override
+  public boolean[] getBooleanArray(String columnName) {
+    return delegate.getBooleanArray(columnName);
+  }
+
+  @Override
+  public List<Boolean> getBooleanList(int columnIndex) {
+    return delegate.getBooleanList(columnIndex);
+  }
+
+  @Override
+  public List<Boolean> getBooleanList(String columnName) {
+    return delegate.getBooleanList(columnName);
+  }
+
+  @Override
+  public long[] getLongArray(int columnIndex) {
+    return delegate.getLongArray(columnIndex);
+  }
+
+  @Override
+  public long[] getLongArray(String columnName) {
+    return delegate.getLongArray(columnName);
+  }
+
+  @Override
+  public List<Long> getLongList(int columnIndex) {
+    return delegate.getLongList(columnIndex);
+  }
+
+  @Override
+  public List<Long> getLongList(String columnName) {
+    return delegate.getLongList(columnName);
+  }
+
+  @Override
+  public double[] getDoubleArray(int columnIndex) {
+    return delegate.getDoubleArray(columnIndex);
+  }
+
+  @Override
+  public double[] getDoubleArray(String columnName) {
+    return delegate.getDoubleArray(columnName);
+  }
+
+  @Override
+  public List<Double> getDoubleList(int columnIndex) {
+    return delegate.getDoubleList(columnIndex);
+  }
+
+  @Override
+  public List<Double> getDoubleList(String columnName) {
+    return delegate.getDoubleList(columnName);
+  }
+
+  @Override
+  public List<String> getStringList(int columnIndex) {
+    return delegate.getStringList(columnIndex);
+  }
+
+  @Override
+  public List<String> getStringList(String columnName) {
+    return delegate.getStringList(columnName);
+  }
+
+  @Override
+  public List<ByteArray> getBytesList(int columnIndex) {
+    return delegate.getBytesList(columnIndex);
+  }
+
+  @Override
+  public List<ByteArray> getBytesList(String columnName) {
+    return delegate.getBytesList(columnName);
+  }
+
+  @Override
+  public List<Timestamp> getTimestampList(int columnIndex) {
+    return delegate.getTimestampList(columnIndex);
+  }
+
+  @Override
+  public List<Timestamp> getTimestampList(String columnName) {
+    return delegate.getTimestampList(columnName);
+  }
+
+  @Override
+  public List<Date> getDateList(int columnIndex) {
+    return delegate.getDateList(columnIndex);
+  }
+
+  @Override
+  public List<Date> getDateList(String columnName) {
+    return delegate.getDateList(columnName);
+  }
+
+  @Override
+  public List<Struct> getStructList(int columnIndex) {
+    return delegate.getStructList(columnIndex);
+  }
+
+  @Override
+  public List<Struct> getStructList(String columnName) {
+    return delegate.getStructList(columnName);
+  }
+
+}
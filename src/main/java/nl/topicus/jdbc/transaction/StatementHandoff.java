@@ -0,0 +1,154 @@
+package nl.topicus.jdbc.transaction;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+import nl.topicus.jdbc.transaction.TransactionThread.QueryException;
+
+/**
+ * Single slot channel that hands statements from the thread that uses a JDBC connection to the
+ * worker that runs the transaction of the connection, and hands the results back to the caller.
+ * There is at most one statement in flight at any time. The caller and the worker are blocked
+ * using {@link LockSupport#park(Object)} and are woken up directly by the other side, so no queue
+ * nodes are allocated and no polling is needed to hand off a statement.
+ *
+ * @author loite
+ *
+ */
+final class StatementHandoff {
+  private final ReentrantLock callerLock = new ReentrantLock();
+
+  private final AtomicReference<Statement> request = new AtomicReference<>();
+
+  private volatile ResultSet response;
+
+  private volatile Thread caller;
+
+  private volatile Thread worker;
+
+  private volatile boolean wakeUp;
+
+  private volatile boolean closed;
+
+  private volatile Exception closeReason;
+
+  /**
+   * Hands the given statement to the worker and waits until the worker has executed the statement.
+   * Only one statement at a time is handed to the worker, concurrent callers will wait until the
+   * previous statement has been executed.
+   *
+   * @param statement The statement to execute
+   * @return The result of the statement
+   * @throws QueryException if the thread is interrupted, or if the worker stopped before the
+   *         statement was executed
+   */
+  ResultSet exchange(Statement statement) {
+    callerLock.lock();
+    try {
+      checkNotClosed();
+      caller = Thread.currentThread();
+      response = null;
+      request.set(statement);
+      LockSupport.unpark(worker);
+      ResultSet res;
+      while ((res = response) == null) {
+        if (Thread.interrupted()) {
+          abandon(statement);
+          Thread.currentThread().interrupt();
+          throw new QueryException("Query execution interrupted", new InterruptedException());
+        }
+        checkNotClosed();
+        LockSupport.park(this);
+      }
+      response = null;
+      return res;
+    } finally {
+      caller = null;
+      callerLock.unlock();
+    }
+  }
+
+  /**
+   * Withdraws a statement that has not yet been picked up by the worker, or waits for the result of
+   * the statement and closes it if the worker already picked it up.
+   */
+  private void abandon(Statement statement) {
+    if (request.compareAndSet(statement, null))
+      return;
+    ResultSet res;
+    while ((res = response) == null && !closed)
+      LockSupport.park(this);
+    response = null;
+    if (res != null)
+      res.close();
+  }
+
+  private void checkNotClosed() {
+    if (closed && response == null) {
+      throw new QueryException("The transaction is no longer active",
+          closeReason == null ? new IllegalStateException("Transaction stopped") : closeReason);
+    }
+  }
+
+  /**
+   * Waits for the next statement to execute. Must only be called by the worker.
+   *
+   * @param timeout The maximum time to wait
+   * @param unit The unit of the timeout
+   * @return The next statement, or <code>null</code> if the timeout elapsed or if the worker was
+   *         woken up by a call to {@link #wakeUp()}
+   * @throws InterruptedException if the worker is interrupted while waiting
+   */
+  Statement poll(long timeout, TimeUnit unit) throws InterruptedException {
+    worker = Thread.currentThread();
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    Statement res;
+    while ((res = request.getAndSet(null)) == null) {
+      if (wakeUp) {
+        wakeUp = false;
+        return null;
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0L)
+        return null;
+      LockSupport.parkNanos(this, remaining);
+      if (Thread.interrupted())
+        throw new InterruptedException();
+    }
+    return res;
+  }
+
+  /**
+   * Hands the result of the last statement back to the caller. Must only be called by the worker.
+   *
+   * @param resultSet The result of the statement
+   */
+  void respond(ResultSet resultSet) {
+    response = resultSet;
+    LockSupport.unpark(caller);
+  }
+
+  /**
+   * Wakes up the worker if it is waiting for a statement
+   */
+  void wakeUp() {
+    wakeUp = true;
+    LockSupport.unpark(worker);
+  }
+
+  /**
+   * Marks this handoff as closed. A caller that is waiting for a result that will never come is
+   * released with a {@link QueryException}.
+   *
+   * @param reason The reason the worker stopped, may be <code>null</code>
+   */
+  void close(Exception reason) {
+    closeReason = reason;
+    closed = true;
+    LockSupport.unpark(caller);
+  }
+
+}
@@ -3,37 +3,44 @@ package nl.topicus.jdbc.transaction;
 import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.TransactionContext;
 import com.google.cloud.spanner.TransactionRunner;
 import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
+import com.google.cloud.spanner.Type;
 import com.google.common.base.Preconditions;
 import com.google.rpc.Code;
 import nl.topicus.jdbc.CloudSpannerDriver;
 import nl.topicus.jdbc.Logger;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
 
-class TransactionThread extends Thread {
+/**
+ * A read/write transaction that is executed on a worker of a {@link TransactionWorkerPool}. The
+ * worker keeps the transaction open and executes the queries of the transaction until the
+ * transaction is committed or rolled back.
+ *
+ * @author loite
+ *
+ */
+class TransactionThread implements Runnable {
   public static class QueryException extends RuntimeException {
     private static final long serialVersionUID = 1L;
 
-    private QueryException(String message, Throwable cause) {
+    QueryException(String message, Throwable cause) {
       super(message, cause);
     }
   }
@@ -50,19 +57,37 @@ class TransactionThread extends Thread {
     COMMIT, ROLLBACK, PREPARE, COMMIT_PREPARED, ROLLBACK_PREPARED;
   }
 
+  /**
+   * Marker statement that tells the worker that the caller has received an aborted error and that
+   * the transaction should be retried.
+   */
+  private static final Statement RETRY = Statement.of("RETRY");
+
+  /**
+   * Marker result that tells the caller that the transaction has been retried successfully.
+   */
+  private static final ResultSet RETRIED =
+      ResultSets.forRows(Type.struct(), Collections.emptyList());
+
+  private final String name;
+
   private final Logger logger;
 
+  private final TransactionWorkerPool pool;
+
+  private final boolean retryAbortsInternally;
+
   private final StackTraceElement[] stackTraceElements;
 
   private final Object monitor = new Object();
 
   private DatabaseClient dbClient;
 
-  private boolean stop;
+  private volatile boolean stop;
 
-  private boolean stopped;
+  private volatile boolean stopped;
 
-  private TransactionStatus status = TransactionStatus.NOT_STARTED;
+  private volatile TransactionStatus status = TransactionStatus.NOT_STARTED;
 
   private Timestamp commitTimestamp;
 
@@ -75,17 +100,41 @@ class TransactionThread extends Thread {
    */
   private String xid;
 
-  private final Set<String> stopStatementStrings =
-      new HashSet<>(Arrays.asList(TransactionStopStatement.values()).stream().map(x -> x.name())
-          .collect(Collectors.toList()));
-
   private List<Mutation> mutations = new ArrayList<>(40);
 
+  /**
+   * Counts the mutation cells and bytes of the buffered mutations
+   */
+  private final MutationCounter counter;
+
   private Map<Savepoint, Integer> savepoints = new HashMap<>();
 
-  private BlockingQueue<Statement> statements = new LinkedBlockingQueue<>();
+  private final StatementHandoff handoff = new StatementHandoff();
 
-  private BlockingQueue<ResultSet> resultSets = new LinkedBlockingQueue<>();
+  /**
+   * The queries that have been executed on this transaction. Only recorded if aborted transactions
+   * are retried internally.
+   */
+  private final List<ReplayableResultSet> executedQueries = new ArrayList<>();
+
+  /**
+   * Has this transaction executed any queries? A transaction that has read data cannot be split
+   * into multiple commits.
+   */
+  private volatile boolean queried;
+
+  /**
+   * The aborted error that was received by the caller and that should be thrown by the worker to
+   * start a retry.
+   */
+  private volatile SpannerException abortedException;
+
+  /**
+   * The statement that was being handled by the worker when the transaction was aborted.
+   */
+  private Statement pendingStatement;
+
+  private int attempts;
 
   private static int threadInitNumber;
 
@@ -94,130 +143,245 @@ class TransactionThread extends Thread {
   }
 
   TransactionThread(DatabaseClient dbClient, Logger logger) {
-    super("Google Cloud Spanner JDBC Transaction Thread-" + nextThreadNum());
+    this(dbClient, logger, TransactionWorkerPool.getDefault(), false);
+  }
+
+  /**
+   * @param dbClient The client to start the transaction on
+   * @param logger The logger of the connection
+   * @param pool The pool of workers to run the transaction on
+   * @param retryAbortsInternally Whether the transaction should be retried internally if it is
+   *        aborted by Cloud Spanner. The queries of the transaction will be executed again and the
+   *        retry succeeds if the queries return the same data as during the original attempt.
+   */
+  TransactionThread(DatabaseClient dbClient, Logger logger, TransactionWorkerPool pool,
+      boolean retryAbortsInternally) {
+    this(dbClient, logger, pool, retryAbortsInternally, new MutationCounter(table -> 0));
+  }
+
+  /**
+   * @param dbClient The client to start the transaction on
+   * @param logger The logger of the connection
+   * @param pool The pool of workers to run the transaction on
+   * @param retryAbortsInternally Whether the transaction should be retried internally if it is
+   *        aborted by Cloud Spanner
+   * @param counter The counter to use for the mutations that are buffered on this transaction
+   */
+  TransactionThread(DatabaseClient dbClient, Logger logger, TransactionWorkerPool pool,
+      boolean retryAbortsInternally, MutationCounter counter) {
+    Preconditions.checkNotNull(counter, "counter may not be null");
+    this.counter = counter;
+    this.name = "Google Cloud Spanner JDBC Transaction Thread-" + nextThreadNum();
     Preconditions.checkNotNull(dbClient, "dbClient may not be null");
     Preconditions.checkNotNull(logger, "logger may not be null");
+    Preconditions.checkNotNull(pool, "pool may not be null");
     this.dbClient = dbClient;
     this.logger = logger;
+    this.pool = pool;
+    this.retryAbortsInternally = retryAbortsInternally;
     if (logger != null && logger.logDebug()) {
       this.stackTraceElements = Thread.currentThread().getStackTrace();
     } else {
       this.stackTraceElements = null;
     }
-    setDaemon(true);
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Starts the transaction on a worker of the pool of this transaction
+   *
+   * @throws CloudSpannerSQLException if the pool does not accept any new transactions
+   */
+  void start() throws CloudSpannerSQLException {
+    try {
+      pool.execute(this);
+    } catch (RejectedExecutionException e) {
+      throw new CloudSpannerSQLException("Could not start transaction: " + e.getMessage(),
+          Code.RESOURCE_EXHAUSTED, e);
+    }
   }
 
   @Override
   public void run() {
-    TransactionRunner runner = dbClient.readWriteTransaction();
-    synchronized (monitor) {
-      try {
-        status = runner.run(new TransactionCallable<TransactionStatus>() {
-
-          @Override
-          public TransactionStatus run(TransactionContext transaction) throws Exception {
-            long startTime = System.currentTimeMillis();
-            long lastTriggerTime = startTime;
-            boolean transactionStartedLogged = false;
-            boolean stackTraceLoggedForKeepAlive = false;
-            boolean stackTraceLoggedForLongRunning = false;
-            status = TransactionStatus.RUNNING;
-            while (!stop) {
-              try {
-                Statement statement = statements.poll(5, TimeUnit.SECONDS);
-                if (statement != null) {
-                  String sql = statement.getSql();
-                  if (!stopStatementStrings.contains(sql)) {
-                    resultSets.put(transaction.executeQuery(statement));
-                  }
-                } else {
-                  // keep alive
-                  transactionStartedLogged =
-                      logTransactionStarted(transactionStartedLogged, startTime);
-                  logger.info(String.format("%s, %s", getName(),
-                      "Transaction has been inactive for more than 5 seconds and will do a keep-alive query"));
-                  if (!stackTraceLoggedForKeepAlive) {
-                    logStartStackTrace();
-                    stackTraceLoggedForKeepAlive = true;
-                  }
-                  try (ResultSet rs = transaction.executeQuery(Statement.of("SELECT 1"))) {
-                    rs.next();
-                  }
+    Thread worker = Thread.currentThread();
+    String workerName = worker.getName();
+    worker.setName(name);
+    try {
+      runTransaction();
+    } finally {
+      worker.setName(workerName);
+    }
+  }
+
+  private void runTransaction() {
+    try {
+      TransactionRunner runner = dbClient.readWriteTransaction();
+      status = runner.run(new TransactionCallable<TransactionStatus>() {
+
+        @Override
+        public TransactionStatus run(TransactionContext transaction) throws Exception {
+          long startTime = System.currentTimeMillis();
+          long lastTriggerTime = startTime;
+          boolean transactionStartedLogged = false;
+          boolean stackTraceLoggedForKeepAlive = false;
+          boolean stackTraceLoggedForLongRunning = false;
+          status = TransactionStatus.RUNNING;
+          attempts++;
+          if (attempts > 1 && retryAbortsInternally) {
+            replay(transaction);
+          }
+          while (!stop) {
+            try {
+              Statement statement = handoff.poll(5, TimeUnit.SECONDS);
+              if (statement == RETRY) {
+                pendingStatement = statement;
+                throw abortedException;
+              } else if (statement != null) {
+                handoff.respond(executeQuery(transaction, statement));
+              } else if (!stop) {
+                // keep alive
+                transactionStartedLogged =
+                    logTransactionStarted(transactionStartedLogged, startTime);
+                logger.info(String.format("%s, %s", getName(),
+                    "Transaction has been inactive for more than 5 seconds and will do a keep-alive query"));
+                if (!stackTraceLoggedForKeepAlive) {
+                  logStartStackTrace();
+                  stackTraceLoggedForKeepAlive = true;
                 }
-                if (!stop && logger.logInfo()
-                    && (System.currentTimeMillis() - lastTriggerTime) > CloudSpannerDriver
-                        .getLongTransactionTrigger()) {
-                  transactionStartedLogged =
-                      logTransactionStarted(transactionStartedLogged, startTime);
-                  logger.info(String.format("%s, %s", getName(), "Transaction has been running for "
-                      + (System.currentTimeMillis() - startTime) + "ms"));
-                  if (!stackTraceLoggedForLongRunning) {
-                    logStartStackTrace();
-                    stackTraceLoggedForLongRunning = true;
-                  }
-                  lastTriggerTime = System.currentTimeMillis();
+                try (ResultSet rs = transaction.executeQuery(Statement.of("SELECT 1"))) {
+                  rs.next();
                 }
-              } catch (InterruptedException e) {
-                logDebugIfTransactionStartedLogged(transactionStartedLogged,
-                    "Transaction interrupted");
-                stopped = true;
-                exception = e;
-                throw e;
               }
+              if (!stop && logger.logInfo()
+                  && (System.currentTimeMillis() - lastTriggerTime) > CloudSpannerDriver
+                      .getLongTransactionTrigger()) {
+                transactionStartedLogged =
+                    logTransactionStarted(transactionStartedLogged, startTime);
+                logger.info(String.format("%s, %s", getName(), "Transaction has been running for "
+                    + (System.currentTimeMillis() - startTime) + "ms"));
+                if (!stackTraceLoggedForLongRunning) {
+                  logStartStackTrace();
+                  stackTraceLoggedForLongRunning = true;
+                }
+                lastTriggerTime = System.currentTimeMillis();
+              }
+            } catch (InterruptedException e) {
+              logDebugIfTransactionStartedLogged(transactionStartedLogged,
+                  "Transaction interrupted");
+              stopped = true;
+              exception = e;
+              throw e;
             }
-
-            switch (stopStatement) {
-              case COMMIT:
-                logDebugIfTransactionStartedLogged(transactionStartedLogged,
-                    "Transaction committed");
-                transaction.buffer(mutations);
-                break;
-              case ROLLBACK:
-                // throw an exception to force a rollback
-                logDebugIfTransactionStartedLogged(transactionStartedLogged,
-                    "Transaction rolled back");
-                throw new RollbackException();
-              case PREPARE:
-                logDebugIfTransactionStartedLogged(transactionStartedLogged,
-                    "Transaction prepare called");
-                XATransaction.prepareMutations(transaction, xid, mutations);
-                break;
-              case COMMIT_PREPARED:
-                logDebugIfTransactionStartedLogged(transactionStartedLogged,
-                    "Transaction commit prepared called");
-                XATransaction.commitPrepared(transaction, xid);
-                break;
-              case ROLLBACK_PREPARED:
-                logDebugIfTransactionStartedLogged(transactionStartedLogged,
-                    "Transaction rollback prepared called");
-                XATransaction.rollbackPrepared(transaction, xid);
-                break;
-            }
-            logDebugIfTransactionStartedLogged(transactionStartedLogged,
-                "Transaction successfully stopped");
-            return TransactionStatus.SUCCESS;
           }
-        });
-        commitTimestamp = runner.getCommitTimestamp();
-      } catch (Exception e) {
-        if (e.getCause() instanceof RollbackException) {
-          status = TransactionStatus.SUCCESS;
-        } else {
-          // if statement prevents unnecessary String.format(...) call
-          if (logger.logDebug()) {
-            logger.debug(String.format("%s, %s", getName(),
-                "Transaction threw an exception: " + e.getMessage()));
+
+          switch (stopStatement) {
+            case COMMIT:
+              logDebugIfTransactionStartedLogged(transactionStartedLogged,
+                  "Transaction committed");
+              transaction.buffer(mutations);
+              break;
+            case ROLLBACK:
+              // throw an exception to force a rollback
+              logDebugIfTransactionStartedLogged(transactionStartedLogged,
+                  "Transaction rolled back");
+              throw new RollbackException();
+            case PREPARE:
+              logDebugIfTransactionStartedLogged(transactionStartedLogged,
+                  "Transaction prepare called");
+              XATransaction.prepareMutations(transaction, xid, mutations);
+              break;
+            case COMMIT_PREPARED:
+              logDebugIfTransactionStartedLogged(transactionStartedLogged,
+                  "Transaction commit prepared called");
+              XATransaction.commitPrepared(transaction, xid);
+              break;
+            case ROLLBACK_PREPARED:
+              logDebugIfTransactionStartedLogged(transactionStartedLogged,
+                  "Transaction rollback prepared called");
+              XATransaction.rollbackPrepared(transaction, xid);
+              break;
           }
-          status = TransactionStatus.FAIL;
-          exception = e;
+          logDebugIfTransactionStartedLogged(transactionStartedLogged,
+              "Transaction successfully stopped");
+          return TransactionStatus.SUCCESS;
+        }
+      });
+      commitTimestamp = runner.getCommitTimestamp();
+    } catch (Exception e) {
+      if (e.getCause() instanceof RollbackException) {
+        status = TransactionStatus.SUCCESS;
+      } else {
+        // if statement prevents unnecessary String.format(...) call
+        if (logger.logDebug()) {
+          logger.debug(String.format("%s, %s", getName(),
+              "Transaction threw an exception: " + e.getMessage()));
         }
-      } finally {
+        status = TransactionStatus.FAIL;
+        exception = e;
+      }
+    } finally {
+      handoff.close(exception);
+      synchronized (monitor) {
         stopped = true;
         monitor.notifyAll();
       }
     }
   }
 
+  private ResultSet executeQuery(TransactionContext transaction, Statement statement) {
+    try {
+      return transaction.executeQuery(statement);
+    } catch (SpannerException e) {
+      if (retryAbortsInternally && e.getErrorCode() == ErrorCode.ABORTED)
+        pendingStatement = statement;
+      throw e;
+    }
+  }
+
+  /**
+   * Executes all queries of the aborted attempt on the new attempt of the transaction and verifies
+   * that these return the same data. Finally, the statement that was pending when the transaction
+   * was aborted is executed.
+   *
+   * @param transaction The new attempt of the transaction
+   */
+  private void replay(TransactionContext transaction) {
+    if (logger.logDebug()) {
+      logger.debug(String.format("%s, %s", getName(), "Transaction was aborted, replaying "
+          + executedQueries.size() + " queries (attempt " + attempts + ")"));
+    }
+    for (ReplayableResultSet query : executedQueries) {
+      query.replay(transaction);
+    }
+    if (pendingStatement != null) {
+      Statement statement = pendingStatement;
+      ResultSet res = statement == RETRY ? RETRIED : executeQuery(transaction, statement);
+      pendingStatement = null;
+      handoff.respond(res);
+    }
+  }
+
+  /**
+   * Called by a {@link ReplayableResultSet} when it receives an aborted error. Blocks until the
+   * transaction has been retried and all queries have been replayed.
+   *
+   * @param aborted The aborted error
+   * @throws SpannerException if the transaction could not be retried
+   */
+  void retry(SpannerException aborted) {
+    abortedException = aborted;
+    try {
+      handoff.exchange(RETRY);
+    } catch (QueryException e) {
+      if (e.getCause() instanceof SpannerException)
+        throw (SpannerException) e.getCause();
+      throw aborted;
+    }
+  }
+
   private void logDebugIfTransactionStartedLogged(boolean transactionStartedLogged, String log) {
     if (transactionStartedLogged) {
       logger.debug(String.format("%s, %s", getName(), log));
@@ -242,13 +406,13 @@ class TransactionThread extends Thread {
   }
 
   ResultSet executeQuery(Statement statement) {
-    try {
-      statements.put(statement);
-      return resultSets.take();
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new QueryException("Query execution interrupted", e);
-    }
+    queried = true;
+    ResultSet res = handoff.exchange(statement);
+    if (!retryAbortsInternally)
+      return res;
+    ReplayableResultSet replayable = new ReplayableResultSet(this, statement, res);
+    executedQueries.add(replayable);
+    return replayable;
   }
 
   boolean hasBufferedMutations() {
@@ -259,12 +423,59 @@ class TransactionThread extends Thread {
     return mutations.size();
   }
 
+  boolean hasExecutedQueries() {
+    return queried;
+  }
+
+  boolean exceedsLimits() {
+    return counter.exceedsLimits();
+  }
+
+  long getBufferedCells() {
+    return counter.getCells();
+  }
+
+  long getBufferedBytes() {
+    return counter.getBytes();
+  }
+
   void buffer(Mutation mutation) {
     if (mutation == null)
       throw new NullPointerException("Mutation is null");
+    count(mutation);
     mutations.add(mutation);
   }
 
+  private void count(Mutation mutation) {
+    try {
+      counter.add(mutation);
+    } catch (SQLException e) {
+      throw new CloudSpannerTransaction.TransactionException(
+          "Could not count the mutations of table " + mutation.getTable(), e);
+    }
+  }
+
+  /**
+   * Splits the buffered mutations into groups that each stay within the limits of one commit, if
+   * the buffered mutations exceed these limits. The first group remains buffered on this
+   * transaction, the other groups are removed from the transaction.
+   * 
+   * @return The groups of mutations that were removed from this transaction, or an empty list if
+   *         the buffered mutations do not exceed the limits of one commit
+   * @throws SQLException if the mutations could not be counted
+   */
+  List<List<Mutation>> split() throws SQLException {
+    if (!counter.exceedsLimits())
+      return Collections.emptyList();
+    List<List<Mutation>> parts = counter.split(mutations);
+    mutations = new ArrayList<>(parts.get(0));
+    savepoints.clear();
+    counter.clear();
+    for (Mutation mutation : mutations)
+      counter.add(mutation);
+    return parts.subList(1, parts.size());
+  }
+
   void buffer(Iterable<Mutation> mutations) {
     Iterator<Mutation> it = mutations.iterator();
     while (it.hasNext())
@@ -285,6 +496,9 @@ class TransactionThread extends Thread {
     }
     mutations.subList(index.intValue(), mutations.size()).clear();
     removeSavepointsAfter(index.intValue());
+    counter.clear();
+    for (Mutation mutation : mutations)
+      count(mutation);
   }
 
   void releaseSavepoint(Savepoint savepoint) throws CloudSpannerSQLException {
@@ -326,22 +540,28 @@ class TransactionThread extends Thread {
   }
 
   private void stopTransaction(TransactionStopStatement statement) throws SQLException {
-    if (status == TransactionStatus.FAIL || status == TransactionStatus.SUCCESS)
+    if (status == TransactionStatus.SUCCESS || (status == TransactionStatus.FAIL
+        && statement == TransactionStopStatement.ROLLBACK))
       return;
-    while (status == TransactionStatus.NOT_STARTED) {
-      try {
-        Thread.sleep(1);
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        throw new CloudSpannerSQLException(getFailedMessage(statement, e), Code.ABORTED, e);
-      }
+    // A transaction that has already failed cannot be committed or prepared
+    if (status != TransactionStatus.FAIL)
+      stopAndWait(statement);
+    if (status == TransactionStatus.FAIL && exception != null) {
+      Code code = Code.UNKNOWN;
+      if (exception instanceof CloudSpannerSQLException)
+        code = ((CloudSpannerSQLException) exception).getCode();
+      if (exception instanceof SpannerException)
+        code = Code.forNumber(((SpannerException) exception).getCode());
+      throw new CloudSpannerSQLException(getFailedMessage(statement, exception), code, exception);
     }
+  }
 
+  private void stopAndWait(TransactionStopStatement statement) throws SQLException {
     this.stopStatement = statement;
     stop = true;
-    // Add a statement object in order to get the transaction thread to
-    // proceed
-    statements.add(Statement.of(statement.name()));
+    // Wake up the worker if it is waiting for a statement. A transaction that has not yet started
+    // will stop as soon as it starts.
+    handoff.wakeUp();
     synchronized (monitor) {
       while (!stopped || status == TransactionStatus.NOT_STARTED
           || status == TransactionStatus.RUNNING) {
@@ -353,14 +573,6 @@ class TransactionThread extends Thread {
         }
       }
     }
-    if (status == TransactionStatus.FAIL && exception != null) {
-      Code code = Code.UNKNOWN;
-      if (exception instanceof CloudSpannerSQLException)
-        code = ((CloudSpannerSQLException) exception).getCode();
-      if (exception instanceof SpannerException)
-        code = Code.forNumber(((SpannerException) exception).getCode());
-      throw new CloudSpannerSQLException(getFailedMessage(statement, exception), code, exception);
-    }
   }
 
   private String getFailedMessage(TransactionStopStatement statement, Exception e) {
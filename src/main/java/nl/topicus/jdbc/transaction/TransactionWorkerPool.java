@@ -0,0 +1,274 @@
+package nl.topicus.jdbc.transaction;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Driver wide pool of worker threads that run the read/write transactions of JDBC connections.
+ * Worker threads are reused for subsequent transactions instead of creating a new thread for each
+ * transaction. Idle workers are terminated after {@link #KEEP_ALIVE_SECONDS}.
+ *
+ * A pool can either be unbounded (the default), meaning that a new worker is created when a
+ * transaction is started and no idle worker is available, or bounded, meaning that transactions
+ * that are started while all workers are busy will wait in a queue until a worker becomes
+ * available. The time transactions spend waiting in this queue is recorded and can be retrieved
+ * from the pool. Note that a bounded pool limits the number of read/write transactions that can be
+ * active at the same time in the JVM for all connections that use the pool. Connections that are
+ * copied from a connection with a bounded pool, such as the connections that extended mode
+ * statements use, use an unbounded pool instead, as these are waited for by a transaction that is
+ * holding a worker of the bounded pool.
+ *
+ * Workers can be virtual threads instead of platform threads when the Java runtime supports this.
+ * Connections with the same pool settings share the same pool.
+ *
+ * @author loite
+ *
+ */
+public final class TransactionWorkerPool {
+  /**
+   * Pool size value indicating that the number of workers is not limited
+   */
+  public static final int UNBOUNDED = 0;
+
+  static final long KEEP_ALIVE_SECONDS = 60L;
+
+  private static final String WORKER_NAME_PREFIX = "Google Cloud Spanner JDBC Transaction Worker-";
+
+  private static final Map<PoolKey, TransactionWorkerPool> POOLS = new ConcurrentHashMap<>();
+
+  private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+  private static final class PoolKey {
+    private final int maxSize;
+
+    private final boolean virtualThreads;
+
+    private PoolKey(int maxSize, boolean virtualThreads) {
+      this.maxSize = maxSize;
+      this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(maxSize, virtualThreads);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof PoolKey))
+        return false;
+      PoolKey other = (PoolKey) o;
+      return maxSize == other.maxSize && virtualThreads == other.virtualThreads;
+    }
+  }
+
+  private static final class PlatformThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, WORKER_NAME_PREFIX + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  private final int maxSize;
+
+  private final boolean virtualThreads;
+
+  private final ThreadPoolExecutor executor;
+
+  private final AtomicLong submittedTaskCount = new AtomicLong();
+
+  private final AtomicLong startedTaskCount = new AtomicLong();
+
+  private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+
+  private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+  @VisibleForTesting
+  TransactionWorkerPool(int maxSize, boolean virtualThreads) {
+    this.maxSize = Math.max(maxSize, UNBOUNDED);
+    this.virtualThreads = virtualThreads && VIRTUAL_THREAD_FACTORY != null;
+    ThreadFactory threadFactory =
+        this.virtualThreads ? VIRTUAL_THREAD_FACTORY : new PlatformThreadFactory();
+    if (this.maxSize == UNBOUNDED) {
+      this.executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS, new SynchronousQueue<>(), threadFactory);
+    } else {
+      BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+      this.executor = new ThreadPoolExecutor(this.maxSize, this.maxSize, KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS, queue, threadFactory);
+      this.executor.allowCoreThreadTimeOut(true);
+    }
+  }
+
+  /**
+   * @return The unbounded pool with platform threads that is used by connections that do not
+   *         specify any pool settings
+   */
+  public static TransactionWorkerPool getDefault() {
+    return getPool(UNBOUNDED, false);
+  }
+
+  /**
+   * Returns the shared pool with the given settings, and creates it if it does not yet exist.
+   *
+   * @param maxSize The maximum number of workers in the pool, or {@link #UNBOUNDED} for no limit
+   * @param virtualThreads Whether the workers should be virtual threads. This setting is ignored if
+   *        the Java runtime does not support virtual threads.
+   * @return The pool with the given settings
+   */
+  public static TransactionWorkerPool getPool(int maxSize, boolean virtualThreads) {
+    PoolKey key = new PoolKey(Math.max(maxSize, UNBOUNDED),
+        virtualThreads && isVirtualThreadsSupported());
+    return POOLS.computeIfAbsent(key, k -> new TransactionWorkerPool(k.maxSize, k.virtualThreads));
+  }
+
+  /**
+   * @return <code>true</code> if the Java runtime supports virtual threads
+   */
+  public static boolean isVirtualThreadsSupported() {
+    return VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  /**
+   * Virtual threads are created through reflection, as the driver is compiled for Java versions
+   * that do not know them.
+   *
+   * @return A {@link ThreadFactory} for virtual threads, or <code>null</code> if the runtime does
+   *         not support virtual threads
+   */
+  private static ThreadFactory createVirtualThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Method name = builderClass.getMethod("name", String.class, long.class);
+      builder = name.invoke(builder, WORKER_NAME_PREFIX, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Executes the given transaction on a worker of this pool.
+   *
+   * @param transaction The transaction to run
+   * @throws RejectedExecutionException if the pool is not able to accept the transaction
+   */
+  void execute(Runnable transaction) {
+    final long submitted = System.nanoTime();
+    submittedTaskCount.incrementAndGet();
+    executor.execute(() -> {
+      recordQueueWait(System.nanoTime() - submitted);
+      transaction.run();
+    });
+  }
+
+  private void recordQueueWait(long nanos) {
+    startedTaskCount.incrementAndGet();
+    totalQueueWaitNanos.addAndGet(nanos);
+    maxQueueWaitNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * @return The maximum number of workers in this pool, or {@link #UNBOUNDED}
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return <code>true</code> if the workers of this pool are virtual threads
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * @return The current number of workers in this pool, including idle workers
+   */
+  public int getWorkerCount() {
+    return executor.getPoolSize();
+  }
+
+  /**
+   * @return The number of workers that are currently running a transaction
+   */
+  public int getActiveWorkerCount() {
+    return executor.getActiveCount();
+  }
+
+  /**
+   * @return The number of transactions that are waiting for a worker to become available
+   */
+  public int getQueuedTransactionCount() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * @return The total number of transactions that have been submitted to this pool
+   */
+  public long getSubmittedTransactionCount() {
+    return submittedTaskCount.get();
+  }
+
+  /**
+   * @return The number of transactions that have been picked up by a worker
+   */
+  public long getStartedTransactionCount() {
+    return startedTaskCount.get();
+  }
+
+  /**
+   * @return The total time in nanoseconds that started transactions have waited for a worker
+   */
+  public long getTotalQueueWaitNanos() {
+    return totalQueueWaitNanos.get();
+  }
+
+  /**
+   * @return The longest time in nanoseconds that a transaction has waited for a worker
+   */
+  public long getMaxQueueWaitNanos() {
+    return maxQueueWaitNanos.get();
+  }
+
+  /**
+   * @return The average time in nanoseconds that started transactions have waited for a worker
+   */
+  public long getAverageQueueWaitNanos() {
+    long started = startedTaskCount.get();
+    return started == 0L ? 0L : totalQueueWaitNanos.get() / started;
+  }
+
+  /**
+   * Resets the transaction counters and queue wait time statistics of this pool
+   */
+  public void resetStatistics() {
+    submittedTaskCount.set(0L);
+    startedTaskCount.set(0L);
+    totalQueueWaitNanos.set(0L);
+    maxQueueWaitNanos.set(0L);
+  }
+
+  @VisibleForTesting
+  void shutdown() {
+    executor.shutdown();
+  }
+
+}
@@ -0,0 +1,145 @@
+package nl.topicus.jdbc.util;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.google.cloud.spanner.PartitionOptions;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+
+/**
+ * Conversion of the MaxPartitions and PartitionSizeBytes connection properties into
+ * {@link PartitionOptions} for partitioned queries. A value of 0 means that the default of Cloud
+ * Spanner is used. MaxPartitions may also be set to AUTO, in which case the maximum number of
+ * partitions is derived from the number of nodes of the instance and the number of partitions that
+ * can be consumed in parallel by the client. PartitionSizeBytes may be specified as a number
+ * followed by one of the units KB, MB or GB.
+ *
+ * @author loite
+ *
+ */
+public class PartitionOptionsUtil {
+  /**
+   * Value for max partitions that indicates that the number of partitions should be derived from
+   * the number of nodes and the local parallelism
+   */
+  public static final long AUTO_MAX_PARTITIONS = -1L;
+
+  public static final String AUTO = "AUTO";
+
+  private static final Pattern SIZE_PATTERN =
+      Pattern.compile("(\\d+)\\s*(B|KB|MB|GB)?", Pattern.CASE_INSENSITIVE);
+
+  private PartitionOptionsUtil() {}
+
+  /**
+   * Parse a value for the MaxPartitions property
+   *
+   * @param value The value to parse. <code>null</code> or an empty string returns 0 (Cloud Spanner
+   *        default).
+   * @return The maximum number of partitions, or {@link #AUTO_MAX_PARTITIONS}
+   * @throws CloudSpannerSQLException if the value is not a valid number of partitions
+   */
+  public static long parseMaxPartitions(String value) throws CloudSpannerSQLException {
+    if (value == null || value.trim().isEmpty())
+      return 0L;
+    String trimmed = value.trim();
+    if (AUTO.equalsIgnoreCase(trimmed))
+      return AUTO_MAX_PARTITIONS;
+    try {
+      long res = Long.parseLong(trimmed);
+      if (res >= 0L)
+        return res;
+    } catch (NumberFormatException e) {
+      // Fall through to the exception below
+    }
+    throw new CloudSpannerSQLException(
+        "Invalid value for max partitions: " + value + ". Expected AUTO or a number >= 0",
+        Code.INVALID_ARGUMENT);
+  }
+
+  /**
+   * Parse a value for the PartitionSizeBytes property
+   *
+   * @param value The value to parse. <code>null</code> or an empty string returns 0 (Cloud Spanner
+   *        default).
+   * @return The desired partition size in bytes
+   * @throws CloudSpannerSQLException if the value is not a valid size
+   */
+  public static long parsePartitionSizeBytes(String value) throws CloudSpannerSQLException {
+    if (value == null || value.trim().isEmpty())
+      return 0L;
+    Matcher matcher = SIZE_PATTERN.matcher(value.trim());
+    if (matcher.matches()) {
+      try {
+        long amount = Long.parseLong(matcher.group(1));
+        String unit =
+            matcher.group(2) == null ? "B" : matcher.group(2).toUpperCase(Locale.ENGLISH);
+        switch (unit) {
+          case "KB":
+            return Math.multiplyExact(amount, 1024L);
+          case "MB":
+            return Math.multiplyExact(amount, 1024L * 1024L);
+          case "GB":
+            return Math.multiplyExact(amount, 1024L * 1024L * 1024L);
+          default:
+            return amount;
+        }
+      } catch (ArithmeticException | NumberFormatException e) {
+        // Fall through to the exception below
+      }
+    }
+    throw new CloudSpannerSQLException("Invalid value for partition size: " + value
+        + ". Expected a number of bytes, optionally followed by KB, MB or GB",
+        Code.INVALID_ARGUMENT);
+  }
+
+  /**
+   * Convert a max partitions value into a string that can be parsed by
+   * {@link #parseMaxPartitions(String)}
+   *
+   * @param maxPartitions The value to convert
+   * @return The string representation of the value
+   */
+  public static String maxPartitionsToString(long maxPartitions) {
+    return maxPartitions == AUTO_MAX_PARTITIONS ? AUTO : String.valueOf(maxPartitions);
+  }
+
+  /**
+   * Calculate the maximum number of partitions for AUTO mode. Cloud Spanner can execute
+   * approximately one partition per node at the same time, and each partition should be consumed
+   * by its own thread on the client. The maximum number of partitions is therefore the number of
+   * nodes multiplied by the number of partitions that the client consumes in parallel.
+   *
+   * @param nodeCount The number of nodes of the instance. Values less than 1 are treated as 1.
+   * @param parallelism The number of partitions that are consumed in parallel. Values less than 1
+   *        are treated as the number of available processors.
+   * @return The maximum number of partitions to request
+   */
+  public static long getAutoMaxPartitions(int nodeCount, int parallelism) {
+    int consumers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    return (long) Math.max(1, nodeCount) * Math.max(1, consumers);
+  }
+
+  /**
+   * Create {@link PartitionOptions} for the given values
+   *
+   * @param maxPartitions The maximum number of partitions, 0 for the default of Cloud Spanner. Must
+   *        already have been resolved if it was {@link #AUTO_MAX_PARTITIONS}.
+   * @param partitionSizeBytes The desired partition size in bytes, 0 for the default of Cloud
+   *        Spanner
+   * @return The {@link PartitionOptions} to use for a partitioned query
+   */
+  public static PartitionOptions createPartitionOptions(long maxPartitions,
+      long partitionSizeBytes) {
+    if (maxPartitions <= 0L && partitionSizeBytes <= 0L)
+      return PartitionOptions.getDefaultInstance();
+    PartitionOptions.Builder builder = PartitionOptions.newBuilder();
+    if (maxPartitions > 0L)
+      builder.setMaxPartitions(maxPartitions);
+    if (partitionSizeBytes > 0L)
+      builder.setPartitionSizeBytes(partitionSizeBytes);
+    return builder.build();
+  }
+
+}
@@ -0,0 +1,181 @@
+package nl.topicus.jdbc.util;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.TimestampBound.Mode;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+
+/**
+ * Conversion of {@link TimestampBound}s from and to the string representation that is used for
+ * the ReadTimestampBound connection property. The string representation is the name of the mode,
+ * optionally followed by a colon (or a space) and a timestamp or a duration:
+ * <ul>
+ * <li>STRONG</li>
+ * <li>READ_TIMESTAMP:2018-01-26T10:15:30.123456Z</li>
+ * <li>MIN_READ_TIMESTAMP:2018-01-26T10:15:30Z</li>
+ * <li>EXACT_STALENESS:15s</li>
+ * <li>MAX_STALENESS:500ms</li>
+ * </ul>
+ * Durations are specified as a number followed by one of the units ns, us, ms, s, m or h. A
+ * number without a unit is interpreted as seconds.
+ *
+ * @author loite
+ *
+ */
+public class TimestampBoundUtil {
+  private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+)\\s*(ns|us|ms|s|m|h)?");
+
+  private TimestampBoundUtil() {}
+
+  /**
+   * Parse a string into a {@link TimestampBound}
+   *
+   * @param value The value to parse. <code>null</code> or an empty string returns a strong bound.
+   * @return The {@link TimestampBound} that corresponds with the value
+   * @throws CloudSpannerSQLException if the value is not a valid timestamp bound
+   */
+  public static TimestampBound parse(String value) throws CloudSpannerSQLException {
+    if (value == null || value.trim().isEmpty())
+      return TimestampBound.strong();
+    String trimmed = value.trim();
+    int separator = indexOfSeparator(trimmed);
+    String modeName = separator == -1 ? trimmed : trimmed.substring(0, separator);
+    String argument = separator == -1 ? "" : trimmed.substring(separator + 1).trim();
+    Mode mode;
+    try {
+      mode = Mode.valueOf(modeName.toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw invalid(value, e);
+    }
+    if (mode == Mode.STRONG) {
+      if (!argument.isEmpty())
+        throw invalid(value, null);
+      return TimestampBound.strong();
+    }
+    if (argument.isEmpty())
+      throw invalid(value, null);
+    try {
+      switch (mode) {
+        case READ_TIMESTAMP:
+          return TimestampBound.ofReadTimestamp(Timestamp.parseTimestamp(argument));
+        case MIN_READ_TIMESTAMP:
+          return TimestampBound.ofMinReadTimestamp(Timestamp.parseTimestamp(argument));
+        case EXACT_STALENESS:
+          return TimestampBound.ofExactStaleness(parseDurationNanos(value, argument),
+              TimeUnit.NANOSECONDS);
+        case MAX_STALENESS:
+          return TimestampBound.ofMaxStaleness(parseDurationNanos(value, argument),
+              TimeUnit.NANOSECONDS);
+        default:
+          throw invalid(value, null);
+      }
+    } catch (RuntimeException e) {
+      // Invalid durations and unparseable timestamps
+      throw invalid(value, e);
+    }
+  }
+
+  private static int indexOfSeparator(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ':' || Character.isWhitespace(c))
+        return i;
+    }
+    return -1;
+  }
+
+  private static long parseDurationNanos(String value, String duration)
+      throws CloudSpannerSQLException {
+    Matcher matcher = DURATION_PATTERN.matcher(duration);
+    if (!matcher.matches())
+      throw invalid(value, null);
+    long amount = Long.parseLong(matcher.group(1));
+    String unit = matcher.group(2) == null ? "s" : matcher.group(2);
+    switch (unit) {
+      case "ns":
+        return amount;
+      case "us":
+        return TimeUnit.MICROSECONDS.toNanos(amount);
+      case "ms":
+        return TimeUnit.MILLISECONDS.toNanos(amount);
+      case "m":
+        return TimeUnit.MINUTES.toNanos(amount);
+      case "h":
+        return TimeUnit.HOURS.toNanos(amount);
+      default:
+        return TimeUnit.SECONDS.toNanos(amount);
+    }
+  }
+
+  private static CloudSpannerSQLException invalid(String value, Exception cause) {
+    String message = "Invalid timestamp bound: " + value
+        + ". Expected STRONG, READ_TIMESTAMP:<timestamp>, MIN_READ_TIMESTAMP:<timestamp>, EXACT_STALENESS:<duration> or MAX_STALENESS:<duration>";
+    return cause == null ? new CloudSpannerSQLException(message, Code.INVALID_ARGUMENT)
+        : new CloudSpannerSQLException(message, Code.INVALID_ARGUMENT, cause);
+  }
+
+  /**
+   * Convert a {@link TimestampBound} into a string that can be parsed by {@link #parse(String)}
+   *
+   * @param bound The bound to convert. <code>null</code> is treated as a strong bound.
+   * @return The string representation of the bound
+   */
+  public static String toString(TimestampBound bound) {
+    if (bound == null)
+      return Mode.STRONG.name();
+    switch (bound.getMode()) {
+      case READ_TIMESTAMP:
+        return Mode.READ_TIMESTAMP.name() + ":" + bound.getReadTimestamp();
+      case MIN_READ_TIMESTAMP:
+        return Mode.MIN_READ_TIMESTAMP.name() + ":" + bound.getMinReadTimestamp();
+      case EXACT_STALENESS:
+        return Mode.EXACT_STALENESS.name() + ":"
+            + formatDuration(bound.getExactStaleness(TimeUnit.NANOSECONDS));
+      case MAX_STALENESS:
+        return Mode.MAX_STALENESS.name() + ":"
+            + formatDuration(bound.getMaxStaleness(TimeUnit.NANOSECONDS));
+      case STRONG:
+      default:
+        return Mode.STRONG.name();
+    }
+  }
+
+  private static String formatDuration(long nanos) {
+    if (nanos % TimeUnit.SECONDS.toNanos(1L) == 0L)
+      return TimeUnit.NANOSECONDS.toSeconds(nanos) + "s";
+    if (nanos % TimeUnit.MILLISECONDS.toNanos(1L) == 0L)
+      return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+    if (nanos % TimeUnit.MICROSECONDS.toNanos(1L) == 0L)
+      return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+    return nanos + "ns";
+  }
+
+  /**
+   * Multi-use read-only transactions do not support the bounded staleness modes MAX_STALENESS and
+   * MIN_READ_TIMESTAMP. This method returns the closest bound that is supported by multi-use
+   * transactions and that still satisfies the requested bound: an exact staleness of the maximum
+   * staleness, or a strong read instead of a minimum read timestamp.
+   *
+   * @param bound The bound to convert. <code>null</code> is treated as a strong bound.
+   * @return A bound that may be used for multi-use read-only transactions
+   */
+  public static TimestampBound toMultiUseBound(TimestampBound bound) {
+    if (bound == null)
+      return TimestampBound.strong();
+    switch (bound.getMode()) {
+      case MAX_STALENESS:
+        return TimestampBound.ofExactStaleness(bound.getMaxStaleness(TimeUnit.NANOSECONDS),
+            TimeUnit.NANOSECONDS);
+      case MIN_READ_TIMESTAMP:
+        return TimestampBound.strong();
+      default:
+        return bound;
+    }
+  }
+
+}
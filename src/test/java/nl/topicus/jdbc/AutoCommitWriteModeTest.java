@@ -0,0 +1,33 @@
+package nl.topicus.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.ExpectedException;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class AutoCommitWriteModeTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testParse() throws CloudSpannerSQLException {
+    assertEquals(AutoCommitWriteMode.TRANSACTION, AutoCommitWriteMode.parse(null));
+    assertEquals(AutoCommitWriteMode.TRANSACTION, AutoCommitWriteMode.parse(" "));
+    assertEquals(AutoCommitWriteMode.TRANSACTION, AutoCommitWriteMode.parse("Transaction"));
+    assertEquals(AutoCommitWriteMode.WRITE, AutoCommitWriteMode.parse("write"));
+    assertEquals(AutoCommitWriteMode.WRITE_AT_LEAST_ONCE,
+        AutoCommitWriteMode.parse(" WRITE_AT_LEAST_ONCE "));
+  }
+
+  @Test
+  public void testParseInvalid() throws CloudSpannerSQLException {
+    thrown.expect(CloudSpannerSQLException.class);
+    thrown.expectMessage("Invalid AutoCommitWriteMode");
+    AutoCommitWriteMode.parse("BLIND");
+  }
+
+}
@@ -3,8 +3,12 @@ package nl.topicus.jdbc;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
@@ -12,6 +16,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
@@ -19,10 +24,21 @@ import org.junit.experimental.categories.Category;
 import org.mockito.internal.stubbing.answers.Returns;
 import com.google.cloud.spanner.BatchClient;
 import com.google.cloud.spanner.BatchReadOnlyTransaction;
+import com.google.cloud.spanner.BatchTransactionId;
 import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.PartitionOptions;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.resultset.CloudSpannerParallelPartitionResultSet;
+import nl.topicus.jdbc.statement.CloudSpannerStatement;
 import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.test.util.CloudSpannerTestObjects;
 import nl.topicus.jdbc.transaction.CloudSpannerTransaction;
+import nl.topicus.jdbc.util.PartitionOptionsUtil;
 
 @Category(UnitTest.class)
 public class BatchReadOnlyTest {
@@ -76,6 +92,146 @@ public class BatchReadOnlyTest {
     }
   }
 
+  @Test
+  public void testExecuteBatchReadOnlyInParallel() throws SQLException, NoSuchFieldException,
+      SecurityException, IllegalArgumentException, IllegalAccessException {
+    for (int testRun = 0; testRun < 2; testRun++) {
+      final int numberOfPartitions = 6;
+      BatchClient batchClient = mock(BatchClient.class);
+      BatchReadOnlyTransaction tx = mock(BatchReadOnlyTransaction.class);
+      List<Partition> partitions = new ArrayList<>(numberOfPartitions);
+      for (int i = 0; i < numberOfPartitions; i++)
+        partitions.add(mock(Partition.class));
+      when(tx.partitionQuery(any(), any())).then(new Returns(partitions));
+      when(tx.execute(any())).thenAnswer(invocation -> ResultSets.forRows(
+          Type.struct(StructField.of("ID", Type.int64())),
+          Arrays.asList(Struct.newBuilder().set("ID").to(1L).build(),
+              Struct.newBuilder().set("ID").to(2L).build())));
+      when(batchClient.batchReadOnlyTransaction(TimestampBound.strong())).then(new Returns(tx));
+      Field field = CloudSpannerTransaction.class.getDeclaredField("batchClient");
+      field.setAccessible(true);
+      field.set(connection.getTransaction(), batchClient);
+      connection.setBatchReadOnly(true);
+      connection.setPartitionParallelism(3);
+      Statement statement;
+      if (testRun % 2 == 0) {
+        statement = connection.createStatement();
+        assertTrue(statement.execute(SELECT_ALL_FROM_FOO));
+      } else {
+        PreparedStatement ps = connection.prepareStatement(SELECT_ALL_FROM_FOO);
+        assertTrue(ps.execute());
+        statement = ps;
+      }
+      try (ResultSet rs = statement.getResultSet()) {
+        assertTrue(rs instanceof CloudSpannerParallelPartitionResultSet);
+        int count = 0;
+        while (rs.next())
+          count++;
+        assertEquals(2 * numberOfPartitions, count);
+      }
+      assertFalse(statement.getMoreResults());
+      connection.setPartitionParallelism(0);
+    }
+  }
+
+  @Test
+  public void testPartitionOptions() throws SQLException, NoSuchFieldException,
+      SecurityException, IllegalArgumentException, IllegalAccessException {
+    BatchClient batchClient = mock(BatchClient.class);
+    BatchReadOnlyTransaction tx = mock(BatchReadOnlyTransaction.class);
+    when(tx.partitionQuery(any(), any())).then(new Returns(new ArrayList<Partition>()));
+    when(batchClient.batchReadOnlyTransaction(TimestampBound.strong())).then(new Returns(tx));
+    Field field = CloudSpannerTransaction.class.getDeclaredField("batchClient");
+    field.setAccessible(true);
+    field.set(connection.getTransaction(), batchClient);
+    connection.setBatchReadOnly(true);
+    connection.setMaxPartitions(100L);
+    connection.setPartitionSizeBytes(1024L);
+    CloudSpannerStatement statement = connection.createStatement();
+    statement.execute(SELECT_ALL_FROM_FOO);
+    verify(tx).partitionQuery(eq(
+        PartitionOptions.newBuilder().setMaxPartitions(100L).setPartitionSizeBytes(1024L).build()),
+        any());
+
+    // Statement settings override the connection settings
+    statement.setMaxPartitions(0L);
+    statement.setPartitionSizeBytes(2048L);
+    statement.execute(SELECT_ALL_FROM_FOO);
+    verify(tx).partitionQuery(
+        eq(PartitionOptions.newBuilder().setPartitionSizeBytes(2048L).build()), any());
+
+    // The connection is not connected to an instance, AUTO will assume 1 node
+    connection.setPartitionParallelism(3);
+    statement.setMaxPartitions(PartitionOptionsUtil.AUTO_MAX_PARTITIONS);
+    statement.setPartitionSizeBytes(null);
+    statement.execute(SELECT_ALL_FROM_FOO);
+    verify(tx).partitionQuery(eq(
+        PartitionOptions.newBuilder().setMaxPartitions(3L).setPartitionSizeBytes(1024L).build()),
+        any());
+  }
+
+  @Test
+  public void testPartitionTokens() throws SQLException, NoSuchFieldException,
+      SecurityException, IllegalArgumentException, IllegalAccessException {
+    final int numberOfPartitions = 3;
+    BatchTransactionId id = CloudSpannerTestObjects.createBatchTransactionId("session", "tx");
+    List<Partition> partitions = new ArrayList<>(numberOfPartitions);
+    for (int i = 0; i < numberOfPartitions; i++)
+      partitions.add(CloudSpannerTestObjects.createQueryPartition(SELECT_ALL_FROM_FOO, "p" + i));
+    BatchClient batchClient = mock(BatchClient.class);
+    BatchReadOnlyTransaction tx = mock(BatchReadOnlyTransaction.class);
+    when(tx.partitionQuery(any(), eq(com.google.cloud.spanner.Statement.of(SELECT_ALL_FROM_FOO))))
+        .then(new Returns(partitions));
+    when(tx.getBatchTransactionId()).thenReturn(id);
+    when(batchClient.batchReadOnlyTransaction(TimestampBound.strong())).then(new Returns(tx));
+    Field field = CloudSpannerTransaction.class.getDeclaredField("batchClient");
+    field.setAccessible(true);
+    field.set(connection.getTransaction(), batchClient);
+    connection.setBatchReadOnly(true);
+
+    List<String> tokens = new ArrayList<>();
+    try (ResultSet rs = connection.createStatement()
+        .executeQuery("PARTITION_QUERY " + SELECT_ALL_FROM_FOO)) {
+      while (rs.next()) {
+        assertEquals(tokens.size(), rs.getLong("PARTITION"));
+        tokens.add(rs.getString("TOKEN"));
+      }
+    }
+    assertEquals(numberOfPartitions, tokens.size());
+
+    // Execute the tokens on a different connection that is not in batch read-only mode
+    CloudSpannerConnection worker = new CloudSpannerConnection();
+    BatchClient workerBatchClient = mock(BatchClient.class);
+    BatchReadOnlyTransaction workerTx = mock(BatchReadOnlyTransaction.class);
+    when(workerBatchClient.batchReadOnlyTransaction(id)).thenReturn(workerTx);
+    for (int i = 0; i < numberOfPartitions; i++) {
+      final long value = i;
+      when(workerTx.execute(partitions.get(i))).thenAnswer(invocation -> ResultSets.forRows(
+          Type.struct(StructField.of("ID", Type.int64())),
+          Arrays.asList(Struct.newBuilder().set("ID").to(value).build())));
+    }
+    field.set(worker.getTransaction(), workerBatchClient);
+    for (int i = 0; i < numberOfPartitions; i++) {
+      try (ResultSet rs =
+          worker.createStatement().executeQuery("EXECUTE_PARTITION " + tokens.get(i))) {
+        assertTrue(rs.next());
+        assertEquals(i, rs.getLong("ID"));
+        assertFalse(rs.next());
+      }
+    }
+    verify(workerTx, never()).close();
+  }
+
+  @Test
+  public void testPartitionTokensRequireBatchReadOnly() throws SQLException {
+    try {
+      connection.createStatement().executeQuery("PARTITION_QUERY " + SELECT_ALL_FROM_FOO);
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(com.google.rpc.Code.FAILED_PRECONDITION, e.getCode());
+    }
+  }
+
   @Test
   public void testExecuteNormal() throws SQLException, NoSuchFieldException, SecurityException,
       IllegalArgumentException, IllegalAccessException {
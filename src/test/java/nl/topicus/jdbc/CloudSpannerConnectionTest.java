@@ -23,6 +23,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.ExpectedException;
 import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.transaction.TransactionWorkerPool;
 
 @Category(UnitTest.class)
 public class CloudSpannerConnectionTest {
@@ -62,6 +63,18 @@ public class CloudSpannerConnectionTest {
     return (CloudSpannerConnection) DriverManager.getConnection(url, properties);
   }
 
+  @Test
+  public void testCopyConnectionWorkerPool() throws SQLException {
+    Properties properties = createDefaultProperties();
+    properties.setProperty("TransactionWorkerPoolSize", "1");
+    try (CloudSpannerConnection connection = createConnection(properties);
+        CloudSpannerConnection copy = connection.createCopyConnection()) {
+      assertEquals(1, connection.getTransactionWorkerPool().getMaxSize());
+      // The copy may not wait for a worker that is held by the original connection
+      assertEquals(TransactionWorkerPool.UNBOUNDED, copy.getTransactionWorkerPool().getMaxSize());
+    }
+  }
+
   @Test
   public void testTypeMap() throws Exception {
     Map<String, Class<?>> map = subject.getTypeMap();
@@ -0,0 +1,91 @@
+package nl.topicus.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class CloudSpannerCredentialsCacheTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private GoogleCredentials load(String credentialsPath) {
+    return GoogleCredentials
+        .create(new AccessToken(credentialsPath + loads.incrementAndGet(), null));
+  }
+
+  @Test
+  public void testLocalFile() throws IOException {
+    CloudSpannerCredentialsCache cache =
+        new CloudSpannerCredentialsCache(this::load, Long.MAX_VALUE);
+    File file = folder.newFile("credentials.json");
+    String path = file.getAbsolutePath();
+    GoogleCredentials credentials = cache.getCredentialsFromFile(path);
+    assertSame(credentials, cache.getCredentialsFromFile(path));
+    assertEquals(1, loads.get());
+
+    // Changing the file should reload the credentials
+    Files.write(file.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+    GoogleCredentials reloaded = cache.getCredentialsFromFile(path);
+    assertNotSame(credentials, reloaded);
+    assertSame(reloaded, cache.getCredentialsFromFile(path));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testStorageFile() throws IOException {
+    String path = "gs://bucket/credentials.json";
+    CloudSpannerCredentialsCache cache =
+        new CloudSpannerCredentialsCache(this::load, Long.MAX_VALUE);
+    assertSame(cache.getCredentialsFromFile(path), cache.getCredentialsFromFile(path));
+    assertEquals(1, loads.get());
+
+    // Credentials on Cloud Storage are reloaded once the time to live has passed
+    cache = new CloudSpannerCredentialsCache(this::load, 0L);
+    assertNotSame(cache.getCredentialsFromFile(path), cache.getCredentialsFromFile(path));
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  public void testClear() throws IOException {
+    String path = folder.newFile("credentials.json").getAbsolutePath();
+    CloudSpannerCredentialsCache cache =
+        new CloudSpannerCredentialsCache(this::load, Long.MAX_VALUE);
+    GoogleCredentials credentials = cache.getCredentialsFromFile(path);
+    cache.clear();
+    assertNotSame(credentials, cache.getCredentialsFromFile(path));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testOAuthToken() {
+    CloudSpannerCredentialsCache cache =
+        new CloudSpannerCredentialsCache(this::load, Long.MAX_VALUE);
+    assertNull(cache.getCredentialsFromOAuthToken(null));
+    assertNull(cache.getCredentialsFromOAuthToken(""));
+    GoogleCredentials credentials = cache.getCredentialsFromOAuthToken("token");
+    assertSame(credentials, cache.getCredentialsFromOAuthToken("token"));
+    assertNotSame(credentials, cache.getCredentialsFromOAuthToken("other"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyPath() throws IOException {
+    new CloudSpannerCredentialsCache(this::load, Long.MAX_VALUE).getCredentialsFromFile("");
+  }
+
+}
@@ -1,6 +1,7 @@
 package nl.topicus.jdbc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -24,6 +25,8 @@ import org.junit.runner.RunWith;
 import com.google.auth.oauth2.ComputeEngineCredentials;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.NoCredentials;
+import com.google.cloud.spanner.SessionPoolOptions;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
 import nl.topicus.jdbc.test.category.UnitTest;
 import nl.topicus.jdbc.test.util.EnvironmentVariablesUtil;
 
@@ -161,7 +164,12 @@ public class CloudSpannerDriverTest {
       for (DriverPropertyInfo property : properties) {
         if (property.name.equals("AllowExtendedMode") || property.name.equals("AsyncDdlOperations")
             || property.name.equals("AutoBatchDdlOperations")
-            || property.name.equals("BatchReadOnlyMode") || property.name.equals("UseCustomHost"))
+            || property.name.equals("BatchReadOnlyMode") || property.name.equals("UseCustomHost")
+            || property.name.equals("UseVirtualThreads")
+            || property.name.equals("RetryAbortsInternally")
+            || property.name.equals("AutoSplitTransactions")
+            || property.name.equals("WarmUpSessions")
+            || property.name.equals("DeleteKeyRanges"))
           assertEquals("false", property.value);
         else if (property.name.equals("ReportDefaultSchemaAsNull"))
           assertEquals("true", property.value);
@@ -226,6 +234,59 @@ public class CloudSpannerDriverTest {
       assertEquals("FOO", CloudSpannerDriver.unquoteIdentifier("`FOO`"));
       assertNull(CloudSpannerDriver.unquoteIdentifier(null));
     }
+
+    @Test
+    public void testInvalidWriteSessionsFraction() throws SQLException {
+      thrown.expect(CloudSpannerSQLException.class);
+      thrown.expectMessage("Invalid WriteSessionsFraction");
+      DriverManager.getConnection(
+          "jdbc:cloudspanner://localhost;Project=adroit-hall-xxx;Instance=test-instance;Database=testdb;WriteSessionsFraction=foo");
+    }
+
+    @Test
+    public void testInvalidSessionPoolSettings() throws SQLException {
+      thrown.expect(CloudSpannerSQLException.class);
+      thrown.expectMessage("Invalid session pool settings");
+      DriverManager.getConnection(
+          "jdbc:cloudspanner://localhost;Project=adroit-hall-xxx;Instance=test-instance;Database=testdb;WriteSessionsFraction=1.5");
+    }
+
+    @Test
+    public void testSpannerOptionsSpecification() {
+      assertNull(CloudSpannerDriver.SpannerOptionsSpecification.DEFAULT.createSessionPoolOptions());
+      CloudSpannerDriver.SpannerOptionsSpecification spec =
+          new CloudSpannerDriver.SpannerOptionsSpecification(10, 50, 0.5f, 30, null, null, null);
+      SessionPoolOptions options = spec.createSessionPoolOptions();
+      assertEquals(10, options.getMinSessions());
+      assertEquals(50, options.getMaxSessions());
+      assertEquals(0.5f, options.getWriteSessionsFraction(), 0f);
+      assertEquals(30, options.getKeepAliveIntervalMinutes());
+      assertNull(spec.createRpcChannelFactory());
+      assertEquals(spec, new CloudSpannerDriver.SpannerOptionsSpecification(10, 50, 0.5f, 30,
+          null, null, null));
+      assertNotEquals(spec, new CloudSpannerDriver.SpannerOptionsSpecification(10, 50, 0.5f, null,
+          null, null, null));
+      assertNotEquals(spec, new CloudSpannerDriver.SpannerOptionsSpecification(10, 50, 0.5f, 30, 8,
+          null, null));
+    }
+
+    @Test
+    public void testTransportSettings() {
+      CloudSpannerDriver.SpannerOptionsSpecification spec =
+          new CloudSpannerDriver.SpannerOptionsSpecification(null, null, null, null, 8,
+              64 * 1024 * 1024, 60);
+      assertNull(spec.createSessionPoolOptions());
+      assertEquals(Integer.valueOf(8), spec.getNumChannels());
+      assertNotNull(spec.createRpcChannelFactory());
+    }
+
+    @Test
+    public void testInvalidNumChannels() throws SQLException {
+      thrown.expect(CloudSpannerSQLException.class);
+      thrown.expectMessage("Invalid NumChannels");
+      DriverManager.getConnection(
+          "jdbc:cloudspanner://localhost;Project=adroit-hall-xxx;Instance=test-instance;Database=testdb;NumChannels=0");
+    }
   }
 
   public static class ConnectAndCloseTest {
@@ -277,6 +338,56 @@ public class CloudSpannerDriverTest {
           "jdbc:cloudspanner://localhost;Project=adroit-hall-123;Instance=test-instance;Database=testdb2;OAuthAccessToken="
               + token);
       assertEquals(4, spanners.size());
+      // Different session pool settings use a separate Spanner instance
+      DriverManager.getConnection(
+          "jdbc:cloudspanner://localhost;Project=adroit-hall-123;Instance=test-instance;Database=testdb2;OAuthAccessToken="
+              + token + ";MaxSessions=50");
+      assertEquals(5, spanners.size());
+      // Different transport settings also use a separate Spanner instance
+      DriverManager.getConnection(
+          "jdbc:cloudspanner://localhost;Project=adroit-hall-123;Instance=test-instance;Database=testdb2;OAuthAccessToken="
+              + token + ";MaxSessions=50;NumChannels=8");
+      assertEquals(6, spanners.size());
+    }
+
+    @Test
+    public void testCloseIdleSpanners() throws SQLException {
+      String url =
+          "jdbc:cloudspanner://localhost;Project=adroit-hall-idle;Instance=test-instance;Database=testdb";
+      CloudSpannerDriver driver = CloudSpannerDriver.getDriver();
+      try {
+        CloudSpannerDriver.setSpannerIdleTimeout(0L);
+        CloudSpannerConnection connection1 =
+            (CloudSpannerConnection) DriverManager.getConnection(url);
+        CloudSpannerConnection connection2 =
+            (CloudSpannerConnection) DriverManager.getConnection(url);
+        assertTrue(connection1.getSpanner() == connection2.getSpanner());
+        connection1.close();
+        connection2.close();
+        // A timeout of 0 disables closing idle instances
+        driver.closeIdleSpanners();
+        connection1 = (CloudSpannerConnection) DriverManager.getConnection(url);
+        assertTrue(connection1.getSpanner() == connection2.getSpanner());
+
+        CloudSpannerDriver.setSpannerIdleTimeout(1L);
+        // The instance is still referenced by an open connection
+        driver.closeIdleSpanners();
+        connection2 = (CloudSpannerConnection) DriverManager.getConnection(url);
+        assertTrue(connection1.getSpanner() == connection2.getSpanner());
+        connection1.close();
+        connection2.close();
+        try {
+          Thread.sleep(5L);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        driver.closeIdleSpanners();
+        connection1 = (CloudSpannerConnection) DriverManager.getConnection(url);
+        assertTrue(connection1.getSpanner() != connection2.getSpanner());
+        connection1.close();
+      } finally {
+        CloudSpannerDriver.setSpannerIdleTimeout(CloudSpannerDriver.DEFAULT_SPANNER_IDLE_TIMEOUT);
+      }
     }
   }
 
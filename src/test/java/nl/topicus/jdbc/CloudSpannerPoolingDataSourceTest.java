@@ -0,0 +1,169 @@
+package nl.topicus.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.rpc.Code;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.transaction.GroupCommitter;
+
+@Category(UnitTest.class)
+public class CloudSpannerPoolingDataSourceTest {
+
+  private static CloudSpannerPoolingDataSource createDataSource() {
+    CloudSpannerPoolingDataSource subject = new CloudSpannerPoolingDataSource();
+    subject.setProjectId("helpful-adroit-123456");
+    subject.setInstanceId("test-instance");
+    subject.setDatabase("test");
+    subject.setOauthAccessToken("TEST");
+    subject.setMaxPoolSize(2);
+    return subject;
+  }
+
+  @Test
+  public void testBorrowAndReturn() throws SQLException {
+    try (CloudSpannerPoolingDataSource subject = createDataSource()) {
+      assertEquals("PoolingDataSource from " + nl.topicus.jdbc.CloudSpannerDriver.getVersion(),
+          subject.getDescription());
+      Connection connection = subject.getConnection();
+      assertEquals(1, subject.getTotalConnections());
+      assertEquals(1, subject.getActiveConnections());
+      assertEquals(0, subject.getIdleConnections());
+      connection.close();
+      assertTrue(connection.isClosed());
+      assertEquals(1, subject.getTotalConnections());
+      assertEquals(0, subject.getActiveConnections());
+      assertEquals(1, subject.getIdleConnections());
+
+      // The idle connection should be reused
+      try (Connection first = subject.getConnection();
+          Connection second = subject.getConnection()) {
+        assertFalse(first.isClosed());
+        assertFalse(second.isClosed());
+        assertEquals(2, subject.getTotalConnections());
+        assertEquals(2, subject.getActiveConnections());
+      }
+      assertEquals(2, subject.getIdleConnections());
+    }
+  }
+
+  @Test
+  public void testResetConnectionState() throws SQLException {
+    try (CloudSpannerPoolingDataSource subject = createDataSource()) {
+      subject.setMaxPoolSize(1);
+      try (ICloudSpannerConnection connection = (ICloudSpannerConnection) subject.getConnection()) {
+        connection.setReadOnly(true);
+        connection.setAutoCommit(false);
+        connection.setBatchReadOnly(true);
+        connection.setAutoSplitTransactions(true);
+        connection.setDeleteKeyRanges(true);
+        connection.setAutoCommitWriteMode(AutoCommitWriteMode.WRITE_AT_LEAST_ONCE);
+        connection.setGroupCommitWindow(10);
+        connection.setGroupCommitMaxMutations(5);
+        connection.setPartitionParallelism(4);
+        connection.setPartitionBufferSize(100);
+        connection.setExtendedModeParallelism(8);
+        connection.setMaxInFlightCommits(2);
+      }
+      try (ICloudSpannerConnection connection = (ICloudSpannerConnection) subject.getConnection()) {
+        assertFalse(connection.isReadOnly());
+        assertFalse(connection.isBatchReadOnly());
+        assertTrue(connection.getAutoCommit());
+        assertFalse(connection.isAutoSplitTransactions());
+        assertFalse(connection.isDeleteKeyRanges());
+        assertEquals(AutoCommitWriteMode.TRANSACTION, connection.getAutoCommitWriteMode());
+        assertEquals(0, connection.getGroupCommitWindow());
+        assertEquals(GroupCommitter.DEFAULT_MAX_CELLS, connection.getGroupCommitMaxMutations());
+        assertEquals(0, connection.getPartitionParallelism());
+        assertEquals(CloudSpannerConnection.DEFAULT_PARTITION_BUFFER_SIZE,
+            connection.getPartitionBufferSize());
+        assertEquals(0, connection.getExtendedModeParallelism());
+        assertEquals(0, connection.getMaxInFlightCommits());
+      }
+      assertEquals(1, subject.getTotalConnections());
+    }
+  }
+
+  @Test
+  public void testConnectionTimeout() throws SQLException {
+    try (CloudSpannerPoolingDataSource subject = createDataSource()) {
+      subject.setMaxPoolSize(1);
+      subject.setConnectionTimeout(10L);
+      try (Connection connection = subject.getConnection()) {
+        subject.getConnection();
+        fail("missing expected exception");
+      } catch (CloudSpannerSQLException e) {
+        assertEquals(Code.RESOURCE_EXHAUSTED, e.getCode());
+      }
+      // The connection is available again after it has been returned
+      try (Connection connection = subject.getConnection()) {
+        assertFalse(connection.isClosed());
+      }
+    }
+  }
+
+  @Test
+  public void testMaxLifetime() throws Exception {
+    try (CloudSpannerPoolingDataSource subject = createDataSource()) {
+      subject.setMaxLifetime(50L);
+      try (Connection connection = subject.getConnection()) {
+        Thread.sleep(100L);
+      }
+      // The expired connection should have been closed instead of returned to the pool
+      assertEquals(0, subject.getTotalConnections());
+      assertEquals(0, subject.getIdleConnections());
+    }
+  }
+
+  @Test
+  public void testMinIdle() throws Exception {
+    try (CloudSpannerPoolingDataSource subject = createDataSource()) {
+      subject.setMinIdle(2);
+      subject.getConnection().close();
+      long deadline = System.currentTimeMillis() + 10000L;
+      while (subject.getIdleConnections() < 2 && System.currentTimeMillis() < deadline)
+        Thread.sleep(10L);
+      assertEquals(2, subject.getIdleConnections());
+      assertEquals(2, subject.getTotalConnections());
+    }
+  }
+
+  @Test
+  public void testInvalidPoolSettings() throws SQLException {
+    try (CloudSpannerPoolingDataSource subject = createDataSource()) {
+      subject.setMinIdle(5);
+      subject.getConnection();
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(Code.INVALID_ARGUMENT, e.getCode());
+    }
+  }
+
+  @Test
+  public void testClose() throws SQLException {
+    CloudSpannerPoolingDataSource subject = createDataSource();
+    Connection connection = subject.getConnection();
+    subject.getConnection().close();
+    assertEquals(1, subject.getIdleConnections());
+    subject.close();
+    assertTrue(subject.isClosed());
+    assertEquals(0, subject.getIdleConnections());
+    assertEquals(1, subject.getTotalConnections());
+    // Connections that are in use are closed when they are returned
+    connection.close();
+    assertEquals(0, subject.getTotalConnections());
+    try {
+      subject.getConnection();
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(Code.FAILED_PRECONDITION, e.getCode());
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+package nl.topicus.jdbc;
+
+import java.io.IOException;
+import java.util.Arrays;
+import nl.topicus.jdbc.CloudSpannerCredentialsCache.CredentialsLoader;
+
+/**
+ * Microbenchmark for the time it takes to resolve the credentials of a new connection from a
+ * credentials file. The benchmark compares reading and parsing the file for each connection with
+ * the {@link CloudSpannerCredentialsCache} of the driver. Only the credentials resolution is
+ * measured, no connection or {@link com.google.cloud.spanner.Spanner} instance is created.
+ *
+ * This is not a unit test and is not run by the build. Run it from the IDE or with
+ * <code>java -cp ... nl.topicus.jdbc.CredentialsCacheBenchmark credentialsFile [iterations]</code>
+ * where credentialsFile is a local service account key file.
+ *
+ * @author loite
+ *
+ */
+public class CredentialsCacheBenchmark {
+
+  private static long[] measure(CredentialsLoader loader, String credentialsPath, int iterations)
+      throws IOException {
+    long[] latencies = new long[iterations];
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      loader.load(credentialsPath);
+      latencies[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private static void run(String name, CredentialsLoader loader, String credentialsPath,
+      int iterations) throws IOException {
+    // Warm up
+    measure(loader, credentialsPath, iterations);
+    long[] latencies = measure(loader, credentialsPath, iterations);
+    System.out.println(String.format("%-20s p50: %10.2f us   p99: %10.2f us   p99.9: %10.2f us",
+        name, percentile(latencies, 50d) / 1000d, percentile(latencies, 99d) / 1000d,
+        percentile(latencies, 99.9d) / 1000d));
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: CredentialsCacheBenchmark credentialsFile [iterations]");
+      return;
+    }
+    String credentialsPath = args[0];
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+    CloudSpannerCredentialsCache cache = new CloudSpannerCredentialsCache(
+        CloudSpannerConnection::getCredentialsFromFile, Long.MAX_VALUE);
+    System.out.println("Credentials resolution per connection, " + iterations + " iterations");
+    run("Uncached", CloudSpannerConnection::getCredentialsFromFile, credentialsPath, iterations);
+    run("Cached", cache::getCredentialsFromFile, credentialsPath, iterations);
+  }
+
+}
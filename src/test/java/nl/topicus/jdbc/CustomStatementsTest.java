@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -21,15 +22,23 @@ import org.junit.experimental.categories.Category;
 import org.mockito.internal.stubbing.answers.Returns;
 import com.google.cloud.spanner.DatabaseAdminClient;
 import com.google.cloud.spanner.Operation;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.rpc.Code;
 import com.google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata;
 import nl.topicus.jdbc.CloudSpannerConnection.CloudSpannerDatabaseSpecification;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
 import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.util.PartitionOptionsUtil;
+import nl.topicus.jdbc.util.TimestampBoundUtil;
 
 @Category(UnitTest.class)
 public class CustomStatementsTest {
   private static final List<String> CONNECTION_PROPERTIES =
       Arrays.asList("AllowExtendedMode", "AsyncDdlOperations", "AutoBatchDdlOperations",
-          "ReportDefaultSchemaAsNull", "BatchReadOnlyMode");
+          "ReportDefaultSchemaAsNull", "BatchReadOnlyMode", "RetryAbortsInternally");
+
+  private static final List<String> NON_BOOLEAN_CONNECTION_PROPERTIES =
+      Arrays.asList("ReadTimestampBound", "MaxPartitions", "PartitionSizeBytes");
 
   private Connection connection;
 
@@ -44,11 +53,12 @@ public class CustomStatementsTest {
     Statement statement = connection.createStatement();
     try (ResultSet rs = statement.executeQuery("GET_CONNECTION_PROPERTY")) {
       while (rs.next()) {
-        assertTrue(CONNECTION_PROPERTIES.contains(rs.getString("NAME")));
+        assertTrue(CONNECTION_PROPERTIES.contains(rs.getString("NAME"))
+            || NON_BOOLEAN_CONNECTION_PROPERTIES.contains(rs.getString("NAME")));
         count++;
       }
     }
-    assertEquals(CONNECTION_PROPERTIES.size(), count);
+    assertEquals(CONNECTION_PROPERTIES.size() + NON_BOOLEAN_CONNECTION_PROPERTIES.size(), count);
 
     for (String prop : CONNECTION_PROPERTIES) {
       try (ResultSet rs = statement.executeQuery("GET_CONNECTION_PROPERTY " + prop)) {
@@ -75,6 +85,64 @@ public class CustomStatementsTest {
     }
   }
 
+  @Test
+  public void testSetReadTimestampBound() throws SQLException {
+    Statement statement = connection.createStatement();
+    assertEquals("STRONG", getConnectionProperty(statement, "ReadTimestampBound"));
+    for (String value : new String[] {"MAX_STALENESS:10s", "EXACT_STALENESS:500ms",
+        "READ_TIMESTAMP:2018-01-26T10:15:30.123456000Z",
+        "MIN_READ_TIMESTAMP:2018-01-26T10:15:30Z", "STRONG"}) {
+      assertEquals(1,
+          statement.executeUpdate("SET_CONNECTION_PROPERTY ReadTimestampBound=" + value));
+      assertEquals(TimestampBoundUtil.parse(value),
+          ((CloudSpannerConnection) connection).getReadTimestampBound());
+    }
+    statement.executeUpdate("SET_CONNECTION_PROPERTY ReadTimestampBound=MAX_STALENESS:15s");
+    assertEquals("MAX_STALENESS:15s", getConnectionProperty(statement, "ReadTimestampBound"));
+    assertEquals(1, statement.executeUpdate("RESET_CONNECTION_PROPERTY ReadTimestampBound"));
+    assertEquals(TimestampBound.strong(),
+        ((CloudSpannerConnection) connection).getReadTimestampBound());
+    try {
+      statement.executeUpdate("SET_CONNECTION_PROPERTY ReadTimestampBound=MAX_STALENESS:foo");
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(Code.INVALID_ARGUMENT, e.getCode());
+    }
+  }
+
+  @Test
+  public void testSetPartitionOptions() throws SQLException {
+    Statement statement = connection.createStatement();
+    CloudSpannerConnection cs = (CloudSpannerConnection) connection;
+    assertEquals("0", getConnectionProperty(statement, "MaxPartitions"));
+    assertEquals("0", getConnectionProperty(statement, "PartitionSizeBytes"));
+    assertEquals(1, statement.executeUpdate("SET_CONNECTION_PROPERTY MaxPartitions=50"));
+    assertEquals(50L, cs.getMaxPartitions());
+    assertEquals(1, statement.executeUpdate("SET_CONNECTION_PROPERTY MaxPartitions=AUTO"));
+    assertEquals(PartitionOptionsUtil.AUTO_MAX_PARTITIONS, cs.getMaxPartitions());
+    assertEquals("AUTO", getConnectionProperty(statement, "MaxPartitions"));
+    assertEquals(1, statement.executeUpdate("SET_CONNECTION_PROPERTY PartitionSizeBytes=512MB"));
+    assertEquals(512L * 1024L * 1024L, cs.getPartitionSizeBytes());
+    assertEquals(1, statement.executeUpdate("RESET_CONNECTION_PROPERTY MaxPartitions"));
+    assertEquals(0L, cs.getMaxPartitions());
+    assertEquals(1, statement.executeUpdate("RESET_CONNECTION_PROPERTY PartitionSizeBytes"));
+    assertEquals(0L, cs.getPartitionSizeBytes());
+    try {
+      statement.executeUpdate("SET_CONNECTION_PROPERTY MaxPartitions=many");
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(Code.INVALID_ARGUMENT, e.getCode());
+    }
+  }
+
+  private static String getConnectionProperty(Statement statement, String property)
+      throws SQLException {
+    try (ResultSet rs = statement.executeQuery("GET_CONNECTION_PROPERTY " + property)) {
+      assertTrue(rs.next());
+      return rs.getString("VALUE");
+    }
+  }
+
   @Test
   public void testShowDDLOperations() throws SQLException, NoSuchFieldException, SecurityException,
       IllegalArgumentException, IllegalAccessException {
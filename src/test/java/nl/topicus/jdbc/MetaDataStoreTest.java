@@ -2,6 +2,7 @@ package nl.topicus.jdbc;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import java.lang.reflect.Field;
@@ -26,6 +27,8 @@ public class MetaDataStoreTest {
     assertNotNull(fooUpperCase);
     assertEquals(fooLowerCase, fooUpperCase);
     assertArrayEquals(new String[] {"ID"}, fooUpperCase.getKeyColumns().toArray());
+    assertFalse(fooUpperCase.isDescending("ID"));
+    assertEquals(0, fooUpperCase.getNumberOfIndices());
     assertArrayEquals(new String[] {"ID1", "ID2"},
         subject.getTable("BAR").getKeyColumns().toArray());
   }
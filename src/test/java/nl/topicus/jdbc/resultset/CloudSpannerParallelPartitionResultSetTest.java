@@ -0,0 +1,205 @@
+package nl.topicus.jdbc.resultset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.ForwardingResultSet;
+import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.statement.CloudSpannerStatement;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class CloudSpannerParallelPartitionResultSetTest {
+  private static final Type TYPE =
+      Type.struct(StructField.of("ID", Type.int64()), StructField.of("NAME", Type.string()));
+
+  private static ResultSet createPartitionResult(int partition, int rows) {
+    List<Struct> list = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      long id = partition * 100000L + i;
+      list.add(Struct.newBuilder().set("ID").to(id).set("NAME").to("name" + id).build());
+    }
+    return ResultSets.forRows(TYPE, list);
+  }
+
+  private static CloudSpannerParallelPartitionResultSet createSubject(
+      BatchReadOnlyTransaction transaction, List<Partition> partitions, int parallelism,
+      int bufferSize) {
+    return new CloudSpannerParallelPartitionResultSet(mock(CloudSpannerStatement.class),
+        transaction, partitions, "SELECT * FROM FOO", parallelism, bufferSize);
+  }
+
+  @Test
+  public void testAllRowsOfAllPartitions() throws SQLException {
+    int[] rowsPerPartition = {250, 0, 1, 999, 100, 37};
+    BatchReadOnlyTransaction transaction = mock(BatchReadOnlyTransaction.class);
+    List<Partition> partitions = new ArrayList<>();
+    int total = 0;
+    for (int i = 0; i < rowsPerPartition.length; i++) {
+      Partition partition = mock(Partition.class);
+      when(transaction.execute(partition))
+          .thenReturn(createPartitionResult(i, rowsPerPartition[i]));
+      partitions.add(partition);
+      total += rowsPerPartition[i];
+    }
+    try (CloudSpannerParallelPartitionResultSet rs =
+        createSubject(transaction, partitions, 3, 50)) {
+      assertEquals(2, rs.getMetaData().getColumnCount());
+      assertTrue(rs.isBeforeFirst());
+      Set<Long> ids = new HashSet<>();
+      while (rs.next()) {
+        long id = rs.getLong("ID");
+        assertEquals("name" + id, rs.getString(2));
+        assertTrue(ids.add(id));
+      }
+      assertEquals(total, ids.size());
+      assertEquals(total, rs.getRow() - 1);
+      assertTrue(rs.isAfterLast());
+      assertFalse(rs.next());
+    }
+  }
+
+  @Test
+  public void testEmptyResult() throws SQLException {
+    BatchReadOnlyTransaction transaction = mock(BatchReadOnlyTransaction.class);
+    List<Partition> partitions = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Partition partition = mock(Partition.class);
+      when(transaction.execute(partition)).thenReturn(createPartitionResult(i, 0));
+      partitions.add(partition);
+    }
+    try (CloudSpannerParallelPartitionResultSet rs =
+        createSubject(transaction, partitions, 2, 10)) {
+      assertFalse(rs.next());
+      assertEquals(2, rs.getMetaData().getColumnCount());
+    }
+  }
+
+  @Test
+  public void testParallelismAndBuffersAreBounded() throws SQLException, InterruptedException {
+    final int numberOfPartitions = 8;
+    final int parallelism = 2;
+    final int bufferSize = 10;
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger fetched = new AtomicInteger();
+    BatchReadOnlyTransaction transaction = mock(BatchReadOnlyTransaction.class);
+    List<Partition> partitions = new ArrayList<>();
+    for (int i = 0; i < numberOfPartitions; i++) {
+      Partition partition = mock(Partition.class);
+      final int index = i;
+      when(transaction.execute(partition)).thenAnswer(invocation -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        return new ForwardingResultSet(createPartitionResult(index, 1000)) {
+          @Override
+          public boolean next() {
+            boolean res = super.next();
+            if (res)
+              fetched.incrementAndGet();
+            return res;
+          }
+
+          @Override
+          public void close() {
+            running.decrementAndGet();
+            super.close();
+          }
+        };
+      });
+      partitions.add(partition);
+    }
+    try (CloudSpannerParallelPartitionResultSet rs =
+        createSubject(transaction, partitions, parallelism, bufferSize)) {
+      assertTrue(rs.next());
+      Thread.sleep(100L);
+      // The partitions share a buffer of parallelism * bufferSize rows, and each running partition
+      // may have fetched one more chunk that is waiting for space in the buffer. The application
+      // holds the chunk that it is reading.
+      assertTrue(fetched.get() <= parallelism * 2 * bufferSize + bufferSize);
+      int count = 1;
+      while (rs.next())
+        count++;
+      assertEquals(numberOfPartitions * 1000, count);
+    }
+    assertTrue(maxRunning.get() <= parallelism);
+  }
+
+  @Test
+  public void testBufferIsSharedByAllPartitions() throws SQLException, InterruptedException {
+    final int numberOfPartitions = 20;
+    final int parallelism = 2;
+    final int bufferSize = 10;
+    AtomicInteger fetched = new AtomicInteger();
+    BatchReadOnlyTransaction transaction = mock(BatchReadOnlyTransaction.class);
+    List<Partition> partitions = new ArrayList<>();
+    for (int i = 0; i < numberOfPartitions; i++) {
+      Partition partition = mock(Partition.class);
+      final int index = i;
+      // Each partition fits in one buffer and finishes before its rows have been consumed
+      when(transaction.execute(partition))
+          .thenAnswer(invocation -> new ForwardingResultSet(createPartitionResult(index, 10)) {
+            @Override
+            public boolean next() {
+              boolean res = super.next();
+              if (res)
+                fetched.incrementAndGet();
+              return res;
+            }
+          });
+      partitions.add(partition);
+    }
+    try (CloudSpannerParallelPartitionResultSet rs =
+        createSubject(transaction, partitions, parallelism, bufferSize)) {
+      assertTrue(rs.next());
+      Thread.sleep(100L);
+      assertTrue(fetched.get() <= parallelism * 2 * bufferSize + bufferSize);
+      int count = 1;
+      while (rs.next())
+        count++;
+      assertEquals(numberOfPartitions * 10, count);
+    }
+  }
+
+  @Test
+  public void testPartitionFails() throws SQLException {
+    BatchReadOnlyTransaction transaction = mock(BatchReadOnlyTransaction.class);
+    List<Partition> partitions = new ArrayList<>();
+    Partition partition = mock(Partition.class);
+    when(transaction.execute(partition)).thenReturn(createPartitionResult(0, 10));
+    partitions.add(partition);
+    Partition failing = mock(Partition.class);
+    when(transaction.execute(failing)).thenThrow(
+        SpannerExceptionFactory.newSpannerException(ErrorCode.DEADLINE_EXCEEDED, "timeout"));
+    partitions.add(failing);
+    try (CloudSpannerParallelPartitionResultSet rs =
+        createSubject(transaction, partitions, 2, 10)) {
+      while (rs.next()) {
+        // consume rows until the failure is reported
+      }
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(com.google.rpc.Code.DEADLINE_EXCEEDED, e.getCode());
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package nl.topicus.jdbc.statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.ByteArray;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class AdaptiveBatchSizerTest {
+
+  @Test
+  public void testInitialBatchSizeIsLimitedByMutations() {
+    assertEquals(1000L, new AdaptiveBatchSizer(1000L, 10).getBatchSize());
+    // 10 mutations per row allows at most 2,000 rows per commit
+    assertEquals(2000L, new AdaptiveBatchSizer(5000L, 10).getBatchSize());
+    assertEquals(1L, new AdaptiveBatchSizer(100L, 50000).getBatchSize());
+  }
+
+  @Test
+  public void testGrowWhenFast() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(500L, 2, 1000L);
+    sizer.record(500L, 5000L, 250L);
+    // The batch size may at most double per commit
+    assertEquals(1000L, sizer.getBatchSize());
+    sizer.record(1000L, 10000L, 800L);
+    assertEquals(1250L, sizer.getBatchSize());
+    // A batch that was not full does not grow the batch size
+    sizer.record(10L, 100L, 1L);
+    assertEquals(1250L, sizer.getBatchSize());
+    // The batch size never exceeds the mutation limit
+    for (int i = 0; i < 10; i++)
+      sizer.record(sizer.getBatchSize(), sizer.getBatchSize() * 10L, 1L);
+    assertEquals(AdaptiveBatchSizer.MAX_MUTATIONS_PER_COMMIT / 2, sizer.getBatchSize());
+  }
+
+  @Test
+  public void testShrinkWhenSlow() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000L, 2, 1000L);
+    sizer.record(1000L, 10000L, 1250L);
+    assertEquals(800L, sizer.getBatchSize());
+    // The batch size may at most halve per commit
+    sizer.record(800L, 8000L, 10000L);
+    assertEquals(400L, sizer.getBatchSize());
+    // A slow batch that was not full shrinks the batch size based on its own size
+    sizer.record(100L, 1000L, 2000L);
+    assertEquals(50L, sizer.getBatchSize());
+  }
+
+  @Test
+  public void testBatchSizeIsLimitedByBytes() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000L, 1, 1000L);
+    // Rows of 1MB allow at most 50 rows per commit
+    sizer.record(10L, 10L * 1024L * 1024L, 100L);
+    assertEquals(50L, sizer.getMaxBatchSize());
+    assertEquals(50L, sizer.getBatchSize());
+  }
+
+  @Test
+  public void testEstimateSize() {
+    Mutation insert = Mutation.newInsertBuilder("FOO").set("ID").to(1L).set("NAME")
+        .to("\u00e4bc").set("DATA").to(ByteArray.copyFrom(new byte[100])).set("TAGS")
+        .toStringArray(Arrays.asList("a", null, "bc")).build();
+    // Table and column names + 8 + 4 + 100 + 4
+    assertEquals(3L + 14L + 8L + 4L + 100L + 4L, AdaptiveBatchSizer.estimateSize(insert));
+    Mutation delete = Mutation.delete("FOO", Key.of(1L));
+    assertTrue(AdaptiveBatchSizer.estimateSize(delete) > 3L);
+  }
+
+}
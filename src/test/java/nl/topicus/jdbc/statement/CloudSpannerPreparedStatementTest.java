@@ -22,6 +22,7 @@ import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
@@ -41,8 +42,13 @@ import com.google.api.client.util.Lists;
 import com.google.cloud.ByteArray;
 import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
+import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.Mutation.Op;
+import com.google.cloud.spanner.TransactionContext;
+import com.google.cloud.spanner.TransactionRunner;
+import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
 import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Value;
 import com.google.rpc.Code;
@@ -50,6 +56,7 @@ import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.create.table.CreateTable;
+import nl.topicus.jdbc.AutoCommitWriteMode;
 import nl.topicus.jdbc.CloudSpannerArray;
 import nl.topicus.jdbc.CloudSpannerConnection;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
@@ -61,6 +68,12 @@ import nl.topicus.jdbc.test.util.CloudSpannerTestObjects;
 public class CloudSpannerPreparedStatementTest {
 
   public static class DeleteStatementTests {
+    /**
+     * Null values are excluded from key ranges that are not bounded on the side where null values
+     * are sorted
+     */
+    private static final Key NULL_KEY = Key.newBuilder().appendObject(null).build();
+
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
@@ -205,6 +218,62 @@ public class CloudSpannerPreparedStatementTest {
           mutations.getWorker().select.toString());
     }
 
+    private static Mutations getDeleteKeyRangeMutations(String sql) throws SQLException {
+      CloudSpannerConnection connection = CloudSpannerTestObjects.createConnection();
+      Mockito.when(connection.isDeleteKeyRanges()).thenReturn(true);
+      return getMutations(new CloudSpannerPreparedStatement(sql, connection, null));
+    }
+
+    private static KeySet getDeleteKeyRange(String sql) throws SQLException {
+      Mutations mutations = getDeleteKeyRangeMutations(sql);
+      Assert.assertFalse(mutations.isWorker());
+      Assert.assertEquals(java.sql.Statement.SUCCESS_NO_INFO, mutations.getNumberOfResults());
+      Mutation deleteMutation = mutations.getMutations().get(0);
+      Assert.assertEquals(Op.DELETE, deleteMutation.getOperation());
+      return deleteMutation.getKeySet();
+    }
+
+    @Test()
+    public void testDeleteKeyRangeWithBetween() throws SQLException {
+      Assert.assertEquals(KeySet.range(KeyRange.closedClosed(Key.of(1L), Key.of(10L))),
+          getDeleteKeyRange("DELETE FROM FOO WHERE ID BETWEEN 1 AND 10"));
+    }
+
+    @Test()
+    public void testDeleteKeyRangeWithLargerThan() throws SQLException {
+      Assert.assertEquals(KeySet.range(KeyRange.openClosed(Key.of(2L), Key.of())),
+          getDeleteKeyRange("DELETE FROM FOO WHERE ID>2"));
+      Assert.assertEquals(KeySet.range(KeyRange.closedClosed(Key.of(2L), Key.of())),
+          getDeleteKeyRange("DELETE FROM FOO WHERE ID>=2"));
+    }
+
+    @Test()
+    public void testDeleteKeyRangeWithLessThan() throws SQLException {
+      Assert.assertEquals(KeySet.range(KeyRange.openOpen(NULL_KEY, Key.of(2L))),
+          getDeleteKeyRange("DELETE FROM FOO WHERE ID<2"));
+      Assert.assertEquals(KeySet.range(KeyRange.openClosed(NULL_KEY, Key.of(2L))),
+          getDeleteKeyRange("DELETE FROM FOO WHERE ID<=2"));
+      Assert.assertEquals(KeySet.range(KeyRange.openOpen(NULL_KEY, Key.of(-2L))),
+          getDeleteKeyRange("DELETE FROM FOO WHERE ID<-2"));
+    }
+
+    @Test()
+    public void testDeleteKeyRangeWithFunction() throws SQLException {
+      Mutations mutations = getDeleteKeyRangeMutations("DELETE FROM FOO WHERE ID>ABS(-5)");
+      Assert.assertEquals(DeleteWorker.class, mutations.getWorker().getClass());
+      Assert.assertEquals("SELECT `FOO`.`ID` FROM `FOO` WHERE ID > ABS(-5)",
+          mutations.getWorker().select.toString());
+    }
+
+    @Test()
+    public void testDeleteKeyRangeWithCast() throws SQLException {
+      Mutations mutations =
+          getDeleteKeyRangeMutations("DELETE FROM FOO WHERE ID<CAST('5' AS INT64)");
+      Assert.assertEquals(DeleteWorker.class, mutations.getWorker().getClass());
+      Assert.assertEquals("SELECT `FOO`.`ID` FROM `FOO` WHERE ID < CAST('5' AS INT64)",
+          mutations.getWorker().select.toString());
+    }
+
     @Test()
     public void testDeleteStatementWithLike() throws SQLException {
       Mutations mutations = getMutations("DELETE FROM FOO WHERE ID LIKE 'TEST'");
@@ -713,6 +782,66 @@ public class CloudSpannerPreparedStatementTest {
       Assert.assertEquals(0, batchMutations.size());
     }
 
+    @Test
+    public void testBatchedInsertStatementsInAutoCommit() throws SQLException {
+      List<Mutation> buffered = new ArrayList<>();
+      TransactionContext transaction = Mockito.mock(TransactionContext.class);
+      Mockito.doAnswer(invocation -> {
+        Iterable<Mutation> mutations = invocation.getArgument(0);
+        mutations.forEach(buffered::add);
+        return null;
+      }).when(transaction).buffer(Mockito.anyIterable());
+      TransactionRunner runner = Mockito.mock(TransactionRunner.class);
+      Mockito.when(runner.run(Mockito.any())).then(invocation -> {
+        TransactionCallable<?> callable = invocation.getArgument(0);
+        return callable.run(transaction);
+      });
+      DatabaseClient dbClient = Mockito.mock(DatabaseClient.class);
+      Mockito.when(dbClient.readWriteTransaction()).thenReturn(runner);
+      CloudSpannerConnection connection = CloudSpannerTestObjects.createConnection();
+      connection.setAutoCommit(true);
+      String sql = "INSERT INTO FOO (COL1, COL2, COL3) VALUES (?, ?, ?)";
+      CloudSpannerPreparedStatement ps =
+          new CloudSpannerPreparedStatement(sql, connection, dbClient);
+      for (int i = 1; i <= 3; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, String.valueOf(i));
+        ps.setBytes(3, String.valueOf(i).getBytes());
+        ps.addBatch();
+      }
+      Assert.assertArrayEquals(new int[] {1, 1, 1}, ps.executeBatch());
+      // All rows are written in one transaction
+      Mockito.verify(dbClient, Mockito.times(1)).readWriteTransaction();
+      Assert.assertEquals(3, buffered.size());
+    }
+
+    @Test
+    public void testBatchedInsertStatementsWithAutoCommitWriteMode() throws SQLException {
+      for (AutoCommitWriteMode mode : new AutoCommitWriteMode[] {AutoCommitWriteMode.WRITE,
+          AutoCommitWriteMode.WRITE_AT_LEAST_ONCE}) {
+        DatabaseClient dbClient = Mockito.mock(DatabaseClient.class);
+        CloudSpannerConnection connection = CloudSpannerTestObjects.createConnection();
+        connection.setAutoCommit(true);
+        Mockito.when(connection.getAutoCommitWriteMode()).thenReturn(mode);
+        String sql = "INSERT INTO FOO (COL1, COL2, COL3) VALUES (?, ?, ?)";
+        CloudSpannerPreparedStatement ps =
+            new CloudSpannerPreparedStatement(sql, connection, dbClient);
+        for (int i = 1; i <= 3; i++) {
+          ps.setInt(1, i);
+          ps.setString(2, String.valueOf(i));
+          ps.setBytes(3, String.valueOf(i).getBytes());
+          ps.addBatch();
+        }
+        Assert.assertArrayEquals(new int[] {1, 1, 1}, ps.executeBatch());
+        // The rows are written without starting a read/write transaction
+        Mockito.verify(dbClient, Mockito.never()).readWriteTransaction();
+        if (mode == AutoCommitWriteMode.WRITE)
+          Mockito.verify(dbClient, Mockito.times(1)).write(Mockito.anyIterable());
+        else
+          Mockito.verify(dbClient, Mockito.times(1)).writeAtLeastOnce(Mockito.anyIterable());
+      }
+    }
+
     @Test
     public void testClearBatch() throws SQLException, NoSuchFieldException, SecurityException,
         IllegalArgumentException, IllegalAccessException {
@@ -1346,8 +1475,11 @@ public class CloudSpannerPreparedStatementTest {
   }
 
   public static Mutations getMutations(String sql) throws SQLException {
+    return getMutations(CloudSpannerTestObjects.createPreparedStatement(sql));
+  }
+
+  private static Mutations getMutations(CloudSpannerPreparedStatement ps) throws SQLException {
     Mutations mutations = null;
-    CloudSpannerPreparedStatement ps = CloudSpannerTestObjects.createPreparedStatement(sql);
     try {
       Method createMutations = ps.getClass().getDeclaredMethod("createMutations");
       createMutations.setAccessible(true);
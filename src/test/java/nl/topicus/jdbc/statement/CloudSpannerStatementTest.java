@@ -11,15 +11,22 @@ import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.List;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.internal.stubbing.answers.Returns;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Value;
+import com.google.common.collect.Lists;
 import nl.topicus.jdbc.CloudSpannerConnection;
 import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.resultset.CloudSpannerResultSet;
 import nl.topicus.jdbc.statement.CloudSpannerStatement.BatchMode;
 import nl.topicus.jdbc.test.category.UnitTest;
 import nl.topicus.jdbc.test.util.CloudSpannerTestObjects;
@@ -238,6 +245,56 @@ public class CloudSpannerStatementTest {
     assertEquals(0, statement.getBatch().size());
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBatchDMLTemplates() throws SQLException {
+    CloudSpannerConnection connection = createConnection();
+    CloudSpannerStatement statement = connection.createStatement();
+    statement.addBatch("INSERT INTO FOO (COL1, COL2, COL3) VALUES (1, 'one', 1.5)");
+    statement.addBatch("INSERT INTO FOO (COL1, COL2, COL3) VALUES (2, 'two', -2.5)");
+    statement.addBatch("INSERT INTO FOO (COL1, COL2, COL3) VALUES (3, 'it''s', 3.5)");
+    statement.addBatch("UPDATE FOO SET COL2='four' WHERE ID=4");
+
+    int[] res = statement.executeBatch();
+    Assert.assertArrayEquals(new int[] {1, 1, 1, 1}, res);
+    // The first two statements share the same template, the third contains an escaped quote
+    Mockito.verify(connection)
+        .prepareStatement("INSERT INTO FOO (COL1, COL2, COL3) VALUES (?, ?, ?)");
+    Mockito.verify(connection)
+        .prepareStatement("INSERT INTO FOO (COL1, COL2, COL3) VALUES (3, 'it''s', 3.5)");
+    Mockito.verify(connection).prepareStatement("UPDATE FOO SET COL2='four' WHERE ID=?");
+    Mockito.verify(connection, Mockito.times(3)).prepareStatement(Mockito.anyString());
+    // All mutations are buffered in one call
+    ArgumentCaptor<Iterable<Mutation>> mutations = ArgumentCaptor.forClass(Iterable.class);
+    Mockito.verify(connection.getTransaction()).buffer(mutations.capture());
+    List<Mutation> buffered = Lists.newArrayList(mutations.getValue());
+    assertEquals(4, buffered.size());
+    assertEquals(Value.int64(2L), buffered.get(1).asMap().get("COL1"));
+    assertEquals(Value.string("two"), buffered.get(1).asMap().get("COL2"));
+    assertEquals(Value.float64(-2.5D), buffered.get(1).asMap().get("COL3"));
+  }
+
+  @Test
+  public void testBatchDMLWorkers() throws SQLException {
+    CloudSpannerConnection connection = createConnection();
+    CloudSpannerPreparedStatement select = Mockito.mock(CloudSpannerPreparedStatement.class);
+    Mockito.when(select.executeQuery()).thenReturn(Mockito.mock(CloudSpannerResultSet.class));
+    Mockito.when(connection.prepareStatement(Mockito.startsWith("SELECT"))).thenReturn(select);
+    CloudSpannerStatement statement = connection.createStatement();
+    statement.addBatch("DELETE FROM FOO WHERE COL1='a'");
+    statement.addBatch("DELETE FROM FOO WHERE COL1='b'");
+
+    int[] res = statement.executeBatch();
+    Assert.assertArrayEquals(new int[] {0, 0}, res);
+    // Both statements share the same template, but each worker must select with its own value
+    Mockito.verify(connection).prepareStatement("DELETE FROM FOO WHERE COL1=?");
+    InOrder inOrder = Mockito.inOrder(select);
+    inOrder.verify(select).setObject(1, "a");
+    inOrder.verify(select).executeQuery();
+    inOrder.verify(select).setObject(1, "b");
+    inOrder.verify(select).executeQuery();
+  }
+
   @Test
   public void testBatchDMLThenDDL() throws SQLException {
     CloudSpannerConnection connection = createConnection();
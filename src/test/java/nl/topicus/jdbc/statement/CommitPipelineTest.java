@@ -0,0 +1,84 @@
+package nl.topicus.jdbc.statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.spanner.Mutation;
+import nl.topicus.jdbc.CloudSpannerConnection;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.test.util.CloudSpannerTestObjects;
+
+@Category(UnitTest.class)
+public class CommitPipelineTest {
+  private final List<CloudSpannerConnection> writers = new ArrayList<>();
+
+  private final AtomicInteger bufferedMutations = new AtomicInteger();
+
+  private final AtomicInteger commits = new AtomicInteger();
+
+  private final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100L, 1);
+
+  private CloudSpannerConnection createConnection(boolean failOnBuffer) throws SQLException {
+    CloudSpannerConnection connection = CloudSpannerTestObjects.createConnection();
+    when(connection.createCopyConnection()).then(invocation -> {
+      CloudSpannerConnection writer = CloudSpannerTestObjects.createConnection();
+      if (failOnBuffer) {
+        doThrow(new IllegalStateException("Mutations are not allowed"))
+            .when(writer.getTransaction()).buffer(anyIterable());
+      } else {
+        doAnswer(buffer -> {
+          Iterable<?> mutations = buffer.getArgument(0);
+          mutations.forEach(m -> bufferedMutations.incrementAndGet());
+          return null;
+        }).when(writer.getTransaction()).buffer(anyIterable());
+      }
+      doAnswer(commit -> commits.incrementAndGet()).when(writer).commit();
+      synchronized (writers) {
+        writers.add(writer);
+      }
+      return writer;
+    });
+    return connection;
+  }
+
+  private static List<Mutation> createBatch(long id) {
+    return Arrays.asList(Mutation.newInsertBuilder("FOO").set("ID").to(id).build(),
+        Mutation.newInsertBuilder("FOO").set("ID").to(-id).build());
+  }
+
+  @Test
+  public void testCommit() throws SQLException {
+    try (CommitPipeline pipeline = new CommitPipeline(createConnection(false), 3, sizer)) {
+      for (long id = 1; id <= 10; id++)
+        pipeline.commit(createBatch(id), 2L, 20L);
+      pipeline.finish();
+    }
+    assertEquals(3, writers.size());
+    assertEquals(20, bufferedMutations.get());
+    assertEquals(10, commits.get());
+  }
+
+  @Test
+  public void testCommitFailure() throws SQLException {
+    try (CommitPipeline pipeline = new CommitPipeline(createConnection(true), 2, sizer)) {
+      pipeline.commit(createBatch(1L), 2L, 20L);
+      pipeline.finish();
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(com.google.rpc.Code.UNKNOWN, e.getCode());
+    }
+    assertEquals(0, commits.get());
+  }
+
+}
@@ -0,0 +1,132 @@
+package nl.topicus.jdbc.statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
+import com.google.cloud.spanner.KeySet;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.delete.Delete;
+import nl.topicus.jdbc.MetaDataStore.TableKeyMetaData;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class DeleteKeyRangesTest {
+  private static final Key NULL_KEY = Key.newBuilder().appendObject(null).build();
+
+  private static TableKeyMetaData createTable(boolean descending) throws SQLException {
+    TableKeyMetaData table = Mockito.mock(TableKeyMetaData.class);
+    Mockito.when(table.getKeyColumns()).thenReturn(Arrays.asList("TENANT_ID", "CREATED", "ID"));
+    Mockito.when(table.isDescending(Mockito.anyString())).thenReturn(descending);
+    return table;
+  }
+
+  private static KeySet fromWhereClause(String sql, boolean descending, Object... parameters)
+      throws JSQLParserException, SQLException {
+    Delete delete = (Delete) CCJSqlParserUtil.parse(sql);
+    ParameterStore store = new ParameterStore();
+    for (int i = 0; i < parameters.length; i++)
+      store.setParameter(i + 1, parameters[i], Types.OTHER);
+    return DeleteKeyRanges.fromWhereClause(createTable(descending), delete.getWhere(), store);
+  }
+
+  @Test
+  public void testPrefix() throws JSQLParserException, SQLException {
+    assertEquals(KeySet.prefixRange(Key.of(1L)),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=?", false, 1L));
+    assertEquals(KeySet.prefixRange(Key.of(1L, 2L)),
+        fromWhereClause("DELETE FROM FOO WHERE CREATED=2 AND TENANT_ID=1", false));
+    assertEquals(KeySet.singleKey(Key.of(1L, 2L, 3L)),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=1 AND CREATED=2 AND ID=3", false));
+  }
+
+  @Test
+  public void testRange() throws JSQLParserException, SQLException {
+    assertEquals(
+        KeySet.range(KeyRange.openOpen(Key.of(1L).toBuilder().appendObject(null).build(),
+            Key.of(1L, 100L))),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=? AND CREATED<?", false, 1L, 100L));
+    assertEquals(KeySet.range(KeyRange.closedClosed(Key.of(1L, 100L), Key.of(1L))),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=1 AND 100<=CREATED", false));
+    assertEquals(KeySet.range(KeyRange.openClosed(Key.of(2L), Key.of())),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID>2", false));
+    assertEquals(KeySet.range(KeyRange.closedClosed(Key.of(2L), Key.of(10L))),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID BETWEEN 2 AND 10", false));
+    assertEquals(KeySet.range(KeyRange.closedOpen(Key.of(1L, 5L), Key.of(1L, 10L))),
+        fromWhereClause("DELETE FROM FOO WHERE (TENANT_ID=1 AND CREATED>=5) AND CREATED<10",
+            false));
+  }
+
+  @Test
+  public void testDescendingRange() throws JSQLParserException, SQLException {
+    assertEquals(KeySet.range(KeyRange.openOpen(Key.of(100L), NULL_KEY)),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID<100", true));
+    assertEquals(KeySet.range(KeyRange.closedOpen(Key.of(), Key.of(100L))),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID>100", true));
+    assertEquals(KeySet.range(KeyRange.closedOpen(Key.of(10L), Key.of(2L))),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID>2 AND TENANT_ID<=10", true));
+  }
+
+  @Test
+  public void testNoRange() throws JSQLParserException, SQLException {
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE CREATED<100", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=1 AND ID=2", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID>1 AND CREATED>2", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=1 AND COL1=2", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=1 OR TENANT_ID=2", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=1 AND TENANT_ID=2", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID<1 AND TENANT_ID<2", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID NOT BETWEEN 1 AND 2", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE NOT (TENANT_ID=1)", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID!=1", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=1+1", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=CREATED", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=?", false, (Object) null));
+  }
+
+  @Test
+  public void testFunctionAndCast() throws JSQLParserException, SQLException {
+    // The value of a function or cast is not the value of the literal inside it
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=LOWER('Abc')", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID>ABS(-5)", false));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=LOWER(?)", false, "Abc"));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=CAST('5' AS INT64)", false));
+    assertNull(
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=1 AND CREATED<CAST(? AS INT64)", false,
+            1L, "5"));
+    assertNull(fromWhereClause("DELETE FROM FOO WHERE TENANT_ID=-ABS(5)", false));
+  }
+
+  @Test
+  public void testSignedValue() throws JSQLParserException, SQLException {
+    assertEquals(KeySet.range(KeyRange.closedClosed(Key.of(-5L), Key.of(-1L))),
+        fromWhereClause("DELETE FROM FOO WHERE TENANT_ID BETWEEN -5 AND -1", false));
+  }
+
+  @Test
+  public void testCoalesce() {
+    List<Key> keys = Arrays.asList(Key.of(1L, 1L), Key.of(1L, 3L), Key.of(1L, 2L),
+        Key.of(1L, 5L), Key.of(2L, 6L), Key.of(2L, 7L), Key.of(1L, "A"));
+    assertEquals(
+        KeySet.newBuilder().addKey(Key.of(1L, "A"))
+            .addRange(KeyRange.closedClosed(Key.of(1L, 1L), Key.of(1L, 3L)))
+            .addKey(Key.of(1L, 5L))
+            .addRange(KeyRange.closedClosed(Key.of(2L, 6L), Key.of(2L, 7L))).build(),
+        DeleteKeyRanges.coalesce(keys, false));
+    assertEquals(
+        KeySet.newBuilder().addKey(Key.of(1L, "A"))
+            .addRange(KeyRange.closedClosed(Key.of(1L, 3L), Key.of(1L, 1L)))
+            .addKey(Key.of(1L, 5L))
+            .addRange(KeyRange.closedClosed(Key.of(2L, 7L), Key.of(2L, 6L))).build(),
+        DeleteKeyRanges.coalesce(keys, true));
+  }
+
+}
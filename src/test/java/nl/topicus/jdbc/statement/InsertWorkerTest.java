@@ -4,14 +4,25 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
 import org.mockito.internal.stubbing.answers.Returns;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import com.google.cloud.spanner.Mutation;
 import nl.topicus.jdbc.CloudSpannerConnection;
 import nl.topicus.jdbc.resultset.CloudSpannerResultSet;
 import nl.topicus.jdbc.resultset.CloudSpannerResultSetMetaData;
@@ -22,18 +33,21 @@ import nl.topicus.jdbc.test.util.CloudSpannerTestObjects;
 public class InsertWorkerTest {
   private static final boolean WITH_EXCEPTION = true;
 
-  private void createMocks(CloudSpannerConnection connection, String selectSQL, long count,
-      String updateSQL) throws SQLException {
-    createMocks(connection, selectSQL, count, updateSQL, false);
+  private final List<CloudSpannerConnection> copies = new ArrayList<>();
+
+  private void createMocks(CloudSpannerConnection connection, String selectSQL, long count)
+      throws SQLException {
+    createMocks(connection, selectSQL, count, false);
   }
 
   private void createMocks(CloudSpannerConnection connection, String selectSQL, long count,
-      String updateSQL, boolean throwExceptionOnUpdate) throws SQLException {
+      boolean throwExceptionOnUpdate) throws SQLException {
     when(connection.createCopyConnection()).thenAnswer(new Answer<CloudSpannerConnection>() {
       @Override
       public CloudSpannerConnection answer(InvocationOnMock invocation) throws Throwable {
         CloudSpannerConnection copy = CloudSpannerTestObjects.createConnection();
-        createMocks(copy, selectSQL, count, updateSQL);
+        createMocks(copy, selectSQL, count);
+        copies.add(copy);
         return copy;
       }
     });
@@ -47,6 +61,26 @@ public class InsertWorkerTest {
             .thenReturn(countStatement);
 
     CloudSpannerPreparedStatement selectStatement = mock(CloudSpannerPreparedStatement.class);
+    // The select statement is executed a second time if the worker switches to extended mode
+    CloudSpannerResultSet selectResultSet = createSelectResultSet(count);
+    CloudSpannerResultSet extendedSelectResultSet = createSelectResultSet(count);
+    when(selectStatement.executeQuery()).thenReturn(selectResultSet, extendedSelectResultSet);
+    // In batch read-only mode the select statement returns three partitions
+    CloudSpannerResultSet partition1 = createSelectResultSet(count / 3);
+    CloudSpannerResultSet partition2 = createSelectResultSet(count / 3);
+    CloudSpannerResultSet partition3 = createSelectResultSet(count - 2 * (count / 3));
+    when(selectStatement.execute()).thenReturn(true);
+    when(selectStatement.getResultSet()).thenReturn(partition1, partition2, partition3);
+    when(selectStatement.getMoreResults(java.sql.Statement.KEEP_CURRENT_RESULT)).thenReturn(true,
+        true, false);
+    when(connection.prepareStatement(selectSQL)).thenReturn(selectStatement);
+
+    if (throwExceptionOnUpdate)
+      doThrow(new IllegalStateException("Mutations are not allowed"))
+          .when(connection.getTransaction()).buffer(anyIterable());
+  }
+
+  private CloudSpannerResultSet createSelectResultSet(long count) throws SQLException {
     CloudSpannerResultSet selectResultSet = mock(CloudSpannerResultSet.class);
     CloudSpannerResultSetMetaData metadata = mock(CloudSpannerResultSetMetaData.class);
     when(metadata.getColumnCount()).thenReturn(3);
@@ -65,15 +99,21 @@ public class InsertWorkerTest {
     when(selectResultSet.getObject(2)).then(new Returns("TWO"));
     when(selectResultSet.getObject(3)).then(new Returns("TO"));
     when(selectResultSet.getMetaData()).thenReturn(metadata);
-    when(selectStatement.executeQuery()).thenReturn(selectResultSet);
-    when(connection.prepareStatement(selectSQL)).thenReturn(selectStatement);
+    return selectResultSet;
+  }
 
-    CloudSpannerPreparedStatement updateStatement = mock(CloudSpannerPreparedStatement.class);
-    if (throwExceptionOnUpdate)
-      when(updateStatement.executeUpdate()).thenThrow(SQLException.class);
-    else
-      when(updateStatement.executeUpdate()).thenReturn(1);
-    when(connection.prepareStatement(updateSQL)).thenReturn(updateStatement);
+  /**
+   * 
+   * @return All mutations that have been buffered in the transaction of the given connection
+   */
+  private static List<Mutation> getBufferedMutations(CloudSpannerConnection connection) {
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Iterable<Mutation>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(connection.getTransaction(), atLeast(0)).buffer(captor.capture());
+    List<Mutation> res = new ArrayList<>();
+    for (Iterable<Mutation> chunk : captor.getAllValues())
+      chunk.forEach(res::add);
+    return res;
   }
 
   private CloudSpannerPreparedStatement prepareSimpleInsert() throws SQLException {
@@ -83,48 +123,91 @@ public class InsertWorkerTest {
   private CloudSpannerPreparedStatement prepareSimpleInsert(boolean exception) throws SQLException {
     String sql = "INSERT INTO FOO (ID, COL1, COL2) SELECT 1, 'TWO', 'TO'";
     CloudSpannerPreparedStatement statement = CloudSpannerTestObjects.createPreparedStatement(sql);
-    String updateSQL = "INSERT INTO `FOO` (`ID`, `COL1`, `COL2`) VALUES \n(?, ?, ?)";
-    createMocks(statement.getConnection(), "SELECT 1, 'TWO', 'TO'", 1l, updateSQL, exception);
+    createMocks(statement.getConnection(), "SELECT 1, 'TWO', 'TO'", 1l, exception);
 
     return statement;
   }
 
   @Test
   public void testSimpleInsertStatement() throws SQLException {
-    int updates = prepareSimpleInsert().executeUpdate();
+    CloudSpannerPreparedStatement statement = prepareSimpleInsert();
+    int updates = statement.executeUpdate();
     assertEquals(1, updates);
+    assertEquals(
+        Arrays.asList(Mutation.newInsertBuilder("FOO").set("ID").to(1L).set("COL1").to("TWO")
+            .set("COL2").to("TO").build()),
+        getBufferedMutations(statement.getConnection()));
   }
 
   @Test
   public void testSimpleUpdateStatement() throws SQLException {
     String sql = "UPDATE FOO SET COL1='THREE', COL2='TRE' WHERE ID<100";
     CloudSpannerPreparedStatement statement = CloudSpannerTestObjects.createPreparedStatement(sql);
-    String updateSQL =
-        "INSERT INTO `FOO` (`ID`, `COL1`, `COL2`) VALUES \n(?, ?, ?) ON DUPLICATE KEY UPDATE";
     createMocks(statement.getConnection(),
-        "SELECT `FOO`.`ID`, 'THREE', 'TRE' FROM `FOO` WHERE ID < 100", 100l, updateSQL);
+        "SELECT `FOO`.`ID`, 'THREE', 'TRE' FROM `FOO` WHERE ID < 100", 100l);
     int updates = statement.executeUpdate();
     assertEquals(100, updates);
+    List<Mutation> mutations = getBufferedMutations(statement.getConnection());
+    assertEquals(100, mutations.size());
+    for (Mutation mutation : mutations) {
+      assertEquals(Mutation.newUpdateBuilder("FOO").set("ID").to(1L).set("COL1").to("TWO")
+          .set("COL2").to("TO").build(), mutation);
+    }
   }
 
   @Test
   public void testExtendedInsertStatement() throws SQLException {
     String sql = "INSERT INTO FOO (ID, COL1, COL2) SELECT COL4, COL5, COL6 FROM BAR";
     CloudSpannerPreparedStatement statement = CloudSpannerTestObjects.createPreparedStatement(sql);
-    String updateSQL = "INSERT INTO `FOO` (`ID`, `COL1`, `COL2`) VALUES \n(?, ?, ?)";
-    createMocks(statement.getConnection(), "SELECT COL4, COL5, COL6 FROM BAR", 6000l, updateSQL);
+    createMocks(statement.getConnection(), "SELECT COL4, COL5, COL6 FROM BAR", 6000l);
+    int updates = statement.executeUpdate();
+    assertEquals(6000, updates);
+    // Extended mode is chosen while streaming, without a separate count query
+    verify(statement.getConnection(), never()).prepareStatement(startsWith("SELECT COUNT(*)"));
+    // Extended mode writes all mutations on a separate connection
+    assertEquals(0, getBufferedMutations(statement.getConnection()).size());
+    assertEquals(1, copies.size());
+    assertEquals(6000, getBufferedMutations(copies.get(0)).size());
+  }
+
+  @Test
+  public void testParallelExtendedInsertStatement() throws SQLException {
+    String sql = "INSERT INTO FOO (ID, COL1, COL2) SELECT COL4, COL5, COL6 FROM BAR";
+    CloudSpannerPreparedStatement statement = CloudSpannerTestObjects.createPreparedStatement(sql);
+    when(statement.getConnection().getExtendedModeParallelism()).thenReturn(2);
+    createMocks(statement.getConnection(), "SELECT COL4, COL5, COL6 FROM BAR", 6000l);
+    int updates = statement.executeUpdate();
+    assertEquals(6000, updates);
+    // One reader connection in batch read-only mode and two writer connections
+    assertEquals(3, copies.size());
+    assertTrue(copies.get(0).isBatchReadOnly());
+    assertEquals(0, getBufferedMutations(copies.get(0)).size());
+    assertEquals(6000, getBufferedMutations(copies.get(1)).size()
+        + getBufferedMutations(copies.get(2)).size());
+    assertEquals(0, getBufferedMutations(statement.getConnection()).size());
+  }
+
+  @Test
+  public void testPipelinedExtendedInsertStatement() throws SQLException {
+    String sql = "INSERT INTO FOO (ID, COL1, COL2) SELECT COL4, COL5, COL6 FROM BAR";
+    CloudSpannerPreparedStatement statement = CloudSpannerTestObjects.createPreparedStatement(sql);
+    when(statement.getConnection().getMaxInFlightCommits()).thenReturn(2);
+    createMocks(statement.getConnection(), "SELECT COL4, COL5, COL6 FROM BAR", 6000l);
     int updates = statement.executeUpdate();
     assertEquals(6000, updates);
+    // Two writer connections that commit the batches asynchronously
+    assertEquals(2, copies.size());
+    assertEquals(6000, getBufferedMutations(copies.get(0)).size()
+        + getBufferedMutations(copies.get(1)).size());
+    assertEquals(0, getBufferedMutations(statement.getConnection()).size());
   }
 
   @Test
   public void testExtendedUpdateStatement() throws SQLException {
     String sql = "UPDATE FOO SET COL1='THREE', COL2='TRE' WHERE ID<6000";
     CloudSpannerPreparedStatement statement = CloudSpannerTestObjects.createPreparedStatement(sql);
-    String updateSQL =
-        "INSERT INTO `FOO` (`ID`, `COL1`, `COL2`) VALUES \n(?, ?, ?) ON DUPLICATE KEY UPDATE";
     createMocks(statement.getConnection(),
-        "SELECT `FOO`.`ID`, 'THREE', 'TRE' FROM `FOO` WHERE ID < 6000", 6000l, updateSQL);
+        "SELECT `FOO`.`ID`, 'THREE', 'TRE' FROM `FOO` WHERE ID < 6000", 6000l);
     int updates = statement.executeUpdate();
     assertEquals(6000, updates);
   }
@@ -0,0 +1,120 @@
+package nl.topicus.jdbc.statement;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.api.client.util.Lists;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.Op;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.update.Update;
+import nl.topicus.jdbc.CloudSpannerConnection;
+import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.test.util.CloudSpannerTestObjects;
+
+@Category(UnitTest.class)
+public class MutationTemplateTest {
+
+  private static MutationTemplate compile(String sql) throws JSQLParserException, SQLException {
+    CloudSpannerConnection connection = CloudSpannerTestObjects.createConnection();
+    net.sf.jsqlparser.statement.Statement statement = CCJSqlParserUtil.parse(sql);
+    if (statement instanceof Insert)
+      return MutationTemplate.compile((Insert) statement);
+    if (statement instanceof Update)
+      return MutationTemplate.compile((Update) statement,
+          connection.getTable(((Update) statement).getTables().get(0).getName()));
+    return MutationTemplate.compile((Delete) statement,
+        connection.getTable(((Delete) statement).getTable().getName()));
+  }
+
+  @Test
+  public void testInsert() throws JSQLParserException, SQLException {
+    MutationTemplate template = compile("INSERT INTO FOO (ID, COL1, COL2) VALUES (?, 'test', ?)");
+    Assert.assertNotNull(template);
+    Assert.assertEquals("FOO", template.getTable());
+    Assert.assertEquals(Op.INSERT, template.getOperation());
+
+    ParameterStore parameters = new ParameterStore();
+    for (long id = 1L; id <= 3L; id++) {
+      parameters.setParameter(1, id, Types.BIGINT);
+      parameters.setParameter(2, null, Types.DOUBLE);
+      Mutation mutation = template.createMutation(parameters, false);
+      Assert.assertEquals(Op.INSERT, mutation.getOperation());
+      Assert.assertEquals(id, mutation.asMap().get("ID").getInt64());
+      Assert.assertEquals("test", mutation.asMap().get("COL1").getString());
+      Assert.assertTrue(mutation.asMap().get("COL2").isNull());
+    }
+    Assert.assertEquals("FOO", parameters.getTable());
+    Assert.assertEquals("ID", parameters.getColumn(1));
+    Assert.assertEquals("COL2", parameters.getColumn(2));
+  }
+
+  @Test
+  public void testInsertOnDuplicateKeyUpdate() throws JSQLParserException, SQLException {
+    MutationTemplate template =
+        compile("INSERT INTO FOO (ID, COL1) VALUES (?, ?) ON DUPLICATE KEY UPDATE FOO=BAR");
+    Assert.assertEquals(Op.INSERT_OR_UPDATE, template.getOperation());
+    ParameterStore parameters = new ParameterStore();
+    parameters.setParameter(1, 1L, Types.BIGINT);
+    parameters.setParameter(2, "one", Types.NVARCHAR);
+    Assert.assertEquals(Op.INSERT_OR_UPDATE,
+        template.createMutation(parameters, false).getOperation());
+    Assert.assertEquals(Op.UPDATE, template.createMutation(parameters, true).getOperation());
+  }
+
+  @Test
+  public void testUpdate() throws JSQLParserException, SQLException {
+    MutationTemplate template = compile("UPDATE BAR SET COL1=?, COL2=-2 WHERE ID1=? AND ID2=?");
+    Assert.assertNotNull(template);
+    Assert.assertEquals(Op.UPDATE, template.getOperation());
+    ParameterStore parameters = new ParameterStore();
+    parameters.setParameter(1, "value", Types.NVARCHAR);
+    parameters.setParameter(2, 1L, Types.BIGINT);
+    parameters.setParameter(3, 2L, Types.BIGINT);
+    Mutation mutation = template.createMutation(parameters, false);
+    Assert.assertArrayEquals(new String[] {"COL1", "COL2", "ID1", "ID2"},
+        Lists.newArrayList(mutation.getColumns()).toArray());
+    Assert.assertEquals("value", mutation.asMap().get("COL1").getString());
+    Assert.assertEquals(-2L, mutation.asMap().get("COL2").getInt64());
+    Assert.assertEquals(1L, mutation.asMap().get("ID1").getInt64());
+    Assert.assertEquals(2L, mutation.asMap().get("ID2").getInt64());
+  }
+
+  @Test
+  public void testDelete() throws JSQLParserException, SQLException {
+    MutationTemplate template = compile("DELETE FROM BAR WHERE ID2=? AND ID1=1");
+    Assert.assertNotNull(template);
+    Assert.assertEquals(Op.DELETE, template.getOperation());
+    ParameterStore parameters = new ParameterStore();
+    parameters.setParameter(1, 2L, Types.BIGINT);
+    Mutation mutation = template.createMutation(parameters, false);
+    List<Key> keys = Lists.newArrayList(mutation.getKeySet().getKeys());
+    Assert.assertEquals(1, keys.size());
+    Assert.assertEquals(Key.of(1L, 2L), keys.get(0));
+  }
+
+  @Test
+  public void testNotCompilable() throws JSQLParserException, SQLException {
+    // Expressions
+    Assert.assertNull(compile("INSERT INTO FOO (ID, COL1) VALUES (?, ? + 1)"));
+    // Insert with select
+    Assert.assertNull(compile("INSERT INTO FOO (ID, COL1) SELECT ID, COL1 FROM BAR"));
+    // Missing column list
+    Assert.assertNull(compile("INSERT INTO FOO VALUES (?, ?)"));
+    // Update of multiple rows
+    Assert.assertNull(compile("UPDATE FOO SET COL1=? WHERE COL2=?"));
+    Assert.assertNull(compile("UPDATE BAR SET COL1=? WHERE ID1=?"));
+    Assert.assertNull(compile("UPDATE FOO SET COL1=? WHERE ID>?"));
+    // Delete of multiple rows
+    Assert.assertNull(compile("DELETE FROM BAR WHERE ID1=?"));
+    Assert.assertNull(compile("DELETE FROM FOO WHERE ID IN (?, ?)"));
+  }
+
+}
@@ -0,0 +1,117 @@
+package nl.topicus.jdbc.statement;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.spanner.Mutation;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.statement.insert.Insert;
+import nl.topicus.jdbc.statement.ParsedStatementCache.ParsedStatement;
+import nl.topicus.jdbc.statement.ParsedStatementCache.StatementKind;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class ParsedStatementCacheTest {
+
+  @Test
+  public void testHitsAndMisses() throws JSQLParserException {
+    ParsedStatementCache cache = new ParsedStatementCache(10);
+    ParsedStatement first =
+        cache.parse("INSERT INTO FOO (ID, COL1) VALUES (?, ?)", UnaryOperator.identity());
+    Assert.assertEquals(0L, cache.getHitCount());
+    Assert.assertEquals(1L, cache.getMissCount());
+    ParsedStatement second =
+        cache.parse("INSERT INTO FOO (ID, COL1) VALUES (?, ?)", UnaryOperator.identity());
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1L, cache.getHitCount());
+    Assert.assertEquals(1L, cache.getMissCount());
+    Assert.assertEquals(1, cache.size());
+
+    cache.clear();
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(0L, cache.getHitCount());
+    Assert.assertEquals(0L, cache.getMissCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws JSQLParserException {
+    ParsedStatementCache cache = new ParsedStatementCache(2);
+    cache.parse("SELECT 1", UnaryOperator.identity());
+    cache.parse("SELECT 2", UnaryOperator.identity());
+    // Touch the first statement so that the second becomes the eldest
+    cache.parse("SELECT 1", UnaryOperator.identity());
+    cache.parse("SELECT 3", UnaryOperator.identity());
+    Assert.assertEquals(2, cache.size());
+    long misses = cache.getMissCount();
+    cache.parse("SELECT 1", UnaryOperator.identity());
+    Assert.assertEquals(misses, cache.getMissCount());
+    cache.parse("SELECT 2", UnaryOperator.identity());
+    Assert.assertEquals(misses + 1, cache.getMissCount());
+
+    cache.setMaxSize(1);
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testParseErrorsAreNotCached() {
+    ParsedStatementCache cache = new ParsedStatementCache(10);
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.parse("INSERT INTO FOO (ID, COL1) VALUES (?, ?", UnaryOperator.identity());
+        Assert.fail("missing expected exception");
+      } catch (JSQLParserException e) {
+        // expected
+      }
+    }
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(2L, cache.getMissCount());
+  }
+
+  @Test
+  public void testSanitizerIsApplied() throws JSQLParserException {
+    ParsedStatementCache cache = new ParsedStatementCache(10);
+    ParsedStatement parsed = cache.parse("INSERT INTO FOO (ID, COL1) VALUES (?, ?)",
+        sql -> sql.replace("FOO", "BAR"));
+    Assert.assertEquals("BAR", parsed.getTable());
+  }
+
+  @Test
+  public void testDerivedInformation() throws JSQLParserException {
+    ParsedStatementCache cache = new ParsedStatementCache(10);
+    ParsedStatement insert =
+        cache.parse("INSERT INTO `FOO` (`ID`, COL1) VALUES (?, ?)", UnaryOperator.identity());
+    Assert.assertEquals(StatementKind.INSERT, insert.getKind());
+    Assert.assertTrue(insert.getStatement() instanceof Insert);
+    Assert.assertEquals("FOO", insert.getTable());
+    Assert.assertEquals(Arrays.asList("ID", "COL1"), insert.getColumns());
+
+    ParsedStatement update =
+        cache.parse("UPDATE FOO SET COL1=?, COL2=? WHERE ID=?", UnaryOperator.identity());
+    Assert.assertEquals(StatementKind.UPDATE, update.getKind());
+    Assert.assertEquals("FOO", update.getTable());
+    Assert.assertEquals(Arrays.asList("COL1", "COL2"), update.getColumns());
+
+    ParsedStatement delete = cache.parse("DELETE FROM BAR WHERE ID=?", UnaryOperator.identity());
+    Assert.assertEquals(StatementKind.DELETE, delete.getKind());
+    Assert.assertEquals("BAR", delete.getTable());
+    Assert.assertTrue(delete.getColumns().isEmpty());
+
+    ParsedStatement select = cache.parse("SELECT * FROM FOO", UnaryOperator.identity());
+    Assert.assertEquals(StatementKind.SELECT, select.getKind());
+    Assert.assertNull(select.getTable());
+  }
+
+  @Test
+  public void testCachedStatementIsNotModifiedByExecution() throws SQLException {
+    String sql = "INSERT INTO FOO (ID, COL1) VALUES (-1, -2.5)";
+    for (int i = 0; i < 3; i++) {
+      Mutation mutation = CloudSpannerPreparedStatementTest.getMutations(sql).getMutations().get(0);
+      Assert.assertEquals(-1L, mutation.asMap().get("ID").getInt64());
+      Assert.assertEquals(-2.5d, mutation.asMap().get("COL1").getFloat64(), 0d);
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+package nl.topicus.jdbc.statement;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import nl.topicus.jdbc.statement.SqlLexer.ParameterizedStatement;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class SqlLexerTest {
+  private static final String[] STATEMENTS = {
+      "SELECT * FROM FOO@{FORCE_INDEX=BAR_INDEX} WHERE ID=?",
+      "SELECT *\n\t   FROM  FOO@{ force_index =\n BAR_INDEX }\n\t   WHERE ID = ?",
+      "INSERT INTO TAB (ID, COL1) VALUES (?, ?) ON DUPLICATE KEY UPDATE",
+      "\tINSERT INTO\n\tTAB (ID, COL1)\n\tVALUES (?, ?)\nON DUPLICATE KEY\nUPDATE\n\t  ",
+      "INSERT INTO TAB (ID, COL1) VALUES (?, ?) ON DUPLICATE KEY UPDATE COL1=2",
+      "SELECT DATE_ADD(COL, INTERVAL 1 DAY), DATE_SUB(X,interval 5   month  ) FROM T",
+      "SELECT TIMESTAMP_ADD(COL, INTERVAL 10 MILLISECOND), EXTRACT(DATE FROM TS), extract( date  from  X) FROM T",
+      "SELECT EXTRACT(YEAR FROM D) FROM T WHERE A = ( SELECT 1 HOUR )",
+      "   CREATE  TABLE FOO (ID INT64)", "\t\tSET_CONNECTION_PROPERTY     AsyncDdlOperations\t=\ttrue",
+      "SET_CONNECTION_PROPERTY AsyncDdlOperations=true AND AllowExtendedMode=true",
+      "/* CREATE A TEST TABLE */\nCREATE TABLE `FOO` (`ID` INT64, `NAME` STRING(100)) PRIMARY KEY (ID)",
+      "-- CREATE A TEST TABLE \nCREATE TABLE `FOO` (`ID` INT64, `NAME` STRING(100)) PRIMARY KEY (ID)",
+      "SELECT 1", "", "UPDATE FOO SET A=1, B=2 WHERE ID=3",};
+
+  /**
+   * The regular expression based implementations that were used before the lexer was introduced.
+   * The lexer must return the same results for all normal statements.
+   */
+  private static final Pattern COMMENT_PATTERN =
+      Pattern.compile("//.*|/\\*((.|\\n)(?!=*/))+\\*/|--.*(?=\\n)", Pattern.DOTALL);
+
+  private static String regexRemoveComments(String sql) {
+    return COMMENT_PATTERN.matcher(sql).replaceAll("").trim();
+  }
+
+  private static String[] regexGetTokens(String sql, int limit) {
+    return regexRemoveComments(sql).replaceFirst("=", " = ").split("\\s+", limit);
+  }
+
+  private static String regexSanitize(String sql) {
+    String res = sql;
+    if (res.matches("(?is)\\s*INSERT\\s+.*\\s+ON\\s+DUPLICATE\\s+KEY\\s+UPDATE\\s*")) {
+      res = res + " FOO=BAR";
+    }
+    res = res.replaceAll("(?is)\\@\\{\\s*FORCE_INDEX.*\\}", "");
+    res = res.replaceAll("(?is),\\s*INTERVAL\\s+", ",");
+    for (String part : new String[] {"DAY", "WEEK", "MONTH", "QUARTER", "YEAR", "NANOSECOND",
+        "MICROSECOND", "MILLISECOND", "SECOND", "MINUTE", "HOUR"}) {
+      res = res.replaceAll("(?is)\\s+" + part + "\\s*\\)", ")");
+    }
+    return res.replaceAll("(?is)EXTRACT\\(\\s*DATE\\s+FROM\\s+", "EXTRACT(DATE_OF_MONTH FROM ");
+  }
+
+  @Test
+  public void testSameResultsAsRegularExpressions() {
+    for (String sql : STATEMENTS) {
+      assertEquals(sql, regexSanitize(sql), SqlLexer.sanitize(sql));
+      assertEquals(sql, regexRemoveComments(sql), SqlLexer.removeComments(sql));
+      for (int limit : new int[] {0, 1, 2, 3, 5}) {
+        assertArrayEquals(sql, regexGetTokens(sql, limit), SqlLexer.getTokens(sql, limit));
+      }
+    }
+  }
+
+  @Test
+  public void testLiteralsAreNotModified() {
+    assertEquals("SELECT 'http://foo' FROM BAR",
+        SqlLexer.removeComments("SELECT 'http://foo' FROM BAR"));
+    assertEquals("SELECT '-- no comment' FROM BAR",
+        SqlLexer.removeComments("SELECT '-- no comment' FROM BAR -- comment"));
+    assertEquals("SELECT 'abc, INTERVAL 1 DAY)', \"x@{FORCE_INDEX=Y}\" FROM BAR",
+        SqlLexer.sanitize("SELECT 'abc, INTERVAL 1 DAY)', \"x@{FORCE_INDEX=Y}\" FROM BAR"));
+    assertEquals("SELECT 'it''s', 'it\\'s' FROM BAR",
+        SqlLexer.removeComments("SELECT 'it''s', 'it\\'s' FROM BAR /* comment */"));
+  }
+
+  @Test
+  public void testComments() {
+    assertEquals("SELECT * \nFROM FOO",
+        SqlLexer.removeComments("SELECT * // all columns\nFROM FOO -- table"));
+    assertEquals("SELECT * FROM FOO", SqlLexer.removeComments("SELECT /* all */* FROM FOO"));
+    assertArrayEquals(new String[] {"SELECT", "*", "FROM", "FOO"},
+        SqlLexer.getTokens("/* comment */ SELECT\n-- comment\n*\tFROM FOO", 0));
+  }
+
+  @Test
+  public void testForceIndexIsRemovedUpToClosingBrace() {
+    assertEquals("SELECT * FROM FOO WHERE ID IN UNNEST(@{p})",
+        SqlLexer.sanitize("SELECT * FROM FOO@{FORCE_INDEX=IDX} WHERE ID IN UNNEST(@{p})"));
+  }
+
+  @Test
+  public void testParameterize() {
+    ParameterizedStatement res = SqlLexer
+        .parameterize("INSERT INTO FOO (COL1, COL2, COL3) VALUES (-1, 'two', 0xaa) -- comment");
+    assertEquals("INSERT INTO FOO (COL1, COL2, COL3) VALUES (?, ?, 0xaa)", res.getSql());
+    assertEquals(Arrays.asList(-1L, "two"), res.getValues());
+    assertEquals(Arrays.asList(Types.BIGINT, Types.NVARCHAR), res.getTypes());
+
+    res = SqlLexer.parameterize(
+        "INSERT INTO FOO (COL1, COL2) VALUES (1, .5), (2, 'x') ON DUPLICATE KEY UPDATE COL2 = 3");
+    assertEquals(
+        "INSERT INTO FOO (COL1, COL2) VALUES (?, ?), (?, ?) ON DUPLICATE KEY UPDATE COL2 = 3",
+        res.getSql());
+    assertEquals(Arrays.asList(1L, 0.5D, 2L, "x"), res.getValues());
+
+    res = SqlLexer
+        .parameterize("UPDATE T1 SET A = 1, B=A-1 WHERE ID<>+3 AND (C >= - 1.5e3 OR D='x')");
+    assertEquals("UPDATE T1 SET A = 1, B=A-1 WHERE ID<>? AND (C >= ? OR D=?)", res.getSql());
+    assertEquals(Arrays.asList(3L, -1500D, "x"), res.getValues());
+    assertEquals(Arrays.asList(Types.BIGINT, Types.DOUBLE, Types.NVARCHAR), res.getTypes());
+  }
+
+  @Test
+  public void testParameterizeKeepsFunctionArguments() {
+    String sql = "INSERT INTO FOO (COL1, COL2) VALUES (ABS(-1), SUBSTR('abc', 2, 1))";
+    assertEquals(sql, SqlLexer.parameterize(sql).getSql());
+
+    ParameterizedStatement res =
+        SqlLexer.parameterize("DELETE FROM FOO WHERE COL1 = MOD(COL2, 2) AND COL3 IN (1, 2)");
+    assertEquals("DELETE FROM FOO WHERE COL1 = MOD(COL2, 2) AND COL3 IN (1, 2)", res.getSql());
+    assertTrue(res.getValues().isEmpty());
+  }
+
+  @Test
+  public void testParameterizeKeepsOrdinalsAndLimit() {
+    String sql = "DELETE FROM FOO WHERE ID IN (SELECT ID FROM BAR WHERE COL1 = 1 GROUP BY 1, 2 "
+        + "HAVING COUNT(*) > 1 ORDER BY 2 LIMIT 10)";
+    ParameterizedStatement res = SqlLexer.parameterize(sql);
+    assertEquals("DELETE FROM FOO WHERE ID IN (SELECT ID FROM BAR WHERE COL1 = ? GROUP BY 1, 2 "
+        + "HAVING COUNT(*) > 1 ORDER BY 2 LIMIT 10)", res.getSql());
+    assertEquals(Arrays.asList(1L), res.getValues());
+  }
+
+  @Test
+  public void testParameterizeKeepsSyntaxLiterals() {
+    String sql =
+        "DELETE FROM `T 1` WHERE D = DATE '2018-01-01' AND X BETWEEN 4 AND 5 AND \"1\" = COL1";
+    ParameterizedStatement res = SqlLexer.parameterize(sql);
+    assertEquals(sql, res.getSql());
+    assertTrue(res.getValues().isEmpty());
+  }
+
+  @Test
+  public void testParameterizeNotPossible() {
+    assertNull(SqlLexer.parameterize("INSERT INTO FOO (ID, COL1) VALUES (?, 1)"));
+    assertNull(SqlLexer.parameterize("INSERT INTO FOO (ID, COL1) VALUES (1, 'it''s')"));
+    assertNull(SqlLexer.parameterize("INSERT INTO FOO (ID, COL1) VALUES (1, 'it\\'s')"));
+    assertNull(SqlLexer.parameterize("UPDATE FOO SET COL1=1 WHERE ID=9223372036854775808"));
+  }
+
+}
@@ -1,7 +1,9 @@
 package nl.topicus.jdbc.test.util;
 
 import static org.mockito.Mockito.mock;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -12,7 +14,13 @@ import org.mockito.Mockito;
 import org.mockito.internal.stubbing.answers.Returns;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.BatchTransactionId;
+import com.google.cloud.spanner.Options.QueryOption;
 import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.PartitionOptions;
+import com.google.cloud.spanner.Statement;
+import com.google.protobuf.ByteString;
 import nl.topicus.jdbc.CloudSpannerConnection;
 import nl.topicus.jdbc.CloudSpannerDatabaseMetaData;
 import nl.topicus.jdbc.Logger;
@@ -65,6 +73,44 @@ public class CloudSpannerTestObjects {
     return connection;
   }
 
+  /**
+   * Creates a real (serializable) query partition. The factory method of {@link Partition} is not
+   * public.
+   */
+  public static Partition createQueryPartition(String sql, String token) {
+    try {
+      Class<?> optionsClass = Class.forName("com.google.cloud.spanner.Options");
+      Method fromQueryOptions =
+          optionsClass.getDeclaredMethod("fromQueryOptions", QueryOption[].class);
+      fromQueryOptions.setAccessible(true);
+      Object options = fromQueryOptions.invoke(null, (Object) new QueryOption[0]);
+      Method create = Partition.class.getDeclaredMethod("createQueryPartition", ByteString.class,
+          PartitionOptions.class, Statement.class, optionsClass);
+      create.setAccessible(true);
+      return (Partition) create.invoke(null, ByteString.copyFromUtf8(token),
+          PartitionOptions.getDefaultInstance(), Statement.of(sql), options);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Creates a real (serializable) batch transaction id. The constructor of
+   * {@link BatchTransactionId} is not public.
+   */
+  public static BatchTransactionId createBatchTransactionId(String sessionId,
+      String transactionId) {
+    try {
+      Constructor<BatchTransactionId> constructor = BatchTransactionId.class
+          .getDeclaredConstructor(String.class, ByteString.class, Timestamp.class);
+      constructor.setAccessible(true);
+      return constructor.newInstance(sessionId, ByteString.copyFromUtf8(transactionId),
+          Timestamp.now());
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private static void mockXAMethods(CloudSpannerConnection connection) throws SQLException {
     String checkTable = null;
     try {
@@ -0,0 +1,160 @@
+package nl.topicus.jdbc.transaction;
+
+import static org.junit.Assert.assertEquals;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.TransactionContext;
+import com.google.cloud.spanner.TransactionRunner;
+import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class GroupCommitterTest {
+  private static final MutationCounter COUNTER = new MutationCounter(table -> 0);
+
+  private final AtomicInteger commits = new AtomicInteger();
+
+  private final AtomicInteger writtenMutations = new AtomicInteger();
+
+  /**
+   * Creates a client that fails any commit that contains a mutation for the table BAR
+   */
+  private DatabaseClient createClient() {
+    DatabaseClient dbClient = Mockito.mock(DatabaseClient.class);
+    Mockito.when(dbClient.readWriteTransaction()).then(invocation -> {
+      List<Mutation> buffered = new ArrayList<>();
+      TransactionContext transaction = Mockito.mock(TransactionContext.class);
+      Mockito.doAnswer(buffer -> {
+        Iterable<Mutation> mutations = buffer.getArgument(0);
+        mutations.forEach(buffered::add);
+        return null;
+      }).when(transaction).buffer(Mockito.anyIterable());
+      TransactionRunner runner = Mockito.mock(TransactionRunner.class);
+      Mockito.when(runner.run(Mockito.any())).then(run -> {
+        TransactionCallable<?> callable = run.getArgument(0);
+        callable.run(transaction);
+        commits.incrementAndGet();
+        for (Mutation mutation : buffered) {
+          if (mutation.getTable().equals("BAR"))
+            throw SpannerExceptionFactory.newSpannerException(ErrorCode.ALREADY_EXISTS,
+                "Row already exists");
+        }
+        writtenMutations.addAndGet(buffered.size());
+        return null;
+      });
+      Mockito.when(runner.getCommitTimestamp()).thenReturn(Timestamp.now());
+      return runner;
+    });
+    return dbClient;
+  }
+
+  private static List<Mutation> createWrite(String table, long id) {
+    return Collections.singletonList(Mutation.newInsertBuilder(table).set("ID").to(id).build());
+  }
+
+  /**
+   * Starts the given number of concurrent writers. The writer with the given index writes to the
+   * table BAR, all other writers write to FOO.
+   */
+  private List<Future<Timestamp>> writeConcurrently(GroupCommitter committer, int writers,
+      int failingWriter) {
+    ExecutorService executor = Executors.newFixedThreadPool(writers);
+    try {
+      List<Future<Timestamp>> res = new ArrayList<>(writers);
+      for (int i = 0; i < writers; i++) {
+        final long id = i;
+        // The window is long enough for all writers to join, and the group is committed as soon
+        // as it contains the mutations of all writers
+        res.add(executor.submit(() -> committer.write(
+            createWrite(id == failingWriter ? "BAR" : "FOO", id), COUNTER, 10000, writers)));
+      }
+      return res;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    GroupCommitter committer = GroupCommitter.getInstance(createClient());
+    for (Future<Timestamp> result : writeConcurrently(committer, 4, -1))
+      result.get();
+    assertEquals(1, commits.get());
+    assertEquals(4, writtenMutations.get());
+  }
+
+  @Test
+  public void testSingleWrite() throws SQLException {
+    GroupCommitter committer = GroupCommitter.getInstance(createClient());
+    committer.write(createWrite("FOO", 1L), COUNTER, 1, 100);
+    committer.write(createWrite("FOO", 2L), COUNTER, 1, 100);
+    assertEquals(2, commits.get());
+    assertEquals(2, writtenMutations.get());
+  }
+
+  @Test
+  public void testWriteExceedingMaxCells() throws Exception {
+    GroupCommitter committer = GroupCommitter.getInstance(createClient());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // The first write opens a group of one cell that waits for other writers
+      Future<Timestamp> first =
+          executor.submit(() -> committer.write(createWrite("FOO", 1L), COUNTER, 10000, 2));
+      Thread.sleep(100L);
+      // The second write contains two cells and does not fit in the group. The first group should
+      // therefore be committed immediately, and the second write should be committed in a new
+      // group that is full
+      List<Mutation> second = Collections.singletonList(
+          Mutation.newInsertBuilder("FOO").set("ID").to(2L).set("NAME").to("two").build());
+      committer.write(second, COUNTER, 10000, 2);
+      first.get(5L, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(2, commits.get());
+    assertEquals(2, writtenMutations.get());
+  }
+
+  @Test
+  public void testFallbackToIndividualCommits() throws Exception {
+    GroupCommitter committer = GroupCommitter.getInstance(createClient());
+    List<Future<Timestamp>> results = writeConcurrently(committer, 4, 2);
+    int failures = 0;
+    for (Future<Timestamp> result : results) {
+      try {
+        result.get();
+      } catch (Exception e) {
+        CloudSpannerSQLException cause = (CloudSpannerSQLException) e.getCause();
+        assertEquals(com.google.rpc.Code.ALREADY_EXISTS, cause.getCode());
+        failures++;
+      }
+    }
+    // One group commit that failed, and one commit for each writer
+    assertEquals(5, commits.get());
+    assertEquals(1, failures);
+    assertEquals(3, writtenMutations.get());
+  }
+
+  @Test
+  public void testSameInstance() {
+    DatabaseClient dbClient = createClient();
+    assertEquals(GroupCommitter.getInstance(dbClient), GroupCommitter.getInstance(dbClient));
+  }
+
+}
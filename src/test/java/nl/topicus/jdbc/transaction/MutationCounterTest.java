@@ -0,0 +1,73 @@
+package nl.topicus.jdbc.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class MutationCounterTest {
+
+  private static Mutation createInsert(long id) {
+    return Mutation.newInsertBuilder("FOO").set("ID").to(id).set("COL1").to("test").build();
+  }
+
+  @Test
+  public void testCountCells() throws SQLException {
+    AtomicInteger lookups = new AtomicInteger();
+    MutationCounter counter = new MutationCounter(table -> {
+      lookups.incrementAndGet();
+      return "FOO".equals(table) ? 2 : 0;
+    });
+    assertEquals(4L, counter.countCells(createInsert(1L)));
+    assertEquals(3L, counter.countCells(Mutation.delete("FOO", Key.of(1L))));
+    assertEquals(9L,
+        counter.countCells(Mutation.delete("FOO", KeySet.newBuilder().addKey(Key.of(1L))
+            .addKey(Key.of(2L)).addRange(KeyRange.closedOpen(Key.of(10L), Key.of(20L))).build())));
+    assertEquals(1L, counter.countCells(Mutation.delete("BAR", KeySet.all())));
+    // The number of indices is only requested once per table
+    assertEquals(2, lookups.get());
+  }
+
+  @Test
+  public void testAdd() throws SQLException {
+    MutationCounter counter = new MutationCounter(table -> 0);
+    counter.add(createInsert(1L));
+    counter.add(createInsert(2L));
+    assertEquals(4L, counter.getCells());
+    assertEquals(2L * (3L + 2L + 4L + 8L + 4L), counter.getBytes());
+    assertFalse(counter.exceedsLimits());
+    counter.clear();
+    assertEquals(0L, counter.getCells());
+    assertEquals(0L, counter.getBytes());
+  }
+
+  @Test
+  public void testSplit() throws SQLException {
+    MutationCounter counter = new MutationCounter(table -> 0);
+    List<Mutation> mutations = new ArrayList<>();
+    for (long id = 0L; id < 25000L; id++) {
+      Mutation mutation = createInsert(id);
+      mutations.add(mutation);
+      counter.add(mutation);
+    }
+    assertTrue(counter.exceedsLimits());
+    List<List<Mutation>> parts = counter.split(mutations);
+    assertEquals(3, parts.size());
+    assertEquals(MutationCounter.MAX_CELLS_PER_COMMIT / 2, parts.get(0).size());
+    assertEquals(MutationCounter.MAX_CELLS_PER_COMMIT / 2, parts.get(1).size());
+    assertEquals(5000, parts.get(2).size());
+    assertEquals(mutations.get(10000), parts.get(1).get(0));
+  }
+
+}
@@ -0,0 +1,74 @@
+package nl.topicus.jdbc.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.HashMap;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.spanner.BatchTransactionId;
+import com.google.cloud.spanner.Partition;
+import com.google.common.collect.ImmutableSet;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.test.util.CloudSpannerTestObjects;
+
+@Category(UnitTest.class)
+public class PartitionTokenTest {
+  private static final class NotAllowed implements Serializable {
+    private static final long serialVersionUID = 1L;
+  }
+
+  @Test
+  public void testEncodeAndDecode() throws SQLException {
+    BatchTransactionId id = CloudSpannerTestObjects.createBatchTransactionId("session", "tx");
+    Partition partition = CloudSpannerTestObjects
+        .createQueryPartition("SELECT * FROM FOO WHERE NAME='A=B'", "partition-1");
+    String token = new PartitionToken(id, partition).encode();
+    // The token must be usable as an argument of EXECUTE_PARTITION
+    assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    PartitionToken decoded = PartitionToken.decode(token);
+    assertEquals(id, decoded.getTransactionId());
+    assertEquals(partition, decoded.getPartition());
+  }
+
+  @Test
+  public void testDecodeInvalidToken() throws SQLException {
+    try {
+      PartitionToken.decode("foo");
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(com.google.rpc.Code.INVALID_ARGUMENT, e.getCode());
+    }
+  }
+
+  @Test
+  public void testDecodeClassNotAllowed() throws SQLException, IOException {
+    assertNotAllowed(new NotAllowed());
+    // Only the exact classes of a partition are allowed, not any class in the same packages
+    assertNotAllowed(new HashMap<String, String>());
+    assertNotAllowed(ImmutableSet.of("foo"));
+  }
+
+  private static void assertNotAllowed(Object object) throws SQLException, IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream stream = new ObjectOutputStream(bos)) {
+      stream.writeObject(object);
+    }
+    try {
+      PartitionToken.decode(Base64.getUrlEncoder().encodeToString(bos.toByteArray()));
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(com.google.rpc.Code.INVALID_ARGUMENT, e.getCode());
+      assertTrue(e.getCause() instanceof InvalidClassException);
+    }
+  }
+
+}
@@ -0,0 +1,195 @@
+package nl.topicus.jdbc.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.ForwardingResultSet;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.TransactionContext;
+import com.google.cloud.spanner.TransactionRunner;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import nl.topicus.jdbc.Logger;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.transaction.TransactionThread.TransactionStatus;
+
+@Category(UnitTest.class)
+public class ReplayableResultSetTest {
+  private static final Statement QUERY = Statement.of("SELECT ID, NAME FROM FOO");
+
+  /**
+   * Transaction runner that aborts the first attempt of a transaction, either while reading the
+   * third row of the query, or when committing the transaction.
+   */
+  private static final class AbortingTransactionRunner implements TransactionRunner {
+    private final List<List<Struct>> rowsPerAttempt;
+
+    private final boolean abortOnCommit;
+
+    private int attempts;
+
+    private boolean aborted;
+
+    private AbortingTransactionRunner(boolean abortOnCommit, List<List<Struct>> rowsPerAttempt) {
+      this.abortOnCommit = abortOnCommit;
+      this.rowsPerAttempt = rowsPerAttempt;
+    }
+
+    private ResultSet createResultSet(int attempt) {
+      ResultSet rs = ResultSets.forRows(
+          Type.struct(StructField.of("ID", Type.int64()), StructField.of("NAME", Type.string())),
+          rowsPerAttempt.get(Math.min(attempt, rowsPerAttempt.size()) - 1));
+      if (attempt > 1 || abortOnCommit)
+        return rs;
+      return new ForwardingResultSet(rs) {
+        private int row;
+
+        @Override
+        public boolean next() {
+          if (++row == 3) {
+            aborted = true;
+            throw SpannerExceptionFactory.newSpannerException(ErrorCode.ABORTED, "aborted");
+          }
+          return super.next();
+        }
+      };
+    }
+
+    @Override
+    public <T> T run(TransactionCallable<T> callable) {
+      while (true) {
+        attempts++;
+        final int attempt = attempts;
+        TransactionContext context = mock(TransactionContext.class);
+        when(context.executeQuery(any(Statement.class)))
+            .thenAnswer(invocation -> createResultSet(attempt));
+        try {
+          T res = callable.run(context);
+          if (abortOnCommit && attempt == 1)
+            continue;
+          return res;
+        } catch (Exception e) {
+          if (aborted && attempt == 1)
+            continue;
+          throw e instanceof SpannerException ? (SpannerException) e
+              : SpannerExceptionFactory.newSpannerException(e);
+        }
+      }
+    }
+
+    @Override
+    public Timestamp getCommitTimestamp() {
+      return Timestamp.now();
+    }
+  }
+
+  private static List<Struct> rows(String... names) {
+    List<Struct> res = new ArrayList<>(names.length);
+    long id = 1L;
+    for (String name : names) {
+      res.add(Struct.newBuilder().set("ID").to(id++).set("NAME").to(name).build());
+    }
+    return res;
+  }
+
+  private static TransactionThread start(AbortingTransactionRunner runner)
+      throws CloudSpannerSQLException {
+    DatabaseClient dbClient = mock(DatabaseClient.class);
+    when(dbClient.readWriteTransaction()).thenReturn(runner);
+    TransactionThread thread =
+        new TransactionThread(dbClient, new Logger(), TransactionWorkerPool.getDefault(), true);
+    thread.start();
+    return thread;
+  }
+
+  @Test
+  public void testRetryDuringQueryWithSameData() throws SQLException {
+    AbortingTransactionRunner runner = new AbortingTransactionRunner(false,
+        Arrays.asList(rows("one", "two", "three", "four"), rows("one", "two", "three", "four")));
+    TransactionThread thread = start(runner);
+    ResultSet rs = thread.executeQuery(QUERY);
+    List<String> names = new ArrayList<>();
+    while (rs.next())
+      names.add(rs.getString("NAME"));
+    assertEquals(Arrays.asList("one", "two", "three", "four"), names);
+    assertEquals(4L, ((ReplayableResultSet) rs).getRowCount());
+    thread.commit();
+    assertEquals(TransactionStatus.SUCCESS, thread.getTransactionStatus());
+    assertEquals(2, runner.attempts);
+  }
+
+  @Test
+  public void testRetryDuringQueryWithDifferentData() throws SQLException {
+    AbortingTransactionRunner runner = new AbortingTransactionRunner(false,
+        Arrays.asList(rows("one", "two", "three"), rows("one", "TWO", "three")));
+    TransactionThread thread = start(runner);
+    ResultSet rs = thread.executeQuery(QUERY);
+    assertTrue(rs.next());
+    assertTrue(rs.next());
+    try {
+      rs.next();
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertEquals(ErrorCode.ABORTED, e.getErrorCode());
+    }
+    try {
+      thread.commit();
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(com.google.rpc.Code.ABORTED, e.getCode());
+    }
+    assertEquals(TransactionStatus.FAIL, thread.getTransactionStatus());
+  }
+
+  @Test
+  public void testRetryOnCommit() throws SQLException {
+    AbortingTransactionRunner runner = new AbortingTransactionRunner(true,
+        Arrays.asList(rows("one", "two", "three"), rows("one", "two", "three", "four")));
+    TransactionThread thread = start(runner);
+    ResultSet rs = thread.executeQuery(QUERY);
+    // Only the consumed rows are verified, the new row is not seen by the transaction
+    assertTrue(rs.next());
+    assertTrue(rs.next());
+    rs.close();
+    thread.commit();
+    assertEquals(TransactionStatus.SUCCESS, thread.getTransactionStatus());
+    assertEquals(2, runner.attempts);
+  }
+
+  @Test
+  public void testRetryOnCommitWithDifferentData() throws SQLException {
+    AbortingTransactionRunner runner = new AbortingTransactionRunner(true,
+        Arrays.asList(rows("one", "two", "three"), rows("one", "two")));
+    TransactionThread thread = start(runner);
+    ResultSet rs = thread.executeQuery(QUERY);
+    int count = 0;
+    while (rs.next())
+      count++;
+    assertEquals(3, count);
+    try {
+      thread.commit();
+      fail("missing expected exception");
+    } catch (CloudSpannerSQLException e) {
+      assertEquals(com.google.rpc.Code.ABORTED, e.getCode());
+    }
+  }
+
+}
@@ -0,0 +1,149 @@
+package nl.topicus.jdbc.transaction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Type;
+
+/**
+ * Microbenchmark for the latency that is added to each query in a read/write transaction by
+ * handing the query to the transaction worker and the result back to the caller. The benchmark
+ * compares the {@link StatementHandoff} with the pair of {@link LinkedBlockingQueue}s that was
+ * used before. The worker does not execute the query, so the measured time is the handoff overhead
+ * only.
+ *
+ * This is not a unit test and is not run by the build. Run it from the IDE or with
+ * <code>java -cp ... nl.topicus.jdbc.transaction.StatementHandoffBenchmark [iterations]</code>.
+ *
+ * @author loite
+ *
+ */
+public class StatementHandoffBenchmark {
+  private static final Statement STATEMENT = Statement.of("SELECT 1");
+
+  private static final ResultSet RESULT_SET =
+      ResultSets.forRows(Type.struct(), Collections.emptyList());
+
+  private interface Channel {
+    ResultSet exchange(Statement statement);
+
+    void stop();
+  }
+
+  private static final class HandoffChannel implements Channel {
+    private final StatementHandoff handoff = new StatementHandoff();
+
+    private volatile boolean stop;
+
+    private HandoffChannel() {
+      startWorker(() -> {
+        while (!stop) {
+          Statement statement = handoff.poll(5L, TimeUnit.SECONDS);
+          if (statement != null)
+            handoff.respond(RESULT_SET);
+        }
+      });
+    }
+
+    @Override
+    public ResultSet exchange(Statement statement) {
+      return handoff.exchange(statement);
+    }
+
+    @Override
+    public void stop() {
+      stop = true;
+      handoff.wakeUp();
+    }
+  }
+
+  private static final class QueueChannel implements Channel {
+    private static final Statement STOP = Statement.of("STOP");
+
+    private final BlockingQueue<Statement> statements = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<ResultSet> resultSets = new LinkedBlockingQueue<>();
+
+    private QueueChannel() {
+      startWorker(() -> {
+        Statement statement;
+        while ((statement = statements.poll(5L, TimeUnit.SECONDS)) != STOP) {
+          if (statement != null)
+            resultSets.put(RESULT_SET);
+        }
+      });
+    }
+
+    @Override
+    public ResultSet exchange(Statement statement) {
+      try {
+        statements.put(statement);
+        return resultSets.take();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public void stop() {
+      statements.add(STOP);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Worker {
+    void run() throws InterruptedException;
+  }
+
+  private static void startWorker(Worker worker) {
+    Thread thread = new Thread(() -> {
+      try {
+        worker.run();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, "benchmark-worker");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static long[] measure(Channel channel, int iterations) {
+    long[] latencies = new long[iterations];
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      channel.exchange(STATEMENT);
+      latencies[i] = System.nanoTime() - start;
+    }
+    channel.stop();
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private static void run(String name, Supplier<Channel> factory, int iterations) {
+    // Warm up
+    measure(factory.get(), iterations);
+    long[] latencies = measure(factory.get(), iterations);
+    System.out.println(String.format("%-20s p50: %8.2f us   p99: %8.2f us   p99.9: %8.2f us", name,
+        percentile(latencies, 50d) / 1000d, percentile(latencies, 99d) / 1000d,
+        percentile(latencies, 99.9d) / 1000d));
+  }
+
+  public static void main(String[] args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    System.out.println("Handoff latency per query, " + iterations + " iterations");
+    run("LinkedBlockingQueue", QueueChannel::new, iterations);
+    run("StatementHandoff", HandoffChannel::new, iterations);
+  }
+
+}
@@ -0,0 +1,130 @@
+package nl.topicus.jdbc.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.transaction.TransactionThread.QueryException;
+
+@Category(UnitTest.class)
+public class StatementHandoffTest {
+
+  private static Thread startEchoWorker(StatementHandoff handoff, ResultSet[] results) {
+    Thread worker = new Thread(() -> {
+      try {
+        Statement statement;
+        while ((statement = handoff.poll(10L, TimeUnit.SECONDS)) != null) {
+          int index = Integer.parseInt(statement.getSql().substring("SELECT ".length()));
+          handoff.respond(results[index]);
+        }
+      } catch (InterruptedException e) {
+        // stop
+      }
+    });
+    worker.setDaemon(true);
+    worker.start();
+    return worker;
+  }
+
+  @Test
+  public void testExchange() throws InterruptedException {
+    StatementHandoff handoff = new StatementHandoff();
+    ResultSet[] results = new ResultSet[100];
+    for (int i = 0; i < results.length; i++)
+      results[i] = mock(ResultSet.class);
+    Thread worker = startEchoWorker(handoff, results);
+    for (int i = 0; i < results.length; i++) {
+      assertSame(results[i], handoff.exchange(Statement.of("SELECT " + i)));
+    }
+    handoff.wakeUp();
+    worker.join(10000L);
+  }
+
+  @Test
+  public void testPollTimeout() throws InterruptedException {
+    StatementHandoff handoff = new StatementHandoff();
+    long start = System.nanoTime();
+    assertNull(handoff.poll(20L, TimeUnit.MILLISECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20L));
+  }
+
+  @Test
+  public void testWakeUp() throws InterruptedException {
+    StatementHandoff handoff = new StatementHandoff();
+    AtomicReference<Statement> polled = new AtomicReference<>(Statement.of("SELECT 1"));
+    CountDownLatch done = new CountDownLatch(1);
+    Thread worker = new Thread(() -> {
+      try {
+        polled.set(handoff.poll(1L, TimeUnit.MINUTES));
+      } catch (InterruptedException e) {
+        // ignore
+      }
+      done.countDown();
+    });
+    worker.start();
+    handoff.wakeUp();
+    assertTrue(done.await(10L, TimeUnit.SECONDS));
+    assertNull(polled.get());
+  }
+
+  @Test
+  public void testCloseReleasesCaller() throws InterruptedException {
+    StatementHandoff handoff = new StatementHandoff();
+    Exception reason = new Exception("aborted");
+    Thread closer = new Thread(() -> {
+      try {
+        Thread.sleep(20L);
+      } catch (InterruptedException e) {
+        // ignore
+      }
+      handoff.close(reason);
+    });
+    closer.start();
+    try {
+      handoff.exchange(Statement.of("SELECT 1"));
+      fail("missing expected exception");
+    } catch (QueryException e) {
+      assertSame(reason, e.getCause());
+    }
+    closer.join(10000L);
+    // New statements are also refused
+    try {
+      handoff.exchange(Statement.of("SELECT 1"));
+      fail("missing expected exception");
+    } catch (QueryException e) {
+      assertSame(reason, e.getCause());
+    }
+  }
+
+  @Test
+  public void testInterruptWithdrawsStatement() throws InterruptedException {
+    StatementHandoff handoff = new StatementHandoff();
+    AtomicReference<Exception> exception = new AtomicReference<>();
+    Thread caller = new Thread(() -> {
+      try {
+        handoff.exchange(Statement.of("SELECT 1"));
+      } catch (QueryException e) {
+        exception.set(e);
+      }
+    });
+    caller.start();
+    Thread.sleep(20L);
+    caller.interrupt();
+    caller.join(10000L);
+    assertEquals(QueryException.class, exception.get().getClass());
+    assertTrue(exception.get().getCause() instanceof InterruptedException);
+    // The statement should no longer be available to the worker
+    assertNull(handoff.poll(1L, TimeUnit.MILLISECONDS));
+  }
+
+}
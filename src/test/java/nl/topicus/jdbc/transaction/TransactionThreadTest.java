@@ -1,10 +1,13 @@
 package nl.topicus.jdbc.transaction;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.BiFunction;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -16,6 +19,7 @@ import com.google.cloud.spanner.TransactionRunner;
 import nl.topicus.jdbc.Logger;
 import nl.topicus.jdbc.test.category.UnitTest;
 import nl.topicus.jdbc.transaction.TransactionThread.TransactionStatus;
+import nl.topicus.jdbc.xa.RecoveredXid;
 
 @Category(UnitTest.class)
 public class TransactionThreadTest {
@@ -80,6 +84,41 @@ public class TransactionThreadTest {
     return new TestSubject(new TransactionThread(dbClient, new Logger()), runner.mock);
   }
 
+  @Test
+  public void testSplit() throws SQLException {
+    MockTransactionRunner runner = new MockTransactionRunner();
+    DatabaseClient dbClient = mock(DatabaseClient.class);
+    when(dbClient.readWriteTransaction()).then(new Returns(runner));
+    // Each mutation counts for 10,000 cells
+    TransactionThread thread = new TransactionThread(dbClient, new Logger(),
+        TransactionWorkerPool.getDefault(), false, new MutationCounter(table -> 9999));
+    thread.start();
+    assertTrue(thread.split().isEmpty());
+    createThreeMutations(thread);
+    assertEquals(30000L, thread.getBufferedCells());
+    assertTrue(thread.exceedsLimits());
+    List<List<Mutation>> parts = thread.split();
+    assertEquals(1, parts.size());
+    assertEquals(1, parts.get(0).size());
+    assertEquals(20000L, thread.getBufferedCells());
+    assertEquals(2, thread.numberOfBufferedMutations());
+    thread.commit();
+    assertEquals(2, runner.mock.getMutations().size());
+  }
+
+  @Test
+  public void testHasExecutedQueries() throws SQLException {
+    TestSubject subject = createTestSubject();
+    subject.thread.start();
+    assertFalse(subject.thread.hasExecutedQueries());
+    createThreeMutations(subject.thread);
+    assertFalse(subject.thread.hasExecutedQueries());
+    subject.thread.executeQuery(XATransaction.getPreparedMutationsStatement(
+        RecoveredXid.xidToString(TransactionContextMock.XID_WITHOUT_MUTATIONS)));
+    assertTrue(subject.thread.hasExecutedQueries());
+    subject.thread.rollback();
+  }
+
   @Test
   public void testRunSimpleCommit() throws SQLException {
     testRunAction(t -> t.commit());
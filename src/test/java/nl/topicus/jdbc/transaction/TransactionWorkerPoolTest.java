@@ -0,0 +1,126 @@
+package nl.topicus.jdbc.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.TransactionRunner;
+import nl.topicus.jdbc.Logger;
+import nl.topicus.jdbc.test.category.UnitTest;
+import nl.topicus.jdbc.transaction.TransactionThread.TransactionStatus;
+
+@Category(UnitTest.class)
+public class TransactionWorkerPoolTest {
+
+  @Test
+  public void testPoolsAreShared() {
+    assertSame(TransactionWorkerPool.getDefault(),
+        TransactionWorkerPool.getPool(TransactionWorkerPool.UNBOUNDED, false));
+    assertSame(TransactionWorkerPool.getPool(4, false), TransactionWorkerPool.getPool(4, false));
+    assertNotSame(TransactionWorkerPool.getPool(4, false), TransactionWorkerPool.getPool(5, false));
+    assertEquals(TransactionWorkerPool.UNBOUNDED,
+        TransactionWorkerPool.getPool(-1, false).getMaxSize());
+  }
+
+  @Test
+  public void testVirtualThreadsOnlyWhenSupported() {
+    TransactionWorkerPool pool = TransactionWorkerPool.getPool(2, true);
+    assertEquals(TransactionWorkerPool.isVirtualThreadsSupported(), pool.isVirtualThreads());
+  }
+
+  @Test
+  public void testWorkersAreReused() throws InterruptedException {
+    TransactionWorkerPool pool = new TransactionWorkerPool(1, false);
+    try {
+      AtomicReference<Thread> first = new AtomicReference<>();
+      AtomicReference<Thread> second = new AtomicReference<>();
+      CountDownLatch firstDone = new CountDownLatch(1);
+      pool.execute(() -> {
+        first.set(Thread.currentThread());
+        firstDone.countDown();
+      });
+      assertTrue(firstDone.await(10L, TimeUnit.SECONDS));
+      CountDownLatch secondDone = new CountDownLatch(1);
+      pool.execute(() -> {
+        second.set(Thread.currentThread());
+        secondDone.countDown();
+      });
+      assertTrue(secondDone.await(10L, TimeUnit.SECONDS));
+      assertSame(first.get(), second.get());
+      assertTrue(first.get().isDaemon());
+      assertEquals(1, pool.getWorkerCount());
+      assertEquals(2L, pool.getSubmittedTransactionCount());
+      assertEquals(2L, pool.getStartedTransactionCount());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testBoundedPoolQueuesTransactions() throws InterruptedException {
+    TransactionWorkerPool pool = new TransactionWorkerPool(1, false);
+    try {
+      CountDownLatch release = new CountDownLatch(1);
+      CountDownLatch done = new CountDownLatch(2);
+      pool.execute(() -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      });
+      pool.execute(done::countDown);
+      assertEquals(1, pool.getQueuedTransactionCount());
+      Thread.sleep(20L);
+      release.countDown();
+      assertTrue(done.await(10L, TimeUnit.SECONDS));
+      assertEquals(1, pool.getWorkerCount());
+      assertEquals(2L, pool.getStartedTransactionCount());
+      assertTrue(pool.getMaxQueueWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(20L));
+      assertTrue(pool.getTotalQueueWaitNanos() >= pool.getMaxQueueWaitNanos());
+      assertEquals(pool.getTotalQueueWaitNanos() / 2L, pool.getAverageQueueWaitNanos());
+
+      pool.resetStatistics();
+      assertEquals(0L, pool.getSubmittedTransactionCount());
+      assertEquals(0L, pool.getMaxQueueWaitNanos());
+      assertEquals(0L, pool.getAverageQueueWaitNanos());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testTransactionRunsOnPool() throws SQLException {
+    TransactionWorkerPool pool = new TransactionWorkerPool(1, false);
+    try {
+      AtomicReference<String> nameWhileRunning = new AtomicReference<>();
+      TransactionRunner runner = mock(TransactionRunner.class);
+      when(runner.run(any())).thenAnswer(invocation -> {
+        nameWhileRunning.set(Thread.currentThread().getName());
+        return TransactionStatus.SUCCESS;
+      });
+      DatabaseClient dbClient = mock(DatabaseClient.class);
+      when(dbClient.readWriteTransaction()).thenReturn(runner);
+      TransactionThread transaction = new TransactionThread(dbClient, new Logger(), pool, false);
+      transaction.start();
+      transaction.commit();
+      assertEquals(TransactionStatus.SUCCESS, transaction.getTransactionStatus());
+      assertEquals(transaction.getName(), nameWhileRunning.get());
+      assertEquals(1L, pool.getStartedTransactionCount());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+}
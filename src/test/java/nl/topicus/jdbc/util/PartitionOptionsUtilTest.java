@@ -0,0 +1,76 @@
+package nl.topicus.jdbc.util;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.ExpectedException;
+import com.google.cloud.spanner.PartitionOptions;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class PartitionOptionsUtilTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testParseMaxPartitions() throws CloudSpannerSQLException {
+    assertEquals(0L, PartitionOptionsUtil.parseMaxPartitions(null));
+    assertEquals(0L, PartitionOptionsUtil.parseMaxPartitions(""));
+    assertEquals(0L, PartitionOptionsUtil.parseMaxPartitions("0"));
+    assertEquals(100L, PartitionOptionsUtil.parseMaxPartitions(" 100 "));
+    assertEquals(PartitionOptionsUtil.AUTO_MAX_PARTITIONS,
+        PartitionOptionsUtil.parseMaxPartitions("auto"));
+    assertEquals("AUTO",
+        PartitionOptionsUtil.maxPartitionsToString(PartitionOptionsUtil.AUTO_MAX_PARTITIONS));
+    assertEquals("100", PartitionOptionsUtil.maxPartitionsToString(100L));
+  }
+
+  @Test
+  public void testParsePartitionSizeBytes() throws CloudSpannerSQLException {
+    assertEquals(0L, PartitionOptionsUtil.parsePartitionSizeBytes(null));
+    assertEquals(1000L, PartitionOptionsUtil.parsePartitionSizeBytes("1000"));
+    assertEquals(1000L, PartitionOptionsUtil.parsePartitionSizeBytes("1000B"));
+    assertEquals(2048L, PartitionOptionsUtil.parsePartitionSizeBytes("2KB"));
+    assertEquals(512L * 1024L * 1024L, PartitionOptionsUtil.parsePartitionSizeBytes("512mb"));
+    assertEquals(4L * 1024L * 1024L * 1024L,
+        PartitionOptionsUtil.parsePartitionSizeBytes("4 GB"));
+  }
+
+  @Test
+  public void testParseInvalidMaxPartitions() throws CloudSpannerSQLException {
+    thrown.expect(CloudSpannerSQLException.class);
+    PartitionOptionsUtil.parseMaxPartitions("-10");
+  }
+
+  @Test
+  public void testParseInvalidPartitionSizeBytes() throws CloudSpannerSQLException {
+    thrown.expect(CloudSpannerSQLException.class);
+    PartitionOptionsUtil.parsePartitionSizeBytes("10TB");
+  }
+
+  @Test
+  public void testGetAutoMaxPartitions() {
+    assertEquals(12L, PartitionOptionsUtil.getAutoMaxPartitions(3, 4));
+    assertEquals(4L, PartitionOptionsUtil.getAutoMaxPartitions(0, 4));
+    assertEquals(3L * Runtime.getRuntime().availableProcessors(),
+        PartitionOptionsUtil.getAutoMaxPartitions(3, 0));
+  }
+
+  @Test
+  public void testCreatePartitionOptions() {
+    assertEquals(PartitionOptions.getDefaultInstance(),
+        PartitionOptionsUtil.createPartitionOptions(0L, 0L));
+    PartitionOptions options = PartitionOptionsUtil.createPartitionOptions(20L, 0L);
+    assertEquals(20L, options.getMaxPartitions());
+    assertEquals(PartitionOptions.getDefaultInstance().getPartitionSizeBytes(),
+        options.getPartitionSizeBytes());
+    options = PartitionOptionsUtil.createPartitionOptions(0L, 1024L);
+    assertEquals(1024L, options.getPartitionSizeBytes());
+    options = PartitionOptionsUtil.createPartitionOptions(5L, 2048L);
+    assertEquals(5L, options.getMaxPartitions());
+    assertEquals(2048L, options.getPartitionSizeBytes());
+  }
+
+}
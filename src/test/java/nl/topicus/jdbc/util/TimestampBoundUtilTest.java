@@ -0,0 +1,92 @@
+package nl.topicus.jdbc.util;
+
+import static org.junit.Assert.assertEquals;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.ExpectedException;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.TimestampBound;
+import nl.topicus.jdbc.exception.CloudSpannerSQLException;
+import nl.topicus.jdbc.test.category.UnitTest;
+
+@Category(UnitTest.class)
+public class TimestampBoundUtilTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testParse() throws CloudSpannerSQLException {
+    assertEquals(TimestampBound.strong(), TimestampBoundUtil.parse(null));
+    assertEquals(TimestampBound.strong(), TimestampBoundUtil.parse(""));
+    assertEquals(TimestampBound.strong(), TimestampBoundUtil.parse("strong"));
+    assertEquals(TimestampBound.ofMaxStaleness(10L, TimeUnit.SECONDS),
+        TimestampBoundUtil.parse("MAX_STALENESS:10s"));
+    assertEquals(TimestampBound.ofMaxStaleness(10L, TimeUnit.SECONDS),
+        TimestampBoundUtil.parse("max_staleness 10"));
+    assertEquals(TimestampBound.ofExactStaleness(250L, TimeUnit.MILLISECONDS),
+        TimestampBoundUtil.parse("EXACT_STALENESS:250ms"));
+    assertEquals(TimestampBound.ofExactStaleness(2L, TimeUnit.MINUTES),
+        TimestampBoundUtil.parse("EXACT_STALENESS:2m"));
+    assertEquals(TimestampBound.ofExactStaleness(100L, TimeUnit.MICROSECONDS),
+        TimestampBoundUtil.parse("EXACT_STALENESS:100us"));
+    assertEquals(
+        TimestampBound.ofReadTimestamp(Timestamp.parseTimestamp("2018-01-26T10:15:30.123456Z")),
+        TimestampBoundUtil.parse("READ_TIMESTAMP:2018-01-26T10:15:30.123456Z"));
+    assertEquals(
+        TimestampBound.ofMinReadTimestamp(Timestamp.parseTimestamp("2018-01-26T10:15:30Z")),
+        TimestampBoundUtil.parse("MIN_READ_TIMESTAMP:2018-01-26T10:15:30Z"));
+  }
+
+  @Test
+  public void testToStringAndParse() throws CloudSpannerSQLException {
+    for (TimestampBound bound : new TimestampBound[] {TimestampBound.strong(),
+        TimestampBound.ofMaxStaleness(10L, TimeUnit.SECONDS),
+        TimestampBound.ofMaxStaleness(1500L, TimeUnit.MILLISECONDS),
+        TimestampBound.ofExactStaleness(7L, TimeUnit.NANOSECONDS),
+        TimestampBound.ofReadTimestamp(Timestamp.parseTimestamp("2018-01-26T10:15:30.123456Z")),
+        TimestampBound.ofMinReadTimestamp(Timestamp.parseTimestamp("2018-01-26T10:15:30Z"))}) {
+      assertEquals(bound, TimestampBoundUtil.parse(TimestampBoundUtil.toString(bound)));
+    }
+    assertEquals("MAX_STALENESS:1500ms",
+        TimestampBoundUtil.toString(TimestampBound.ofMaxStaleness(1500L, TimeUnit.MILLISECONDS)));
+    assertEquals("STRONG", TimestampBoundUtil.toString(null));
+  }
+
+  @Test
+  public void testToMultiUseBound() {
+    assertEquals(TimestampBound.ofExactStaleness(10L, TimeUnit.SECONDS),
+        TimestampBoundUtil.toMultiUseBound(TimestampBound.ofMaxStaleness(10L, TimeUnit.SECONDS)));
+    assertEquals(TimestampBound.strong(), TimestampBoundUtil.toMultiUseBound(
+        TimestampBound.ofMinReadTimestamp(Timestamp.parseTimestamp("2018-01-26T10:15:30Z"))));
+    assertEquals(TimestampBound.ofExactStaleness(10L, TimeUnit.SECONDS), TimestampBoundUtil
+        .toMultiUseBound(TimestampBound.ofExactStaleness(10L, TimeUnit.SECONDS)));
+    assertEquals(TimestampBound.strong(), TimestampBoundUtil.toMultiUseBound(null));
+  }
+
+  @Test
+  public void testParseInvalidMode() throws CloudSpannerSQLException {
+    thrown.expect(CloudSpannerSQLException.class);
+    TimestampBoundUtil.parse("LATEST");
+  }
+
+  @Test
+  public void testParseMissingDuration() throws CloudSpannerSQLException {
+    thrown.expect(CloudSpannerSQLException.class);
+    TimestampBoundUtil.parse("MAX_STALENESS");
+  }
+
+  @Test
+  public void testParseInvalidDuration() throws CloudSpannerSQLException {
+    thrown.expect(CloudSpannerSQLException.class);
+    TimestampBoundUtil.parse("EXACT_STALENESS:10 days");
+  }
+
+  @Test
+  public void testParseInvalidTimestamp() throws CloudSpannerSQLException {
+    thrown.expect(CloudSpannerSQLException.class);
+    TimestampBoundUtil.parse("READ_TIMESTAMP:yesterday");
+  }
+
+}